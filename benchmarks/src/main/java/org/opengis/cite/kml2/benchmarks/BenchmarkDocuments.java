@@ -0,0 +1,157 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.kml2.util.KMLUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Creates KML documents of a given size for use in benchmarks. Each document
+ * contains a shared style and a sequence of placemarks; every placemark has a
+ * polygon (with a ring of the given number of vertices) and a link to an icon.
+ * The content depends only on the size parameters, so that results are
+ * comparable from one run to the next.
+ */
+public class BenchmarkDocuments {
+
+	private BenchmarkDocuments() {
+	}
+
+	/**
+	 * Writes a KML document to a new temporary file.
+	 *
+	 * @param placemarks
+	 *            The number of placemarks.
+	 * @param vertices
+	 *            The number of distinct vertices in each polygon (at least 3).
+	 * @param iconHref
+	 *            The URI of the icon referenced by each placemark.
+	 * @return A KML file (it is deleted when the JVM exits).
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public static File writeKML(int placemarks, int vertices, String iconHref)
+			throws IOException {
+		File kmlFile = File.createTempFile("bench-", ".kml");
+		kmlFile.deleteOnExit();
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(kmlFile), StandardCharsets.UTF_8))) {
+			write(writer, placemarks, vertices, iconHref);
+		}
+		return kmlFile;
+	}
+
+	/**
+	 * Writes a KMZ archive containing a single KML document (doc.kml) to a new
+	 * temporary directory.
+	 *
+	 * @param placemarks
+	 *            The number of placemarks.
+	 * @param vertices
+	 *            The number of distinct vertices in each polygon (at least 3).
+	 * @param iconHref
+	 *            The URI of the icon referenced by each placemark.
+	 * @return A KMZ file; the directory it resides in is reserved for the
+	 *         content extracted from the archive.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public static File writeKMZ(int placemarks, int vertices, String iconHref)
+			throws IOException {
+		File kmzDir = Files.createTempDirectory("bench-kmz-").toFile();
+		kmzDir.deleteOnExit();
+		File kmzFile = new File(kmzDir, "bench.kmz");
+		kmzFile.deleteOnExit();
+		new File(kmzDir, "doc.kml").deleteOnExit();
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(
+				kmzFile))) {
+			zip.putNextEntry(new ZipEntry("doc.kml"));
+			Writer writer = new BufferedWriter(new OutputStreamWriter(zip,
+					StandardCharsets.UTF_8));
+			write(writer, placemarks, vertices, iconHref);
+			writer.flush();
+			zip.closeEntry();
+		}
+		return kmzFile;
+	}
+
+	/**
+	 * Creates and parses a KML document.
+	 *
+	 * @param placemarks
+	 *            The number of placemarks.
+	 * @param vertices
+	 *            The number of distinct vertices in each polygon (at least 3).
+	 * @return A DOM Document.
+	 * @throws Exception
+	 *             If the document cannot be created.
+	 */
+	public static Document createDocument(int placemarks, int vertices)
+			throws Exception {
+		return KMLUtils.parseKMLDocument(writeKML(placemarks, vertices,
+				"http://localhost/icon.png"));
+	}
+
+	/**
+	 * Returns the first element with the given name in a KML document.
+	 *
+	 * @param doc
+	 *            A KML document.
+	 * @param localName
+	 *            The local name of a KML element.
+	 * @return An Element node.
+	 */
+	public static Element firstElement(Document doc, String localName) {
+		return (Element) doc.getElementsByTagNameNS(KML2.NS_NAME, localName)
+				.item(0);
+	}
+
+	private static void write(Writer writer, int placemarks, int vertices,
+			String iconHref) throws IOException {
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		writer.write("<kml xmlns=\"" + KML2.NS_NAME + "\">\n");
+		writer.write("<Document id=\"doc\">\n");
+		writer.write("<Style id=\"shared\"><LineStyle><width>2</width>"
+				+ "</LineStyle></Style>\n");
+		for (int i = 0; i < placemarks; i++) {
+			writer.write(String.format("<Placemark id=\"p%d\">", i));
+			writer.write(String.format("<name>Placemark %d</name>", i));
+			writer.write("<styleUrl>#shared</styleUrl>");
+			writer.write("<Polygon><outerBoundaryIs><LinearRing><coordinates>");
+			writeRing(writer, -180 + (i % 360), -80 + (i % 160), vertices);
+			writer.write("</coordinates></LinearRing></outerBoundaryIs>"
+					+ "</Polygon>");
+			writer.write(String.format(
+					"<Style><IconStyle><Icon><href>%s</href></Icon>"
+							+ "</IconStyle></Style>", iconHref));
+			writer.write("</Placemark>\n");
+		}
+		writer.write("</Document>\n</kml>\n");
+	}
+
+	/**
+	 * Writes the coordinates of a closed ring (counter-clockwise, with a
+	 * radius of 0.4 degrees) centred on the given position.
+	 */
+	private static void writeRing(Writer writer, double lon, double lat,
+			int vertices) throws IOException {
+		int n = Math.max(3, vertices);
+		for (int i = 0; i <= n; i++) {
+			double angle = 2 * Math.PI * (i % n) / n;
+			writer.write(String.format(Locale.ROOT, "%.6f,%.6f,0 ", lon + 0.5
+					+ 0.4 * Math.cos(angle), lat + 0.5 + 0.4 * Math.sin(angle)));
+		}
+	}
+}
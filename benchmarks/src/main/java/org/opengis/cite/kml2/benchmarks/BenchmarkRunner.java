@@ -0,0 +1,52 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks. The usual JMH command line options are accepted (e.g.
+ * a regular expression that selects the benchmarks to run, or
+ * <code>-p placemarks=1000</code> to override a parameter); unless specified
+ * otherwise, the results are written in JSON format to a file named
+ * {@value #DEFAULT_RESULTS_FILE} in the current directory.
+ *
+ * <p>
+ * <strong>Synopsis</strong>
+ * </p>
+ *
+ * <pre>
+ * java -jar benchmarks.jar [JMH options] [benchmark regexp]
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+	/** The default name of the results file. */
+	public static final String DEFAULT_RESULTS_FILE = "jmh-results.json";
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmdOptions = new CommandLineOptions(args);
+		if (cmdOptions.shouldHelp()) {
+			cmdOptions.showHelp();
+			return;
+		}
+		if (cmdOptions.shouldList()) {
+			new Runner(cmdOptions).list();
+			return;
+		}
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.parent(cmdOptions);
+		if (!cmdOptions.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!cmdOptions.getResult().hasValue()) {
+			options.result(DEFAULT_RESULTS_FILE);
+		}
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,114 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.beust.jcommander.Parameter;
+
+/**
+ * Declares the command line arguments accepted by {@link KMLGenerator}. They
+ * are parsed using the JCommander library.
+ *
+ * <p>
+ * <strong>Synopsis</strong>
+ * </p>
+ *
+ * <pre>
+ * KMLGenerator [--seed 1] [--version 2.2|2.3] [--placemarks 1000] [--folderDepth 0] [--folderSize 1000]
+ *   [--vertices 8] [--trackPoints 16] [--styles 10] [--schemas 1] [--networkLinks 0]
+ *   [--linkBase http://127.0.0.1:8080/] [--invalid 0.0] output.kml|output.kmz
+ * </pre>
+ */
+public class GeneratorArguments {
+
+	@Parameter(description = "Output file (KMZ if the name ends with .kmz)", required = true)
+	private List<String> output = new ArrayList<>();
+
+	@Parameter(names = "--seed", description = "Seed of the pseudorandom number generator")
+	private long seed = 1;
+
+	@Parameter(names = "--version", description = "KML version (2.2 or 2.3)")
+	private String version = "2.2";
+
+	@Parameter(names = "--placemarks", description = "Number of placemarks")
+	private long placemarks = 1000;
+
+	@Parameter(names = "--folderDepth", description = "Depth of nested folders around each group of placemarks")
+	private int folderDepth = 0;
+
+	@Parameter(names = "--folderSize", description = "Number of placemarks in each group")
+	private int folderSize = 1000;
+
+	@Parameter(names = "--vertices", description = "Number of distinct vertices in each line string and linear ring")
+	private int vertices = 8;
+
+	@Parameter(names = "--trackPoints", description = "Number of points in each track (0: no tracks)")
+	private int trackPoints = 16;
+
+	@Parameter(names = "--styles", description = "Number of shared styles")
+	private int styles = 10;
+
+	@Parameter(names = "--schemas", description = "Number of ExtendedData schemas")
+	private int schemas = 1;
+
+	@Parameter(names = "--networkLinks", description = "Number of network links")
+	private int networkLinks = 0;
+
+	@Parameter(names = "--linkBase", description = "Base URI of linked resources (e.g. a local stub server)")
+	private String linkBase = KMLGenerator.DEFAULT_LINK_BASE;
+
+	@Parameter(names = "--invalid", description = "Fraction of placemarks containing a deliberate defect (0.0 - 1.0)")
+	private double invalid = 0.0;
+
+	public String getOutput() {
+		return output.isEmpty() ? null : output.get(0);
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public long getPlacemarks() {
+		return placemarks;
+	}
+
+	public int getFolderDepth() {
+		return folderDepth;
+	}
+
+	public int getFolderSize() {
+		return folderSize;
+	}
+
+	public int getVertices() {
+		return vertices;
+	}
+
+	public int getTrackPoints() {
+		return trackPoints;
+	}
+
+	public int getStyles() {
+		return styles;
+	}
+
+	public int getSchemas() {
+		return schemas;
+	}
+
+	public int getNetworkLinks() {
+		return networkLinks;
+	}
+
+	public String getLinkBase() {
+		return linkBase;
+	}
+
+	public double getInvalid() {
+		return invalid;
+	}
+}
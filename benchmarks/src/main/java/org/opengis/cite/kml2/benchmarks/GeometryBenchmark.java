@@ -0,0 +1,72 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.opengis.cite.kml2.util.CoordinateStore;
+import org.opengis.cite.kml2.util.JTSGeometryBuilder;
+import org.opengis.cite.kml2.validation.CoordinatesValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Measures the time taken to check the coordinates of a ring (see
+ * {@link CoordinatesValidator#validate(org.w3c.dom.Node)}) and to build a JTS
+ * polygon from a kml:Polygon element (see
+ * {@link JTSGeometryBuilder#buildPolygon(Element)}). The coordinates are kept
+ * on the heap or in a {@link CoordinateStore}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GeometryBenchmark {
+
+	/** The number of distinct vertices in the ring. */
+	@Param({ "8", "1000", "100000" })
+	public int vertices;
+	/** Where coordinates are kept: "heap", "direct" or "mapped". */
+	@Param({ "heap", "direct", "mapped" })
+	public String coordinateStore;
+	private Element polygon;
+	private Element ring;
+	private JTSGeometryBuilder geomBuilder;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		Document kmlDoc = BenchmarkDocuments.createDocument(1, vertices);
+		polygon = BenchmarkDocuments.firstElement(kmlDoc, "Polygon");
+		ring = BenchmarkDocuments.firstElement(kmlDoc, "LinearRing");
+		if (!coordinateStore.equals("heap")) {
+			CoordinateStore.register(kmlDoc,
+					coordinateStore.equals(CoordinateStore.MAPPED));
+		}
+		geomBuilder = new JTSGeometryBuilder();
+	}
+
+	@Benchmark
+	public ValidationResult validateCoordinates() {
+		return CoordinatesValidator.getInstance().validate(ring);
+	}
+
+	@Benchmark
+	public Polygon buildPolygon() {
+		return geomBuilder.buildPolygon(polygon);
+	}
+}
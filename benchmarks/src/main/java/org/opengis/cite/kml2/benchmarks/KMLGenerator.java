@@ -0,0 +1,700 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.opengis.cite.kml2.KML2;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * Generates synthetic KML documents of arbitrary size for scale and stress
+ * testing. A document contains a set of shared styles (each with an icon
+ * link), ExtendedData schemas, a sequence of placemarks (optionally grouped
+ * in nested folders), and network links. The placemark geometries cycle
+ * through Point, LineString, Polygon, and Track (gx:Track in KML 2.2); the
+ * size of line strings, linear rings, and tracks is configurable. All links
+ * refer to resources relative to a base URI, which would usually identify a
+ * local stub server.
+ *
+ * <p>
+ * A fraction of the placemarks can be made deliberately invalid; each of
+ * these contains exactly one {@link Defect} and is preceded by a comment that
+ * describes it. The output depends only on the seed and the other settings,
+ * so the same document is produced every time. It is written as a stream:
+ * the memory required does not depend on the size of the document.
+ * </p>
+ *
+ * <p>
+ * <strong>Synopsis</strong>
+ * </p>
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.opengis.cite.kml2.benchmarks.KMLGenerator [options] output.kml|output.kmz
+ * </pre>
+ *
+ * @see GeneratorArguments
+ */
+public class KMLGenerator {
+
+	/** The default base URI of linked resources. */
+	public static final String DEFAULT_LINK_BASE = "http://127.0.0.1:8080/";
+	/** Namespace name of the Google extensions (KML 2.2). */
+	public static final String GX_NS_NAME = "http://www.google.com/kml/ext/2.2";
+	/** The time of the first track point (2010-01-01T00:00:00Z). */
+	private static final long START_TIME = 1262304000000L;
+	/** Size of the character buffer used when writing long text content. */
+	private static final int TEXT_CHUNK = 8192;
+
+	/**
+	 * A deliberate error in a placemark.
+	 */
+	public enum Defect {
+		/** The last vertex of a linear ring differs from the first one. */
+		UNCLOSED_RING("LinearRing is not closed"),
+		/** The latitude of a point exceeds 90 degrees. */
+		LATITUDE_OUT_OF_RANGE("latitude is out of range"),
+		/** A styleUrl refers to a style that does not exist. */
+		UNRESOLVED_STYLE("styleUrl does not identify a style"),
+		/** A SimpleData value does not match the type of its field. */
+		INVALID_SIMPLE_DATA("SimpleData value is not an int"),
+		/** A track does not have the same number of when and coord elements. */
+		TRACK_MISMATCH("number of coord elements differs from number of when elements");
+
+		private final String description;
+
+		private Defect(String description) {
+			this.description = description;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	private enum Geometry {
+		POINT, LINE_STRING, POLYGON, TRACK
+	}
+
+	private final long seed;
+	private String version = KML2.KML_22;
+	private long placemarks = 1000;
+	private int folderDepth = 0;
+	private int folderSize = 1000;
+	private int vertices = 8;
+	private int trackPoints = 16;
+	private int styles = 10;
+	private int schemas = 1;
+	private int networkLinks = 0;
+	private String linkBase = DEFAULT_LINK_BASE;
+	private double invalidFraction = 0.0;
+	private final Map<Defect, Long> defectCounts = new EnumMap<>(Defect.class);
+	private Random random;
+	private XMLStreamWriter writer;
+	private final StringBuilder text = new StringBuilder(TEXT_CHUNK + 64);
+	private final DateFormat timeFormat;
+
+	/**
+	 * Constructs a generator with the default settings (1000 valid KML 2.2
+	 * placemarks).
+	 *
+	 * @param seed
+	 *            The seed of the pseudorandom number generator.
+	 */
+	public KMLGenerator(long seed) {
+		this.seed = seed;
+		this.timeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'",
+				Locale.ROOT);
+		this.timeFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+	}
+
+	/**
+	 * Generates a KML document or KMZ archive as specified by the command line
+	 * arguments (see {@link GeneratorArguments}).
+	 *
+	 * @param args
+	 *            Command line arguments.
+	 * @throws Exception
+	 *             If the document cannot be written.
+	 */
+	public static void main(String[] args) throws Exception {
+		GeneratorArguments genArgs = new GeneratorArguments();
+		JCommander cmd = new JCommander(genArgs);
+		try {
+			cmd.parse(args);
+		} catch (ParameterException px) {
+			System.out.println(px.getMessage());
+			cmd.usage();
+			return;
+		}
+		KMLGenerator generator = new KMLGenerator(genArgs.getSeed());
+		generator.setVersion(genArgs.getVersion());
+		generator.setPlacemarks(genArgs.getPlacemarks());
+		generator.setFolders(genArgs.getFolderDepth(), genArgs.getFolderSize());
+		generator.setVertices(genArgs.getVertices());
+		generator.setTrackPoints(genArgs.getTrackPoints());
+		generator.setStyles(genArgs.getStyles());
+		generator.setSchemas(genArgs.getSchemas());
+		generator.setNetworkLinks(genArgs.getNetworkLinks());
+		generator.setLinkBase(genArgs.getLinkBase());
+		generator.setInvalidFraction(genArgs.getInvalid());
+		File outFile = new File(genArgs.getOutput());
+		if (outFile.getName().toLowerCase(Locale.ROOT).endsWith(".kmz")) {
+			generator.writeKMZ(outFile);
+		} else {
+			generator.writeKML(outFile);
+		}
+		System.out.println(String.format("Wrote %d placemarks to %s (%d bytes). Defects: %s",
+				genArgs.getPlacemarks(), outFile, outFile.length(),
+				generator.getDefectCounts()));
+	}
+
+	/**
+	 * Sets the KML version.
+	 *
+	 * @param version
+	 *            "2.2" (the default) or "2.3".
+	 */
+	public void setVersion(String version) {
+		if (!version.equals(KML2.KML_22) && !version.equals(KML2.KML_23)) {
+			throw new IllegalArgumentException("Unsupported KML version: "
+					+ version);
+		}
+		this.version = version;
+	}
+
+	/**
+	 * Sets the number of placemarks.
+	 *
+	 * @param placemarks
+	 *            A non-negative number (default: 1000).
+	 */
+	public void setPlacemarks(long placemarks) {
+		this.placemarks = Math.max(0, placemarks);
+	}
+
+	/**
+	 * Groups the placemarks in nested folders. Each group of placemarks is
+	 * contained in a chain of folders of the given depth.
+	 *
+	 * @param depth
+	 *            The number of nested folders (default: 0, no folders).
+	 * @param size
+	 *            The number of placemarks in a group (default: 1000).
+	 */
+	public void setFolders(int depth, int size) {
+		this.folderDepth = Math.max(0, depth);
+		this.folderSize = Math.max(1, size);
+	}
+
+	/**
+	 * Sets the number of distinct vertices in each line string and linear
+	 * ring.
+	 *
+	 * @param vertices
+	 *            The number of vertices (at least 3; default: 8).
+	 */
+	public void setVertices(int vertices) {
+		this.vertices = Math.max(3, vertices);
+	}
+
+	/**
+	 * Sets the number of points in each track.
+	 *
+	 * @param trackPoints
+	 *            The number of points (default: 16); if 0, no tracks are
+	 *            generated.
+	 */
+	public void setTrackPoints(int trackPoints) {
+		this.trackPoints = Math.max(0, trackPoints);
+	}
+
+	/**
+	 * Sets the number of shared styles.
+	 *
+	 * @param styles
+	 *            The number of styles (default: 10).
+	 */
+	public void setStyles(int styles) {
+		this.styles = Math.max(0, styles);
+	}
+
+	/**
+	 * Sets the number of ExtendedData schemas.
+	 *
+	 * @param schemas
+	 *            The number of schemas (default: 1); if 0, placemarks have no
+	 *            ExtendedData.
+	 */
+	public void setSchemas(int schemas) {
+		this.schemas = Math.max(0, schemas);
+	}
+
+	/**
+	 * Sets the number of network links.
+	 *
+	 * @param networkLinks
+	 *            The number of network links (default: 0).
+	 */
+	public void setNetworkLinks(int networkLinks) {
+		this.networkLinks = Math.max(0, networkLinks);
+	}
+
+	/**
+	 * Sets the base URI of linked resources (icons and network link targets).
+	 *
+	 * @param linkBase
+	 *            An absolute URI (default: {@value #DEFAULT_LINK_BASE}).
+	 */
+	public void setLinkBase(String linkBase) {
+		this.linkBase = linkBase.endsWith("/") ? linkBase : linkBase + "/";
+	}
+
+	/**
+	 * Sets the fraction of placemarks that contain a defect.
+	 *
+	 * @param fraction
+	 *            A value between 0.0 (the default) and 1.0.
+	 */
+	public void setInvalidFraction(double fraction) {
+		if (fraction < 0.0 || fraction > 1.0) {
+			throw new IllegalArgumentException(
+					"Fraction must be between 0.0 and 1.0: " + fraction);
+		}
+		this.invalidFraction = fraction;
+	}
+
+	/**
+	 * Returns the number of defects of each kind in the last document
+	 * generated.
+	 *
+	 * @return An unmodifiable map (kinds that did not occur are omitted).
+	 */
+	public Map<Defect, Long> getDefectCounts() {
+		return Collections.unmodifiableMap(new EnumMap<>(defectCounts));
+	}
+
+	/**
+	 * Writes a KML document to a file.
+	 *
+	 * @param kmlFile
+	 *            The output file (it is replaced if it exists).
+	 * @throws IOException
+	 *             If the document cannot be written.
+	 */
+	public void writeKML(File kmlFile) throws IOException {
+		try (OutputStream out = new FileOutputStream(kmlFile)) {
+			write(out);
+		}
+	}
+
+	/**
+	 * Writes a KMZ archive containing a single KML document (doc.kml).
+	 *
+	 * @param kmzFile
+	 *            The output file (it is replaced if it exists).
+	 * @throws IOException
+	 *             If the archive cannot be written.
+	 */
+	public void writeKMZ(File kmzFile) throws IOException {
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(
+				kmzFile))) {
+			zip.putNextEntry(new ZipEntry("doc.kml"));
+			write(zip);
+			zip.closeEntry();
+		}
+	}
+
+	/**
+	 * Writes a KML document to an output stream (UTF-8). The stream is flushed
+	 * but not closed.
+	 *
+	 * @param out
+	 *            The destination.
+	 * @throws IOException
+	 *             If the document cannot be written.
+	 */
+	public void write(OutputStream out) throws IOException {
+		random = new Random(seed);
+		defectCounts.clear();
+		BufferedOutputStream buffered = new BufferedOutputStream(out, 65536);
+		try {
+			writer = XMLOutputFactory.newInstance().createXMLStreamWriter(
+					buffered, "UTF-8");
+			try {
+				writeDocument();
+				writer.flush();
+			} finally {
+				writer.close();
+				writer = null;
+			}
+		} catch (XMLStreamException xse) {
+			throw new IOException("Failed to write KML document.", xse);
+		}
+		buffered.flush();
+	}
+
+	private void writeDocument() throws XMLStreamException {
+		List<Defect> defects = applicableDefects();
+		writer.writeStartDocument("UTF-8", "1.0");
+		writer.writeCharacters("\n");
+		writer.writeStartElement(KML2.DOC_ELEMENT);
+		writer.writeDefaultNamespace(KML2.NS_NAME);
+		if (version.equals(KML2.KML_23)) {
+			writer.writeAttribute(KML2.VER_ATTR, version);
+		} else if (trackPoints > 0) {
+			writer.writeNamespace("gx", GX_NS_NAME);
+		}
+		writer.writeStartElement("Document");
+		writer.writeAttribute("id", "doc");
+		writeSimpleElement("name", String.format(
+				"Generated document (seed=%d, placemarks=%d)", seed,
+				placemarks));
+		for (int i = 0; i < styles; i++) {
+			writeStyle(i);
+		}
+		for (int i = 0; i < schemas; i++) {
+			writeSchema(i);
+		}
+		for (long i = 0; i < placemarks; i++) {
+			if (folderDepth > 0 && i % folderSize == 0) {
+				if (i > 0) {
+					endFolders();
+				}
+				startFolders(i / folderSize);
+			}
+			Defect defect = null;
+			if (!defects.isEmpty() && random.nextDouble() < invalidFraction) {
+				defect = defects.get(random.nextInt(defects.size()));
+				Long count = defectCounts.get(defect);
+				defectCounts.put(defect, (null == count) ? 1 : count + 1);
+			}
+			writePlacemark(i, defect);
+		}
+		if (folderDepth > 0 && placemarks > 0) {
+			endFolders();
+		}
+		for (int i = 0; i < networkLinks; i++) {
+			writeNetworkLink(i);
+		}
+		writer.writeEndElement();
+		writer.writeEndElement();
+		writer.writeEndDocument();
+	}
+
+	private List<Defect> applicableDefects() {
+		List<Defect> defects = new ArrayList<>();
+		defects.add(Defect.UNCLOSED_RING);
+		defects.add(Defect.LATITUDE_OUT_OF_RANGE);
+		defects.add(Defect.UNRESOLVED_STYLE);
+		if (schemas > 0) {
+			defects.add(Defect.INVALID_SIMPLE_DATA);
+		}
+		if (trackPoints > 1) {
+			defects.add(Defect.TRACK_MISMATCH);
+		}
+		return defects;
+	}
+
+	private void startFolders(long group) throws XMLStreamException {
+		for (int level = 0; level < folderDepth; level++) {
+			writer.writeStartElement("Folder");
+			writer.writeAttribute("id", String.format("f%d-%d", group, level));
+			writeSimpleElement("name", String.format("Folder %d.%d", group,
+					level));
+		}
+	}
+
+	private void endFolders() throws XMLStreamException {
+		for (int level = 0; level < folderDepth; level++) {
+			writer.writeEndElement();
+		}
+	}
+
+	private void writeStyle(int index) throws XMLStreamException {
+		writer.writeStartElement("Style");
+		writer.writeAttribute("id", "s" + index);
+		writer.writeStartElement("IconStyle");
+		writer.writeStartElement("Icon");
+		writeSimpleElement("href", linkBase + "icons/" + index + ".png");
+		writer.writeEndElement();
+		writer.writeEndElement();
+		writer.writeStartElement("LineStyle");
+		writeSimpleElement("color", String.format("ff%06x",
+				random.nextInt(0x1000000)));
+		writeSimpleElement("width", Integer.toString(1 + random.nextInt(4)));
+		writer.writeEndElement();
+		writer.writeStartElement("PolyStyle");
+		writeSimpleElement("color", String.format("7f%06x",
+				random.nextInt(0x1000000)));
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	private void writeSchema(int index) throws XMLStreamException {
+		writer.writeStartElement("Schema");
+		writer.writeAttribute("name", "Schema" + index);
+		writer.writeAttribute("id", "schema" + index);
+		writeSimpleField("string", "label");
+		writeSimpleField("double", "value");
+		writeSimpleField("int", "count");
+		writer.writeEndElement();
+	}
+
+	private void writeSimpleField(String type, String name)
+			throws XMLStreamException {
+		writer.writeEmptyElement("SimpleField");
+		writer.writeAttribute("type", type);
+		writer.writeAttribute("name", name);
+	}
+
+	private void writePlacemark(long index, Defect defect)
+			throws XMLStreamException {
+		Geometry geom = geometryFor(index, defect);
+		writer.writeStartElement("Placemark");
+		writer.writeAttribute("id", "p" + index);
+		if (null != defect) {
+			writer.writeComment(" ERROR: " + defect.getDescription() + " ");
+		}
+		writeSimpleElement("name", "Placemark " + index);
+		if (defect == Defect.UNRESOLVED_STYLE) {
+			writeSimpleElement("styleUrl", "#missing" + index);
+		} else if (styles > 0) {
+			writeSimpleElement("styleUrl", "#s" + (index % styles));
+		}
+		if (schemas > 0) {
+			writeExtendedData(index, defect == Defect.INVALID_SIMPLE_DATA);
+		}
+		double lon = -179.0 + 358.0 * random.nextDouble();
+		double lat = -88.0 + 176.0 * random.nextDouble();
+		switch (geom) {
+		case POINT:
+			writePoint(lon, (defect == Defect.LATITUDE_OUT_OF_RANGE) ? 90.0
+					+ 10.0 * random.nextDouble() : lat);
+			break;
+		case LINE_STRING:
+			writeLineString(lon, lat);
+			break;
+		case POLYGON:
+			writePolygon(lon, lat, defect == Defect.UNCLOSED_RING);
+			break;
+		default:
+			writeTrack(index, lon, lat, defect == Defect.TRACK_MISMATCH);
+		}
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+	}
+
+	private Geometry geometryFor(long index, Defect defect) {
+		if (defect == Defect.UNCLOSED_RING) {
+			return Geometry.POLYGON;
+		} else if (defect == Defect.LATITUDE_OUT_OF_RANGE) {
+			return Geometry.POINT;
+		} else if (defect == Defect.TRACK_MISMATCH) {
+			return Geometry.TRACK;
+		}
+		int kinds = (trackPoints > 0) ? 4 : 3;
+		return Geometry.values()[(int) (index % kinds)];
+	}
+
+	private void writeExtendedData(long index, boolean invalid)
+			throws XMLStreamException {
+		writer.writeStartElement("ExtendedData");
+		writer.writeStartElement("SchemaData");
+		writer.writeAttribute("schemaUrl", "#schema" + (index % schemas));
+		writeSimpleData("label", "Feature " + index);
+		writeSimpleData("value",
+				Double.toString(Math.rint(random.nextDouble() * 1e6) / 1e3));
+		writeSimpleData("count",
+				invalid ? "n/a" : Integer.toString(random.nextInt(10000)));
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	private void writeSimpleData(String name, String value)
+			throws XMLStreamException {
+		writer.writeStartElement("SimpleData");
+		writer.writeAttribute("name", name);
+		writer.writeCharacters(value);
+		writer.writeEndElement();
+	}
+
+	private void writePoint(double lon, double lat) throws XMLStreamException {
+		writer.writeStartElement("Point");
+		writer.writeStartElement("coordinates");
+		appendTuple(lon, lat, 0, ',');
+		flushText();
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Writes a line string along a random walk that starts at the given
+	 * position.
+	 */
+	private void writeLineString(double lon, double lat)
+			throws XMLStreamException {
+		writer.writeStartElement("LineString");
+		writer.writeStartElement("coordinates");
+		double x = lon;
+		double y = lat;
+		for (int i = 0; i < vertices; i++) {
+			appendTuple(x, y, 0, ',');
+			x = clamp(x + 0.01 * (random.nextDouble() - 0.5), -180, 180);
+			y = clamp(y + 0.01 * (random.nextDouble() - 0.5), -90, 90);
+			if (text.length() > TEXT_CHUNK) {
+				flushText();
+			}
+		}
+		flushText();
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Writes a polygon whose outer boundary is a counter-clockwise ring
+	 * centred on the given position, with a radius of at most 0.5 degrees.
+	 */
+	private void writePolygon(double lon, double lat, boolean unclosed)
+			throws XMLStreamException {
+		double radius = 0.01 + 0.49 * random.nextDouble();
+		writer.writeStartElement("Polygon");
+		writer.writeStartElement("outerBoundaryIs");
+		writer.writeStartElement("LinearRing");
+		writer.writeStartElement("coordinates");
+		int last = unclosed ? vertices - 1 : vertices;
+		for (int i = 0; i <= last; i++) {
+			double angle = 2 * Math.PI * (i % vertices) / vertices;
+			appendTuple(lon + radius * Math.cos(angle),
+					lat + radius * Math.sin(angle), 0, ',');
+			if (text.length() > TEXT_CHUNK) {
+				flushText();
+			}
+		}
+		flushText();
+		writer.writeEndElement();
+		writer.writeEndElement();
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Writes a track (kml:Track in KML 2.3, gx:Track in KML 2.2) with points
+	 * at 10 second intervals.
+	 */
+	private void writeTrack(long index, double lon, double lat,
+			boolean mismatch) throws XMLStreamException {
+		boolean gx = version.equals(KML2.KML_22);
+		if (gx) {
+			writer.writeStartElement("gx", "Track", GX_NS_NAME);
+		} else {
+			writer.writeStartElement("Track");
+		}
+		long start = START_TIME + index * 60000L;
+		for (int i = 0; i < trackPoints; i++) {
+			writeSimpleElement("when",
+					timeFormat.format(new Date(start + i * 10000L)));
+		}
+		int coords = mismatch ? trackPoints - 1 : trackPoints;
+		double x = lon;
+		double y = lat;
+		double z = 100.0 * random.nextDouble();
+		for (int i = 0; i < coords; i++) {
+			if (gx) {
+				writer.writeStartElement("gx", "coord", GX_NS_NAME);
+			} else {
+				writer.writeStartElement("coord");
+			}
+			appendTuple(x, y, z, ' ');
+			flushText();
+			writer.writeEndElement();
+			x = clamp(x + 0.001 * (random.nextDouble() - 0.5), -180, 180);
+			y = clamp(y + 0.001 * (random.nextDouble() - 0.5), -90, 90);
+			z = Math.max(0, z + random.nextDouble() - 0.5);
+		}
+		writer.writeEndElement();
+	}
+
+	private void writeNetworkLink(int index) throws XMLStreamException {
+		writer.writeStartElement("NetworkLink");
+		writer.writeAttribute("id", "n" + index);
+		writeSimpleElement("name", "Network link " + index);
+		writer.writeStartElement("Link");
+		writeSimpleElement("href", linkBase + "kml/" + index + ".kml");
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	private void writeSimpleElement(String localName, String value)
+			throws XMLStreamException {
+		writer.writeStartElement(localName);
+		writer.writeCharacters(value);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Appends a coordinate tuple to the text buffer. The values in a tuple are
+	 * separated by commas (kml:coordinates) or spaces (kml:coord); in the
+	 * former case the tuple is followed by a space.
+	 */
+	private void appendTuple(double x, double y, double z, char separator) {
+		appendDecimal(x);
+		text.append(separator);
+		appendDecimal(y);
+		text.append(separator);
+		appendDecimal(z);
+		if (separator == ',') {
+			text.append(' ');
+		}
+	}
+
+	/**
+	 * Appends a decimal value with six fractional digits; this is much faster
+	 * than using a Formatter.
+	 */
+	private void appendDecimal(double value) {
+		long scaled = Math.round(value * 1e6);
+		if (scaled < 0) {
+			text.append('-');
+			scaled = -scaled;
+		}
+		text.append(scaled / 1000000).append('.');
+		String fraction = Long.toString(scaled % 1000000);
+		for (int i = fraction.length(); i < 6; i++) {
+			text.append('0');
+		}
+		text.append(fraction);
+	}
+
+	private void flushText() throws XMLStreamException {
+		if (text.length() > 0) {
+			writer.writeCharacters(text.toString());
+			text.setLength(0);
+		}
+	}
+
+	private static double clamp(double value, double min, double max) {
+		return Math.max(min, Math.min(max, value));
+	}
+}
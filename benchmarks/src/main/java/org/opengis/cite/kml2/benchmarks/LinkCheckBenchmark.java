@@ -0,0 +1,98 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.MediaType;
+
+import org.opengis.cite.kml2.util.HttpClientUtils;
+import org.opengis.cite.kml2.util.KMLUtils;
+import org.opengis.cite.kml2.validation.LinkValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Measures the time taken to check a kml:Icon link (see
+ * {@link LinkValidator#validate(org.w3c.dom.Node)}) against a stub HTTP server
+ * on the loopback interface, so that results do not depend on the network.
+ * The server responds after the given delay.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LinkCheckBenchmark {
+
+	private static final byte[] ICON = new byte[1024];
+	/** The time (ms) taken by the server to respond. */
+	@Param({ "0", "5" })
+	public int latency;
+	private HttpServer server;
+	private Element icon;
+	private LinkValidator validator;
+
+	@Setup(Level.Trial)
+	public void startServer() throws Exception {
+		server = HttpServer.create(new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					Thread.sleep(latency);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				exchange.getResponseHeaders().set("Content-Type", "image/png");
+				boolean head = exchange.getRequestMethod().equals("HEAD");
+				exchange.sendResponseHeaders(200, head ? -1 : ICON.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					if (!head) {
+						out.write(ICON);
+					}
+				}
+			}
+		});
+		server.start();
+		String iconHref = String.format("http://127.0.0.1:%d/icon.png", server
+				.getAddress().getPort());
+		Document kmlDoc = KMLUtils.parseKMLDocument(BenchmarkDocuments
+				.writeKML(1, 4, iconHref));
+		icon = BenchmarkDocuments.firstElement(kmlDoc, "Icon");
+		HttpClientUtils.setLinkCheckCache(null);
+		validator = new LinkValidator(MediaType.valueOf("image/png"));
+	}
+
+	@TearDown(Level.Trial)
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Benchmark
+	public ValidationResult validateLink() {
+		return validator.validate(icon);
+	}
+}
@@ -0,0 +1,56 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.opengis.cite.kml2.util.KMLUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the time taken to parse a KML document, either as is or packaged in
+ * a KMZ archive (see {@link KMLUtils#parseKMLDocument(File)}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+	/** The number of placemarks in the document. */
+	@Param({ "100", "10000" })
+	public int placemarks;
+	private File kmlFile;
+	private File kmzFile;
+
+	@Setup(Level.Trial)
+	public void writeDocuments() throws Exception {
+		kmlFile = BenchmarkDocuments.writeKML(placemarks, 8,
+				"http://localhost/icon.png");
+		kmzFile = BenchmarkDocuments.writeKMZ(placemarks, 8,
+				"http://localhost/icon.png");
+	}
+
+	@Benchmark
+	public Document parseKML() throws Exception {
+		return KMLUtils.parseKMLDocument(kmlFile);
+	}
+
+	@Benchmark
+	public Document parseKMZ() throws Exception {
+		return KMLUtils.parseKMLDocument(kmzFile);
+	}
+}
@@ -0,0 +1,63 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+
+import org.opengis.cite.kml2.util.ValidationUtils;
+import org.opengis.cite.validation.ValidationErrorHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the time taken to compile the KML 2.2 schema (see
+ * {@link ValidationUtils#createKMLSchema(String)}) and to validate a document
+ * against it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SchemaValidationBenchmark {
+
+	/** The number of placemarks in the document. */
+	@Param({ "100", "10000" })
+	public int placemarks;
+	private Schema schema;
+	private Document kmlDoc;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		schema = ValidationUtils.createKMLSchema("2.2");
+		kmlDoc = BenchmarkDocuments.createDocument(placemarks, 8);
+	}
+
+	@Benchmark
+	public Schema createKMLSchema() {
+		return ValidationUtils.createKMLSchema("2.2");
+	}
+
+	@Benchmark
+	public boolean validate() throws Exception {
+		Validator validator = schema.newValidator();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		validator.setErrorHandler(errHandler);
+		validator.validate(new DOMSource(kmlDoc));
+		return errHandler.errorsDetected();
+	}
+}
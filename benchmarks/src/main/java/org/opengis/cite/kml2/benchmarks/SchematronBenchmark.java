@@ -0,0 +1,63 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.dom.DOMSource;
+
+import org.opengis.cite.kml2.ETSAssert;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the time taken to check a document against the Schematron schema
+ * for KML features (see
+ * {@link ETSAssert#assertSchematronValid(URL, javax.xml.transform.Source, String)}
+ * ).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SchematronBenchmark {
+
+	/** The number of placemarks in the document. */
+	@Param({ "100", "10000" })
+	public int placemarks;
+	/** The Schematron phase. */
+	@Param({ "MainPhase", "CL2" })
+	public String phase;
+	private URL schemaRef;
+	private Document kmlDoc;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		schemaRef = ETSAssert.class
+				.getResource("/org/opengis/cite/kml2/sch/kml-feature.sch");
+		kmlDoc = BenchmarkDocuments.createDocument(placemarks, 8);
+	}
+
+	@Benchmark
+	public boolean assertSchematronValid() {
+		try {
+			ETSAssert.assertSchematronValid(schemaRef, new DOMSource(kmlDoc),
+					phase);
+			return true;
+		} catch (AssertionError e) {
+			return false;
+		}
+	}
+}
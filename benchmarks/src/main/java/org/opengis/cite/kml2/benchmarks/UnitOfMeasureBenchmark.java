@@ -0,0 +1,64 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.kml2.validation.SchemaChecker;
+import org.opengis.cite.validation.ValidationErrorHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Measures the time taken to check a unit of measure reference in a schema
+ * field (see
+ * {@link SchemaChecker#checkUnitOfMeasure(Element, ValidationErrorHandler)}).
+ * The check looks up a UCUM code, with or without a prefix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UnitOfMeasureBenchmark {
+
+	/** The unit of measure (a UCUM code). */
+	@Param({ "m", "km", "m/s", "undefined" })
+	public String uom;
+	private Element schemaField;
+	private SchemaChecker checker;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		Document doc = dbf.newDocumentBuilder().newDocument();
+		schemaField = doc.createElementNS(KML2.NS_NAME, "SimpleField");
+		schemaField.setAttribute("name", "length");
+		schemaField.setAttribute("type", "double");
+		schemaField.setAttribute("uom", uom);
+		doc.appendChild(schemaField);
+		checker = SchemaChecker.getInstance();
+	}
+
+	@Benchmark
+	public boolean checkUnitOfMeasure() {
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		checker.checkUnitOfMeasure(schemaField, errHandler);
+		return errHandler.errorsDetected();
+	}
+}
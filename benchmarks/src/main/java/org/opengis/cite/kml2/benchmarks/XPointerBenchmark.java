@@ -0,0 +1,53 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.kml2.util.XMLUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Measures the time taken to build an XPointer for an element (see
+ * {@link XMLUtils#buildXPointer(Node)}) that is deeply nested in the last
+ * placemark of a document, which has many preceding siblings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XPointerBenchmark {
+
+	/** The number of placemarks in the document. */
+	@Param({ "100", "10000" })
+	public int placemarks;
+	private Node target;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		Document kmlDoc = BenchmarkDocuments.createDocument(placemarks, 8);
+		NodeList coords = kmlDoc.getElementsByTagNameNS(KML2.NS_NAME,
+				"coordinates");
+		target = coords.item(coords.getLength() - 1);
+	}
+
+	@Benchmark
+	public String buildXPointer() {
+		return XMLUtils.buildXPointer(target);
+	}
+}
@@ -0,0 +1,47 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * Verifies the behavior of the GeneratorArguments class.
+ */
+public class VerifyGeneratorArguments {
+
+	@Test
+	public void defaultValues() {
+		GeneratorArguments args = new GeneratorArguments();
+		new JCommander(args).parse("out.kml");
+		assertEquals("out.kml", args.getOutput());
+		assertEquals(1, args.getSeed());
+		assertEquals("2.2", args.getVersion());
+		assertEquals(1000, args.getPlacemarks());
+		assertEquals(0, args.getFolderDepth());
+		assertEquals(KMLGenerator.DEFAULT_LINK_BASE, args.getLinkBase());
+		assertEquals(0.0, args.getInvalid(), 0.0);
+	}
+
+	@Test
+	public void parseOptions() {
+		GeneratorArguments args = new GeneratorArguments();
+		new JCommander(args).parse("--seed", "9", "--version", "2.3",
+				"--placemarks", "5000000", "--folderDepth", "3",
+				"--trackPoints", "0", "--invalid", "0.05", "big.kmz");
+		assertEquals("big.kmz", args.getOutput());
+		assertEquals(9, args.getSeed());
+		assertEquals("2.3", args.getVersion());
+		assertEquals(5000000, args.getPlacemarks());
+		assertEquals(3, args.getFolderDepth());
+		assertEquals(0, args.getTrackPoints());
+		assertEquals(0.05, args.getInvalid(), 0.0);
+	}
+
+	@Test(expected = ParameterException.class)
+	public void outputIsRequired() {
+		new JCommander(new GeneratorArguments()).parse("--seed", "9");
+	}
+}
@@ -0,0 +1,133 @@
+package org.opengis.cite.kml2.benchmarks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+
+import org.junit.Test;
+import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.kml2.benchmarks.KMLGenerator.Defect;
+import org.opengis.cite.kml2.util.ValidationUtils;
+import org.xml.sax.SAXException;
+
+/**
+ * Verifies the behavior of the KMLGenerator class.
+ */
+public class VerifyKMLGenerator {
+
+	private static byte[] generate(KMLGenerator generator) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.write(out);
+		return out.toByteArray();
+	}
+
+	private static void validate(String version, byte[] kml)
+			throws SAXException, IOException {
+		Schema schema = ValidationUtils.getKMLSchema(version);
+		assertNotNull("KML schema not available: " + version, schema);
+		schema.newValidator().validate(
+				new StreamSource(new ByteArrayInputStream(kml)));
+	}
+
+	private static int countOccurrences(String text, String value) {
+		int count = 0;
+		for (int i = text.indexOf(value); i >= 0; i = text.indexOf(value,
+				i + value.length())) {
+			count++;
+		}
+		return count;
+	}
+
+	@Test
+	public void sameSeedGivesSameDocument() throws IOException {
+		KMLGenerator generator = new KMLGenerator(42);
+		generator.setPlacemarks(200);
+		generator.setInvalidFraction(0.1);
+		byte[] first = generate(generator);
+		assertArrayEquals("Expected identical output.", first,
+				generate(generator));
+		KMLGenerator other = new KMLGenerator(42);
+		other.setPlacemarks(200);
+		other.setInvalidFraction(0.1);
+		assertArrayEquals("Expected identical output.", first,
+				generate(other));
+	}
+
+	@Test
+	public void differentSeedGivesDifferentDocument() throws IOException {
+		KMLGenerator generator = new KMLGenerator(1);
+		generator.setPlacemarks(50);
+		byte[] first = generate(generator);
+		assertFalse("Expected different output.", Arrays.equals(first,
+				generate(new KMLGenerator(2))));
+	}
+
+	@Test
+	public void validKML22Document() throws Exception {
+		KMLGenerator generator = new KMLGenerator(7);
+		generator.setPlacemarks(100);
+		generator.setFolders(2, 20);
+		generator.setNetworkLinks(3);
+		// gx:Track is not declared in the OGC KML 2.2 schema
+		generator.setTrackPoints(0);
+		validate(KML2.KML_22, generate(generator));
+		assertTrue(generator.getDefectCounts().isEmpty());
+	}
+
+	@Test
+	public void validKML23Document() throws Exception {
+		KMLGenerator generator = new KMLGenerator(7);
+		generator.setVersion(KML2.KML_23);
+		generator.setPlacemarks(100);
+		generator.setFolders(1, 30);
+		validate(KML2.KML_23, generate(generator));
+		assertTrue(generator.getDefectCounts().isEmpty());
+	}
+
+	@Test
+	public void defectCountMatchesFraction() throws IOException {
+		int placemarks = 10000;
+		KMLGenerator generator = new KMLGenerator(3);
+		generator.setPlacemarks(placemarks);
+		generator.setInvalidFraction(0.1);
+		String kml = new String(generate(generator), StandardCharsets.UTF_8);
+		long total = 0;
+		Map<Defect, Long> counts = generator.getDefectCounts();
+		for (Long count : counts.values()) {
+			total += count;
+		}
+		// binomial distribution: mean 1000, standard deviation 30
+		assertTrue("Unexpected number of defects: " + total, total > 880
+				&& total < 1120);
+		assertEquals("Expected one comment per defect.", total,
+				countOccurrences(kml, "<!-- ERROR: "));
+		assertEquals("Expected every kind of defect.", Defect.values().length,
+				counts.size());
+	}
+
+	@Test
+	public void noDefectsIfFractionIsZero() throws IOException {
+		KMLGenerator generator = new KMLGenerator(3);
+		generator.setPlacemarks(1000);
+		String kml = new String(generate(generator), StandardCharsets.UTF_8);
+		assertTrue(generator.getDefectCounts().isEmpty());
+		assertEquals(0, countOccurrences(kml, "ERROR:"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void fractionOutOfRange() {
+		new KMLGenerator(1).setInvalidFraction(1.5);
+	}
+}
@@ -0,0 +1,221 @@
+package org.opengis.cite.kml2;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMSource;
+
+import org.opengis.cite.kml2.util.URIUtils;
+import org.opengis.cite.kml2.util.XMLUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Summarizes the results of a batch test run. There is one entry for each test
+ * subject, which refers to the TestNG results for that subject; entries may be
+ * added concurrently but are always reported in the order of the batch.
+ *
+ * <p>
+ * The summary is written as an XML document like the following:
+ * </p>
+ *
+ * <pre>
+ * &lt;batch-results total="2" passed="1" failed="1" errors="0"&gt;
+ *   &lt;subject uri="file:/data/a.kml" results="file:/out/1/testng-results.xml"
+ *     total="40" passed="28" failed="0" skipped="12"/&gt;
+ *   &lt;subject uri="file:/data/b.kmz" results="..." total="40" ... failed="3"/&gt;
+ * &lt;/batch-results&gt;
+ * </pre>
+ */
+public class BatchSummary {
+
+	/** Name of the summary file written to the output directory. */
+	public static final String FILE_NAME = "batch-results.xml";
+	private final Map<Integer, Entry> entries = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Records the results of testing a subject.
+	 *
+	 * @param index
+	 *            The position of the subject in the batch.
+	 * @param subject
+	 *            The location of the test subject.
+	 * @param results
+	 *            The TestNG results (testng-results.xml).
+	 */
+	public void addResults(int index, URI subject, Source results) {
+		Entry entry = new Entry(subject);
+		entry.results = results.getSystemId();
+		try {
+			Node node = (results instanceof DOMSource) ? ((DOMSource) results)
+					.getNode() : URIUtils.parseURI(URI.create(results
+					.getSystemId()));
+			Element root = (node instanceof Document) ? ((Document) node)
+					.getDocumentElement() : (Element) node;
+			entry.total = parseCount(root.getAttribute("total"));
+			entry.passed = parseCount(root.getAttribute("passed"));
+			entry.failed = parseCount(root.getAttribute("failed"));
+			entry.skipped = parseCount(root.getAttribute("skipped"));
+		} catch (Exception e) {
+			entry.error = "Failed to read test results: " + e.getMessage();
+		}
+		entries.put(index, entry);
+	}
+
+	/**
+	 * Records an error that prevented a subject from being tested.
+	 *
+	 * @param index
+	 *            The position of the subject in the batch.
+	 * @param subject
+	 *            The location of the test subject.
+	 * @param error
+	 *            The exception that aborted the test run.
+	 */
+	public void addError(int index, URI subject, Throwable error) {
+		Entry entry = new Entry(subject);
+		entry.error = error.toString();
+		entries.put(index, entry);
+	}
+
+	/**
+	 * Returns the number of subjects recorded so far.
+	 *
+	 * @return The number of subjects.
+	 */
+	public int getSubjectCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of subjects with no failed tests.
+	 *
+	 * @return The number of conforming subjects.
+	 */
+	public int getPassedCount() {
+		int passed = 0;
+		for (Entry entry : entries.values()) {
+			if (null == entry.error && entry.failed == 0) {
+				passed++;
+			}
+		}
+		return passed;
+	}
+
+	/**
+	 * Returns the number of subjects that could not be tested.
+	 *
+	 * @return The number of test runs that were aborted.
+	 */
+	public int getErrorCount() {
+		int errors = 0;
+		for (Entry entry : entries.values()) {
+			if (null != entry.error) {
+				errors++;
+			}
+		}
+		return errors;
+	}
+
+	/**
+	 * Builds an XML representation of the summary.
+	 *
+	 * @return A DOM Document (batch-results).
+	 */
+	public Document toDocument() {
+		Document doc;
+		try {
+			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+					.newDocument();
+		} catch (ParserConfigurationException pce) {
+			throw new RuntimeException(pce);
+		}
+		Element root = doc.createElement("batch-results");
+		doc.appendChild(root);
+		int passed = getPassedCount();
+		int errors = getErrorCount();
+		root.setAttribute("total", Integer.toString(entries.size()));
+		root.setAttribute("passed", Integer.toString(passed));
+		root.setAttribute("failed",
+				Integer.toString(entries.size() - passed - errors));
+		root.setAttribute("errors", Integer.toString(errors));
+		for (Entry entry : entries.values()) {
+			Element subject = doc.createElement("subject");
+			subject.setAttribute("uri", entry.subject.toString());
+			if (null != entry.error) {
+				subject.setAttribute("error", entry.error);
+			} else {
+				if (null != entry.results) {
+					subject.setAttribute("results", entry.results);
+				}
+				subject.setAttribute("total", Integer.toString(entry.total));
+				subject.setAttribute("passed", Integer.toString(entry.passed));
+				subject.setAttribute("failed", Integer.toString(entry.failed));
+				subject.setAttribute("skipped",
+						Integer.toString(entry.skipped));
+			}
+			root.appendChild(subject);
+		}
+		return doc;
+	}
+
+	/**
+	 * Writes the summary to a file named {@value #FILE_NAME} in the given
+	 * directory.
+	 *
+	 * @param outputDir
+	 *            The directory in which to write the summary.
+	 * @return The summary file.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public File write(File outputDir) throws IOException {
+		if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+			throw new IOException("Cannot create directory " + outputDir);
+		}
+		File summaryFile = new File(outputDir, FILE_NAME);
+		try (OutputStream out = new FileOutputStream(summaryFile)) {
+			XMLUtils.writeNode(toDocument(), out);
+		}
+		return summaryFile;
+	}
+
+	@Override
+	public String toString() {
+		int passed = getPassedCount();
+		int errors = getErrorCount();
+		return String.format(
+				"Batch results: %d subjects, %d passed, %d failed, %d errors",
+				entries.size(), passed, entries.size() - passed - errors,
+				errors);
+	}
+
+	private static int parseCount(String value) {
+		return value.isEmpty() ? 0 : Integer.parseInt(value);
+	}
+
+	/** The outcome of testing a single subject. */
+	private static class Entry {
+
+		final URI subject;
+		String results;
+		String error;
+		int total;
+		int passed;
+		int failed;
+		int skipped;
+
+		Entry(URI subject) {
+			this.subject = subject;
+		}
+	}
+}
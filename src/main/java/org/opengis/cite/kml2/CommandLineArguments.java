@@ -5,6 +5,7 @@ import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import org.opengis.cite.kml2.validation.StreamingValidator;
 
 /**
  * Declares supported command line arguments that are parsed using the
@@ -14,6 +15,19 @@ import java.util.List;
  * <li>XML properties file: ${user.home}/test-run-props.xml</li>
  * <li>outputDir: ${user.home}</li>
  * <li>deleteSubjectOnFinish: false</li>
+ * <li>linkCache: false (cache directory: ${outputDir}/link-cache)</li>
+ * <li>linkCacheMaxAge: 86400 s</li>
+ * <li>record, replay, stubServer: none (use the network)</li>
+ * <li>threads: 1 (run test classes sequentially)</li>
+ * <li>batch: none (test the single subject given in the properties file)</li>
+ * <li>workers: number of available processors</li>
+ * <li>daemon: none (run once and exit)</li>
+ * <li>resultCache: false (cache directory: ${outputDir}/result-cache)</li>
+ * <li>force: false (use cached results for unchanged subjects)</li>
+ * <li>incremental: false (store directory: ${outputDir}/incremental)</li>
+ * <li>streaming: false (run the full test suite)</li>
+ * <li>partitionSize: 0 (test the subject as a whole)</li>
+ * <li>coordinateStore: none (keep coordinates on the heap)</li>
  * </ul>
  *
  * <p>
@@ -21,7 +35,10 @@ import java.util.List;
  * </p>
  *
  * <pre>
- * ets-${ets-code}-${version}-aio.jar [-o|--outputDir $TMPDIR] [-d|--deleteSubjectOnFinish] [test-run-props.xml]
+ * ets-${ets-code}-${version}-aio.jar [-o|--outputDir $TMPDIR] [-d|--deleteSubjectOnFinish] [-c|--linkCache] [--linkCacheMaxAge 86400]
+ *   [--record $DIR|--replay $DIR|--stubServer $URI] [--threads 1] [-b|--batch $DIR|$GLOB|$MANIFEST [--workers N]]
+ *   [--daemon $PORT [--workers N]] [-r|--resultCache [-f|--force]] [-i|--incremental] [--streaming [--maxErrors 1000]]
+ *   [--partitionSize 100000] [--coordinateStore direct|mapped] [test-run-props.xml]
  * </pre>
  */
 public class CommandLineArguments {
@@ -36,6 +53,58 @@ public class CommandLineArguments {
             "--deleteSubjectOnFinish" }, description = "Delete file containing representation of test subject when finished")
     private boolean deleteSubjectOnFinish = false;
 
+    @Parameter(names = { "-c",
+            "--linkCache" }, description = "Cache link check results in ${outputDir}/link-cache for use in subsequent runs")
+    private boolean linkCache = false;
+
+    @Parameter(names = "--linkCacheMaxAge", description = "Maximum age (s) of a cached link check result before it is revalidated")
+    private long linkCacheMaxAge = 86400;
+
+    @Parameter(names = "--record", description = "Record all HTTP responses in the given directory")
+    private String recordDir;
+
+    @Parameter(names = "--replay", description = "Replay HTTP responses recorded in the given directory instead of accessing the network")
+    private String replayDir;
+
+    @Parameter(names = "--stubServer", description = "Send all HTTP requests to the stub server at the given base URI (as ${base}/${host}${path})")
+    private String stubServer;
+
+    @Parameter(names = "--threads", description = "Number of threads used to run conformance classes and test classes in parallel")
+    private int threads = 1;
+
+    @Parameter(names = { "-b",
+            "--batch" }, description = "Test all KML/KMZ files in a directory, matching a glob pattern, or listed in a manifest file")
+    private String batch;
+
+    @Parameter(names = "--workers", description = "Maximum number of documents tested concurrently in batch mode")
+    private int workers = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = "--daemon", description = "Accept test run requests at http://127.0.0.1:$PORT/runs (0: any free port)")
+    private Integer daemonPort;
+
+    @Parameter(names = { "-r",
+            "--resultCache" }, description = "Cache test results in ${outputDir}/result-cache and reuse them for unchanged subjects")
+    private boolean resultCache = false;
+
+    @Parameter(names = { "-f", "--force" }, description = "Test every subject even if cached results are available")
+    private boolean force = false;
+
+    @Parameter(names = { "-i",
+            "--incremental" }, description = "Check only the features that changed since the previous run of the same subject")
+    private boolean incremental = false;
+
+    @Parameter(names = "--streaming", description = "Check only element-level CL1 constraints in a single streaming pass without building a DOM")
+    private boolean streaming = false;
+
+    @Parameter(names = "--maxErrors", description = "Maximum number of errors reported in streaming mode")
+    private int maxErrors = StreamingValidator.DEFAULT_MAX_ERRORS;
+
+    @Parameter(names = "--partitionSize", description = "Split the subject into partitions of about this many elements and test them one at a time (0: test the subject as a whole)")
+    private int partitionSize = 0;
+
+    @Parameter(names = "--coordinateStore", description = "Keep parsed coordinates outside of the heap, in direct buffers (direct) or memory-mapped temporary files (mapped)")
+    private String coordinateStore;
+
     public CommandLineArguments() {
         this.xmlProps = new ArrayList<>();
     }
@@ -58,4 +127,68 @@ public class CommandLineArguments {
     public boolean doDeleteSubjectOnFinish() {
         return deleteSubjectOnFinish;
     }
+
+    public boolean doCacheLinkChecks() {
+        return linkCache;
+    }
+
+    public long getLinkCacheMaxAge() {
+        return linkCacheMaxAge;
+    }
+
+    public String getRecordDir() {
+        return recordDir;
+    }
+
+    public String getReplayDir() {
+        return replayDir;
+    }
+
+    public String getStubServer() {
+        return stubServer;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public String getBatch() {
+        return batch;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public Integer getDaemonPort() {
+        return daemonPort;
+    }
+
+    public boolean doCacheResults() {
+        return resultCache;
+    }
+
+    public boolean doForceRevalidation() {
+        return force;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    public int getPartitionSize() {
+        return partitionSize;
+    }
+
+    public String getCoordinateStore() {
+        return coordinateStore;
+    }
 }
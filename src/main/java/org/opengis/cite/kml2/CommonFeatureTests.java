@@ -11,10 +11,12 @@ import javax.xml.namespace.QName;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.xpath.XPathExpressionException;
 
+import org.opengis.cite.kml2.util.DocumentCache;
 import org.opengis.cite.kml2.util.URIUtils;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.kml2.validation.ExtendedDataValidator;
 import org.opengis.cite.kml2.validation.RegionValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.ITestContext;
 import org.testng.annotations.BeforeClass;
@@ -43,11 +45,6 @@ import org.xml.sax.SAXException;
 public class CommonFeatureTests extends CommonFixture {
 
 	private Set<String> sharedStyles;
-	private RegionValidator regionValidator;
-
-	public CommonFeatureTests() {
-		this.regionValidator = new RegionValidator(this.conformanceLevel);
-	}
 
 	/**
 	 * Get the identifiers of all shared styles in the instance document.
@@ -103,7 +100,7 @@ public class CommonFeatureTests extends CommonFixture {
 					this.kmlDoc.getDocumentURI(), styleUrl.toString());
 			Node referent;
 			try {
-				referent = URIUtils.parseURI(styleUrl);
+				referent = DocumentCache.getInstance().resolve(styleUrl);
 			} catch (SAXException | IOException e) {
 				throw new AssertionError(ErrorMessage.format(
 						ErrorMessageKeys.XML_ERROR, styleUrl));
@@ -134,8 +131,9 @@ public class CommonFeatureTests extends CommonFixture {
 			if (region.getLength() == 0) {
 				continue;
 			}
-			Assert.assertTrue(regionValidator.isValid(region.item(0)),
-					regionValidator.getErrorMessages());
+			ValidationResult result = RegionValidator.getInstance().validate(
+					region.item(0), this.conformanceLevel);
+			Assert.assertTrue(result.isValid(), result.getErrorMessages());
 		}
 
 	}
@@ -178,20 +176,20 @@ public class CommonFeatureTests extends CommonFixture {
 	 */
 	@Test(description = "ATC-127")
 	public void validExtendedData() {
-		if (null == this.targetElements) {
-			return;
-		}
-		ExtendedDataValidator validator = new ExtendedDataValidator();
-		for (int i = 0; i < targetElements.getLength(); i++) {
-			Element kmlFeature = (Element) targetElements.item(i);
-			Node extData = kmlFeature.getElementsByTagNameNS(KML2.NS_NAME,
-					"ExtendedData").item(0);
-			if (null == extData) {
-				continue;
+		final ExtendedDataValidator validator = ExtendedDataValidator
+				.getInstance();
+		checkTargetElements(new ElementCheck() {
+			@Override
+			public void check(Element kmlFeature) {
+				Node extData = kmlFeature.getElementsByTagNameNS(KML2.NS_NAME,
+						"ExtendedData").item(0);
+				if (null == extData) {
+					return;
+				}
+				ValidationResult result = validator.validate(extData);
+				Assert.assertTrue(result.isValid(), result.getErrorMessages());
 			}
-			Assert.assertTrue(validator.isValid(extData),
-					validator.getErrorMessages());
-		}
+		});
 	}
 
 	/**
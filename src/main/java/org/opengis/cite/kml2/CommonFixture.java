@@ -1,23 +1,57 @@
 package org.opengis.cite.kml2;
 
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.ws.rs.core.MediaType;
 import javax.xml.xpath.XPathExpressionException;
 
+import org.opengis.cite.kml2.util.FeatureFingerprints;
 import org.opengis.cite.kml2.util.HttpClientUtils;
+import org.opengis.cite.kml2.util.IncrementalResults;
+import org.opengis.cite.kml2.util.Metrics;
+import org.opengis.cite.kml2.util.PartitionedSubject;
+import org.opengis.cite.kml2.util.SubjectSnapshot;
 import org.opengis.cite.kml2.util.XMLUtils;
+import org.testng.IHookCallBack;
+import org.testng.IHookable;
+import org.testng.ISuite;
 import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.Reporter;
 import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
 
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientRequest;
@@ -26,8 +60,17 @@ import com.sun.jersey.api.client.ClientResponse;
 /**
  * A supporting base class that sets up a common test fixture. These
  * configuration methods are invoked before those defined in a subclass.
+ *
+ * <p>
+ * In partitioned mode (see {@link PartitionedSubject}) the fixture works on
+ * one partition of the test subject at a time, and every test method is run
+ * against each partition in turn (see
+ * {@link #run(IHookCallBack, ITestResult)}). The partitions parsed by a
+ * fixture are kept for the other test methods of the class, but only as long
+ * as memory permits.
+ * </p>
  */
-public class CommonFixture {
+public class CommonFixture implements IHookable {
 
 	/** Root test suite package (absolute path). */
 	public static final String ROOT_PKG_PATH = "/org/opengis/cite/kml2/";
@@ -43,6 +86,43 @@ public class CommonFixture {
 	protected NodeList targetElements;
 	/** The conformance level. */
 	protected int conformanceLevel = 1;
+	/** The XPath expression that selected the target elements (if known). */
+	private String targetPath;
+	/** A snapshot of the test subject (shared with other fixtures). */
+	private SubjectSnapshot snapshot;
+	/** The test suite being run (null if not known). */
+	private ISuite suite;
+	/** The outcomes of checking features (in incremental mode only). */
+	private IncrementalResults incrementalResults;
+	/** The names of the target elements (if known). */
+	private String[] targetNames;
+	/** The partitions of the test subject (in partitioned mode only). */
+	private PartitionedSubject partitions;
+	/** The index of the partition represented by kmlDoc. */
+	private int partitionIndex;
+	/** The partitions parsed so far (softly reachable, by index). */
+	private final Map<Integer, SoftReference<Document>> parsedPartitions = new HashMap<>();
+	/**
+	 * The failures found by the last element check in partitioned mode,
+	 * keyed by message and element location.
+	 */
+	private Map<String, Throwable> locatedFailures;
+	/** The number of threads used in the test run. */
+	private int threadCount = 1;
+	/**
+	 * The minimum number of target elements that are checked in parallel by
+	 * {@link #checkTargetElements(ElementCheck)}.
+	 */
+	static final int PARALLEL_THRESHOLD = 4 * ElementCheckTask.CHUNK_SIZE;
+	/** The maximum number of failures included in a merged report. */
+	static final int MAX_REPORTED_FAILURES = 20;
+	/** Fork/join pools for checking elements (keyed by parallelism). */
+	private static final ConcurrentMap<Integer, ForkJoinPool> ELEMENT_POOLS = new ConcurrentHashMap<>();
+	/**
+	 * Marks a scheme-based XPointer that locates an element by its ordinal
+	 * position in the document (see {@link XMLUtils#buildXPointer(Node)}).
+	 */
+	private static final String POSITIONAL_XPOINTER = "xpointer((";
 
 	/**
 	 * Facilitates unit testing.
@@ -52,6 +132,48 @@ public class CommonFixture {
 	 */
 	public void setTargetElements(NodeList targetElements) {
 		this.targetElements = targetElements;
+		this.targetPath = null;
+		this.targetNames = null;
+	}
+
+	/**
+	 * Facilitates unit testing.
+	 * 
+	 * @param threadCount
+	 *            The number of threads used in the test run.
+	 */
+	void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Facilitates unit testing.
+	 * 
+	 * @param incrementalResults
+	 *            The outcomes of checking features in incremental mode.
+	 */
+	void setIncrementalResults(IncrementalResults incrementalResults) {
+		this.incrementalResults = incrementalResults;
+	}
+
+	/**
+	 * Facilitates unit testing.
+	 * 
+	 * @param partitions
+	 *            The partitions of the test subject; the first one becomes the
+	 *            KML document.
+	 * @throws SAXException
+	 *             If the first partition cannot be parsed.
+	 * @throws IOException
+	 *             If the first partition cannot be read.
+	 */
+	void setPartitionedSubject(PartitionedSubject partitions)
+			throws SAXException, IOException {
+		this.partitions = partitions;
+		this.partitionIndex = 0;
+		this.kmlDoc = partitions.getDocument(0);
+		this.parsedPartitions.clear();
+		this.parsedPartitions.put(0, new SoftReference<>(this.kmlDoc));
 	}
 
 	/**
@@ -59,6 +181,12 @@ public class CommonFixture {
 	 * elements that occur outside of an update context are sought; that is, the
 	 * element does not have a <code>targetId</code> attribute.
 	 * 
+	 * <p>
+	 * In partitioned mode the elements are sought in the current partition,
+	 * but the test class is skipped only if none of the partitions contain
+	 * any of them.
+	 * </p>
+	 * 
 	 * @param localNames
 	 *            A list of KML element names.
 	 * 
@@ -75,22 +203,503 @@ public class CommonFixture {
 			}
 		}
 		try {
-			this.targetElements = XMLUtils.evaluateXPath(this.kmlDoc,
-					xpath.toString(), null);
+			this.targetElements = selectTargetElements(xpath.toString());
+			this.targetPath = xpath.toString();
+			this.targetNames = elemNames;
 		} catch (XPathExpressionException xpe) {
 			throw new AssertionError(xpe);
 		}
-		if (this.targetElements.getLength() == 0) {
+		boolean found = (null != this.partitions) ? !this.partitions
+				.findPartitions(elemNames).isEmpty() : this.targetElements
+				.getLength() > 0;
+		if (!found) {
 			throw new SkipException(String.format(
 					"No KML elements (%s) found outside of update context.",
 					Arrays.toString(elemNames)));
 		}
 	}
 
+	/**
+	 * Evaluates an XPath expression that selects target elements in the KML
+	 * document. Copies of elements that belong to a preceding partition are
+	 * excluded.
+	 */
+	private NodeList selectTargetElements(String xpath)
+			throws XPathExpressionException {
+		NodeList nodes = XMLUtils.evaluateXPath(this.kmlDoc, xpath, null);
+		if (null == this.partitions || this.partitionIndex == 0) {
+			return nodes;
+		}
+		List<Node> originals = new ArrayList<>();
+		for (Node node : XMLUtils.asList(nodes)) {
+			if (!PartitionedSubject.isCopy(node)) {
+				originals.add(node);
+			}
+		}
+		return (originals.size() < nodes.getLength()) ? new ElementList(
+				originals) : nodes;
+	}
+
+	/**
+	 * Runs a test method. In partitioned mode, the method is invoked once for
+	 * every partition that contains target elements (or for all partitions if
+	 * the target elements are not known), beginning with the partition at
+	 * hand. The failures are then merged into a single report in partition
+	 * order. A failure found by
+	 * {@link #checkTargetElements(ElementCheck) checking an element} is
+	 * omitted if the same message was reported for the same element (which
+	 * may be copied into more than one partition); any other failure is
+	 * omitted if its message was already reported. The test is skipped only
+	 * if it is skipped for every partition.
+	 *
+	 * <p>
+	 * A data-driven test method is invoked once for each element supplied by
+	 * the data provider; {@link #targetElementsProvider()} supplies the target
+	 * elements in every partition that contains any of them.
+	 * </p>
+	 *
+	 * @param callBack
+	 *            A callback that invokes the test method.
+	 * @param testResult
+	 *            The result of the test method.
+	 */
+	@Override
+	public void run(IHookCallBack callBack, ITestResult testResult) {
+		Method method = testResult.getMethod().getConstructorOrMethod()
+				.getMethod();
+		Test test = method.getAnnotation(Test.class);
+		if (null == this.partitions
+				|| (null != test && !test.dataProvider().isEmpty())) {
+			callBack.runTestMethod(testResult);
+			return;
+		}
+		SortedMap<Integer, List<Throwable>> partitionFailures = new TreeMap<>();
+		Set<String> reported = new HashSet<>();
+		SkipException skip = null;
+		int completed = 0;
+		for (int index : getPartitionIndexes()) {
+			loadPartition(index);
+			this.locatedFailures = null;
+			try {
+				method.invoke(this, callBack.getParameters());
+				completed++;
+			} catch (InvocationTargetException ite) {
+				Throwable cause = ite.getCause();
+				if (cause instanceof SkipException) {
+					skip = (SkipException) cause;
+					continue;
+				}
+				completed++;
+				List<Throwable> newFailures = new ArrayList<>();
+				Map<String, Throwable> located = this.locatedFailures;
+				if (null != located && isReportOf(cause, located.values())) {
+					for (Map.Entry<String, Throwable> failure : located
+							.entrySet()) {
+						if (reported.add(failure.getKey())) {
+							newFailures.add(failure.getValue());
+						}
+					}
+				} else if (reported.add(String.valueOf(cause.getMessage()))) {
+					newFailures.add(cause);
+				}
+				if (!newFailures.isEmpty()) {
+					partitionFailures.put(index, newFailures);
+				}
+			} catch (IllegalAccessException iae) {
+				throw new RuntimeException(iae);
+			} finally {
+				this.locatedFailures = null;
+			}
+		}
+		SortedMap<Integer, Throwable> failures = new TreeMap<>();
+		for (List<Throwable> newFailures : partitionFailures.values()) {
+			for (Throwable failure : newFailures) {
+				failures.put(failures.size(), failure);
+			}
+		}
+		reportFailures(failures);
+		if (completed == 0 && null != skip) {
+			throw skip;
+		}
+	}
+
+	/**
+	 * Returns the indexes of the partitions that contain target elements (or
+	 * of all partitions if the target elements are not known), beginning with
+	 * the partition at hand to avoid loading it again.
+	 */
+	private List<Integer> getPartitionIndexes() {
+		List<Integer> indexes = new ArrayList<>();
+		if (null != this.targetNames) {
+			indexes.addAll(this.partitions.findPartitions(this.targetNames));
+		} else {
+			for (int i = 0; i < this.partitions.size(); i++) {
+				indexes.add(i);
+			}
+		}
+		int first = indexes.indexOf(this.partitionIndex);
+		if (first > 0) {
+			Collections.rotate(indexes, -first);
+		}
+		return indexes;
+	}
+
+	/**
+	 * Indicates whether the given exception was thrown by
+	 * {@link #reportFailures(SortedMap)} to report the given failures.
+	 */
+	private static boolean isReportOf(Throwable error,
+			Collection<Throwable> failures) {
+		return failures.contains(error)
+				|| (null != error.getCause() && failures.contains(error
+						.getCause()));
+	}
+
+	/**
+	 * Replaces the KML document with the given partition of the test subject,
+	 * and selects the target elements in it. A partition that was parsed
+	 * before is reused unless it has since been reclaimed by the garbage
+	 * collector.
+	 */
+	private void loadPartition(int index) {
+		if (index == this.partitionIndex) {
+			return;
+		}
+		SoftReference<Document> ref = this.parsedPartitions.get(index);
+		Document doc = (null != ref) ? ref.get() : null;
+		if (null == doc) {
+			try {
+				doc = this.partitions.getDocument(index);
+			} catch (SAXException | IOException e) {
+				throw new RuntimeException("Failed to parse partition "
+						+ index, e);
+			}
+			this.parsedPartitions.put(index, new SoftReference<>(doc));
+		}
+		this.kmlDoc = doc;
+		this.partitionIndex = index;
+		if (null != this.targetPath) {
+			try {
+				this.targetElements = selectTargetElements(this.targetPath);
+			} catch (XPathExpressionException xpe) {
+				throw new AssertionError(xpe);
+			}
+		}
+	}
+
+	/**
+	 * Releases the partitions parsed by this fixture when all test methods of
+	 * the class have been run.
+	 */
+	@AfterClass(alwaysRun = true)
+	public void releasePartitions() {
+		this.parsedPartitions.clear();
+	}
+
+	/**
+	 * Applies a check to every target element. If the test run uses more than
+	 * one thread (see {@link TestRunArg#THREADS}), large collections of
+	 * elements are partitioned over a fork/join pool, where each worker thread
+	 * checks the elements in its own replica of the test subject. All elements
+	 * are checked even if some fail; the failures are then merged into a
+	 * single report that lists them in document order, whether or not the
+	 * elements were checked in parallel. In partitioned mode the elements are
+	 * always checked sequentially, since each partition is already of limited
+	 * size.
+	 *
+	 * <p>
+	 * The parallelism of the pool is the thread count of the test run, but
+	 * not more than the number of available processors. Note that each
+	 * replica is a complete copy of the test subject, of about the same size
+	 * as the original DOM tree; a worker thread keeps its replica until the
+	 * suite finishes. Up to twice as many replicas as there are threads may
+	 * thus be held in memory, since the test classes run in parallel also
+	 * check their own replicas.
+	 * </p>
+	 *
+	 * <p>
+	 * In incremental mode, elements that occur in a feature that has not
+	 * changed since the previous test run are not checked again; the failures
+	 * previously reported for them are included instead (see
+	 * {@link FeatureFingerprints}).
+	 * </p>
+	 *
+	 * @param check
+	 *            The check to apply to each target element; it may be invoked
+	 *            concurrently.
+	 * @throws AssertionError
+	 *             If any target element fails the check.
+	 */
+	protected void checkTargetElements(final ElementCheck check) {
+		checkTargetElements(new ElementCheck.Factory() {
+			@Override
+			public ElementCheck newCheck() {
+				return check;
+			}
+		});
+	}
+
+	/**
+	 * Applies a check to every target element, as described for
+	 * {@link #checkTargetElements(ElementCheck)}. Each thread that checks
+	 * some of the elements obtains its own instance of the check from the
+	 * given factory.
+	 *
+	 * @param checkFactory
+	 *            Creates the check to apply to each target element.
+	 * @throws AssertionError
+	 *             If any target element fails the check.
+	 */
+	protected void checkTargetElements(ElementCheck.Factory checkFactory) {
+		if (null == this.targetElements) {
+			return;
+		}
+		String testName = getCurrentTestName();
+		if (null != testName) {
+			Metrics.getInstance().recordElements(testName,
+					this.targetElements.getLength());
+		}
+		SortedMap<Integer, Throwable> failures;
+		if (null != testName && null != this.incrementalResults) {
+			failures = checkChangedElements(testName, checkFactory);
+		} else {
+			failures = checkAllElements(checkFactory);
+		}
+		if (null != this.partitions) {
+			this.locatedFailures = locateFailures(failures);
+		}
+		reportFailures(failures);
+	}
+
+	/**
+	 * Keys the failures found in the target elements by message and element
+	 * location (an XPointer that refers to the original document).
+	 */
+	private Map<String, Throwable> locateFailures(
+			SortedMap<Integer, Throwable> failures) {
+		Map<String, Throwable> located = new LinkedHashMap<>();
+		for (Map.Entry<Integer, Throwable> failure : failures.entrySet()) {
+			String location = XMLUtils.buildXPointer(this.targetElements
+					.item(failure.getKey()));
+			located.put(failure.getValue().getMessage() + " @ " + location,
+					failure.getValue());
+		}
+		return located;
+	}
+
+	private SortedMap<Integer, Throwable> checkAllElements(
+			ElementCheck.Factory checkFactory) {
+		int count = this.targetElements.getLength();
+		int parallelism = Math.min(this.threadCount, Runtime.getRuntime()
+				.availableProcessors());
+		SortedMap<Integer, Throwable> failures;
+		if (null == this.targetPath || count < PARALLEL_THRESHOLD
+				|| parallelism < 2 || null != this.partitions) {
+			failures = new TreeMap<>();
+			ElementCheckTask.checkElements(this.targetElements,
+					checkFactory.newCheck(), 0, count, failures);
+		} else {
+			failures = new ConcurrentSkipListMap<>();
+			ElementCheckTask.Replicas replicas = new ElementCheckTask.Replicas(
+					getSubjectSnapshot(), this.targetPath, count, checkFactory);
+			getElementPool(parallelism).invoke(
+					new ElementCheckTask(replicas, 0, count, failures));
+		}
+		return failures;
+	}
+
+	/**
+	 * Returns the fork/join pool with the given parallelism; it is created on
+	 * first use and shared by all test runs.
+	 */
+	private static ForkJoinPool getElementPool(int parallelism) {
+		ForkJoinPool pool = ELEMENT_POOLS.get(parallelism);
+		if (null == pool) {
+			ELEMENT_POOLS.putIfAbsent(parallelism,
+					new ForkJoinPool(parallelism));
+			pool = ELEMENT_POOLS.get(parallelism);
+		}
+		return pool;
+	}
+
+	/**
+	 * Checks only the target elements that occur outside of the features
+	 * checked previously, then records the outcome for each feature. If there
+	 * are no previous outcomes, all elements are checked as usual.
+	 */
+	private SortedMap<Integer, Throwable> checkChangedElements(
+			String testName, ElementCheck.Factory checkFactory) {
+		FeatureFingerprints fingerprints = FeatureFingerprints
+				.of(this.kmlDoc);
+		List<UnitRun> runs = new ArrayList<>();
+		boolean reuse = false;
+		int count = this.targetElements.getLength();
+		int start = 0;
+		Element unit = fingerprints.getUnit(this.targetElements.item(0));
+		for (int i = 1; i <= count; i++) {
+			Element next = (i < count) ? fingerprints
+					.getUnit(this.targetElements.item(i)) : null;
+			if (i < count && next == unit) {
+				continue;
+			}
+			UnitRun run = new UnitRun(start, i);
+			if (null != unit) {
+				run.digest = fingerprints.getDigest(unit);
+				run.previous = this.incrementalResults.getPreviousFailures(
+						testName, run.digest);
+				reuse |= (null != run.previous);
+			}
+			runs.add(run);
+			start = i;
+			unit = next;
+		}
+		SortedMap<Integer, Throwable> failures;
+		if (!reuse) {
+			failures = checkAllElements(checkFactory);
+		} else {
+			failures = new TreeMap<>();
+			ElementCheck check = checkFactory.newCheck();
+			for (UnitRun run : runs) {
+				if (null == run.previous) {
+					ElementCheckTask.checkElements(this.targetElements, check,
+							run.start, run.end, failures);
+					continue;
+				}
+				for (Map.Entry<Integer, String> failure : run.previous
+						.entrySet()) {
+					failures.put(run.start + failure.getKey(),
+							new AssertionError(failure.getValue()));
+				}
+			}
+		}
+		for (UnitRun run : runs) {
+			if (null != run.digest) {
+				recordOutcome(testName, run, failures);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Records the failures that occurred in a unit. Nothing is recorded if an
+	 * unexpected exception occurred, so the unit will be checked again. The
+	 * same is true if a failure message locates an element by its position
+	 * in the document, since the position changes if features are inserted
+	 * or removed before the unit.
+	 */
+	private void recordOutcome(String testName, UnitRun run,
+			SortedMap<Integer, Throwable> failures) {
+		SortedMap<Integer, String> messages = new TreeMap<>();
+		for (Map.Entry<Integer, Throwable> failure : failures.subMap(
+				run.start, run.end).entrySet()) {
+			if (!(failure.getValue() instanceof AssertionError)) {
+				return;
+			}
+			String message = failure.getValue().getMessage();
+			if (null != message && message.contains(POSITIONAL_XPOINTER)) {
+				return;
+			}
+			messages.put(failure.getKey() - run.start, message);
+		}
+		this.incrementalResults.record(testName, run.digest, messages);
+	}
+
+	/**
+	 * Returns the qualified name of the test method being run on the current
+	 * thread.
+	 *
+	 * @return The method name, or null if it is not known.
+	 */
+	String getCurrentTestName() {
+		ITestResult result = Reporter.getCurrentTestResult();
+		if (null == result || null == result.getMethod()) {
+			return null;
+		}
+		ITestNGMethod method = result.getMethod();
+		return method.getRealClass().getName() + "." + method.getMethodName();
+	}
+
+	/**
+	 * Returns a snapshot of the test subject. If none was provided by the
+	 * suite fixture, a snapshot of the current KML document is taken and
+	 * added to the suite fixture, so that the replicas built from it are
+	 * shared by all test classes (see {@link SubjectSnapshot#getDocument()}).
+	 *
+	 * @return A SubjectSnapshot that may be shared by several threads.
+	 */
+	protected SubjectSnapshot getSubjectSnapshot() {
+		if (null != this.snapshot) {
+			return this.snapshot;
+		}
+		if (null == this.suite) {
+			this.snapshot = SubjectSnapshot.of(this.kmlDoc);
+			return this.snapshot;
+		}
+		String name = SuiteAttribute.SUBJECT_SNAPSHOT.getName();
+		synchronized (this.suite) {
+			Object snapshot = this.suite.getAttribute(name);
+			if (null == snapshot) {
+				snapshot = SubjectSnapshot.of(this.kmlDoc);
+				this.suite.setAttribute(name, snapshot);
+			}
+			this.snapshot = SubjectSnapshot.class.cast(snapshot);
+		}
+		return this.snapshot;
+	}
+
+	/**
+	 * Reports the failures that occurred while checking the target elements.
+	 * A single failure is rethrown as is; otherwise the failure messages are
+	 * combined in order of element position. An unexpected exception is
+	 * included in the combined report (as a suppressed exception) along with
+	 * the other failures.
+	 *
+	 * @param failures
+	 *            A collection of failures sorted by element index (may be
+	 *            empty).
+	 */
+	static void reportFailures(SortedMap<Integer, Throwable> failures) {
+		if (failures.isEmpty()) {
+			return;
+		}
+		Throwable first = failures.get(failures.firstKey());
+		if (failures.size() == 1) {
+			if (first instanceof RuntimeException) {
+				throw (RuntimeException) first;
+			}
+			throw (AssertionError) first;
+		}
+		StringBuilder msg = new StringBuilder();
+		int reported = 0;
+		for (Throwable failure : failures.values()) {
+			if (reported == MAX_REPORTED_FAILURES) {
+				msg.append(ErrorMessage.format(ErrorMessageKeys.MORE_FAILURES,
+						failures.size() - reported));
+				break;
+			}
+			String detail = (failure instanceof AssertionError) ? failure
+					.getMessage() : failure.toString();
+			msg.append(detail).append('\n');
+			reported++;
+		}
+		AssertionError error = new AssertionError(msg.toString().trim());
+		error.initCause(first);
+		for (Throwable failure : failures.values()) {
+			if (failure != first && !(failure instanceof AssertionError)) {
+				error.addSuppressed(failure);
+			}
+		}
+		throw error;
+	}
+
 	/**
 	 * Initializes the common test fixture with a client component for
 	 * interacting with HTTP endpoints, the KML document to be tested, and the
-	 * effective conformance level.
+	 * effective conformance level. If test classes are run in parallel, the
+	 * fixture holds the replica of the test subject that belongs to the
+	 * current thread (see {@link SubjectSnapshot#getDocument()}); it is reused
+	 * by every test class run on the same thread and discarded when the suite
+	 * finishes.
 	 *
 	 * @param testContext
 	 *            The test context that contains all the information for a test
@@ -98,21 +707,63 @@ public class CommonFixture {
 	 */
 	@BeforeClass
 	public void initCommonFixture(ITestContext testContext) {
-		Object obj = testContext.getSuite().getAttribute(
-				SuiteAttribute.CLIENT.getName());
-		if (null != obj) {
-			this.client = Client.class.cast(obj);
-		}
-		obj = testContext.getSuite().getAttribute(
-				SuiteAttribute.TEST_SUBJECT.getName());
-		if (null == obj) {
+		ISuite suite = testContext.getSuite();
+		Object client, testSubject, snapshot, level, threadCount, incremental;
+		Object partitions;
+		synchronized (suite) {
+			client = suite.getAttribute(SuiteAttribute.CLIENT.getName());
+			snapshot = suite.getAttribute(SuiteAttribute.SUBJECT_SNAPSHOT
+					.getName());
+			testSubject = suite.getAttribute(SuiteAttribute.TEST_SUBJECT
+					.getName());
+			level = suite.getAttribute(SuiteAttribute.LEVEL.getName());
+			threadCount = suite.getAttribute(SuiteAttribute.THREAD_COUNT
+					.getName());
+			incremental = suite
+					.getAttribute(SuiteAttribute.INCREMENTAL_RESULTS.getName());
+			partitions = suite
+					.getAttribute(SuiteAttribute.PARTITIONED_SUBJECT.getName());
+		}
+		this.suite = suite;
+		if (null != client) {
+			this.client = Client.class.cast(client);
+		}
+		if (null == testSubject) {
 			throw new SkipException("Test subject not found in ITestContext.");
 		}
-		this.kmlDoc = Document.class.cast(obj);
-		obj = testContext.getSuite().getAttribute(
-				SuiteAttribute.LEVEL.getName());
-		if (null != obj) {
-			this.conformanceLevel = Integer.class.cast(obj);
+		this.kmlDoc = Document.class.cast(testSubject);
+		if (null != snapshot) {
+			this.snapshot = SubjectSnapshot.class.cast(snapshot);
+		}
+		if (null != partitions) {
+			this.partitions = PartitionedSubject.class.cast(partitions);
+			this.partitionIndex = 0;
+			this.parsedPartitions.clear();
+		}
+		if (null != threadCount) {
+			this.threadCount = Integer.class.cast(threadCount);
+		}
+		if (this.threadCount > 1) {
+			if (null != this.partitions) {
+				try {
+					this.kmlDoc = this.partitions.getDocument(0);
+				} catch (SAXException | IOException e) {
+					throw new RuntimeException("Failed to parse partition 0",
+							e);
+				}
+			} else {
+				this.kmlDoc = getSubjectSnapshot().getDocument();
+			}
+		}
+		if (null != this.partitions) {
+			this.parsedPartitions.put(0, new SoftReference<>(this.kmlDoc));
+		}
+		if (null != level) {
+			this.conformanceLevel = Integer.class.cast(level);
+		}
+		if (null != incremental) {
+			this.incrementalResults = IncrementalResults.class
+					.cast(incremental);
 		}
 	}
 
@@ -164,30 +815,96 @@ public class CommonFixture {
 		return HttpClientUtils.buildGetRequest(endpoint, qryParams, mediaTypes);
 	}
 
+	/**
+	 * Supplies the target elements one at a time. In partitioned mode the
+	 * elements in every partition that contains any of them are supplied in
+	 * turn; each partition is loaded before its elements are supplied, so
+	 * that the KML document is the one that contains the current element.
+	 *
+	 * @return An iterator over the target elements.
+	 */
 	@DataProvider(name = "targetElementsProvider")
 	protected Iterator<Object> targetElementsProvider() {
 		return new TargetElementsIterator();
 	}
 
+	/**
+	 * A NodeList containing a subset of the elements in some other NodeList.
+	 */
+	private static class ElementList implements NodeList {
+
+		private final List<Node> nodes;
+
+		ElementList(List<Node> nodes) {
+			this.nodes = nodes;
+		}
+
+		@Override
+		public Node item(int index) {
+			return (index >= 0 && index < nodes.size()) ? nodes.get(index)
+					: null;
+		}
+
+		@Override
+		public int getLength() {
+			return nodes.size();
+		}
+	}
+
+	/**
+	 * A sequence of consecutive target elements that occur in the same unit
+	 * (or outside of any unit).
+	 */
+	private static class UnitRun {
+
+		final int start;
+		final int end;
+		/** The fingerprint of the unit (null if there is none). */
+		String digest;
+		/** The failures reported previously (null if not checked). */
+		SortedMap<Integer, String> previous;
+
+		UnitRun(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+	}
+
 	/**
 	 * An Iterator suitable for use by a "lazy" data provider. It iterates over
-	 * the target elements.
+	 * the target elements (in every partition that contains any of them, in
+	 * partitioned mode).
 	 */
 	protected class TargetElementsIterator implements Iterator<Object> {
 
 		private Iterator<Node> nodeItr;
+		private final Iterator<Integer> partitionItr;
 
 		public TargetElementsIterator() {
-			this.nodeItr = XMLUtils.asList(targetElements).iterator();
+			if (null != partitions && null != targetPath) {
+				this.partitionItr = getPartitionIndexes().iterator();
+				this.nodeItr = Collections.<Node> emptyList().iterator();
+			} else {
+				this.partitionItr = Collections.<Integer> emptyList()
+						.iterator();
+				this.nodeItr = XMLUtils.asList(targetElements).iterator();
+			}
 		}
 
 		@Override
 		public boolean hasNext() {
+			while (!nodeItr.hasNext() && partitionItr.hasNext()) {
+				loadPartition(partitionItr.next());
+				nodeItr = XMLUtils.asList(targetElements).iterator();
+			}
 			return nodeItr.hasNext();
 		}
 
 		@Override
 		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
 			return new Object[] { nodeItr.next() };
 		}
 
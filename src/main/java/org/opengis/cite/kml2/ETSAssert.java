@@ -2,10 +2,8 @@ package org.opengis.cite.kml2;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
-import java.net.URLConnection;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.logging.Level;
@@ -13,11 +11,11 @@ import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.xml.namespace.QName;
 import javax.xml.transform.Source;
 import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Validator;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
@@ -31,7 +29,10 @@ import org.apache.jena.iri.IRIException;
 import org.apache.jena.iri.IRIFactory;
 import org.opengis.cite.kml2.util.HttpClientUtils;
 import org.opengis.cite.kml2.util.KMLUtils;
+import org.opengis.cite.kml2.util.Metrics;
 import org.opengis.cite.kml2.util.NamespaceBindings;
+import org.opengis.cite.kml2.util.SuiteEvent;
+import org.opengis.cite.kml2.util.ValidationUtils;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.validation.SchematronValidator;
 import org.opengis.cite.validation.ValidationErrorHandler;
@@ -41,6 +42,9 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+
 /**
  * Provides a set of custom assertion methods.
  */
@@ -184,18 +188,43 @@ public class ETSAssert {
 			String activePhase) {
 		String phase = (null == activePhase || activePhase.isEmpty()) ? "#ALL"
 				: activePhase;
+		long start = System.nanoTime();
+		SuiteEvent event = SuiteEvent.begin(SuiteEvent.Type.SCHEMATRON);
+		if (event.isEnabled()) {
+			event.setURI(xmlSource.getSystemId());
+			event.setSchema(schemaRef + "#" + phase);
+		}
 		SchematronValidator validator;
 		try {
-			validator = new SchematronValidator(new StreamSource(
-					schemaRef.toString()), phase);
+			validator = ValidationUtils.obtainSchematronValidator(schemaRef,
+					phase);
 		} catch (Exception e) {
+			event.setOutcome("schema error");
+			event.commit();
 			StringBuilder msg = new StringBuilder(
 					"Failed to process Schematron schema at ");
 			msg.append(schemaRef).append('\n');
 			msg.append(e.getMessage());
 			throw new AssertionError(msg);
 		}
-		DOMResult result = validator.validate(xmlSource);
+		DOMResult result;
+		try {
+			result = validator.validate(xmlSource);
+			if (event.isEnabled()) {
+				event.setOutcome(validator.getRuleViolationCount()
+						+ " rule violations");
+			}
+		} catch (RuntimeException e) {
+			event.setOutcome("validation error");
+			throw e;
+		} finally {
+			event.commit();
+		}
+		ValidationUtils.releaseSchematronValidator(schemaRef, phase, validator);
+		String schemaPath = schemaRef.getPath();
+		Metrics.getInstance().record(Metrics.SCHEMATRON,
+				schemaPath.substring(schemaPath.lastIndexOf('/') + 1) + "#"
+						+ phase, start);
 		Assert.assertFalse(validator.ruleViolationsDetected(), ErrorMessage
 				.format(ErrorMessageKeys.NOT_SCHEMA_VALID,
 						validator.getRuleViolationCount(),
@@ -281,7 +310,11 @@ public class ETSAssert {
 
 	/**
 	 * Asserts that the resource referenced by the given URI exists and is
-	 * compatible with one of the acceptable media types.
+	 * compatible with one of the acceptable media types. An 'http(s)' resource
+	 * is probed using the shared HTTP client (its content is not retrieved).
+	 * 
+	 * @see HttpClientUtils#probe(com.sun.jersey.api.client.Client, URI,
+	 *      MediaType...)
 	 * 
 	 * @param uri
 	 *            An absolute URI based on the 'file' or 'http(s)' schemes.
@@ -299,30 +332,39 @@ public class ETSAssert {
 		if (null == acceptableTypes || acceptableTypes.length == 0) {
 			acceptableTypes = new MediaType[] { MediaType.WILDCARD_TYPE };
 		}
+		SuiteEvent event = SuiteEvent.begin(SuiteEvent.Type.REFERENT_CHECK);
+		event.setURI(uri.toString());
+		String outcome = "failed";
 		try {
-			URLConnection urlConn = uri.toURL().openConnection();
 			switch (uri.getScheme().toLowerCase()) {
 			case "file":
-				try (InputStream inStream = urlConn.getInputStream()) {
+				try (InputStream inStream = uri.toURL().openStream()) {
 					// don't try to read file content
+				} catch (IOException e) {
+					throw new AssertionError(ErrorMessage.format(
+							ErrorMessageKeys.URI_NOT_ACCESSIBLE, uri,
+							e.getMessage()));
 				}
 				break;
 			case "https":
 			case "http":
-				HttpURLConnection httpConn = (HttpURLConnection) urlConn;
-				httpConn.setRequestMethod("HEAD");
-				httpConn.setConnectTimeout(5000);
-				StringBuilder acceptHeaderVal = new StringBuilder();
-				for (MediaType type : acceptableTypes) {
-					acceptHeaderVal.append(type).append(',');
+				ClientResponse rsp;
+				try {
+					rsp = HttpClientUtils.probe(
+							HttpClientUtils.getSharedClient(), uri,
+							acceptableTypes);
+				} catch (ClientHandlerException e) {
+					throw new AssertionError(ErrorMessage.format(
+							ErrorMessageKeys.URI_NOT_ACCESSIBLE, uri,
+							e.getMessage()));
 				}
-				httpConn.setRequestProperty("Accept",
-						acceptHeaderVal.toString());
-				if (httpConn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				outcome = "HTTP " + rsp.getStatus();
+				if (!HttpClientUtils.isProbeSuccessful(rsp)) {
 					throw new AssertionError(ErrorMessage.format(
 							ErrorMessageKeys.UNEXPECTED_STATUS, uri));
 				}
-				String contentType = urlConn.getContentType();
+				String contentType = rsp.getHeaders().getFirst(
+						HttpHeaders.CONTENT_TYPE);
 				if (!HttpClientUtils.contentIsAcceptable(contentType,
 						acceptableTypes)) {
 					throw new AssertionError(ErrorMessage.format(
@@ -335,9 +377,12 @@ public class ETSAssert {
 						ErrorMessageKeys.URI_NOT_ACCESSIBLE, uri,
 						"Unsupported URI scheme."));
 			}
-		} catch (IOException e) {
-			throw new AssertionError(ErrorMessage.format(
-					ErrorMessageKeys.URI_NOT_ACCESSIBLE, uri, e.getMessage()));
+			if (uri.getScheme().equalsIgnoreCase("file")) {
+				outcome = "exists";
+			}
+		} finally {
+			event.setOutcome(outcome);
+			event.commit();
 		}
 	}
 
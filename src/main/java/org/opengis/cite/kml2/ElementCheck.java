@@ -0,0 +1,40 @@
+package org.opengis.cite.kml2;
+
+import org.w3c.dom.Element;
+
+/**
+ * A check that applies to a single target element. Since a check may be
+ * applied to several elements concurrently, an implementation must not modify
+ * any shared state (validators are stateless and may be used freely). A check
+ * that relies on helper objects that are not thread-safe should be supplied by
+ * a {@link Factory}, so that each worker thread uses its own instance.
+ *
+ * @see CommonFixture#checkTargetElements(ElementCheck)
+ * @see CommonFixture#checkTargetElements(ElementCheck.Factory)
+ */
+public interface ElementCheck {
+
+	/**
+	 * Checks the given element.
+	 *
+	 * @param elem
+	 *            A target element.
+	 * @throws AssertionError
+	 *             If the element fails to satisfy some constraint.
+	 */
+	void check(Element elem);
+
+	/**
+	 * Creates checks that are confined to a single thread.
+	 */
+	interface Factory {
+
+		/**
+		 * Creates a new check. It is invoked at most once by each thread that
+		 * applies the check to some target elements.
+		 *
+		 * @return An ElementCheck instance.
+		 */
+		ElementCheck newCheck();
+	}
+}
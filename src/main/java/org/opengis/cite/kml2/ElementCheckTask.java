@@ -0,0 +1,189 @@
+package org.opengis.cite.kml2;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveAction;
+
+import javax.xml.xpath.XPathExpressionException;
+
+import org.opengis.cite.kml2.util.Metrics;
+import org.opengis.cite.kml2.util.SubjectSnapshot;
+import org.opengis.cite.kml2.util.XMLUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * A fork/join task that applies a check to a range of target elements. The
+ * range is split until it is small enough to be checked directly. A DOM node
+ * cannot safely be read by several threads at once, so each worker thread
+ * checks the corresponding elements in its own replica of the test subject
+ * (see {@link SubjectSnapshot#getDocument()}); these are found by evaluating
+ * the same XPath expression that was used to select the target elements. A
+ * replica belongs to the worker thread and is reused by later tasks. Each
+ * worker thread also applies its own instance of the check (see
+ * {@link ElementCheck.Factory}).
+ *
+ * <p>
+ * Failures are recorded by the (document order) position of the element.
+ * </p>
+ */
+class ElementCheckTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+	/** The maximum number of elements checked without splitting the range. */
+	static final int CHUNK_SIZE = 256;
+	private final Replicas replicas;
+	private final int start;
+	private final int end;
+	private final SortedMap<Integer, Throwable> failures;
+
+	/**
+	 * Creates a task that checks the target elements in the given range.
+	 *
+	 * @param replicas
+	 *            Supplies the target elements and the check to worker
+	 *            threads.
+	 * @param start
+	 *            The index of the first element (inclusive).
+	 * @param end
+	 *            The index of the last element (exclusive).
+	 * @param failures
+	 *            A thread-safe map that records failures by element index.
+	 */
+	ElementCheckTask(Replicas replicas, int start, int end,
+			SortedMap<Integer, Throwable> failures) {
+		this.replicas = replicas;
+		this.start = start;
+		this.end = end;
+		this.failures = failures;
+	}
+
+	@Override
+	protected void compute() {
+		if (end - start <= CHUNK_SIZE) {
+			Metrics previous = Metrics.bind(replicas.getMetrics());
+			try {
+				checkElements(replicas.getTargetElements(),
+						replicas.getCheck(), start, end, failures);
+			} finally {
+				Metrics.bind(previous);
+			}
+			return;
+		}
+		int mid = (start + end) >>> 1;
+		invokeAll(new ElementCheckTask(replicas, start, mid, failures),
+				new ElementCheckTask(replicas, mid, end, failures));
+	}
+
+	/**
+	 * Applies a check to the elements in the given range, recording any
+	 * failures. All elements are checked even if some fail.
+	 *
+	 * @param elements
+	 *            A list of target elements.
+	 * @param check
+	 *            The check to apply to each element.
+	 * @param start
+	 *            The index of the first element (inclusive).
+	 * @param end
+	 *            The index of the last element (exclusive).
+	 * @param failures
+	 *            A map that records failures by element index.
+	 */
+	static void checkElements(NodeList elements, ElementCheck check,
+			int start, int end, Map<Integer, Throwable> failures) {
+		for (int i = start; i < end; i++) {
+			try {
+				check.check((Element) elements.item(i));
+			} catch (AssertionError | RuntimeException e) {
+				failures.put(i, e);
+			}
+		}
+	}
+
+	/**
+	 * Provides each worker thread with its own copy of the target elements and
+	 * its own instance of the check.
+	 */
+	static class Replicas {
+
+		private final SubjectSnapshot snapshot;
+		private final String xpath;
+		private final int count;
+		private final ElementCheck.Factory checkFactory;
+		private final Map<Thread, NodeList> targets = new ConcurrentHashMap<>();
+		private final Map<Thread, ElementCheck> checks = new ConcurrentHashMap<>();
+		private final Metrics metrics = Metrics.getInstance();
+
+		/**
+		 * Constructor.
+		 *
+		 * @param snapshot
+		 *            A snapshot of the document containing the target
+		 *            elements.
+		 * @param xpath
+		 *            The XPath expression that selects the target elements.
+		 * @param count
+		 *            The number of target elements.
+		 * @param checkFactory
+		 *            Creates the check applied by each worker thread.
+		 */
+		Replicas(SubjectSnapshot snapshot, String xpath, int count,
+				ElementCheck.Factory checkFactory) {
+			this.snapshot = snapshot;
+			this.xpath = xpath;
+			this.count = count;
+			this.checkFactory = checkFactory;
+		}
+
+		/**
+		 * Returns the metrics of the test run that created the replicas.
+		 *
+		 * @return The Metrics in which the worker threads record activity.
+		 */
+		Metrics getMetrics() {
+			return metrics;
+		}
+
+		/**
+		 * Returns the check that belongs to the current thread.
+		 *
+		 * @return An ElementCheck confined to the current thread.
+		 */
+		ElementCheck getCheck() {
+			ElementCheck check = checks.get(Thread.currentThread());
+			if (null == check) {
+				check = checkFactory.newCheck();
+				checks.put(Thread.currentThread(), check);
+			}
+			return check;
+		}
+
+		/**
+		 * Returns the target elements in the replica of the test subject that
+		 * belongs to the current thread.
+		 *
+		 * @return A list of target elements confined to the current thread.
+		 */
+		NodeList getTargetElements() {
+			NodeList elements = targets.get(Thread.currentThread());
+			if (null == elements) {
+				Document replica = snapshot.getDocument();
+				try {
+					elements = XMLUtils.evaluateXPath(replica, xpath, null);
+				} catch (XPathExpressionException xpe) {
+					throw new IllegalStateException(xpe);
+				}
+				if (elements.getLength() != count) {
+					throw new IllegalStateException(String.format(
+							"Expected %d target elements in replica, found %d.",
+							count, elements.getLength()));
+				}
+				targets.put(Thread.currentThread(), elements);
+			}
+			return elements;
+		}
+	}
+}
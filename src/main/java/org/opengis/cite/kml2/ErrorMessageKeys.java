@@ -35,6 +35,7 @@ public class ErrorMessageKeys {
 	public static final String QUAD_NOT_CONVEX = "QuadNotConvex";
 	public static final String RING_NOT_CCW = "RingNotCCW";
 	public static final String URI_NOT_ACCESSIBLE = "URINotAccessible";
+	public static final String HOST_UNREACHABLE = "HostUnreachable";
 	public static final String NOT_FOUND = "NotFound";
 	public static final String EMPTY_TIMESPAN = "EmptyTimeSpan";
 	public static final String TIMESPAN_INTERVAL = "TimeSpanInterval";
@@ -49,4 +50,5 @@ public class ErrorMessageKeys {
 	public static final String DUPLICATE_DATA = "DuplicateData";
 	public static final String INVALID_EMAIL_ADDR = "InvalidEmailAddr";
 	public static final String INVALID_IRI = "InvalidIRI";
+	public static final String MORE_FAILURES = "MoreFailures";
 }
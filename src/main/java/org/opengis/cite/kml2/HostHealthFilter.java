@@ -0,0 +1,100 @@
+package org.opengis.cite.kml2;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import org.opengis.cite.kml2.util.HostHealthRegistry;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Fails fast when a request is directed to a host that has repeatedly been
+ * unreachable. Connection failures are reported to a
+ * {@link HostHealthRegistry}; if the circuit for the target host is open a
+ * ClientHandlerException is thrown immediately (its cause is a
+ * ConnectException). Read timeouts are reported separately, since the host
+ * could be reached; any other unexpected exception or error counts as a
+ * connection failure, so the outcome of a request is always recorded.
+ */
+public class HostHealthFilter extends ClientFilter {
+
+    private final HostHealthRegistry registry;
+
+    /**
+     * Constructs a filter that reports to the given registry.
+     *
+     * @param registry A registry of host health information.
+     */
+    public HostHealthFilter(HostHealthRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest req) throws ClientHandlerException {
+        String host = HostHealthRegistry.hostKey(req.getURI());
+        if (!registry.allowRequest(host)) {
+            throw new ClientHandlerException(new ConnectException(
+                    ErrorMessage.format(ErrorMessageKeys.HOST_UNREACHABLE,
+                            host, registry.getFailureThreshold())));
+        }
+        long startTime = System.currentTimeMillis();
+        boolean recorded = false;
+        try {
+            ClientResponse rsp = getNext().handle(req);
+            registry.recordSuccess(host);
+            recorded = true;
+            return rsp;
+        } catch (ClientHandlerException e) {
+            if (isConnectionFailure(e)) {
+                registry.recordFailure(host,
+                        System.currentTimeMillis() - startTime);
+            } else if (e.getCause() instanceof SocketTimeoutException) {
+                registry.recordTimeout(host);
+            } else {
+                registry.recordSuccess(host);
+            }
+            recorded = true;
+            throw e;
+        } finally {
+            if (!recorded) {
+                // unexpected exception or error: a pending probe must end
+                registry.recordFailure(host,
+                        System.currentTimeMillis() - startTime);
+            }
+        }
+    }
+
+    /**
+     * Determines whether or not an exception indicates that a connection to
+     * the host could not be established.
+     *
+     * @param e An exception raised while handling a request.
+     * @return true if the host could not be reached; false otherwise.
+     */
+    static boolean isConnectionFailure(ClientHandlerException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof ConnectException
+                || cause instanceof NoRouteToHostException
+                || cause instanceof UnknownHostException
+                || (cause instanceof SocketTimeoutException && isConnectTimeout(cause));
+    }
+
+    /**
+     * Determines whether or not a timeout occurred while connecting (rather
+     * than while waiting for the response). HttpURLConnection reports both
+     * with a SocketTimeoutException; only the message tells them apart.
+     *
+     * @param timeout A SocketTimeoutException.
+     * @return true if the connection attempt timed out; false otherwise.
+     */
+    static boolean isConnectTimeout(Throwable timeout) {
+        String msg = timeout.getMessage();
+        return null != msg && msg.toLowerCase().contains("connect");
+    }
+
+}
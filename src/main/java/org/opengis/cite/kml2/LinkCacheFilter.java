@@ -0,0 +1,118 @@
+package org.opengis.cite.kml2;
+
+import java.io.ByteArrayInputStream;
+import java.net.HttpURLConnection;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.opengis.cite.kml2.util.HttpClientUtils;
+import org.opengis.cite.kml2.util.LinkCheckCache;
+import org.opengis.cite.kml2.util.Metrics;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+/**
+ * Answers link probes from a persistent {@link LinkCheckCache} if one is
+ * enabled. Only requests that never need the response entity are eligible:
+ * HEAD requests and GET requests for a byte range that don't buffer the
+ * entity (see {@link HttpClientUtils#probe}). A fresh entry is returned
+ * without contacting the server; a stale entry is revalidated using a
+ * conditional request (If-None-Match, If-Modified-Since). Only definitive
+ * outcomes are cached (see {@link LinkCheckCache#isDefinitive(int)}).
+ *
+ * <p>Responses constructed from cache entries have an empty entity.</p>
+ */
+public class LinkCacheFilter extends ClientFilter {
+
+    @Override
+    public ClientResponse handle(ClientRequest req) throws ClientHandlerException {
+        LinkCheckCache cache = HttpClientUtils.getLinkCheckCache();
+        if (null == cache || !isProbe(req)) {
+            return getNext().handle(req);
+        }
+        String key = req.getMethod() + " " + req.getURI();
+        LinkCheckCache.Entry entry = cache.get(key);
+        boolean fresh = null != entry && cache.isFresh(entry);
+        Metrics.getInstance().recordCacheAccess("link-checks", fresh);
+        if (fresh) {
+            cache.recordHit();
+            return buildResponse(entry);
+        }
+        MultivaluedMap<String, Object> reqHeaders = req.getHeaders();
+        if (null != entry && null != entry.getETag()) {
+            reqHeaders.putSingle(HttpHeaders.IF_NONE_MATCH, entry.getETag());
+        }
+        if (null != entry && null != entry.getLastModified()) {
+            reqHeaders.putSingle(HttpHeaders.IF_MODIFIED_SINCE, entry.getLastModified());
+        }
+        ClientResponse rsp;
+        try {
+            rsp = getNext().handle(req);
+        } finally {
+            // the request may be reused (e.g. to follow a redirect)
+            reqHeaders.remove(HttpHeaders.IF_NONE_MATCH);
+            reqHeaders.remove(HttpHeaders.IF_MODIFIED_SINCE);
+        }
+        long now = System.currentTimeMillis();
+        if (null != entry && rsp.getStatus() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            rsp.close();
+            LinkCheckCache.Entry revalidated = entry.revalidatedAt(now);
+            cache.put(key, revalidated);
+            cache.recordRevalidation();
+            return buildResponse(revalidated);
+        }
+        if (LinkCheckCache.isDefinitive(rsp.getStatus())) {
+            MultivaluedMap<String, String> headers = rsp.getHeaders();
+            cache.put(key, new LinkCheckCache.Entry(rsp.getStatus(),
+                    headers.getFirst(HttpHeaders.CONTENT_TYPE),
+                    headers.getFirst(HttpHeaders.LOCATION),
+                    headers.getFirst(HttpHeaders.ETAG),
+                    headers.getFirst(HttpHeaders.LAST_MODIFIED), now));
+        }
+        return rsp;
+    }
+
+    /**
+     * Determines whether the request is a link probe whose response entity is
+     * of no interest.
+     *
+     * @param req The request message.
+     * @return true if the request is a HEAD request or a non-buffered GET
+     *         request for a byte range; false otherwise.
+     */
+    static boolean isProbe(ClientRequest req) {
+        if (HttpMethod.HEAD.equals(req.getMethod())) {
+            return true;
+        }
+        return HttpMethod.GET.equals(req.getMethod())
+                && req.getHeaders().containsKey("Range")
+                && Boolean.FALSE.equals(req.getProperties().get(
+                        ReusableEntityFilter.BUFFER_ENTITY));
+    }
+
+    static ClientResponse buildResponse(LinkCheckCache.Entry entry) {
+        InBoundHeaders headers = new InBoundHeaders();
+        if (null != entry.getContentType()) {
+            headers.putSingle(HttpHeaders.CONTENT_TYPE, entry.getContentType());
+        }
+        if (null != entry.getLocation()) {
+            headers.putSingle(HttpHeaders.LOCATION, entry.getLocation());
+        }
+        if (null != entry.getETag()) {
+            headers.putSingle(HttpHeaders.ETAG, entry.getETag());
+        }
+        if (null != entry.getLastModified()) {
+            headers.putSingle(HttpHeaders.LAST_MODIFIED, entry.getLastModified());
+        }
+        // no message body workers are needed since the entity is empty
+        return new ClientResponse(entry.getStatus(), headers,
+                new ByteArrayInputStream(new byte[0]), null);
+    }
+
+}
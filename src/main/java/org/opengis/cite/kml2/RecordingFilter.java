@@ -0,0 +1,64 @@
+package org.opengis.cite.kml2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.ws.rs.HttpMethod;
+
+import org.opengis.cite.kml2.util.HttpExchangeArchive;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Records every response in an {@link HttpExchangeArchive} so that it can be
+ * replayed later without accessing the network. The response entity is
+ * recorded only for GET requests that don't ask for a byte range; it is
+ * streamed to the archive and then read back from there.
+ */
+public class RecordingFilter extends ClientFilter {
+
+    private final HttpExchangeArchive archive;
+
+    /**
+     * Constructs a filter that records responses in the given archive.
+     *
+     * @param archive The archive in which responses are recorded.
+     */
+    public RecordingFilter(HttpExchangeArchive archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest req) throws ClientHandlerException {
+        ClientResponse rsp = getNext().handle(req);
+        Object range = req.getHeaders().getFirst("Range");
+        try {
+            File bodyFile = archive.record(req.getMethod(), req.getURI(),
+                    (null != range) ? range.toString() : null, rsp.getStatus(),
+                    rsp.getStatusInfo().getReasonPhrase(),
+                    rsp.getHeaders());
+            if (HttpMethod.GET.equals(req.getMethod()) && null == range && rsp.hasEntity()) {
+                try (InputStream in = rsp.getEntityInputStream();
+                        OutputStream out = new FileOutputStream(bodyFile)) {
+                    byte[] buffer = new byte[8 * 1024];
+                    int bytesRead;
+                    while ((bytesRead = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, bytesRead);
+                    }
+                }
+                rsp.setEntityInputStream(new FileInputStream(bodyFile));
+            }
+        } catch (IOException iox) {
+            throw new ClientHandlerException("Failed to record response from " + req.getURI(), iox);
+        }
+        return rsp;
+    }
+
+}
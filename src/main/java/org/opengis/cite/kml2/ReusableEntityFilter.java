@@ -1,5 +1,7 @@
 package org.opengis.cite.kml2;
 
+import javax.ws.rs.HttpMethod;
+
 import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientRequest;
 import com.sun.jersey.api.client.ClientResponse;
@@ -10,17 +12,43 @@ import com.sun.jersey.api.client.filter.ClientFilter;
  *
  * <p><strong>WARNING:</strong> The entity InputStream must be reset after each
  * read attempt.</p>
+ *
+ * <p>The entity is left unbuffered if the request method is HEAD or if the
+ * request property {@value #BUFFER_ENTITY} is set to {@code false}; this
+ * should be done when only the response headers are of interest (e.g. when
+ * probing a link) or when the entity is streamed elsewhere.</p>
  */
 public class ReusableEntityFilter extends ClientFilter {
 
+    /**
+     * Name of a request property indicating whether or not the response entity
+     * should be buffered (Boolean, default: true).
+     */
+    public static final String BUFFER_ENTITY = "org.opengis.cite.kml2.bufferEntity";
+
     @Override
     public ClientResponse handle(ClientRequest req) throws ClientHandlerException {
         // leave request entity--it can usually be read multiple times
         ClientResponse rsp = getNext().handle(req);
-        if (rsp.hasEntity()) {
+        if (rsp.hasEntity() && isBufferingEnabled(req)) {
             rsp.bufferEntity();
         }
         return rsp;
     }
 
+    /**
+     * Determines whether the response entity for the given request should be
+     * buffered.
+     *
+     * @param req The request message.
+     * @return true if the entity should be buffered; false otherwise.
+     */
+    boolean isBufferingEnabled(ClientRequest req) {
+        if (HttpMethod.HEAD.equals(req.getMethod())) {
+            return false;
+        }
+        Object bufferEntity = req.getProperties().get(BUFFER_ENTITY);
+        return !Boolean.FALSE.equals(bufferEntity);
+    }
+
 }
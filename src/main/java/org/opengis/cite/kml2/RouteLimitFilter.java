@@ -0,0 +1,146 @@
+package org.opengis.cite.kml2;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.opengis.cite.kml2.util.HostHealthRegistry;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Limits the number of connections in use at the same time for each route
+ * (scheme, host and port). A connection is in use from the time the request
+ * is sent until the response entity has been read to the end or closed (at
+ * once if there is no entity). If no connection becomes available within the
+ * maximum wait time, a ClientHandlerException is thrown.
+ *
+ * <p>A response entity must therefore always be consumed or closed, as it must
+ * be anyway for the underlying connection to be reused.</p>
+ */
+public class RouteLimitFilter extends ClientFilter {
+
+    private final int maxPerRoute;
+    private final long maxWait;
+    private final ConcurrentMap<String, Semaphore> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a filter with the given limits.
+     *
+     * @param maxPerRoute The maximum number of connections in use per route.
+     * @param maxWait The maximum time (ms) to wait for a connection.
+     */
+    public RouteLimitFilter(int maxPerRoute, long maxWait) {
+        if (maxPerRoute < 1) {
+            throw new IllegalArgumentException("maxPerRoute must be positive: " + maxPerRoute);
+        }
+        this.maxPerRoute = maxPerRoute;
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest req) throws ClientHandlerException {
+        String route = HostHealthRegistry.hostKey(req.getURI());
+        Semaphore permits = getPermits(route);
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientHandlerException(e);
+        }
+        if (!acquired) {
+            throw new ClientHandlerException(String.format(
+                    "No connection to %s became available within %d ms (limit: %d)", route, maxWait, maxPerRoute));
+        }
+        ClientResponse rsp;
+        try {
+            rsp = getNext().handle(req);
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+        InputStream entity = rsp.getEntityInputStream();
+        if (null == entity || !rsp.hasEntity()) {
+            permits.release();
+        } else {
+            rsp.setEntityInputStream(new PermitReleasingInputStream(rsp.getEntityInputStream(), permits));
+        }
+        return rsp;
+    }
+
+    /**
+     * Returns the number of connections currently available for a route.
+     *
+     * @param route A route identifier (see {@link HostHealthRegistry#hostKey}).
+     * @return The number of available connections.
+     */
+    public int getAvailableConnections(String route) {
+        return getPermits(route).availablePermits();
+    }
+
+    private Semaphore getPermits(String route) {
+        Semaphore permits = routes.get(route);
+        if (null == permits) {
+            routes.putIfAbsent(route, new Semaphore(maxPerRoute, true));
+            permits = routes.get(route);
+        }
+        return permits;
+    }
+
+    /**
+     * Releases a connection permit when the end of the stream is reached or
+     * the stream is closed (whichever comes first).
+     */
+    private static class PermitReleasingInputStream extends FilterInputStream {
+
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleasingInputStream(InputStream in, Semaphore permits) {
+            super(in);
+            this.permits = permits;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                release();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                release();
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -6,6 +6,11 @@ import javax.xml.validation.Schema;
 
 import com.sun.jersey.api.client.Client;
 
+import org.opengis.cite.kml2.util.IdIndex;
+import org.opengis.cite.kml2.util.IncrementalResults;
+import org.opengis.cite.kml2.util.Metrics;
+import org.opengis.cite.kml2.util.PartitionedSubject;
+import org.opengis.cite.kml2.util.SubjectSnapshot;
 import org.w3c.dom.Document;
 
 /**
@@ -35,10 +40,40 @@ public enum SuiteAttribute {
 	 * A DOM Document representation of the test subject or metadata about it.
 	 */
 	TEST_SUBJECT("testSubject", Document.class),
+	/**
+	 * An immutable IdIndex of the elements in the test subject (of the shared
+	 * styles and custom schemas only, in partitioned mode).
+	 */
+	ID_INDEX("idIndex", IdIndex.class),
+	/**
+	 * An immutable snapshot of the test subject that supplies thread-confined
+	 * replicas to concurrent readers (created by the first fixture that needs
+	 * one).
+	 */
+	SUBJECT_SNAPSHOT("subjectSnapshot", SubjectSnapshot.class),
+	/**
+	 * The outcomes of checking the units of the test subject in the previous
+	 * and current test runs (present only in incremental mode).
+	 */
+	INCREMENTAL_RESULTS("incrementalResults", IncrementalResults.class),
+	/**
+	 * The partitions of a test subject that is too large to be tested as a
+	 * whole (present only in partitioned mode).
+	 */
+	PARTITIONED_SUBJECT("partitionedSubject", PartitionedSubject.class),
 	/**
 	 * An integer (1-3) indicating the level of conformance assessment.
 	 */
 	LEVEL("level", Integer.class),
+	/**
+	 * The number of threads used to run test classes (1 if they are run
+	 * sequentially).
+	 */
+	THREAD_COUNT("threadCount", Integer.class),
+	/**
+	 * The Metrics collected during the test run.
+	 */
+	METRICS("metrics", Metrics.class),
 	/**
 	 * A {@code Set<String>} containing shared style identifiers.
 	 */
@@ -1,21 +1,38 @@
 package org.opengis.cite.kml2;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
+import javax.xml.stream.XMLStreamException;
 import javax.xml.validation.Schema;
 
+import org.opengis.cite.kml2.util.CoordinateStore;
+import org.opengis.cite.kml2.util.DocumentCache;
+import org.opengis.cite.kml2.util.FeatureFingerprints;
 import org.opengis.cite.kml2.util.HttpClientUtils;
+import org.opengis.cite.kml2.util.IdIndex;
+import org.opengis.cite.kml2.util.IncrementalResults;
 import org.opengis.cite.kml2.util.KMLUtils;
+import org.opengis.cite.kml2.util.LinkCheckCache;
+import org.opengis.cite.kml2.util.Metrics;
+import org.opengis.cite.kml2.util.PartitionedSubject;
+import org.opengis.cite.kml2.util.SubjectSnapshot;
 import org.opengis.cite.kml2.util.TestSuiteLogger;
 import org.opengis.cite.kml2.util.URIUtils;
 import org.opengis.cite.kml2.util.ValidationUtils;
 import org.opengis.cite.kml2.util.XMLUtils;
+import org.opengis.cite.kml2.validation.SchemaFieldCache;
 import org.testng.ISuite;
 import org.testng.ISuiteListener;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
@@ -32,21 +49,109 @@ import com.sun.jersey.api.client.Client;
  * group contexts (ITestContext). However, suite attributes are still accessible
  * from lower contexts.
  *
+ * <p>
+ * If parallel execution is enabled (see {@link TestRunArg#THREADS}), suite
+ * attributes must not be modified once the tests have started (except for
+ * the subject snapshot, which a fixture creates on first use); any access
+ * must be synchronized on the ISuite instance.
+ * </p>
+ *
  * @see org.testng.ISuite ISuite interface
  */
 public class SuiteFixtureListener implements ISuiteListener {
 
+	/** System property that specifies the link check cache directory. */
+	public static final String LINK_CACHE_DIR = "linkCacheDir";
+	/** System property that specifies the maximum age (s) of a cache entry. */
+	public static final String LINK_CACHE_MAX_AGE = "linkCacheMaxAge";
+	/** Default maximum age (s) of a link check cache entry (one day). */
+	public static final long DEFAULT_LINK_CACHE_MAX_AGE = 86400;
+
 	@Override
 	public void onStart(ISuite suite) {
+		Metrics metrics = Metrics.forTestRun();
+		suite.setAttribute(SuiteAttribute.METRICS.getName(), metrics);
+		Metrics.bind(metrics);
+		boolean batchRun = isBatchRun(suite);
+		DocumentCache.getInstance().retain();
+		SchemaFieldCache.getInstance().retain();
 		processSuiteParameters(suite);
+		configureIncrementalMode(suite);
 		buildKMLSchemas(suite);
 		registerHttpClient(suite);
+		if (!batchRun) {
+			configureLinkCheckCache();
+		}
+		configureParallelMode(suite);
+	}
+
+	/**
+	 * Indicates whether or not the test run is part of a batch (see
+	 * {@link TestRunArg#BATCH}). If so, the link check cache and the host
+	 * health registry are managed by the batch controller (or the validation
+	 * daemon) instead of being reset for every test run.
+	 * 
+	 * @param suite
+	 *            The test suite to be run.
+	 * @return true if the test run is part of a batch; false otherwise.
+	 */
+	boolean isBatchRun(ISuite suite) {
+		String batch = suite.getXmlSuite().getParameters()
+				.get(TestRunArg.BATCH.toString());
+		return Boolean.parseBoolean(batch);
+	}
+
+	/**
+	 * Enables parallel execution if the {@link TestRunArg#THREADS threads}
+	 * test run argument has a value greater than 1. In this case the tests
+	 * (CL1, CL2, CL3) run in parallel, as do the classes within each test
+	 * (large collections of elements are also checked in parallel; see
+	 * {@link CommonFixture#checkTargetElements(ElementCheck)}).
+	 * Since a DOM Document is not thread-safe (even for reading), each thread
+	 * works on its own replica of the test subject (see
+	 * {@link CommonFixture#initCommonFixture(org.testng.ITestContext)}). The
+	 * thread count is recorded as the value of the
+	 * {@link SuiteAttribute#THREAD_COUNT} attribute. A value that is not an
+	 * integer is ignored (with a warning) and the tests run sequentially.
+	 * 
+	 * @param suite
+	 *            The test suite to be run.
+	 */
+	void configureParallelMode(ISuite suite) {
+		int threadCount = 1;
+		String threads = suite.getXmlSuite().getParameters()
+				.get(TestRunArg.THREADS.toString());
+		if (null != threads) {
+			try {
+				threadCount = Integer.parseInt(threads.trim());
+			} catch (NumberFormatException nfe) { // run sequentially
+				TestSuiteLogger.log(Level.WARNING, String.format(
+						"Ignoring invalid value of %s: %s",
+						TestRunArg.THREADS, threads));
+			}
+		}
+		if (threadCount > 1) {
+			XmlSuite xmlSuite = suite.getXmlSuite();
+			xmlSuite.setParallel("tests");
+			xmlSuite.setThreadCount(threadCount);
+			for (XmlTest xmlTest : xmlSuite.getTests()) {
+				xmlTest.setParallel("classes");
+				xmlTest.setThreadCount(threadCount);
+			}
+			TestSuiteLogger.log(Level.CONFIG, String.format(
+					"Running tests and test classes in parallel (threads: %d)",
+					threadCount));
+		} else {
+			threadCount = 1;
+		}
+		suite.setAttribute(SuiteAttribute.THREAD_COUNT.getName(), threadCount);
 	}
 
 	/**
 	 * Builds immutable {@link Schema Schema} objects suitable for validating
-	 * the content of a KML 2.x document. The schemas are added to the suite
-	 * fixture as the value of the attributes identified in the following table.
+	 * the content of a KML 2.x document; they are compiled once and reused in
+	 * subsequent test runs. The schemas are added to the suite fixture as the
+	 * value of the attributes identified in the following table.
 	 *
 	 * <table border="1" style="border-collapse: collapse;">
 	 * <caption>Application schemas</caption>
@@ -74,12 +179,12 @@ public class SuiteFixtureListener implements ISuiteListener {
 	 *      repository</a>
 	 */
 	void buildKMLSchemas(ISuite suite) {
-		Schema kml22Schema = ValidationUtils.createKMLSchema("2.2");
+		Schema kml22Schema = ValidationUtils.getKMLSchema("2.2");
 		if (null != kml22Schema) {
 			suite.setAttribute(SuiteAttribute.KML22_SCHEMA.getName(),
 					kml22Schema);
 		}
-		Schema kml23Schema = ValidationUtils.createKMLSchema("2.3");
+		Schema kml23Schema = ValidationUtils.getKMLSchema("2.3");
 		if (null != kml23Schema) {
 			suite.setAttribute(SuiteAttribute.KML23_SCHEMA.getName(),
 					kml23Schema);
@@ -88,15 +193,200 @@ public class SuiteFixtureListener implements ISuiteListener {
 
 	@Override
 	public void onFinish(ISuite suite) {
+		try {
+			if (!isBatchRun(suite)) {
+				reportHostHealth();
+				saveLinkCheckCache();
+			}
+			saveIncrementalResults(suite);
+		} finally {
+			DocumentCache.getInstance().release();
+			SchemaFieldCache.getInstance().release();
+			// the replicas are otherwise kept by long-lived pool threads
+			Object snapshot = suite
+					.removeAttribute(SuiteAttribute.SUBJECT_SNAPSHOT.getName());
+			if (null != snapshot) {
+				SubjectSnapshot.class.cast(snapshot).delete();
+			}
+			Object partitions = suite
+					.getAttribute(SuiteAttribute.PARTITIONED_SUBJECT.getName());
+			if (null != partitions) {
+				PartitionedSubject.class.cast(partitions).delete();
+			}
+			Metrics.bind(null);
+		}
+	}
+
+	/**
+	 * Enables incremental mode if the
+	 * {@link TestRunArg#INCREMENTAL_DIR incrementalDir} argument specifies a
+	 * store directory. The test subject is partitioned into units
+	 * (see {@link FeatureFingerprints}), and the outcomes of checking each unit
+	 * in the previous run of the same subject are loaded; they remain valid as
+	 * long as the context of the units, the level of conformance assessment,
+	 * and the suite version are unchanged. The outcomes are added to the suite
+	 * fixture as the value of the {@link SuiteAttribute#INCREMENTAL_RESULTS}
+	 * attribute.
+	 *
+	 * <p>
+	 * Only per-element checks (see
+	 * {@link CommonFixture#checkTargetElements(ElementCheck)}) are restricted to
+	 * the units that have changed; document-wide checks such as schema
+	 * validation are always performed in full.
+	 * </p>
+	 *
+	 * @param suite
+	 *            The test suite to be run.
+	 */
+	void configureIncrementalMode(ISuite suite) {
+		String storeDir = suite.getXmlSuite().getParameters()
+				.get(TestRunArg.INCREMENTAL_DIR.toString());
+		if (null == storeDir || storeDir.isEmpty()) {
+			return;
+		}
+		if (null != suite.getAttribute(SuiteAttribute.PARTITIONED_SUBJECT
+				.getName())) {
+			TestSuiteLogger.log(Level.WARNING,
+					"Incremental mode is not supported in partitioned mode.");
+			return;
+		}
+		Document kmlDoc = (Document) suite
+				.getAttribute(SuiteAttribute.TEST_SUBJECT.getName());
+		URI subject = URI.create(suite.getXmlSuite().getParameters()
+				.get(TestRunArg.KML.toString()).trim());
+		FeatureFingerprints fingerprints = FeatureFingerprints.of(kmlDoc);
+		String context = String.format("%s;lvl=%s;version=%s",
+				fingerprints.getContextDigest(),
+				suite.getAttribute(SuiteAttribute.LEVEL.getName()),
+				getSuiteVersion());
+		try {
+			IncrementalResults results = IncrementalResults.load(new File(
+					storeDir.trim()), subject, context);
+			suite.setAttribute(SuiteAttribute.INCREMENTAL_RESULTS.getName(),
+					results);
+			TestSuiteLogger.log(Level.CONFIG, String.format(
+					"Incremental mode: %d units in %s",
+					fingerprints.getUnitCount(), subject));
+		} catch (IOException iox) {
+			TestSuiteLogger.log(Level.WARNING,
+					"Failed to load incremental results from " + storeDir, iox);
+		}
+	}
+
+	/**
+	 * Saves the outcomes recorded in incremental mode so that they may be
+	 * reused when the next revision of the subject is tested.
+	 *
+	 * @param suite
+	 *            The test suite that was run.
+	 */
+	void saveIncrementalResults(ISuite suite) {
+		Object results = suite.getAttribute(SuiteAttribute.INCREMENTAL_RESULTS
+				.getName());
+		if (null == results) {
+			return;
+		}
+		try {
+			IncrementalResults.class.cast(results).save();
+			TestSuiteLogger.log(Level.INFO, results.toString());
+		} catch (IOException iox) {
+			TestSuiteLogger.log(Level.WARNING,
+					"Failed to save incremental results.", iox);
+		}
+	}
+
+	private String getSuiteVersion() {
+		Properties etsProps = new Properties();
+		try (InputStream in = getClass().getResourceAsStream("ets.properties")) {
+			if (null != in) {
+				etsProps.load(in);
+			}
+		} catch (IOException iox) {
+			TestSuiteLogger.log(Level.WARNING,
+					"Unable to load ets.properties. " + iox.getMessage());
+		}
+		return etsProps.getProperty("ets-version", "");
+	}
+
+	/**
+	 * Enables the persistent link check cache if the "linkCacheDir" system
+	 * property specifies a cache directory. The maximum age of a fresh entry
+	 * is given by the "linkCacheMaxAge" system property (in seconds, default
+	 * value: {@value #DEFAULT_LINK_CACHE_MAX_AGE}); stale entries are
+	 * revalidated.
+	 */
+	void configureLinkCheckCache() {
+		String cacheDir = System.getProperty(LINK_CACHE_DIR);
+		if (null == cacheDir || cacheDir.isEmpty()) {
+			HttpClientUtils.setLinkCheckCache(null);
+			return;
+		}
+		long maxAge = DEFAULT_LINK_CACHE_MAX_AGE;
+		try {
+			maxAge = Long.parseLong(System.getProperty(LINK_CACHE_MAX_AGE,
+					Long.toString(DEFAULT_LINK_CACHE_MAX_AGE)));
+		} catch (NumberFormatException nfe) { // use default value instead
+		}
+		try {
+			LinkCheckCache cache = LinkCheckCache.load(new File(cacheDir),
+					TimeUnit.SECONDS.toMillis(maxAge));
+			HttpClientUtils.setLinkCheckCache(cache);
+			TestSuiteLogger.log(Level.CONFIG, cache.toString());
+		} catch (IOException iox) {
+			TestSuiteLogger.log(Level.WARNING,
+					"Failed to load link check cache from " + cacheDir, iox);
+		}
+	}
+
+	/**
+	 * Saves the link check cache (if enabled) so that it may be used in
+	 * subsequent test runs.
+	 */
+	void saveLinkCheckCache() {
+		LinkCheckCache cache = HttpClientUtils.getLinkCheckCache();
+		if (null == cache) {
+			return;
+		}
+		try {
+			cache.save();
+			TestSuiteLogger.log(Level.INFO, cache.toString());
+		} catch (IOException iox) {
+			TestSuiteLogger.log(Level.WARNING,
+					"Failed to save link check cache.", iox);
+		}
+	}
+
+	/**
+	 * Logs a summary of the hosts that could not be reached during the test
+	 * run, along with an estimate of the time saved by not waiting for
+	 * connection attempts to them.
+	 */
+	void reportHostHealth() {
+		String summary = HttpClientUtils.getHostHealthRegistry().getSummary();
+		if (!summary.isEmpty()) {
+			TestSuiteLogger.log(Level.INFO, summary);
+		}
 	}
 
 	/**
 	 * Processes test suite arguments and sets suite attributes accordingly. The
 	 * entity referenced by the {@link TestRunArg#KML kml} argument is parsed
 	 * (or unpacked first if it's a KMZ resource) and the resulting Document is
-	 * set as the value of the "testSubject" attribute. The level of conformance
-	 * assessment is determined by the value of the {@link TestRunArg#LVL lvl}
-	 * argument (default value: 1).
+	 * set as the value of the "testSubject" attribute. (A snapshot of it that
+	 * may be shared by concurrent readers is only taken when a fixture first
+	 * needs one; see {@link SuiteAttribute#SUBJECT_SNAPSHOT}.) The level of
+	 * conformance assessment is
+	 * determined by the value of the {@link TestRunArg#LVL lvl} argument
+	 * (default value: 1).
+	 *
+	 * <p>
+	 * In partitioned mode (see {@link TestRunArg#PARTITION_SIZE}) the entity
+	 * is split instead, and the first partition is set as the value of the
+	 * "testSubject" attribute. A {@link CoordinateStore} is enabled for the
+	 * test subject (or for every partition) if the
+	 * {@link TestRunArg#COORDINATE_STORE coordinateStore} argument calls for
+	 * one.
+	 * </p>
 	 * 
 	 * @param suite
 	 *            An ISuite object representing a TestNG test suite.
@@ -132,11 +422,22 @@ public class SuiteFixtureListener implements ISuiteListener {
 					"Failed to dereference resource located at " + iutRef, iox);
 		}
 		Document kmlDoc;
-		try {
-			kmlDoc = KMLUtils.parseKMLDocument(entityFile);
-		} catch (IOException | SAXException x) {
-			throw new RuntimeException("Failed to parse KML resource at "
-					+ iutRef, x);
+		String coordinateStore = params.get(TestRunArg.COORDINATE_STORE
+				.toString());
+		int partitionSize = getPartitionSize(params);
+		if (partitionSize > 0) {
+			kmlDoc = partitionSubject(suite, entityFile, iutRef, partitionSize,
+					coordinateStore);
+		} else {
+			try {
+				kmlDoc = KMLUtils.parseKMLDocument(entityFile);
+			} catch (IOException | SAXException x) {
+				throw new RuntimeException("Failed to parse KML resource at "
+						+ iutRef, x);
+			}
+			suite.setAttribute(SuiteAttribute.ID_INDEX.getName(),
+					IdIndex.register(kmlDoc));
+			CoordinateStore.enable(kmlDoc, coordinateStore);
 		}
 		suite.setAttribute(SuiteAttribute.TEST_SUBJECT.getName(), kmlDoc);
 		String kmlVersion = kmlDoc.getDocumentElement().getAttribute(
@@ -154,16 +455,94 @@ public class SuiteFixtureListener implements ISuiteListener {
 		}
 	}
 
+	/**
+	 * Returns the partition size given by the
+	 * {@link TestRunArg#PARTITION_SIZE partitionSize} argument.
+	 * 
+	 * @param params
+	 *            The suite parameters (test run arguments).
+	 * @return The number of elements at which a partition is cut, or 0 if the
+	 *         test subject is not to be partitioned.
+	 */
+	int getPartitionSize(Map<String, String> params) {
+		String partitionSize = params.get(TestRunArg.PARTITION_SIZE
+				.toString());
+		if (null == partitionSize) {
+			return 0;
+		}
+		try {
+			return Math.max(0, Integer.parseInt(partitionSize.trim()));
+		} catch (NumberFormatException nfe) { // test subject as a whole
+			return 0;
+		}
+	}
+
+	/**
+	 * Splits the test subject into partitions so that memory use is bounded by
+	 * the size of the largest partition rather than by the size of the whole
+	 * document (see {@link PartitionedSubject}). The partitions are added to
+	 * the suite fixture as the value of the
+	 * {@link SuiteAttribute#PARTITIONED_SUBJECT} attribute. The
+	 * {@link SuiteAttribute#ID_INDEX} attribute is set to the index of the
+	 * shared styles and custom schemas, which also stand in for the subject
+	 * in the {@link DocumentCache}.
+	 * 
+	 * @param suite
+	 *            The test suite to be run.
+	 * @param entityFile
+	 *            A file containing the test subject (KML or KMZ).
+	 * @param iutRef
+	 *            The location of the test subject.
+	 * @param partitionSize
+	 *            The number of elements at which a partition is cut.
+	 * @param coordinateStore
+	 *            The mode of the coordinate store enabled for every partition
+	 *            (null if coordinates are kept on the heap).
+	 * @return A Document representing the first partition.
+	 */
+	Document partitionSubject(ISuite suite, File entityFile, URI iutRef,
+			int partitionSize, String coordinateStore) {
+		PartitionedSubject partitions;
+		Document kmlDoc;
+		Document contextDoc;
+		try {
+			File kmlFile = entityFile;
+			try (InputStream in = new FileInputStream(entityFile)) {
+				if (!XMLUtils.isXML(in)) {
+					kmlFile = KMLUtils.extractKMLDocumentInArchive(entityFile);
+				}
+			}
+			if (null == kmlFile) {
+				throw new IOException("KML document not found in archive.");
+			}
+			partitions = PartitionedSubject.split(kmlFile, partitionSize);
+			partitions.setCoordinateStore(coordinateStore);
+			kmlDoc = partitions.getDocument(0);
+			contextDoc = partitions.getContextDocument();
+		} catch (IOException | SAXException | XMLStreamException x) {
+			throw new RuntimeException("Failed to partition KML resource at "
+					+ iutRef, x);
+		}
+		suite.setAttribute(SuiteAttribute.PARTITIONED_SUBJECT.getName(),
+				partitions);
+		suite.setAttribute(SuiteAttribute.ID_INDEX.getName(),
+				IdIndex.lookup(contextDoc));
+		DocumentCache.getInstance().put(
+				URI.create(partitions.getDocumentURI()), contextDoc);
+		return kmlDoc;
+	}
+
 	/**
 	 * An JAX-RS Client component is added to the suite fixture as the value of
 	 * the {@link SuiteAttribute#CLIENT} attribute; it may be subsequently
-	 * accessed via the {@link org.testng.ITestContext#getSuite()} method.
+	 * accessed via the {@link org.testng.ITestContext#getSuite()} method. This
+	 * is the shared client that is also used for checking link referents.
 	 *
 	 * @param suite
 	 *            The test suite instance.
 	 */
 	void registerHttpClient(ISuite suite) {
-		Client client = HttpClientUtils.buildClient();
+		Client client = HttpClientUtils.getSharedClient();
 		if (null != client) {
 			suite.setAttribute(SuiteAttribute.CLIENT.getName(), client);
 		}
@@ -6,15 +6,31 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
 
+import org.opengis.cite.kml2.util.BatchSubjects;
+import org.opengis.cite.kml2.util.CoordinateStore;
+import org.opengis.cite.kml2.util.DocumentCache;
+import org.opengis.cite.kml2.util.HttpClientUtils;
+import org.opengis.cite.kml2.util.PartitionedSubject;
+import org.opengis.cite.kml2.util.ResultCache;
 import org.opengis.cite.kml2.util.TestSuiteLogger;
+import org.opengis.cite.kml2.util.URIUtils;
+import org.opengis.cite.kml2.validation.SchemaFieldCache;
+import org.opengis.cite.kml2.validation.StreamingResult;
+import org.opengis.cite.kml2.validation.StreamingValidator;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -30,8 +46,25 @@ import com.occamlab.te.spi.jaxrs.TestSuiteController;
  */
 public class TestNGController implements TestSuiteController {
 
+    /**
+     * Name of the system property that specifies the location of the result
+     * cache (see {@link ResultCache}); test results are not cached if it is
+     * not set.
+     */
+    public static final String RESULT_CACHE_DIR = "resultCacheDir";
+    /**
+     * Name of the system property that, if "true", forces every subject to be
+     * tested even if cached results are available.
+     */
+    public static final String FORCE_REVALIDATION = "forceRevalidation";
     private TestRunExecutor executor;
     private Properties etsProperties = new Properties();
+    private File resultsDir;
+    private ResultCache resultCache;
+    private int threadCount = 1;
+    private String incrementalDir;
+    private int partitionSize;
+    private String coordinateStore;
 
     /**
      * A convenience method for running the test suite using a command-line
@@ -46,9 +79,24 @@ public class TestNGController implements TestSuiteController {
      * </p>
      *
      * <pre>
-     * ets-*-aio.jar [-o|--outputDir $TMPDIR] [-d|--deleteSubjectOnFinish] [test-run-props.xml]
+     * ets-*-aio.jar [-o|--outputDir $TMPDIR] [-d|--deleteSubjectOnFinish] [--threads N] [-b|--batch $SPEC [--workers N]]
+     *   [--daemon $PORT [--workers N]] [-r|--resultCache [-f|--force]] [-i|--incremental]
+     *   [--streaming [--maxErrors N]] [--partitionSize N] [--coordinateStore direct|mapped] [test-run-props.xml]
      * </pre>
      *
+     * <p>
+     * In batch mode the properties file (if it exists) supplies the test run
+     * arguments other than 'kml' that apply to every test subject. In daemon
+     * mode the controller remains resident and test run requests are accepted
+     * over HTTP (see {@link ValidationDaemon}). In streaming mode only the
+     * element-level constraints of conformance level 1 are checked, in a
+     * single pass that does not build a DOM (see {@link StreamingValidator}).
+     * If a partition size is given, the test subject is split into partitions
+     * that are tested one at a time (see {@link PartitionedSubject}). A
+     * coordinate store keeps the coordinates of geometry elements outside of
+     * the heap (see {@link CoordinateStore}).
+     * </p>
+     *
      * @param args
      *            Test run arguments (optional). The first argument must refer
      *            to an XML properties file containing the expected set of test
@@ -70,11 +118,77 @@ public class TestNGController implements TestSuiteController {
         if (testRunArgs.doDeleteSubjectOnFinish()) {
             System.setProperty("deleteSubjectOnFinish", "true");
         }
+        if (testRunArgs.doCacheLinkChecks()) {
+            String outputDir = testRunArgs.getOutputDir();
+            File cacheDir = new File(outputDir.startsWith("file:") ? new File(URI.create(outputDir))
+                    : new File(outputDir), "link-cache");
+            System.setProperty(SuiteFixtureListener.LINK_CACHE_DIR, cacheDir.getAbsolutePath());
+            System.setProperty(SuiteFixtureListener.LINK_CACHE_MAX_AGE,
+                    Long.toString(testRunArgs.getLinkCacheMaxAge()));
+        }
+        if (null != testRunArgs.getRecordDir()) {
+            System.setProperty(HttpClientUtils.RECORD_DIR, testRunArgs.getRecordDir());
+        }
+        if (null != testRunArgs.getReplayDir()) {
+            System.setProperty(HttpClientUtils.REPLAY_DIR, testRunArgs.getReplayDir());
+        }
+        if (null != testRunArgs.getStubServer()) {
+            System.setProperty(HttpClientUtils.STUB_SERVER, testRunArgs.getStubServer());
+        }
+        if (testRunArgs.doCacheResults()) {
+            String outputDir = testRunArgs.getOutputDir();
+            File cacheDir = new File(outputDir.startsWith("file:") ? new File(URI.create(outputDir))
+                    : new File(outputDir), "result-cache");
+            System.setProperty(RESULT_CACHE_DIR, cacheDir.getAbsolutePath());
+        }
+        if (testRunArgs.doForceRevalidation()) {
+            System.setProperty(FORCE_REVALIDATION, "true");
+        }
+        String incrementalDir = null;
+        if (testRunArgs.isIncremental()) {
+            String outputDir = testRunArgs.getOutputDir();
+            File storeDir = new File(outputDir.startsWith("file:") ? new File(URI.create(outputDir))
+                    : new File(outputDir), "incremental");
+            incrementalDir = storeDir.getAbsolutePath();
+        }
         DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
         DocumentBuilder db = dbf.newDocumentBuilder();
         File xmlArgs = testRunArgs.getPropertiesFile();
-        Document testRunProps = db.parse(xmlArgs);
         TestNGController controller = new TestNGController(testRunArgs.getOutputDir());
+        controller.setThreadCount(testRunArgs.getThreads());
+        controller.setIncrementalDir(incrementalDir);
+        controller.setPartitionSize(testRunArgs.getPartitionSize());
+        controller.setCoordinateStore(testRunArgs.getCoordinateStore());
+        if (null != testRunArgs.getDaemonPort()) {
+            final ValidationDaemon daemon = new ValidationDaemon(controller, testRunArgs.getDaemonPort(),
+                    testRunArgs.getWorkers());
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    daemon.stop();
+                }
+            });
+            daemon.start();
+            System.out.println("Test run endpoint: " + daemon.getEndpoint());
+            return;
+        }
+        if (null != testRunArgs.getBatch()) {
+            List<URI> subjects = BatchSubjects.resolve(testRunArgs.getBatch());
+            Document baseArgs = xmlArgs.isFile() ? db.parse(xmlArgs) : null;
+            BatchSummary summary = controller.doBatchRun(baseArgs, subjects, testRunArgs.getWorkers());
+            File summaryFile = summary.write(controller.resultsDir);
+            System.out.println(summary);
+            System.out.println("Batch results: " + summaryFile.toURI());
+            return;
+        }
+        Document testRunProps = db.parse(xmlArgs);
+        if (testRunArgs.isStreaming()) {
+            StreamingResult result = controller.doStreamingRun(testRunProps, testRunArgs.getMaxErrors());
+            File resultFile = result.write(controller.resultsDir);
+            System.out.println(result);
+            System.out.println("Streaming results: " + resultFile.toURI());
+            return;
+        }
         Source testResults = controller.doTestRun(testRunProps);
         System.out.println("Test results: " + testResults.getSystemId());
     }
@@ -103,7 +217,6 @@ public class TestNGController implements TestSuiteController {
             TestSuiteLogger.log(Level.WARNING, "Unable to load ets.properties. " + ex.getMessage());
         }
         URL tngSuite = TestNGController.class.getResource("testng.xml");
-        File resultsDir;
         if (null == outputDir || outputDir.isEmpty()) {
             resultsDir = new File(System.getProperty("user.home"));
         } else if (outputDir.startsWith("file:")) {
@@ -113,6 +226,11 @@ public class TestNGController implements TestSuiteController {
         }
         TestSuiteLogger.log(Level.CONFIG, "Using TestNG config: " + tngSuite);
         TestSuiteLogger.log(Level.CONFIG, "Using outputDirPath: " + resultsDir.getAbsolutePath());
+        String cacheDir = System.getProperty(RESULT_CACHE_DIR);
+        if (null != cacheDir && !cacheDir.isEmpty()) {
+            this.resultCache = new ResultCache(new File(cacheDir));
+            TestSuiteLogger.log(Level.CONFIG, "Using result cache: " + cacheDir);
+        }
         // NOTE: setting third argument to 'true' enables the default listeners
         this.executor = new TestNGExecutor(tngSuite.toString(), resultsDir.getAbsolutePath(), false);
     }
@@ -132,10 +250,355 @@ public class TestNGController implements TestSuiteController {
         return etsProperties.getProperty("ets-title");
     }
 
+    /**
+     * Executes a test run. If a result cache is in use, the results of a
+     * previous test run are returned instead if the subject content, the
+     * conformance level, and the suite version are all unchanged (unless
+     * revalidation is forced by the {@link TestRunArg#FORCE force} argument or
+     * the {@value #FORCE_REVALIDATION} system property). The subject is then
+     * retrieved only once: the test run reads the local copy whose content
+     * was hashed, and a temporary copy of a remote subject is deleted
+     * afterwards. The given arguments are not modified; entries are added to
+     * or changed in a copy of them.
+     */
     @Override
     public Source doTestRun(Document testRunArgs) throws Exception {
-        validateTestRunArgs(testRunArgs);
-        return executor.execute(testRunArgs);
+        Map<String, String> args = validateTestRunArgs(testRunArgs);
+        testRunArgs = copyTestRunArgs(testRunArgs);
+        if (threadCount > 1) {
+            addEntryIfAbsent(testRunArgs, args, TestRunArg.THREADS, Integer.toString(threadCount));
+        }
+        if (null != incrementalDir) {
+            addEntryIfAbsent(testRunArgs, args, TestRunArg.INCREMENTAL_DIR, incrementalDir);
+        }
+        if (partitionSize > 0) {
+            addEntryIfAbsent(testRunArgs, args, TestRunArg.PARTITION_SIZE, Integer.toString(partitionSize));
+        }
+        if (null != coordinateStore) {
+            addEntryIfAbsent(testRunArgs, args, TestRunArg.COORDINATE_STORE, coordinateStore);
+        }
+        if (null == resultCache) {
+            return executor.execute(testRunArgs);
+        }
+        URI subjectRef = URI.create(args.get(TestRunArg.KML.toString()).trim());
+        File subject;
+        String key;
+        try {
+            subject = getLocalSubject(subjectRef);
+            key = computeResultKey(subject, args);
+        } catch (IOException iox) {
+            TestSuiteLogger.log(Level.WARNING, "Cannot compute result cache key; subject will be tested.", iox);
+            return executor.execute(testRunArgs);
+        }
+        try {
+            boolean force = Boolean.getBoolean(FORCE_REVALIDATION)
+                    || Boolean.parseBoolean(args.get(TestRunArg.FORCE.toString()));
+            if (!force) {
+                File cachedResults = resultCache.get(key);
+                if (null != cachedResults) {
+                    TestSuiteLogger.log(Level.INFO, String.format("Using cached results for %s: %s",
+                            args.get(TestRunArg.KML.toString()), cachedResults));
+                    return new StreamSource(cachedResults);
+                }
+            }
+            setEntry(testRunArgs, TestRunArg.KML.toString(), subject.toURI().toString());
+            Source results = executor.execute(testRunArgs);
+            try {
+                resultCache.put(key, results);
+            } catch (IOException iox) {
+                TestSuiteLogger.log(Level.WARNING, "Failed to cache test results.", iox);
+            }
+            return results;
+        } finally {
+            if (isRemote(subjectRef)) {
+                subject.delete();
+            }
+        }
+    }
+
+    /**
+     * Sets the number of threads used to run the tests in a test run, unless
+     * the test run arguments specify it (see {@link TestRunArg#THREADS}).
+     *
+     * @param threadCount
+     *            The number of threads (1 runs the tests sequentially).
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Sets the directory in which the outcomes of checking individual features
+     * are stored, unless the test run arguments specify it (see
+     * {@link TestRunArg#INCREMENTAL_DIR}).
+     *
+     * @param incrementalDir
+     *            The path of the store directory (null if test runs are not
+     *            incremental).
+     */
+    public void setIncrementalDir(String incrementalDir) {
+        this.incrementalDir = incrementalDir;
+    }
+
+    /**
+     * Sets the size of the partitions into which a test subject is split,
+     * unless the test run arguments specify it (see
+     * {@link TestRunArg#PARTITION_SIZE}).
+     *
+     * @param partitionSize
+     *            The number of elements at which a partition is cut (0 if
+     *            subjects are tested as a whole).
+     */
+    public void setPartitionSize(int partitionSize) {
+        this.partitionSize = Math.max(0, partitionSize);
+    }
+
+    /**
+     * Sets where parsed coordinates are kept, unless the test run arguments
+     * specify it (see {@link TestRunArg#COORDINATE_STORE}).
+     *
+     * @param coordinateStore
+     *            "direct", "mapped", or null if coordinates are kept on the
+     *            heap (see {@link CoordinateStore}).
+     */
+    public void setCoordinateStore(String coordinateStore) {
+        this.coordinateStore = coordinateStore;
+    }
+
+    /**
+     * Sets the result cache used by this controller.
+     *
+     * @param resultCache
+     *            A ResultCache instance (null if results are not cached).
+     */
+    void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Returns a local file containing the test subject. A remote subject is
+     * retrieved and stored in a temporary file; a reference without a scheme
+     * is taken to be a file system path.
+     *
+     * @param subjectRef
+     *            A reference to the test subject.
+     * @return A File containing the content of the subject.
+     * @throws IOException
+     *             If the subject cannot be retrieved.
+     */
+    static File getLocalSubject(URI subjectRef) throws IOException {
+        if (null == subjectRef.getScheme()) {
+            return new File(subjectRef.getPath()).getAbsoluteFile();
+        }
+        return URIUtils.dereferenceURI(subjectRef);
+    }
+
+    /**
+     * Indicates whether the subject is retrieved from a remote location (and
+     * so stored in a temporary file).
+     */
+    private static boolean isRemote(URI subjectRef) {
+        String scheme = subjectRef.getScheme();
+        return null != scheme && !scheme.equalsIgnoreCase("file");
+    }
+
+    /**
+     * Computes the result cache key for a test run from the digest of the
+     * subject content.
+     *
+     * @param subject
+     *            A local file containing the test subject.
+     * @param args
+     *            The test run arguments.
+     * @return A result cache key.
+     * @throws IOException
+     *             If the subject cannot be read.
+     */
+    String computeResultKey(File subject, Map<String, String> args) throws IOException {
+        return ResultCache.computeKey(subject, getLevel(args), getVersion());
+    }
+
+    /**
+     * Returns the effective level of conformance assessment (default: 1).
+     */
+    private static String getLevel(Map<String, String> args) {
+        String lvl = args.get(TestRunArg.LVL.toString());
+        try {
+            int level = Integer.parseInt(null != lvl ? lvl.trim() : "");
+            if (level > 0 && level < 4) {
+                return Integer.toString(level);
+            }
+        } catch (NumberFormatException nfe) { // use default value instead
+        }
+        return "1";
+    }
+
+    /**
+     * Tests a batch of subjects in this JVM. The subjects are tested
+     * concurrently by a bounded pool of worker threads; each test run produces
+     * its own set of results. The compiled schemas, the HTTP client, and the
+     * various caches are shared by all test runs in the batch.
+     *
+     * @param baseArgs
+     *            An XML properties document containing the test run arguments
+     *            that apply to every subject (may be null); a 'kml' entry is
+     *            ignored.
+     * @param subjects
+     *            A list of test subjects (absolute URIs).
+     * @param workers
+     *            The maximum number of subjects tested concurrently.
+     * @return A summary of the results for each subject, in the order given.
+     * @throws InterruptedException
+     *             If interrupted while waiting for the test runs to finish.
+     */
+    public BatchSummary doBatchRun(Document baseArgs, List<URI> subjects, int workers) throws InterruptedException {
+        final BatchSummary summary = new BatchSummary();
+        SuiteFixtureListener fixture = new SuiteFixtureListener();
+        DocumentCache.getInstance().retain();
+        SchemaFieldCache.getInstance().retain();
+        fixture.configureLinkCheckCache();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, workers));
+        try {
+            for (int i = 0; i < subjects.size(); i++) {
+                final int index = i;
+                final URI subject = subjects.get(i);
+                final Document testRunArgs = createTestRunArgs(baseArgs, subject);
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            summary.addResults(index, subject, doTestRun(testRunArgs));
+                        } catch (Exception e) {
+                            TestSuiteLogger.log(Level.WARNING, "Test run failed for " + subject, e);
+                            summary.addError(index, subject, e);
+                        }
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            fixture.reportHostHealth();
+            fixture.saveLinkCheckCache();
+            DocumentCache.getInstance().release();
+            SchemaFieldCache.getInstance().release();
+        }
+        TestSuiteLogger.log(Level.INFO, summary.toString());
+        return summary;
+    }
+
+    /**
+     * Checks the element-level constraints of conformance level 1 in a single
+     * streaming pass over the test subject; a DOM is never built, so very
+     * large documents can be checked with a small heap. A remote subject is
+     * first copied to a temporary file, which is deleted afterwards; a
+     * reference without a scheme is taken to be a file system path.
+     *
+     * @param testRunArgs
+     *            A DOM Document containing a set of XML properties (key-value
+     *            pairs); only the 'kml' entry is used.
+     * @param maxErrors
+     *            The maximum number of errors to report.
+     * @return The result of validation.
+     * @throws Exception
+     *             If the subject cannot be retrieved or is not well-formed.
+     */
+    public StreamingResult doStreamingRun(Document testRunArgs, int maxErrors) throws Exception {
+        Map<String, String> args = validateTestRunArgs(testRunArgs);
+        URI subjectRef = URI.create(args.get(TestRunArg.KML.toString()).trim());
+        File subject = getLocalSubject(subjectRef);
+        try {
+            StreamingResult result = new StreamingValidator(maxErrors).validate(subject);
+            TestSuiteLogger.log(Level.INFO, result.toString());
+            return result;
+        } finally {
+            if (isRemote(subjectRef)) {
+                subject.delete();
+            }
+        }
+    }
+
+    /**
+     * Creates the test run arguments for a subject in a batch. The base
+     * arguments are copied, and the 'kml' and 'batch' entries are set.
+     *
+     * @param baseArgs
+     *            An XML properties document (may be null).
+     * @param subject
+     *            The location of the test subject.
+     * @return A new XML properties document.
+     */
+    Document createTestRunArgs(Document baseArgs, URI subject) {
+        Document testRunArgs;
+        try {
+            testRunArgs = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException pce) {
+            throw new RuntimeException(pce);
+        }
+        Element props = testRunArgs.createElement("properties");
+        testRunArgs.appendChild(props);
+        if (null != baseArgs) {
+            NodeList entries = baseArgs.getDocumentElement().getElementsByTagName("entry");
+            for (int i = 0; i < entries.getLength(); i++) {
+                Element entry = (Element) entries.item(i);
+                String key = entry.getAttribute("key");
+                if (!key.equals(TestRunArg.KML.toString()) && !key.equals(TestRunArg.BATCH.toString())) {
+                    props.appendChild(testRunArgs.importNode(entry, true));
+                }
+            }
+        }
+        props.appendChild(createEntry(testRunArgs, TestRunArg.KML.toString(), subject.toString()));
+        props.appendChild(createEntry(testRunArgs, TestRunArg.BATCH.toString(), "true"));
+        return testRunArgs;
+    }
+
+    /**
+     * Copies a set of test run arguments into a new document.
+     *
+     * @param testRunArgs
+     *            An XML properties document.
+     * @return A new XML properties document with the same entries.
+     */
+    static Document copyTestRunArgs(Document testRunArgs) {
+        Document copy;
+        try {
+            copy = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException pce) {
+            throw new RuntimeException(pce);
+        }
+        copy.appendChild(copy.importNode(testRunArgs.getDocumentElement(), true));
+        return copy;
+    }
+
+    /**
+     * Sets the value of every entry with the given key in an XML properties
+     * document.
+     */
+    private static void setEntry(Document doc, String key, String value) {
+        NodeList entries = doc.getDocumentElement().getElementsByTagName("entry");
+        for (int i = 0; i < entries.getLength(); i++) {
+            Element entry = (Element) entries.item(i);
+            if (entry.getAttribute("key").equals(key)) {
+                entry.setTextContent(value);
+            }
+        }
+    }
+
+    /**
+     * Appends an entry for the given argument to an XML properties document,
+     * unless the test run arguments already include one.
+     */
+    private static void addEntryIfAbsent(Document doc, Map<String, String> args, TestRunArg arg, String value) {
+        if (!args.containsKey(arg.toString())) {
+            doc.getDocumentElement().appendChild(createEntry(doc, arg.toString(), value));
+        }
+    }
+
+    private static Element createEntry(Document doc, String key, String value) {
+        Element entry = doc.createElement("entry");
+        entry.setAttribute("key", key);
+        entry.setTextContent(value);
+        return entry;
     }
 
     /**
@@ -145,10 +608,11 @@ public class TestNGController implements TestSuiteController {
      * @param testRunArgs
      *            A DOM Document containing a set of XML properties (key-value
      *            pairs).
+     * @return A map of test run arguments.
      * @throws IllegalArgumentException
      *             If any arguments are missing or invalid for some reason.
      */
-    void validateTestRunArgs(Document testRunArgs) throws IllegalArgumentException {
+    Map<String, String> validateTestRunArgs(Document testRunArgs) throws IllegalArgumentException {
         if (null == testRunArgs || !testRunArgs.getDocumentElement().getNodeName().equals("properties")) {
             throw new IllegalArgumentException("Input is not an XML properties document.");
         }
@@ -165,5 +629,6 @@ public class TestNGController implements TestSuiteController {
             throw new IllegalArgumentException(
                     String.format("Missing argument: '%s' must be present.", TestRunArg.KML));
         }
+        return args;
     }
 }
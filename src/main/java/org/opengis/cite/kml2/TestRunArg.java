@@ -1,7 +1,9 @@
 package org.opengis.cite.kml2;
 
 /**
- * An enumerated type defining all recognized test run arguments.
+ * An enumerated type defining all recognized test run arguments. The name of
+ * an argument is the name of the constant in camel case (e.g.
+ * "partitionSize").
  */
 public enum TestRunArg {
 
@@ -12,10 +14,52 @@ public enum TestRunArg {
 	/**
 	 * An integer value (1-3) indicating the level of conformance assessment.
 	 */
-	LVL;
+	LVL,
+	/**
+	 * A boolean value indicating that the test run is one of many in a batch
+	 * or a request to the validation daemon (default: false). The shared caches then endure for the duration of the
+	 * entire batch.
+	 */
+	BATCH,
+	/**
+	 * A boolean value indicating that the subject must be tested even if
+	 * results for identical content are available in the result cache
+	 * (default: false).
+	 */
+	FORCE,
+	/**
+	 * A positive integer indicating the number of threads used to run
+	 * conformance classes and test classes in parallel, and to check large
+	 * collections of elements (default: 1).
+	 */
+	THREADS,
+	/**
+	 * The location of the directory in which the outcomes of checking
+	 * individual features are stored for incremental test runs (a file
+	 * system path). If it is absent, every feature is checked.
+	 */
+	INCREMENTAL_DIR,
+	/**
+	 * A positive integer indicating the size (number of elements) of the
+	 * partitions into which the test subject is split. If it is absent, the
+	 * test subject is tested as a whole.
+	 */
+	PARTITION_SIZE,
+	/**
+	 * Where parsed coordinates are kept: in direct buffers ("direct") or in
+	 * memory-mapped temporary files ("mapped"). If it is absent, coordinates
+	 * are kept on the heap.
+	 */
+	COORDINATE_STORE;
 
 	@Override
 	public String toString() {
-		return name().toLowerCase();
+		String[] words = name().toLowerCase().split("_");
+		StringBuilder argName = new StringBuilder(words[0]);
+		for (int i = 1; i < words.length; i++) {
+			argName.append(Character.toUpperCase(words[i].charAt(0)))
+					.append(words[i].substring(1));
+		}
+		return argName.toString();
 	}
 }
@@ -1,6 +1,20 @@
 package org.opengis.cite.kml2;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.opengis.cite.kml2.util.Metrics;
+import org.opengis.cite.kml2.util.TestSuiteLogger;
 import org.testng.IExecutionListener;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IReporter;
+import org.testng.ISuite;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
 
 /**
  * A listener that is invoked before and after a test run. It is often used to
@@ -11,16 +25,89 @@ import org.testng.IExecutionListener;
  * test interactions. In general, it should be populated with "read-only"
  * objects that are not modified during the test run.</p>
  *
+ * <p>The listener also publishes the {@link Metrics} collected during the test
+ * run (the value of the {@link SuiteAttribute#METRICS} suite attribute): they
+ * are bound to the thread that invokes each test or configuration method, the
+ * wall time of every test method invocation is recorded, and a summary is
+ * written to {@value Metrics#SUMMARY_FILE} in the directory that contains the
+ * TestNG results. The metrics of all test runs are exposed via JMX.</p>
+ *
  * @see com.occamlab.te.spi.executors.FixtureManager FixtureManager
  *
  */
-public class TestRunListener implements IExecutionListener {
+public class TestRunListener implements IExecutionListener, IInvokedMethodListener, IReporter {
+
+    private static final ThreadLocal<Long> INVOCATION_START = new ThreadLocal<>();
+    private static final ThreadLocal<Metrics> PREVIOUS_METRICS = new ThreadLocal<>();
 
     @Override
     public void onExecutionStart() {
+        Metrics.registerMBean();
     }
 
     @Override
     public void onExecutionFinish() {
     }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        Metrics metrics = getSuiteMetrics(testResult.getTestContext().getSuite());
+        if (null != metrics) {
+            PREVIOUS_METRICS.set(Metrics.bind(metrics));
+        }
+        if (method.isTestMethod()) {
+            INVOCATION_START.set(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        Long start = INVOCATION_START.get();
+        if (method.isTestMethod() && null != start) {
+            INVOCATION_START.remove();
+            ITestNGMethod testMethod = method.getTestMethod();
+            Metrics.getInstance().record(Metrics.TEST,
+                    testMethod.getRealClass().getName() + "." + testMethod.getMethodName(), start);
+        }
+        if (null != getSuiteMetrics(testResult.getTestContext().getSuite())) {
+            Metrics.bind(PREVIOUS_METRICS.get());
+            PREVIOUS_METRICS.remove();
+        }
+    }
+
+    /**
+     * Writes a summary of the metrics collected during the test run to a file
+     * named {@value Metrics#SUMMARY_FILE} in the output directory. If several
+     * suites were run, the summary for each one is written to the
+     * subdirectory named after the suite.
+     */
+    @Override
+    public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
+        for (ISuite suite : suites) {
+            Metrics metrics = getSuiteMetrics(suite);
+            if (null == metrics) {
+                continue;
+            }
+            File outputDir = new File(outputDirectory);
+            if (suites.size() > 1) {
+                outputDir = new File(outputDir, suite.getName());
+            }
+            if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+                TestSuiteLogger.log(Level.WARNING, "Cannot create output directory: " + outputDir);
+                continue;
+            }
+            File summary = new File(outputDir, Metrics.SUMMARY_FILE);
+            try {
+                metrics.writeSummary(summary);
+                TestSuiteLogger.log(Level.CONFIG, "Wrote metrics to " + summary);
+            } catch (IOException iox) {
+                TestSuiteLogger.log(Level.WARNING, "Failed to write metrics summary.", iox);
+            }
+        }
+    }
+
+    private static Metrics getSuiteMetrics(ISuite suite) {
+        Object metrics = suite.getAttribute(SuiteAttribute.METRICS.getName());
+        return (metrics instanceof Metrics) ? (Metrics) metrics : null;
+    }
 }
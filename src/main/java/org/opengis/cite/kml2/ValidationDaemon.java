@@ -0,0 +1,307 @@
+package org.opengis.cite.kml2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Source;
+
+import org.opengis.cite.kml2.util.DocumentCache;
+import org.opengis.cite.kml2.util.HttpClientUtils;
+import org.opengis.cite.kml2.util.TestSuiteLogger;
+import org.opengis.cite.kml2.util.ValidationUtils;
+import org.opengis.cite.kml2.validation.SchemaFieldCache;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A long-running service that keeps a test run controller (along with the
+ * compiled schemas and the shared HTTP client) resident in memory. Test runs
+ * are requested over HTTP on the loopback interface only:
+ * <ul>
+ * <li><code>POST /runs</code>: the request entity is an XML properties
+ * document containing the test run arguments; the response entity is the
+ * resulting TestNG report (testng-results.xml);</li>
+ * <li><code>GET /status</code>: reports the number of active and queued test
+ * runs.</li>
+ * </ul>
+ *
+ * <p>
+ * Requests are queued for a bounded pool of worker threads; if the queue is
+ * full the request is rejected with status code 503. Every test run is
+ * treated as part of a batch (see {@link TestRunArg#BATCH}), so the shared
+ * caches endure for the lifetime of the daemon; they are bounded in size and
+ * their entries expire (see {@link DocumentCache} and
+ * {@link SchemaFieldCache}), so that references are eventually resolved
+ * again. The test subject must be an http or https URI; local files are not
+ * disclosed to clients.
+ * </p>
+ */
+public class ValidationDaemon {
+
+	/** The path of the test run resource. */
+	public static final String RUNS_PATH = "/runs";
+	/** The path of the status resource. */
+	public static final String STATUS_PATH = "/status";
+	/** Number of queued test runs per worker. */
+	static final int QUEUE_CAPACITY_PER_WORKER = 16;
+	private final TestNGController controller;
+	private final HttpServer server;
+	private final ThreadPoolExecutor workers;
+	/** Handles connections; a request thread waits for its test run. */
+	private final ExecutorService requestThreads;
+	/** Manages the link check cache and the host health registry. */
+	private final SuiteFixtureListener fixture = new SuiteFixtureListener();
+
+	/**
+	 * Creates a daemon that listens on the given port of the loopback
+	 * interface.
+	 *
+	 * @param controller
+	 *            The controller that executes test runs.
+	 * @param port
+	 *            The port number (0 to use any free port).
+	 * @param workerCount
+	 *            The maximum number of concurrent test runs.
+	 * @throws IOException
+	 *             If the server socket cannot be bound.
+	 */
+	public ValidationDaemon(TestNGController controller, int port,
+			int workerCount) throws IOException {
+		this.controller = controller;
+		int poolSize = Math.max(1, workerCount);
+		this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0L,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+						poolSize * QUEUE_CAPACITY_PER_WORKER));
+		this.server = HttpServer.create(new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), port), 0);
+		this.server.createContext(RUNS_PATH, new RunsHandler());
+		this.server.createContext(STATUS_PATH, new StatusHandler());
+		this.requestThreads = Executors.newCachedThreadPool();
+		this.server.setExecutor(requestThreads);
+	}
+
+	/**
+	 * Compiles the KML schemas, creates the shared HTTP client and loads the
+	 * link check cache, then starts accepting requests.
+	 */
+	public void start() {
+		ValidationUtils.getKMLSchema("2.2");
+		ValidationUtils.getKMLSchema("2.3");
+		HttpClientUtils.getSharedClient();
+		DocumentCache.getInstance().retain();
+		SchemaFieldCache.getInstance().retain();
+		fixture.configureLinkCheckCache();
+		server.start();
+		TestSuiteLogger.log(Level.INFO,
+				"Accepting test run requests at " + getEndpoint());
+	}
+
+	/**
+	 * Stops accepting requests and waits (briefly) for the test runs in
+	 * progress to finish; the link check cache is then saved.
+	 */
+	public void stop() {
+		server.stop(1);
+		requestThreads.shutdown();
+		workers.shutdown();
+		try {
+			workers.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		fixture.reportHostHealth();
+		fixture.saveLinkCheckCache();
+		DocumentCache.getInstance().release();
+		SchemaFieldCache.getInstance().release();
+	}
+
+	/**
+	 * Returns the URI of the test run resource.
+	 *
+	 * @return An absolute HTTP URI.
+	 */
+	public URI getEndpoint() {
+		InetSocketAddress address = server.getAddress();
+		return URI.create(String.format("http://%s:%d%s", address
+				.getAddress().getHostAddress(), address.getPort(), RUNS_PATH));
+	}
+
+	/**
+	 * Executes a test run on a worker thread and waits for it to finish.
+	 *
+	 * @param testRunArgs
+	 *            An XML properties document.
+	 * @return The test results.
+	 * @throws Exception
+	 *             If the test run could not be queued or completed.
+	 */
+	Source execute(final Document testRunArgs) throws Exception {
+		Future<Source> result = workers.submit(new Callable<Source>() {
+			@Override
+			public Source call() throws Exception {
+				return controller.doTestRun(testRunArgs);
+			}
+		});
+		try {
+			return result.get();
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			throw (cause instanceof Exception) ? (Exception) cause : ex;
+		}
+	}
+
+	/**
+	 * Creates a parser for the request entity. DTDs are disallowed, and
+	 * neither external entities nor XInclude directives are resolved.
+	 *
+	 * @return A namespace-unaware DocumentBuilder.
+	 * @throws ParserConfigurationException
+	 *             If the parser does not support the required features.
+	 */
+	static DocumentBuilder newDocumentBuilder()
+			throws ParserConfigurationException {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setFeature(
+				"http://apache.org/xml/features/disallow-doctype-decl", true);
+		factory.setFeature(
+				"http://xml.org/sax/features/external-general-entities", false);
+		factory.setFeature(
+				"http://xml.org/sax/features/external-parameter-entities",
+				false);
+		factory.setExpandEntityReferences(false);
+		factory.setXIncludeAware(false);
+		return factory.newDocumentBuilder();
+	}
+
+	/**
+	 * Prepares the test run arguments received from a client. The test
+	 * subject must be identified by an http or https URI, and the test run is
+	 * marked as part of a batch (any 'batch' entries are replaced).
+	 *
+	 * @param testRunArgs
+	 *            An XML properties document.
+	 * @throws IllegalArgumentException
+	 *             If the test subject is not identified by an http or https
+	 *             URI.
+	 */
+	static void prepareTestRunArgs(Document testRunArgs) {
+		Element props = testRunArgs.getDocumentElement();
+		NodeList nodes = props.getElementsByTagName("entry");
+		List<Element> entries = new ArrayList<>();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			entries.add((Element) nodes.item(i));
+		}
+		for (Element entry : entries) {
+			String key = entry.getAttribute("key");
+			if (key.equals(TestRunArg.BATCH.toString())) {
+				entry.getParentNode().removeChild(entry);
+			} else if (key.equals(TestRunArg.KML.toString())) {
+				String scheme = URI.create(entry.getTextContent().trim())
+						.getScheme();
+				if (null == scheme
+						|| !(scheme.equalsIgnoreCase("http") || scheme
+								.equalsIgnoreCase("https"))) {
+					throw new IllegalArgumentException(
+							"Test subject must be an http or https URI: "
+									+ entry.getTextContent());
+				}
+			}
+		}
+		Element batch = testRunArgs.createElement("entry");
+		batch.setAttribute("key", TestRunArg.BATCH.toString());
+		batch.setTextContent("true");
+		props.appendChild(batch);
+	}
+
+	private static void sendResponse(HttpExchange exchange, int status,
+			String contentType, byte[] entity) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, entity.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(entity);
+		}
+	}
+
+	private static void sendText(HttpExchange exchange, int status,
+			String text) throws IOException {
+		sendResponse(exchange, status, "text/plain; charset=UTF-8",
+				text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/** Accepts test run requests. */
+	class RunsHandler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				sendText(exchange, 405, "Method not allowed.");
+				return;
+			}
+			Document testRunArgs;
+			try (InputStream body = exchange.getRequestBody()) {
+				testRunArgs = newDocumentBuilder().parse(body);
+			} catch (Exception e) {
+				sendText(exchange, 400, "Not an XML properties document: "
+						+ e.getMessage());
+				return;
+			}
+			try {
+				prepareTestRunArgs(testRunArgs);
+				Source results = execute(testRunArgs);
+				File resultsFile = new File(URI.create(results.getSystemId()));
+				exchange.getResponseHeaders().set("Content-Location",
+						results.getSystemId());
+				sendResponse(exchange, 200, "application/xml",
+						Files.readAllBytes(resultsFile.toPath()));
+			} catch (IllegalArgumentException e) {
+				sendText(exchange, 400, e.getMessage());
+			} catch (RejectedExecutionException e) {
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				sendText(exchange, 503, "Too many test runs in progress.");
+			} catch (Exception e) {
+				TestSuiteLogger.log(Level.WARNING, "Test run failed.", e);
+				sendText(exchange, 500, "Test run failed: " + e);
+			}
+		}
+	}
+
+	/** Reports the state of the worker pool. */
+	class StatusHandler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			sendText(exchange, 200, String.format(
+					"active: %d, queued: %d, completed: %d",
+					workers.getActiveCount(), workers.getQueue().size(),
+					workers.getCompletedTaskCount()));
+		}
+	}
+}
@@ -2,15 +2,14 @@ package org.opengis.cite.kml2.c1;
 
 import java.util.Set;
 
-import javax.xml.transform.Source;
-import javax.xml.transform.dom.DOMSource;
-
 import org.opengis.cite.kml2.CommonFeatureTests;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.SuiteAttribute;
-import org.opengis.cite.kml2.util.KMLUtils;
+import org.opengis.cite.kml2.util.IdIndex;
 import org.opengis.cite.kml2.validation.SchemaChecker;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
+import org.testng.ISuite;
 import org.testng.ITestContext;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeSuite;
@@ -32,7 +31,7 @@ public class ContainerTests extends CommonFeatureTests {
 	private SchemaChecker schemaChecker;
 
 	public ContainerTests() {
-		this.schemaChecker = new SchemaChecker();
+		this.schemaChecker = SchemaChecker.getInstance();
 	}
 
 	/**
@@ -45,11 +44,7 @@ public class ContainerTests extends CommonFeatureTests {
 	 */
 	@BeforeSuite
 	public void findSharedStyles(ITestContext testContext) {
-		Document kmlDoc = (Document) testContext.getSuite().getAttribute(
-				SuiteAttribute.TEST_SUBJECT.getName());
-		Source kmlSource = new DOMSource(kmlDoc, kmlDoc.getBaseURI());
-		Set<String> sharedStyles = KMLUtils.findElementIdentifiers(kmlSource,
-				"//kml:Document/kml:Style | //kml:Document/kml:StyleMap");
+		Set<String> sharedStyles = getIdIndex(testContext).getSharedStyles();
 		testContext.getSuite().setAttribute(
 				SuiteAttribute.SHARED_STYLES.getName(), sharedStyles);
 	}
@@ -65,15 +60,35 @@ public class ContainerTests extends CommonFeatureTests {
 	 */
 	@BeforeSuite
 	public void findCustomSchemas(ITestContext testContext) {
-		Document kmlDoc = (Document) testContext.getSuite().getAttribute(
-				SuiteAttribute.TEST_SUBJECT.getName());
-		Source kmlSource = new DOMSource(kmlDoc, kmlDoc.getBaseURI());
-		Set<String> customSchemas = KMLUtils.findElementIdentifiers(kmlSource,
-				"//kml:Document/kml:Schema");
+		Set<String> customSchemas = getIdIndex(testContext).getCustomSchemas();
 		testContext.getSuite().setAttribute(
 				SuiteAttribute.CUSTOM_SCHEMAS.getName(), customSchemas);
 	}
 
+	/**
+	 * Gets the index of the elements in the test subject. If the suite
+	 * attribute {@link SuiteAttribute#ID_INDEX} is not set, the index is built
+	 * and registered now.
+	 * 
+	 * @param testContext
+	 *            Information about the test run.
+	 * @return An IdIndex for the test subject.
+	 */
+	IdIndex getIdIndex(ITestContext testContext) {
+		ISuite suite = testContext.getSuite();
+		synchronized (suite) {
+			IdIndex index = (IdIndex) suite
+					.getAttribute(SuiteAttribute.ID_INDEX.getName());
+			if (null == index) {
+				Document kmlDoc = (Document) suite
+						.getAttribute(SuiteAttribute.TEST_SUBJECT.getName());
+				index = IdIndex.register(kmlDoc);
+				suite.setAttribute(SuiteAttribute.ID_INDEX.getName(), index);
+			}
+			return index;
+		}
+	}
+
 	/**
 	 * Finds container elements (Folder, Document) in the KML document that do
 	 * not appear in an update context. If none are found, all test methods
@@ -98,8 +113,9 @@ public class ContainerTests extends CommonFeatureTests {
 			NodeList schemaList = container.getElementsByTagNameNS(
 					KML2.NS_NAME, "Schema");
 			for (int j = 0; j < schemaList.getLength(); j++) {
-				Assert.assertTrue(schemaChecker.isValid(schemaList.item(j)),
-						schemaChecker.getErrorMessages());
+				ValidationResult result = schemaChecker.validate(schemaList
+						.item(j));
+				Assert.assertTrue(result.isValid(), result.getErrorMessages());
 			}
 		}
 	}
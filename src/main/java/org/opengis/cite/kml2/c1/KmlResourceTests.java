@@ -12,6 +12,7 @@ import org.opengis.cite.kml2.CommonFixture;
 import org.opengis.cite.kml2.ETSAssert;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.SuiteAttribute;
+import org.opengis.cite.kml2.util.SuiteEvent;
 import org.testng.ITestContext;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -51,18 +52,25 @@ public class KmlResourceTests extends CommonFixture {
 	 */
 	@Test(description = "ATC-102")
 	public void isSchemaValid() {
-		Schema kmlSchema;
 		String kmlVer = this.kmlDoc.getDocumentElement().getAttribute(
 				KML2.VER_ATTR);
-		if (kmlVer.startsWith(KML2.KML_23)) {
-			kmlSchema = this.kmlSchemas.get(KML2.KML_23);
-		} else {
-			kmlSchema = this.kmlSchemas.get(KML2.KML_22);
-		}
+		String schemaVer = kmlVer.startsWith(KML2.KML_23) ? KML2.KML_23
+				: KML2.KML_22;
+		Schema kmlSchema = this.kmlSchemas.get(schemaVer);
 		Validator validator = kmlSchema.newValidator();
 		Source kmlSource = new DOMSource(this.kmlDoc);
 		kmlSource.setSystemId(kmlDoc.getDocumentURI());
-		ETSAssert.assertSchemaValid(validator, kmlSource);
+		SuiteEvent event = SuiteEvent.begin(SuiteEvent.Type.SCHEMA_VALIDATION);
+		boolean valid = false;
+		try {
+			ETSAssert.assertSchemaValid(validator, kmlSource);
+			valid = true;
+		} finally {
+			event.setURI(kmlSource.getSystemId());
+			event.setSchema("KML " + schemaVer);
+			event.setOutcome(valid ? "valid" : "invalid");
+			event.commit();
+		}
 	}
 
 }
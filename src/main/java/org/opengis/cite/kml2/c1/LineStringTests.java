@@ -2,10 +2,12 @@ package org.opengis.cite.kml2.c1;
 
 import org.opengis.cite.kml2.CommonFixture;
 import org.opengis.cite.kml2.ETSAssert;
+import org.opengis.cite.kml2.ElementCheck;
 import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.util.JTSGeometryBuilder;
 import org.opengis.cite.kml2.validation.CoordinatesValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -30,7 +32,7 @@ public class LineStringTests extends CommonFixture {
 	private CoordinatesValidator coordsValidator;
 
 	public LineStringTests() {
-		this.coordsValidator = new CoordinatesValidator();
+		this.coordsValidator = CoordinatesValidator.getInstance();
 	}
 
 	/**
@@ -49,19 +51,28 @@ public class LineStringTests extends CommonFixture {
 	 */
 	@Test(description = "ATC-103, ATC-115")
 	public void validLineStringCoordinates() {
-		JTSGeometryBuilder geomBuilder = new JTSGeometryBuilder();
-		Polygon crsPolygon = geomBuilder.buildPolygon(new Envelope(-180, 180,
-				-90, 90));
-		for (int i = 0; i < targetElements.getLength(); i++) {
-			Element line = (Element) targetElements.item(i);
-			Assert.assertTrue(coordsValidator.isValid(line),
-					coordsValidator.getErrorMessages());
-			LineString jtsLine = geomBuilder.buildLineString(line);
-			Assert.assertTrue(
-					crsPolygon.covers(jtsLine),
-					ErrorMessage.format(ErrorMessageKeys.OUTSIDE_CRS,
-							jtsLine.toText()));
-		}
+		checkTargetElements(new ElementCheck.Factory() {
+			@Override
+			public ElementCheck newCheck() {
+				final JTSGeometryBuilder geomBuilder = new JTSGeometryBuilder();
+				final Polygon crsPolygon = geomBuilder
+						.buildPolygon(new Envelope(-180, 180, -90, 90));
+				return new ElementCheck() {
+					@Override
+					public void check(Element line) {
+						ValidationResult result = coordsValidator
+								.validate(line);
+						Assert.assertTrue(result.isValid(),
+								result.getErrorMessages());
+						LineString jtsLine = geomBuilder.buildLineString(line);
+						Assert.assertTrue(crsPolygon.covers(jtsLine),
+								ErrorMessage.format(
+										ErrorMessageKeys.OUTSIDE_CRS,
+										jtsLine.toText()));
+					}
+				};
+			}
+		});
 	}
 
 	/**
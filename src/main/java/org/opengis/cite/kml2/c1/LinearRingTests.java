@@ -2,11 +2,13 @@ package org.opengis.cite.kml2.c1;
 
 import org.opengis.cite.kml2.CommonFixture;
 import org.opengis.cite.kml2.ETSAssert;
+import org.opengis.cite.kml2.ElementCheck;
 import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.util.JTSGeometryBuilder;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.kml2.validation.CoordinatesValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -31,7 +33,7 @@ public class LinearRingTests extends CommonFixture {
 	private CoordinatesValidator coordsValidator;
 
 	public LinearRingTests() {
-		this.coordsValidator = new CoordinatesValidator();
+		this.coordsValidator = CoordinatesValidator.getInstance();
 	}
 
 	/**
@@ -52,26 +54,35 @@ public class LinearRingTests extends CommonFixture {
 	 */
 	@Test(description = "ATC-103, ATC-116")
 	public void validLinearRingCoordinates() {
-		JTSGeometryBuilder geomBuilder = new JTSGeometryBuilder();
-		Polygon crsPolygon = geomBuilder.buildPolygon(new Envelope(-180, 180,
-				-90, 90));
-		for (int i = 0; i < targetElements.getLength(); i++) {
-			Element ring = (Element) targetElements.item(i);
-			Assert.assertTrue(coordsValidator.isValid(ring),
-					coordsValidator.getErrorMessages());
-			LinearRing jtsRing = null;
-			try {
-				jtsRing = geomBuilder.buildLinearRing(ring);
-			} catch (IllegalArgumentException ex) {
-				throw new AssertionError(ErrorMessage.format(
-						ErrorMessageKeys.OPEN_RING,
-						XMLUtils.buildXPointer(ring)));
+		checkTargetElements(new ElementCheck.Factory() {
+			@Override
+			public ElementCheck newCheck() {
+				final JTSGeometryBuilder geomBuilder = new JTSGeometryBuilder();
+				final Polygon crsPolygon = geomBuilder
+						.buildPolygon(new Envelope(-180, 180, -90, 90));
+				return new ElementCheck() {
+					@Override
+					public void check(Element ring) {
+						ValidationResult result = coordsValidator
+								.validate(ring);
+						Assert.assertTrue(result.isValid(),
+								result.getErrorMessages());
+						LinearRing jtsRing = null;
+						try {
+							jtsRing = geomBuilder.buildLinearRing(ring);
+						} catch (IllegalArgumentException ex) {
+							throw new AssertionError(ErrorMessage.format(
+									ErrorMessageKeys.OPEN_RING,
+									XMLUtils.buildXPointer(ring)));
+						}
+						Assert.assertTrue(crsPolygon.covers(jtsRing),
+								ErrorMessage.format(
+										ErrorMessageKeys.OUTSIDE_CRS,
+										jtsRing.toText()));
+					}
+				};
 			}
-			Assert.assertTrue(
-					crsPolygon.covers(jtsRing),
-					ErrorMessage.format(ErrorMessageKeys.OUTSIDE_CRS,
-							jtsRing.toText()));
-		}
+		});
 	}
 
 	/**
@@ -14,6 +14,7 @@ import org.opengis.cite.kml2.util.JTSGeometryBuilder;
 import org.opengis.cite.kml2.util.URIUtils;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.kml2.validation.LinkValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -110,8 +111,8 @@ public class ModelTests extends CommonFixture {
 						ErrorMessageKeys.MISSING_INFOSET_ITEM, "kml:Link",
 						XMLUtils.buildXPointer(model)));
 			}
-			Assert.assertTrue(modelLinkValidator.isValid(link.item(0)),
-					modelLinkValidator.getErrorMessages());
+			ValidationResult result = modelLinkValidator.validate(link.item(0));
+			Assert.assertTrue(result.isValid(), result.getErrorMessages());
 		}
 	}
 
@@ -6,6 +6,7 @@ import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.kml2.validation.UpdateValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -32,7 +33,7 @@ public class NetworkLinkControlTests extends CommonFixture {
 	private UpdateValidator updateValidator;
 
 	public NetworkLinkControlTests() {
-		this.updateValidator = new UpdateValidator();
+		this.updateValidator = UpdateValidator.getInstance();
 	}
 
 	/**
@@ -88,7 +89,7 @@ public class NetworkLinkControlTests extends CommonFixture {
 		if (null == updateNode) {
 			return;
 		}
-		Assert.assertTrue(updateValidator.isValid(updateNode),
-				updateValidator.getErrorMessages());
+		ValidationResult result = updateValidator.validate(updateNode);
+		Assert.assertTrue(result.isValid(), result.getErrorMessages());
 	}
 }
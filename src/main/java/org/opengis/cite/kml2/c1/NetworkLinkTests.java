@@ -8,6 +8,7 @@ import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.kml2.validation.LinkValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -64,8 +65,8 @@ public class NetworkLinkTests extends CommonFeatureTests {
 						ErrorMessageKeys.MISSING_INFOSET_ITEM, "kml:Link",
 						XMLUtils.buildXPointer(networkLink)));
 			}
-			Assert.assertTrue(linkValidator.isValid(link.item(0)),
-					linkValidator.getErrorMessages());
+			ValidationResult result = linkValidator.validate(link.item(0));
+			Assert.assertTrue(result.isValid(), result.getErrorMessages());
 		}
 	}
 
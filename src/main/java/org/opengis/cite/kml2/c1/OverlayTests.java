@@ -13,6 +13,7 @@ import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.kml2.validation.GeoExtentValidator;
 import org.opengis.cite.kml2.validation.LinkValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -44,7 +45,7 @@ public class OverlayTests extends CommonFeatureTests {
 
 	public OverlayTests() {
 		this.linkValidator = new LinkValidator(MediaType.valueOf("image/*"));
-		this.geoExtentValidator = new GeoExtentValidator();
+		this.geoExtentValidator = GeoExtentValidator.getInstance();
 	}
 
 	/**
@@ -73,8 +74,8 @@ public class OverlayTests extends CommonFeatureTests {
 			Node icon = overlay.getElementsByTagNameNS(KML2.NS_NAME, "Icon")
 					.item(0);
 			if (null != icon) {
-				Assert.assertTrue(linkValidator.isValid(icon),
-						linkValidator.getErrorMessages());
+				ValidationResult result = linkValidator.validate(icon);
+				Assert.assertTrue(result.isValid(), result.getErrorMessages());
 			}
 		}
 	}
@@ -103,8 +104,9 @@ public class OverlayTests extends CommonFeatureTests {
 					ErrorMessageKeys.MISSING_INFOSET_ITEM,
 					"kml:LatLonBox or kml:LatLonQuad",
 					XMLUtils.buildXPointer(overlay)));
-			Assert.assertTrue(geoExtentValidator.validGeoExtent(extent),
-					geoExtentValidator.getErrorMessages());
+			ValidationResult result = geoExtentValidator
+					.validateGeoExtent(extent);
+			Assert.assertTrue(result.isValid(), result.getErrorMessages());
 		}
 	}
 
@@ -3,6 +3,7 @@ package org.opengis.cite.kml2.c1;
 import org.opengis.cite.kml2.CommonFeatureTests;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.validation.TrackValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -22,7 +23,7 @@ public class PlacemarkTests extends CommonFeatureTests {
 	private TrackValidator trackValidator;
 
 	public PlacemarkTests() {
-		this.trackValidator = new TrackValidator();
+		this.trackValidator = TrackValidator.getInstance();
 	}
 
 	/**
@@ -44,8 +45,8 @@ public class PlacemarkTests extends CommonFeatureTests {
 			if (null == track) {
 				continue;
 			}
-			Assert.assertTrue(trackValidator.isValid(track),
-					trackValidator.getErrorMessages());
+			ValidationResult result = trackValidator.validate(track);
+			Assert.assertTrue(result.isValid(), result.getErrorMessages());
 		}
 	}
 
@@ -6,6 +6,7 @@ import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.util.JTSGeometryBuilder;
 import org.opengis.cite.kml2.validation.CoordinatesValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -30,7 +31,7 @@ public class PointTests extends CommonFixture {
 	private CoordinatesValidator coordsValidator;
 
 	public PointTests() {
-		this.coordsValidator = new CoordinatesValidator();
+		this.coordsValidator = CoordinatesValidator.getInstance();
 	}
 
 	/**
@@ -54,8 +55,8 @@ public class PointTests extends CommonFixture {
 				-90, 90));
 		for (int i = 0; i < targetElements.getLength(); i++) {
 			Element point = (Element) targetElements.item(i);
-			Assert.assertTrue(coordsValidator.isValid(point),
-					coordsValidator.getErrorMessages());
+			ValidationResult result = coordsValidator.validate(point);
+			Assert.assertTrue(result.isValid(), result.getErrorMessages());
 			Point jtsPoint = geomBuilder.buildPoint(point);
 			Assert.assertTrue(
 					crsPolygon.covers(jtsPoint),
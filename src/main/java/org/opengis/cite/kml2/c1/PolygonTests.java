@@ -4,11 +4,13 @@ import javax.xml.xpath.XPathExpressionException;
 
 import org.opengis.cite.kml2.CommonFixture;
 import org.opengis.cite.kml2.ETSAssert;
+import org.opengis.cite.kml2.ElementCheck;
 import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.util.JTSGeometryBuilder;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.kml2.validation.CoordinatesValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -33,7 +35,7 @@ public class PolygonTests extends CommonFixture {
 	private CoordinatesValidator coordsValidator;
 
 	public PolygonTests() {
-		this.coordsValidator = new CoordinatesValidator();
+		this.coordsValidator = CoordinatesValidator.getInstance();
 	}
 
 	/**
@@ -54,33 +56,47 @@ public class PolygonTests extends CommonFixture {
 	 */
 	@Test(description = "ATC-103, ATC-117")
 	public void validPolygonBoundary() {
-		JTSGeometryBuilder geomBuilder = new JTSGeometryBuilder();
-		Polygon crsPolygon = geomBuilder.buildPolygon(new Envelope(-180, 180,
-				-90, 90));
-		for (int i = 0; i < targetElements.getLength(); i++) {
-			Element polygon = (Element) targetElements.item(i);
-			NodeList outerRing = null;
-			try {
-				outerRing = XMLUtils.evaluateXPath(polygon,
-						"kml:outerBoundaryIs/kml:LinearRing", null);
-			} catch (XPathExpressionException e) { // expression ok
+		checkTargetElements(new ElementCheck.Factory() {
+			@Override
+			public ElementCheck newCheck() {
+				final JTSGeometryBuilder geomBuilder = new JTSGeometryBuilder();
+				final Polygon crsPolygon = geomBuilder
+						.buildPolygon(new Envelope(-180, 180, -90, 90));
+				return new ElementCheck() {
+					@Override
+					public void check(Element polygon) {
+						NodeList outerRing = null;
+						try {
+							outerRing = XMLUtils.evaluateXPath(polygon,
+									"kml:outerBoundaryIs/kml:LinearRing", null);
+						} catch (XPathExpressionException e) { // expression ok
+						}
+						Assert.assertTrue(outerRing.getLength() == 1,
+								ErrorMessage.format(
+										ErrorMessageKeys.POLYGON_BOUNDARY,
+										"Missing outer boundary",
+										XMLUtils.buildXPointer(polygon)));
+						ValidationResult result = coordsValidator
+								.validate(outerRing.item(0));
+						Assert.assertTrue(result.isValid(),
+								result.getErrorMessages());
+						Polygon jtsPolygon = null;
+						try {
+							jtsPolygon = geomBuilder.buildPolygon(polygon);
+						} catch (IllegalArgumentException ex) {
+							throw new AssertionError(ErrorMessage.format(
+									ErrorMessageKeys.POLYGON_BOUNDARY,
+									ex.getMessage(),
+									XMLUtils.buildXPointer(polygon)));
+						}
+						Assert.assertTrue(crsPolygon.covers(jtsPolygon),
+								ErrorMessage.format(
+										ErrorMessageKeys.OUTSIDE_CRS,
+										jtsPolygon.toText()));
+					}
+				};
 			}
-			Assert.assertTrue(outerRing.getLength() == 1, ErrorMessage.format(
-					ErrorMessageKeys.POLYGON_BOUNDARY,
-					"Missing outer boundary", XMLUtils.buildXPointer(polygon)));
-			Assert.assertTrue(coordsValidator.isValid(outerRing.item(0)),
-					coordsValidator.getErrorMessages());
-			Polygon jtsPolygon = null;
-			try {
-				jtsPolygon = geomBuilder.buildPolygon(polygon);
-			} catch (IllegalArgumentException ex) {
-				throw new AssertionError(ErrorMessage.format(
-						ErrorMessageKeys.POLYGON_BOUNDARY, ex.getMessage(),
-						XMLUtils.buildXPointer(polygon)));
-			}
-			Assert.assertTrue(crsPolygon.covers(jtsPolygon), ErrorMessage
-					.format(ErrorMessageKeys.OUTSIDE_CRS, jtsPolygon.toText()));
-		}
+		});
 	}
 
 	/**
@@ -13,6 +13,7 @@ import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.kml2.validation.UpdateValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -31,7 +32,7 @@ public class TourTests extends CommonFeatureTests {
 	private UpdateValidator updateValidator;
 
 	public TourTests() {
-		this.updateValidator = new UpdateValidator();
+		this.updateValidator = UpdateValidator.getInstance();
 	}
 
 	/**
@@ -108,8 +109,9 @@ public class TourTests extends CommonFeatureTests {
 			NodeList updates = tour.getElementsByTagNameNS(KML2.NS_NAME,
 					"Update");
 			for (int j = 0; j < updates.getLength(); j++) {
-				Assert.assertTrue(updateValidator.isValid(updates.item(j)),
-						updateValidator.getErrorMessages());
+				ValidationResult result = updateValidator.validate(updates
+						.item(j));
+				Assert.assertTrue(result.isValid(), result.getErrorMessages());
 			}
 		}
 	}
@@ -9,6 +9,7 @@ import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.kml2.validation.LinkValidator;
+import org.opengis.cite.kml2.validation.ValidationResult;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -129,8 +130,8 @@ public class CL2OverlayTests extends CommonFixture {
 			Assert.assertNotNull(icon, ErrorMessage.format(
 					ErrorMessageKeys.MISSING_INFOSET_ITEM, "kml:Icon",
 					XMLUtils.buildXPointer(overlay)));
-			Assert.assertTrue(linkValidator.isValid(icon),
-					linkValidator.getErrorMessages());
+			ValidationResult result = linkValidator.validate(icon);
+			Assert.assertTrue(result.isValid(), result.getErrorMessages());
 		}
 	}
 
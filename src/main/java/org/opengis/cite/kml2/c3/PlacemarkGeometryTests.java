@@ -3,6 +3,7 @@ package org.opengis.cite.kml2.c3;
 import javax.xml.xpath.XPathExpressionException;
 
 import org.opengis.cite.kml2.CommonFixture;
+import org.opengis.cite.kml2.ElementCheck;
 import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
@@ -27,13 +28,6 @@ import com.vividsolutions.jts.geom.Polygon;
  */
 public class PlacemarkGeometryTests extends CommonFixture {
 
-	JTSGeometryBuilder geomBuilder = new JTSGeometryBuilder();
-
-	public PlacemarkGeometryTests() {
-		super();
-		this.geomBuilder = new JTSGeometryBuilder();
-	}
-
 	/**
 	 * Finds kml:Placemark elements in the KML document that do not appear in an
 	 * update context. If none are found, all test methods defined in the class
@@ -62,28 +56,39 @@ public class PlacemarkGeometryTests extends CommonFixture {
 	 */
 	@Test(description = "ATC-301")
 	public void polygonBoundaryOrientation() {
-		for (int i = 0; i < targetElements.getLength(); i++) {
-			Element place = (Element) targetElements.item(i);
-			Node kmlPolygon = place.getElementsByTagNameNS(KML2.NS_NAME,
-					"Polygon").item(0);
-			if (null == kmlPolygon) {
-				continue;
-			}
-			Node outerRing;
-			try {
-				outerRing = XMLUtils.evaluateXPath(kmlPolygon,
-						"kml:outerBoundaryIs/kml:LinearRing", null).item(0);
-				Assert.assertNotNull(outerRing, "Missing ...");
-			} catch (XPathExpressionException e) {
+		checkTargetElements(new ElementCheck.Factory() {
+			@Override
+			public ElementCheck newCheck() {
+				final JTSGeometryBuilder geomBuilder = new JTSGeometryBuilder();
+				return new ElementCheck() {
+					@Override
+					public void check(Element place) {
+						Node kmlPolygon = place.getElementsByTagNameNS(
+								KML2.NS_NAME, "Polygon").item(0);
+						if (null == kmlPolygon) {
+							return;
+						}
+						Node outerRing;
+						try {
+							outerRing = XMLUtils.evaluateXPath(kmlPolygon,
+									"kml:outerBoundaryIs/kml:LinearRing", null)
+									.item(0);
+							Assert.assertNotNull(outerRing, "Missing ...");
+						} catch (XPathExpressionException e) {
+						}
+						Element polygonElem = (Element) kmlPolygon;
+						Polygon polygon = geomBuilder.buildPolygon(polygonElem);
+						// copies the ring even if a CoordinateStore is used
+						Coordinate[] exteriorCoords = polygon.getExteriorRing()
+								.getCoordinates();
+						Assert.assertTrue(CGAlgorithms.isCCW(exteriorCoords),
+								ErrorMessage.format(
+										ErrorMessageKeys.EXT_BOUNDARY_ORIENT,
+										XMLUtils.buildXPointer(polygonElem)));
+					}
+				};
 			}
-			Element polygonElem = (Element) kmlPolygon;
-			Polygon polygon = geomBuilder.buildPolygon(polygonElem);
-			Coordinate[] exteriorCoords = polygon.getExteriorRing()
-					.getCoordinates();
-			Assert.assertTrue(CGAlgorithms.isCCW(exteriorCoords), ErrorMessage
-					.format(ErrorMessageKeys.EXT_BOUNDARY_ORIENT,
-							XMLUtils.buildXPointer(polygonElem)));
-		}
+		});
 	}
 
 	/**
@@ -91,18 +96,27 @@ public class PlacemarkGeometryTests extends CommonFixture {
 	 */
 	@Test(description = "ATC-302")
 	public void simpleRing() {
-		for (int i = 0; i < targetElements.getLength(); i++) {
-			Element place = (Element) targetElements.item(i);
-			Node kmlRing = place.getElementsByTagNameNS(KML2.NS_NAME,
-					"LinearRing").item(0);
-			if (null == kmlRing) {
-				continue;
+		checkTargetElements(new ElementCheck.Factory() {
+			@Override
+			public ElementCheck newCheck() {
+				final JTSGeometryBuilder geomBuilder = new JTSGeometryBuilder();
+				return new ElementCheck() {
+					@Override
+					public void check(Element place) {
+						Node kmlRing = place.getElementsByTagNameNS(
+								KML2.NS_NAME, "LinearRing").item(0);
+						if (null == kmlRing) {
+							return;
+						}
+						Element ringElem = (Element) kmlRing;
+						LinearRing ring = geomBuilder.buildLinearRing(ringElem);
+						// isSimple() copies the ring to a Coordinate array
+						Assert.assertTrue(ring.isSimple(), ErrorMessage.format(
+								ErrorMessageKeys.RING_NOT_SIMPLE,
+								XMLUtils.buildXPointer(ringElem)));
+					}
+				};
 			}
-			Element ringElem = (Element) kmlRing;
-			LinearRing ring = geomBuilder.buildLinearRing(ringElem);
-			Assert.assertTrue(ring.isSimple(), ErrorMessage.format(
-					ErrorMessageKeys.RING_NOT_SIMPLE,
-					XMLUtils.buildXPointer(ringElem)));
-		}
+		});
 	}
 }
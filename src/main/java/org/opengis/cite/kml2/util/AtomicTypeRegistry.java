@@ -0,0 +1,139 @@
+package org.opengis.cite.kml2.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.sf.saxon.s9api.ItemType;
+import net.sf.saxon.s9api.ItemTypeFactory;
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.QName;
+import net.sf.saxon.s9api.SaxonApiException;
+
+/**
+ * A process-wide registry of the atomic types defined in XML Schema. All
+ * built-in types are resolved once (using a single Saxon configuration) when
+ * the registry is first used; other names are resolved on first use and the
+ * outcome is remembered, so resolving a type name is a map lookup. At most
+ * {@value #MAX_OTHER_TYPES} other names are remembered (the least recently
+ * used ones are discarded), since they come from the documents under test.
+ * 
+ * @see <a href="http://www.w3.org/TR/xmlschema11-2/#built-in-datatypes"
+ *      target="_blank">XML Schema 1.1 Part 2: Built-in datatypes</a>
+ */
+public final class AtomicTypeRegistry {
+
+	/** XML Schema namespace name. */
+	public static final String XSD_NS = "http://www.w3.org/2001/XMLSchema";
+	private static final String[] BUILT_IN_TYPES = { "anyAtomicType",
+			"untypedAtomic", "string", "boolean", "decimal", "float",
+			"double", "duration", "dateTime", "time", "date", "gYearMonth",
+			"gYear", "gMonthDay", "gDay", "gMonth", "hexBinary",
+			"base64Binary", "anyURI", "QName", "NOTATION", "normalizedString",
+			"token", "language", "NMTOKEN", "Name", "NCName", "ID", "IDREF",
+			"ENTITY", "integer", "nonPositiveInteger", "negativeInteger",
+			"long", "int", "short", "byte", "nonNegativeInteger",
+			"unsignedLong", "unsignedInt", "unsignedShort", "unsignedByte",
+			"positiveInteger", "dayTimeDuration", "yearMonthDuration",
+			"dateTimeStamp" };
+	private static final ItemTypeFactory TYPE_FACTORY = new ItemTypeFactory(
+			new Processor(false));
+	private static final Map<String, Resolution> BUILT_IN;
+	/** The maximum number of other (not built-in) names remembered. */
+	public static final int MAX_OTHER_TYPES = 256;
+	private static final Map<String, Resolution> OTHERS = Collections
+			.synchronizedMap(new LinkedHashMap<String, Resolution>(16, 0.75f,
+					true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<String, Resolution> eldest) {
+					return size() > MAX_OTHER_TYPES;
+				}
+			});
+
+	static {
+		Map<String, Resolution> builtIn = new HashMap<>();
+		for (String typeName : BUILT_IN_TYPES) {
+			builtIn.put(typeName, resolveType(typeName));
+		}
+		BUILT_IN = Collections.unmodifiableMap(builtIn);
+	}
+
+	private AtomicTypeRegistry() {
+	}
+
+	/**
+	 * Looks up an atomic type in the XML Schema namespace.
+	 * 
+	 * @param typeName
+	 *            The local name of the type (e.g. "int").
+	 * @return The result of resolving the type name; it either contains an
+	 *         ItemType or explains why the name could not be resolved.
+	 */
+	public static Resolution lookup(String typeName) {
+		Resolution resolution = BUILT_IN.get(typeName);
+		if (null == resolution) {
+			resolution = OTHERS.get(typeName);
+			if (null == resolution) {
+				resolution = resolveType(typeName);
+				OTHERS.put(typeName, resolution);
+			}
+		}
+		return resolution;
+	}
+
+	private static Resolution resolveType(String typeName) {
+		synchronized (TYPE_FACTORY) {
+			try {
+				return new Resolution(TYPE_FACTORY.getAtomicType(new QName(
+						XSD_NS, typeName)), null);
+			} catch (SaxonApiException | RuntimeException e) {
+				return new Resolution(null, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * The (immutable) outcome of resolving a type name.
+	 */
+	public static final class Resolution {
+
+		private final ItemType type;
+		private final String errorMessage;
+
+		Resolution(ItemType type, String errorMessage) {
+			this.type = type;
+			this.errorMessage = errorMessage;
+		}
+
+		/**
+		 * Indicates whether or not the name refers to a known atomic type.
+		 * 
+		 * @return true if the type is known; false otherwise.
+		 */
+		public boolean isResolved() {
+			return null != type;
+		}
+
+		/**
+		 * Returns the atomic type.
+		 * 
+		 * @return An ItemType, or null if the name could not be resolved.
+		 */
+		public ItemType getType() {
+			return type;
+		}
+
+		/**
+		 * Returns a message that explains why the name could not be resolved.
+		 * 
+		 * @return An error message, or null if the type is known.
+		 */
+		public String getErrorMessage() {
+			return errorMessage;
+		}
+	}
+}
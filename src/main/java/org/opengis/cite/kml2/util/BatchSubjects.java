@@ -0,0 +1,165 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Resolves the set of test subjects for a batch test run. A batch is specified
+ * in one of the following ways:
+ * <ul>
+ * <li>a directory: all KML and KMZ files (*.kml, *.kmz) in the directory tree
+ * are included;</li>
+ * <li>a manifest file: each non-empty line that does not start with '#'
+ * contains a file path or an absolute URI (relative paths are resolved against
+ * the location of the manifest);</li>
+ * <li>a glob pattern (e.g. <code>data/**&#47;*.kml</code>): all matching files
+ * are included.</li>
+ * </ul>
+ * The resulting list is in a fixed order so that batch results are
+ * reproducible.
+ */
+public class BatchSubjects {
+
+	private BatchSubjects() {
+	}
+
+	/**
+	 * Resolves a batch specification to a list of test subjects.
+	 *
+	 * @param spec
+	 *            A directory, a manifest file, or a glob pattern.
+	 * @return A list of absolute URIs (may be empty).
+	 * @throws IOException
+	 *             If a directory or manifest file cannot be read.
+	 */
+	public static List<URI> resolve(String spec) throws IOException {
+		File file = spec.startsWith("file:") ? new File(URI.create(spec))
+				: new File(spec);
+		if (file.isDirectory()) {
+			return findFiles(file.toPath(), null);
+		}
+		if (file.isFile()) {
+			return readManifest(file);
+		}
+		return findMatchingFiles(spec);
+	}
+
+	/**
+	 * Reads a manifest that lists test subjects, one per line.
+	 *
+	 * @param manifest
+	 *            A manifest file.
+	 * @return A list of absolute URIs in the order given.
+	 * @throws IOException
+	 *             If the manifest cannot be read.
+	 */
+	static List<URI> readManifest(File manifest) throws IOException {
+		List<URI> subjects = new ArrayList<>();
+		File baseDir = manifest.getAbsoluteFile().getParentFile();
+		try (BufferedReader reader = Files.newBufferedReader(
+				manifest.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				URI uri = (line.indexOf(':') > 1) ? URI.create(line) : null;
+				if (null == uri || !uri.isAbsolute()) {
+					File subject = new File(line);
+					if (!subject.isAbsolute()) {
+						subject = new File(baseDir, line);
+					}
+					uri = subject.toURI();
+				}
+				subjects.add(uri);
+			}
+		}
+		return subjects;
+	}
+
+	/**
+	 * Finds the files that match a glob pattern. The search starts in the
+	 * deepest directory that does not contain any wildcard characters.
+	 *
+	 * @param glob
+	 *            A glob pattern (see
+	 *            {@link java.nio.file.FileSystem#getPathMatcher(String)}).
+	 * @return A sorted list of file URIs.
+	 * @throws IOException
+	 *             If a directory cannot be read.
+	 */
+	static List<URI> findMatchingFiles(String glob) throws IOException {
+		String pattern = glob.replace(File.separatorChar, '/');
+		int wildcard = indexOfWildcard(pattern);
+		int lastSlash = pattern.lastIndexOf('/', wildcard);
+		Path baseDir = (lastSlash < 0) ? Paths.get("") : Paths.get(pattern
+				.substring(0, lastSlash + 1));
+		if (!Files.isDirectory(baseDir)) {
+			return Collections.emptyList();
+		}
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher(
+				"glob:" + pattern.substring(lastSlash + 1));
+		return findFiles(baseDir, matcher);
+	}
+
+	private static int indexOfWildcard(String pattern) {
+		for (int i = 0; i < pattern.length(); i++) {
+			if ("*?[{".indexOf(pattern.charAt(i)) >= 0) {
+				return i;
+			}
+		}
+		return pattern.length();
+	}
+
+	/**
+	 * Finds files in a directory tree. If no matcher is supplied, only KML and
+	 * KMZ files are included.
+	 */
+	private static List<URI> findFiles(final Path baseDir,
+			final PathMatcher matcher) throws IOException {
+		final List<Path> files = new ArrayList<>();
+		Files.walkFileTree(baseDir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file,
+					BasicFileAttributes attrs) {
+				if (!attrs.isRegularFile()) {
+					return FileVisitResult.CONTINUE;
+				}
+				boolean include;
+				if (null != matcher) {
+					include = matcher.matches(baseDir.relativize(file));
+				} else {
+					String name = file.getFileName().toString()
+							.toLowerCase(Locale.ROOT);
+					include = name.endsWith(".kml") || name.endsWith(".kmz");
+				}
+				if (include) {
+					files.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(files);
+		List<URI> subjects = new ArrayList<>(files.size());
+		for (Path file : files) {
+			subjects.add(file.toAbsolutePath().toFile().toURI());
+		}
+		return subjects;
+	}
+}
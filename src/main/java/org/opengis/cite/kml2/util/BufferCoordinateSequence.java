@@ -0,0 +1,156 @@
+package org.opengis.cite.kml2.util;
+
+import java.lang.ref.SoftReference;
+import java.nio.DoubleBuffer;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A coordinate sequence that reads its tuples (x, y, z) from a region of a
+ * double buffer shared with other sequences (see {@link CoordinateStore}).
+ * Coordinate objects are created only on request; the array returned by
+ * {@link #toCoordinateArray()} is softly cached, as in the JTS
+ * PackedCoordinateSequence.
+ */
+class BufferCoordinateSequence implements CoordinateSequence {
+
+	/** Number of ordinates per tuple. */
+	static final int DIMENSION = 3;
+	private final DoubleBuffer buffer;
+	private final int offset;
+	private final int size;
+	private volatile SoftReference<Coordinate[]> coordRef;
+
+	/**
+	 * Constructs a view of a region of the given buffer.
+	 *
+	 * @param buffer
+	 *            A buffer holding coordinate tuples.
+	 * @param offset
+	 *            The index of the first ordinate in the buffer.
+	 * @param size
+	 *            The number of tuples in the sequence.
+	 */
+	BufferCoordinateSequence(DoubleBuffer buffer, int offset, int size) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	@Override
+	public int getDimension() {
+		return DIMENSION;
+	}
+
+	@Override
+	public Coordinate getCoordinate(int i) {
+		return getCoordinateCopy(i);
+	}
+
+	@Override
+	public Coordinate getCoordinateCopy(int i) {
+		int pos = position(i);
+		return new Coordinate(buffer.get(pos), buffer.get(pos + 1),
+				buffer.get(pos + 2));
+	}
+
+	@Override
+	public void getCoordinate(int index, Coordinate coord) {
+		int pos = position(index);
+		coord.x = buffer.get(pos);
+		coord.y = buffer.get(pos + 1);
+		coord.z = buffer.get(pos + 2);
+	}
+
+	@Override
+	public double getX(int index) {
+		return buffer.get(position(index));
+	}
+
+	@Override
+	public double getY(int index) {
+		return buffer.get(position(index) + 1);
+	}
+
+	@Override
+	public double getOrdinate(int index, int ordinateIndex) {
+		if (ordinateIndex >= DIMENSION) {
+			return Coordinate.NULL_ORDINATE;
+		}
+		return buffer.get(position(index) + ordinateIndex);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void setOrdinate(int index, int ordinateIndex, double value) {
+		if (ordinateIndex >= DIMENSION) {
+			throw new IllegalArgumentException("Invalid ordinate index: "
+					+ ordinateIndex);
+		}
+		buffer.put(position(index) + ordinateIndex, value);
+		coordRef = null;
+	}
+
+	@Override
+	public Coordinate[] toCoordinateArray() {
+		SoftReference<Coordinate[]> ref = coordRef;
+		Coordinate[] coords = (null != ref) ? ref.get() : null;
+		if (null == coords) {
+			coords = new Coordinate[size];
+			for (int i = 0; i < size; i++) {
+				coords[i] = getCoordinateCopy(i);
+			}
+			coordRef = new SoftReference<>(coords);
+		}
+		return coords;
+	}
+
+	@Override
+	public Envelope expandEnvelope(Envelope env) {
+		for (int i = 0; i < size; i++) {
+			int pos = position(i);
+			env.expandToInclude(buffer.get(pos), buffer.get(pos + 1));
+		}
+		return env;
+	}
+
+	/**
+	 * Returns a copy of the sequence that is kept on the heap.
+	 */
+	@Override
+	public Object clone() {
+		DoubleBuffer copy = DoubleBuffer.allocate(size * DIMENSION);
+		for (int i = 0; i < size * DIMENSION; i++) {
+			copy.put(i, buffer.get(offset + i));
+		}
+		return new BufferCoordinateSequence(copy, 0, size);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder("(");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				str.append(", ");
+			}
+			int pos = position(i);
+			str.append(buffer.get(pos)).append(' ').append(buffer.get(pos + 1))
+					.append(' ').append(buffer.get(pos + 2));
+		}
+		return str.append(')').toString();
+	}
+
+	private int position(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+		return offset + index * DIMENSION;
+	}
+}
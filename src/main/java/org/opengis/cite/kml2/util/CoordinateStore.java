@@ -0,0 +1,406 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.opengis.cite.kml2.KML2;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+
+/**
+ * A columnar store for the coordinate tuples in a KML document that is kept
+ * outside of the Java heap. The content of a kml:coordinates element (or of
+ * the kml:coord elements in a kml:Track) is parsed only once, into blocks of
+ * double values (x, y, z) that are either allocated as direct buffers or
+ * mapped to temporary files. The tuples are presented as JTS
+ * {@link CoordinateSequence} views that read the block directly, so the
+ * number of objects on the heap does not grow with the number of vertices.
+ * However, JTS operations that call
+ * {@link CoordinateSequence#toCoordinateArray()} (e.g.
+ * {@code Geometry.isSimple()} or {@code LineString.getCoordinates()}) still
+ * create a Coordinate object for each vertex of the geometry concerned.
+ *
+ * <p>
+ * The store is optional: it is used only if it has been enabled for the
+ * document (see {@link #enable(Document, String)}), which is done for the
+ * test subject if the
+ * {@link org.opengis.cite.kml2.TestRunArg#COORDINATE_STORE coordinateStore}
+ * test run argument is {@value #DIRECT} or {@value #MAPPED}. A store belongs
+ * to a single document. It is attached to the document as user data, as is
+ * the sequence built for each node (the offset index), so the blocks are
+ * released when the document is garbage collected.
+ * </p>
+ */
+public class CoordinateStore {
+
+	/** Allocate blocks as direct buffers (off-heap memory). */
+	public static final String DIRECT = "direct";
+	/** Map blocks to temporary files. */
+	public static final String MAPPED = "mapped";
+	/** The size (number of tuples) of the first block. */
+	static final int MIN_BLOCK_SIZE = 4096;
+	/** The maximum size (number of tuples) of a shared block. */
+	static final int MAX_BLOCK_SIZE = 1 << 20;
+	private static final String STORE_KEY = CoordinateStore.class.getName();
+	private static final String SEQUENCE_KEY = STORE_KEY + ".sequence";
+	private final boolean mapped;
+	private DoubleBuffer block;
+	private int blockSize;
+	private int nextTuple;
+	private long tupleCount;
+	private long capacity;
+
+	private CoordinateStore(boolean mapped) {
+		this.mapped = mapped;
+	}
+
+	/**
+	 * Returns the store for the given document.
+	 *
+	 * @param doc
+	 *            A Document node.
+	 * @return The CoordinateStore for the document, or {@code null} if
+	 *         coordinates are to be kept on the heap.
+	 */
+	public static CoordinateStore forDocument(Document doc) {
+		if (null == doc) {
+			return null;
+		}
+		synchronized (doc) {
+			return (CoordinateStore) doc.getUserData(STORE_KEY);
+		}
+	}
+
+	/**
+	 * Enables a store for the given document if the mode is {@value #DIRECT}
+	 * or {@value #MAPPED} (ignoring case); any other mode is ignored.
+	 *
+	 * @param doc
+	 *            A Document node.
+	 * @param mode
+	 *            The store mode (may be null).
+	 * @return A new CoordinateStore instance, or {@code null} if coordinates
+	 *         are to be kept on the heap.
+	 */
+	public static CoordinateStore enable(Document doc, String mode) {
+		if (null == mode || !(mode.equalsIgnoreCase(DIRECT)
+				|| mode.equalsIgnoreCase(MAPPED))) {
+			return null;
+		}
+		return register(doc, mode.equalsIgnoreCase(MAPPED));
+	}
+
+	/**
+	 * Returns the mode of the store for the given document, so that a store
+	 * can be enabled for a copy of it.
+	 *
+	 * @param doc
+	 *            A Document node.
+	 * @return {@value #DIRECT}, {@value #MAPPED}, or {@code null} if no store
+	 *         is used.
+	 */
+	public static String getMode(Document doc) {
+		CoordinateStore store = forDocument(doc);
+		if (null == store) {
+			return null;
+		}
+		return store.mapped ? MAPPED : DIRECT;
+	}
+
+	/**
+	 * Creates a store for the given document, replacing any existing one.
+	 *
+	 * @param doc
+	 *            A Document node.
+	 * @param mapped
+	 *            true if blocks are to be mapped to temporary files; false if
+	 *            they are allocated as direct buffers.
+	 * @return A new CoordinateStore instance.
+	 */
+	public static CoordinateStore register(Document doc, boolean mapped) {
+		CoordinateStore store = new CoordinateStore(mapped);
+		synchronized (doc) {
+			doc.setUserData(STORE_KEY, store, null);
+		}
+		return store;
+	}
+
+	/**
+	 * Returns the coordinate tuples contained in a kml:coordinates element.
+	 * The content is parsed when the element is first accessed; a tuple with
+	 * only two values has an altitude of 0, and any values in excess of three
+	 * are ignored.
+	 *
+	 * @param coords
+	 *            A node containing a list of coordinates (kml:coordinates).
+	 * @return A sequence of one or more coordinates (three dimensions).
+	 * @throws NumberFormatException
+	 *             If a coordinate value is not a number or a tuple is
+	 *             incomplete.
+	 */
+	public CoordinateSequence getCoordinates(Node coords) {
+		if (!coords.getLocalName().equals("coordinates")) {
+			throw new IllegalArgumentException(
+					"Node does not represent a list of coordinates.");
+		}
+		CoordinateSequence seq = lookupSequence(coords);
+		if (null != seq) {
+			return seq;
+		}
+		String text = coords.getTextContent();
+		int size = countTokens(text);
+		if (size == 0) {
+			throw new NumberFormatException("No coordinate tuples found.");
+		}
+		BufferCoordinateSequence newSeq = reserve(size);
+		int tuple = 0;
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean space = (i == text.length()) || isSpace(text.charAt(i));
+			if (start < 0 && !space) {
+				start = i;
+			} else if (start >= 0 && space) {
+				putTuple(text, start, i, newSeq, tuple++);
+				start = -1;
+			}
+		}
+		return registerSequence(coords, newSeq);
+	}
+
+	/**
+	 * Returns the positions of a kml:Track element as given by its kml:coord
+	 * children. An empty kml:coord element (missing data) is skipped; one
+	 * that contains only whitespace is not.
+	 *
+	 * @param track
+	 *            A kml:Track element.
+	 * @return A sequence of coordinates (three dimensions); it is empty if
+	 *         the track has no positions.
+	 * @throws NumberFormatException
+	 *             If a kml:coord element does not contain exactly three
+	 *             numeric values.
+	 */
+	public CoordinateSequence getTrackCoordinates(Element track) {
+		if (!track.getLocalName().equals("Track")) {
+			throw new IllegalArgumentException(
+					"Element does not represent a Track.");
+		}
+		CoordinateSequence seq = lookupSequence(track);
+		if (null != seq) {
+			return seq;
+		}
+		int size = 0;
+		for (Node child = track.getFirstChild(); null != child; child = child
+				.getNextSibling()) {
+			if (isCoord(child) && !child.getTextContent().isEmpty()) {
+				size++;
+			}
+		}
+		BufferCoordinateSequence newSeq = reserve(size);
+		int tuple = 0;
+		for (Node child = track.getFirstChild(); null != child; child = child
+				.getNextSibling()) {
+			if (!isCoord(child)) {
+				continue;
+			}
+			String text = child.getTextContent();
+			if (text.isEmpty()) {
+				continue;
+			}
+			String[] values = text.trim().split("\\s+");
+			if (values.length != 3) {
+				throw new NumberFormatException(String.format(
+						"Expected 3 values in kml:coord but found %d: %s",
+						values.length, text.trim()));
+			}
+			for (int j = 0; j < values.length; j++) {
+				newSeq.setOrdinate(tuple, j, Double.parseDouble(values[j]));
+			}
+			tuple++;
+		}
+		return registerSequence(track, newSeq);
+	}
+
+	/**
+	 * Returns the number of coordinate tuples in the store.
+	 *
+	 * @return The total number of tuples in all sequences.
+	 */
+	public synchronized long getTupleCount() {
+		return tupleCount;
+	}
+
+	/**
+	 * Returns the number of tuples that fit in the blocks allocated so far.
+	 *
+	 * @return The capacity of the store (tuples).
+	 */
+	public synchronized long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Indicates whether or not the blocks are mapped to temporary files.
+	 *
+	 * @return true if the blocks are memory-mapped; false if they are direct
+	 *         buffers.
+	 */
+	public boolean isMapped() {
+		return mapped;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CoordinateStore[%s, tuples: %d, capacity: %d]",
+				mapped ? MAPPED : DIRECT, getTupleCount(), getCapacity());
+	}
+
+	/**
+	 * Reserves space for a sequence of the given size. A sequence that does
+	 * not fit in the current block is put in a new block that is twice as
+	 * large (up to {@link #MAX_BLOCK_SIZE}); a very long sequence gets a block
+	 * of its own.
+	 */
+	private synchronized BufferCoordinateSequence reserve(int size) {
+		tupleCount += size;
+		if (size > MAX_BLOCK_SIZE) {
+			capacity += size;
+			return new BufferCoordinateSequence(allocate(size), 0, size);
+		}
+		if (null == block || nextTuple + size > blockSize) {
+			blockSize = Math.max(size, Math.min(MAX_BLOCK_SIZE,
+					Math.max(MIN_BLOCK_SIZE, 2 * blockSize)));
+			block = allocate(blockSize);
+			nextTuple = 0;
+			capacity += blockSize;
+		}
+		BufferCoordinateSequence seq = new BufferCoordinateSequence(block,
+				nextTuple * BufferCoordinateSequence.DIMENSION, size);
+		nextTuple += size;
+		return seq;
+	}
+
+	/**
+	 * Allocates a block that holds the given number of tuples.
+	 */
+	private DoubleBuffer allocate(int tuples) {
+		long bytes = (long) tuples * BufferCoordinateSequence.DIMENSION
+				* (Double.SIZE / Byte.SIZE);
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+					"Too many coordinate tuples in sequence: " + tuples);
+		}
+		ByteBuffer buffer;
+		if (mapped) {
+			try {
+				File file = File.createTempFile("coords-", ".bin");
+				try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+					buffer = raf.getChannel().map(MapMode.READ_WRITE, 0, bytes);
+				} finally {
+					// the mapping remains valid
+					if (!file.delete()) {
+						file.deleteOnExit();
+					}
+				}
+			} catch (IOException iox) {
+				throw new RuntimeException(
+						"Failed to map block of coordinates to file.", iox);
+			}
+		} else {
+			buffer = ByteBuffer.allocateDirect((int) bytes);
+		}
+		return buffer.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+	}
+
+	private static CoordinateSequence lookupSequence(Node node) {
+		Document doc = node.getOwnerDocument();
+		synchronized (doc) {
+			return (CoordinateSequence) node.getUserData(SEQUENCE_KEY);
+		}
+	}
+
+	/**
+	 * Attaches the sequence to the given node. If another thread got there
+	 * first, its sequence is returned instead.
+	 */
+	private static CoordinateSequence registerSequence(Node node,
+			CoordinateSequence seq) {
+		Document doc = node.getOwnerDocument();
+		synchronized (doc) {
+			CoordinateSequence existing = (CoordinateSequence) node
+					.getUserData(SEQUENCE_KEY);
+			if (null != existing) {
+				return existing;
+			}
+			node.setUserData(SEQUENCE_KEY, seq, null);
+			return seq;
+		}
+	}
+
+	private static boolean isCoord(Node node) {
+		return node.getNodeType() == Node.ELEMENT_NODE
+				&& KML2.NS_NAME.equals(node.getNamespaceURI())
+				&& node.getLocalName().equals("coord");
+	}
+
+	/**
+	 * Matches the characters in the regular expression class \s.
+	 */
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f'
+				|| c == '\u000B';
+	}
+
+	/**
+	 * Counts the whitespace-separated tokens in the given text.
+	 */
+	private static int countTokens(String text) {
+		int count = 0;
+		boolean inToken = false;
+		for (int i = 0; i < text.length(); i++) {
+			boolean space = isSpace(text.charAt(i));
+			if (!inToken && !space) {
+				count++;
+			}
+			inToken = !space;
+		}
+		return count;
+	}
+
+	/**
+	 * Parses a coordinate tuple (comma-separated values) and puts it into the
+	 * given sequence.
+	 */
+	private static void putTuple(String text, int start, int end,
+			BufferCoordinateSequence seq, int index) {
+		int ordinate = 0;
+		int fieldStart = start;
+		for (int i = start; i <= end
+				&& ordinate < BufferCoordinateSequence.DIMENSION; i++) {
+			if (i < end && text.charAt(i) != ',') {
+				continue;
+			}
+			if (i == end && i == fieldStart && ordinate == 2) {
+				break; // trailing comma
+			}
+			seq.setOrdinate(index, ordinate++,
+					Double.parseDouble(text.substring(fieldStart, i)));
+			fieldStart = i + 1;
+		}
+		if (ordinate < 2) {
+			throw new NumberFormatException("Incomplete coordinate tuple: "
+					+ text.substring(start, end));
+		}
+		if (ordinate == 2) {
+			seq.setOrdinate(index, CoordinateSequence.Z, 0);
+		}
+	}
+}
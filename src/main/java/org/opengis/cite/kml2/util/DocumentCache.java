@@ -0,0 +1,331 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * A run-scoped cache of parsed XML documents that are referenced from the test
+ * subject (e.g. external style documents). Documents are keyed by their URI
+ * without the fragment identifier, so all references into the same document
+ * share a single parsed copy. Each document is parsed only once, even if it is
+ * requested by several threads at the same time. Parse errors (invalid XML)
+ * are cached as well, but I/O errors are not, since the resource may be
+ * accessible on the next attempt. An {@link IdIndex} is registered for each
+ * cached document, so that shorthand XPointer expressions can be resolved
+ * without scanning the document.
+ * 
+ * <p>
+ * The cache is bounded by a size budget expressed as the total number of
+ * elements in all cached documents; the least recently used entries are
+ * evicted when the budget is exceeded. An entry also expires when its time to
+ * live has elapsed, after which the resource is read again; this matters when
+ * the cache is retained for a long time (e.g. by the validation daemon).
+ * Cached documents are shared and must not be modified.
+ * </p>
+ * 
+ * <p>
+ * The shared instance may be used by several test runs at once. Each run
+ * {@linkplain #retain() retains} the cache when it starts and
+ * {@linkplain #release() releases} it when it finishes; the cache is cleared
+ * only when the last run using it has finished.
+ * </p>
+ */
+public class DocumentCache {
+
+	/** Default size budget (total number of elements). */
+	public static final int DEFAULT_MAX_ELEMENTS = 1000000;
+	/** Default time to live of an entry (ms). */
+	public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES
+			.toMillis(10);
+	private static final DocumentCache INSTANCE = new DocumentCache(
+			DEFAULT_MAX_ELEMENTS, DEFAULT_TIME_TO_LIVE);
+	private final int maxElements;
+	private final long timeToLive; // ns
+	private final LinkedHashMap<URI, Entry> entries;
+	private final Map<URI, FutureTask<Entry>> pending;
+	private int totalElements;
+	private int users;
+
+	/**
+	 * Constructs an empty cache with the given size budget. Entries expire
+	 * after the {@linkplain #DEFAULT_TIME_TO_LIVE default time to live}.
+	 * 
+	 * @param maxElements
+	 *            The maximum total number of elements in cached documents.
+	 */
+	public DocumentCache(int maxElements) {
+		this(maxElements, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Constructs an empty cache with the given size budget and time to live.
+	 * 
+	 * @param maxElements
+	 *            The maximum total number of elements in cached documents.
+	 * @param timeToLive
+	 *            The time (ms) after which a parsed document (or parse error)
+	 *            expires.
+	 */
+	public DocumentCache(int maxElements, long timeToLive) {
+		this.maxElements = maxElements;
+		this.timeToLive = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.pending = new HashMap<>();
+	}
+
+	/**
+	 * Returns the cache used during the current test run.
+	 * 
+	 * @return The shared DocumentCache instance.
+	 */
+	public static DocumentCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Resolves a URI reference to an XML (sub)resource. If the reference
+	 * contains a fragment identifier, the matching element is returned;
+	 * otherwise (or if there is no match) the document is returned.
+	 * 
+	 * @param uriRef
+	 *            An absolute URI, possibly containing a fragment identifier
+	 *            (shorthand XPointer).
+	 * @return A DOM node representing an XML (sub)resource.
+	 * @throws SAXException
+	 *             If the resource cannot be parsed.
+	 * @throws IOException
+	 *             If the resource is not accessible.
+	 * 
+	 * @see URIUtils#parseURI(URI)
+	 */
+	public Node resolve(URI uriRef) throws SAXException, IOException {
+		Entry entry = getEntry(uriRef);
+		Node subResource = null;
+		String fragment = uriRef.getFragment();
+		if (null != fragment) {
+			subResource = entry.findElement(fragment);
+		}
+		return (null != subResource) ? subResource : entry.doc;
+	}
+
+	/**
+	 * Returns the number of cached entries.
+	 * 
+	 * @return The cache size.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		totalElements = 0;
+	}
+
+	/**
+	 * Registers a test run that uses the cache.
+	 */
+	public synchronized void retain() {
+		users++;
+	}
+
+	/**
+	 * Unregisters a test run that used the cache. All entries are removed if
+	 * no other run is using it.
+	 */
+	public synchronized void release() {
+		if (users > 0) {
+			users--;
+		}
+		if (users == 0) {
+			clear();
+		}
+	}
+
+	private Entry getEntry(URI uriRef) throws SAXException, IOException {
+		final URI docURI;
+		try {
+			docURI = new URI(uriRef.getScheme(),
+					uriRef.getSchemeSpecificPart(), null);
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+		FutureTask<Entry> task;
+		boolean loader = false;
+		synchronized (this) {
+			Entry entry = entries.get(docURI);
+			if (null != entry && isExpired(entry)) {
+				entries.remove(docURI);
+				totalElements -= entry.size;
+				entry = null;
+			}
+			task = pending.get(docURI);
+			Metrics.getInstance().recordCacheAccess("documents",
+					null != entry || null != task);
+			if (null != entry) {
+				return entry.get();
+			}
+			if (null == task) {
+				task = new FutureTask<>(new Callable<Entry>() {
+					@Override
+					public Entry call() throws Exception {
+						return parse(docURI);
+					}
+				});
+				pending.put(docURI, task);
+				loader = true;
+			}
+		}
+		if (loader) {
+			try {
+				task.run();
+			} finally {
+				synchronized (this) {
+					pending.remove(docURI);
+				}
+			}
+		}
+		Entry entry;
+		try {
+			entry = task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading " + docURI, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+		return entry.get();
+	}
+
+	/**
+	 * Parses the document at the given location and adds it (or the parse
+	 * error) to the cache. An I/O error is not cached.
+	 * 
+	 * @param docURI
+	 *            An absolute URI (without a fragment identifier).
+	 * @return The new cache entry.
+	 * @throws IOException
+	 *             If the resource is not accessible.
+	 */
+	private Entry parse(URI docURI) throws IOException {
+		Entry entry;
+		try {
+			entry = new Entry((Document) URIUtils.parseURI(docURI), true);
+		} catch (SAXException e) {
+			entry = new Entry(e);
+		}
+		add(docURI, entry);
+		return entry;
+	}
+
+	private boolean isExpired(Entry entry) {
+		return entry.expires
+				&& System.nanoTime() - entry.created >= timeToLive;
+	}
+
+	/**
+	 * Adds a document that stands in for the resource at the given location.
+	 * This is used to avoid parsing a test subject that is too large to fit
+	 * in memory (see {@link PartitionedSubject#getContextDocument()}). The
+	 * entry does not expire, but it may be evicted like any other.
+	 * 
+	 * @param docURI
+	 *            An absolute URI (without a fragment identifier).
+	 * @param doc
+	 *            The document to be returned when the URI is resolved.
+	 */
+	public void put(URI docURI, Document doc) {
+		add(docURI, new Entry(doc, false));
+	}
+
+	private synchronized void add(URI docURI, Entry entry) {
+		Entry previous = entries.put(docURI, entry);
+		if (null != previous) {
+			totalElements -= previous.size;
+		}
+		totalElements += entry.size;
+		evict();
+		if (entry.size > maxElements) {
+			entries.remove(docURI);
+			totalElements -= entry.size;
+		}
+	}
+
+	private void evict() {
+		Iterator<Entry> itr = entries.values().iterator();
+		while (totalElements > maxElements && entries.size() > 1
+				&& itr.hasNext()) {
+			Entry eldest = itr.next();
+			totalElements -= eldest.size;
+			itr.remove();
+		}
+	}
+
+	/**
+	 * A parsed document along with its (registered) index, or the exception
+	 * raised when attempting to parse it.
+	 */
+	private static final class Entry {
+
+		final Document doc;
+		final IdIndex index;
+		final SAXException failure;
+		final int size;
+		final long created = System.nanoTime();
+		final boolean expires;
+
+		Entry(Document doc, boolean expires) {
+			this.doc = doc;
+			this.index = IdIndex.register(doc);
+			this.failure = null;
+			this.size = Math.max(1, index.getElementCount());
+			this.expires = expires;
+		}
+
+		Entry(SAXException failure) {
+			this.doc = null;
+			this.index = null;
+			this.failure = failure;
+			this.size = 1;
+			this.expires = true;
+		}
+
+		Entry get() throws SAXException {
+			if (null != failure) {
+				throw failure;
+			}
+			return this;
+		}
+
+		Element findElement(String value) {
+			return (null != index) ? index.findElement(value) : null;
+		}
+	}
+}
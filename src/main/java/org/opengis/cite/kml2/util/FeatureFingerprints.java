@@ -0,0 +1,298 @@
+package org.opengis.cite.kml2.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.opengis.cite.kml2.KML2;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Partitions a KML document into independently checkable units and computes a
+ * content fingerprint (SHA-256 digest) for each one. A unit is a feature that
+ * is not a container (e.g. kml:Placemark, kml:GroundOverlay, kml:NetworkLink)
+ * and occurs in the feature hierarchy rooted at the document element; the
+ * containers themselves (kml:Document, kml:Folder) are traversed. Everything
+ * outside of the units, such as container properties and shared styles, makes
+ * up the <em>context</em> of the units, which has its own digest.
+ *
+ * <p>
+ * The outcome of checking an element within a unit can be reused if neither
+ * the unit nor the context has changed. This is not so if the unit refers to
+ * an element in another unit (or to a non-existent element) by means of a
+ * shorthand pointer (<code>#id</code>); such units are never given a
+ * fingerprint.
+ * </p>
+ */
+public final class FeatureFingerprints {
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final String XMLNS = "http://www.w3.org/2000/xmlns/";
+	private static final Set<String> CONTAINERS = new HashSet<>(Arrays.asList(
+			"Document", "Folder"));
+	private static final Set<String> FEATURES = new HashSet<>(Arrays.asList(
+			"Placemark", "NetworkLink", "GroundOverlay", "PhotoOverlay",
+			"ScreenOverlay", "Tour"));
+	/** Owner of an identifier that occurs in the context. */
+	private static final int CONTEXT = -1;
+	/** Owner of an identifier that occurs more than once. */
+	private static final int AMBIGUOUS = -2;
+	/** The key under which the fingerprints are attached to a document. */
+	private static final String USER_DATA_KEY = FeatureFingerprints.class
+			.getName();
+	private final Map<Node, String> unitDigests = new IdentityHashMap<>();
+	private final String contextDigest;
+	private final int unitCount;
+
+	private FeatureFingerprints(Document doc) {
+		MessageDigest context = newDigest();
+		Map<String, Integer> idOwners = new HashMap<>();
+		List<Unit> units = new ArrayList<>();
+		Element docElem = doc.getDocumentElement();
+		updateStartTag(context, docElem);
+		traverseContainer(docElem, context, idOwners, units);
+		this.contextDigest = toHex(context.digest());
+		this.unitCount = units.size();
+		for (int i = 0; i < units.size(); i++) {
+			Unit unit = units.get(i);
+			if (isSelfContained(unit, i, idOwners)) {
+				unitDigests.put(unit.root, toHex(unit.digest.digest()));
+			}
+		}
+	}
+
+	/**
+	 * Returns the fingerprints of the given document. They are computed the
+	 * first time this method is invoked and attached to the document as user
+	 * data, so they are discarded along with it. The document must not be
+	 * modified afterwards.
+	 *
+	 * @param doc
+	 *            A KML document.
+	 * @return The fingerprints of the units in the document.
+	 */
+	public static FeatureFingerprints of(Document doc) {
+		synchronized (doc) {
+			FeatureFingerprints fingerprints = (FeatureFingerprints) doc
+					.getUserData(USER_DATA_KEY);
+			if (null == fingerprints) {
+				fingerprints = new FeatureFingerprints(doc);
+				doc.setUserData(USER_DATA_KEY, fingerprints, null);
+			}
+			return fingerprints;
+		}
+	}
+
+	/**
+	 * Returns the digest of the context (the content outside of the units).
+	 *
+	 * @return A hexadecimal string.
+	 */
+	public String getContextDigest() {
+		return contextDigest;
+	}
+
+	/**
+	 * Returns the number of units in the document, including those without a
+	 * fingerprint.
+	 *
+	 * @return The number of units.
+	 */
+	public int getUnitCount() {
+		return unitCount;
+	}
+
+	/**
+	 * Finds the unit that contains the given node.
+	 *
+	 * @param node
+	 *            A node in the document.
+	 * @return The root element of the unit, or null if the node occurs in the
+	 *         context or in a unit that has no fingerprint.
+	 */
+	public Element getUnit(Node node) {
+		for (Node n = node; null != n; n = n.getParentNode()) {
+			if (unitDigests.containsKey(n)) {
+				return (Element) n;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the fingerprint of a unit.
+	 *
+	 * @param unit
+	 *            The root element of a unit (see {@link #getUnit(Node)}).
+	 * @return A hexadecimal string, or null if the unit has no fingerprint.
+	 */
+	public String getDigest(Element unit) {
+		return unitDigests.get(unit);
+	}
+
+	private void traverseContainer(Element container, MessageDigest context,
+			Map<String, Integer> idOwners, List<Unit> units) {
+		for (Node child = container.getFirstChild(); null != child; child = child
+				.getNextSibling()) {
+			if (child.getNodeType() != Node.ELEMENT_NODE) {
+				updateNode(context, child, idOwners, CONTEXT, null);
+				continue;
+			}
+			Element elem = (Element) child;
+			if (!KML2.NS_NAME.equals(elem.getNamespaceURI())) {
+				updateNode(context, elem, idOwners, CONTEXT, null);
+			} else if (CONTAINERS.contains(elem.getLocalName())) {
+				updateStartTag(context, elem);
+				traverseContainer(elem, context, idOwners, units);
+				update(context, "\u0000/");
+			} else if (FEATURES.contains(elem.getLocalName())) {
+				Unit unit = new Unit(elem);
+				updateNode(unit.digest, elem, idOwners, units.size(),
+						unit.refs);
+				units.add(unit);
+			} else {
+				updateNode(context, elem, idOwners, CONTEXT, null);
+			}
+		}
+	}
+
+	/**
+	 * Adds a node (and its descendants) to a digest, noting the identifiers
+	 * declared and (if refs is not null) the shorthand pointers that occur in
+	 * attribute values or text.
+	 */
+	private static void updateNode(MessageDigest digest, Node node,
+			Map<String, Integer> idOwners, int owner, Set<String> refs) {
+		switch (node.getNodeType()) {
+		case Node.ELEMENT_NODE:
+			Element elem = (Element) node;
+			String id = elem.getAttribute("id");
+			if (!id.isEmpty()) {
+				Integer previous = idOwners.put(id, owner);
+				if (null != previous && previous != owner) {
+					idOwners.put(id, AMBIGUOUS);
+				}
+			}
+			for (String value : updateStartTag(digest, elem)) {
+				addRef(value, refs);
+			}
+			for (Node child = elem.getFirstChild(); null != child; child = child
+					.getNextSibling()) {
+				updateNode(digest, child, idOwners, owner, refs);
+			}
+			update(digest, "\u0000/");
+			break;
+		case Node.TEXT_NODE:
+		case Node.CDATA_SECTION_NODE:
+			String text = node.getNodeValue();
+			if (!text.trim().isEmpty()) {
+				update(digest, "\u0000T");
+				update(digest, text);
+				addRef(text, refs);
+			}
+			break;
+		default: // comments and processing instructions are ignored
+		}
+	}
+
+	/**
+	 * Adds the name and attributes (in canonical order) of an element to a
+	 * digest.
+	 *
+	 * @return The attribute values.
+	 */
+	private static Iterable<String> updateStartTag(MessageDigest digest,
+			Element elem) {
+		update(digest, "\u0000<");
+		update(digest, String.valueOf(elem.getNamespaceURI()));
+		update(digest, "|");
+		update(digest, (null != elem.getLocalName()) ? elem.getLocalName()
+				: elem.getNodeName());
+		NamedNodeMap attrs = elem.getAttributes();
+		Map<String, String> sortedAttrs = new TreeMap<>();
+		for (int i = 0; i < attrs.getLength(); i++) {
+			Attr attr = (Attr) attrs.item(i);
+			if (XMLNS.equals(attr.getNamespaceURI())) {
+				continue;
+			}
+			String name = (null != attr.getLocalName()) ? attr.getLocalName()
+					: attr.getName();
+			sortedAttrs.put(String.valueOf(attr.getNamespaceURI()) + "|"
+					+ name, attr.getValue());
+		}
+		for (Map.Entry<String, String> attr : sortedAttrs.entrySet()) {
+			update(digest, "\u0000@");
+			update(digest, attr.getKey());
+			update(digest, "=");
+			update(digest, attr.getValue());
+		}
+		return sortedAttrs.values();
+	}
+
+	private static void addRef(String value, Set<String> refs) {
+		if (null == refs) {
+			return;
+		}
+		String ref = value.trim();
+		if (ref.length() > 1 && ref.charAt(0) == '#') {
+			refs.add(ref.substring(1));
+		}
+	}
+
+	private static boolean isSelfContained(Unit unit, int index,
+			Map<String, Integer> idOwners) {
+		for (String ref : unit.refs) {
+			Integer owner = idOwners.get(ref);
+			if (null == owner || (owner != CONTEXT && owner != index)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void update(MessageDigest digest, String str) {
+		digest.update(str.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new RuntimeException(nsae);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(2 * bytes.length);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+			hex.append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	/** A feature whose content is digested separately. */
+	private static class Unit {
+
+		final Element root;
+		final MessageDigest digest = newDigest();
+		final Set<String> refs = new HashSet<>();
+
+		Unit(Element root) {
+			this.root = root;
+		}
+	}
+}
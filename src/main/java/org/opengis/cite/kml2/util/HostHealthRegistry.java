@@ -0,0 +1,319 @@
+package org.opengis.cite.kml2.util;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the health of remote hosts in order to avoid repeatedly
+ * waiting for connection attempts that are bound to fail. A circuit is opened
+ * for a host after a given number of consecutive connection failures; while it
+ * is open, requests to that host should fail immediately. Once the backoff
+ * interval has elapsed, a single request is allowed through to re-probe the
+ * host: if it succeeds the circuit is closed, otherwise it is opened again and
+ * the backoff interval is doubled (up to some maximum value).
+ * 
+ * <p>
+ * The time saved by not connecting is estimated using the mean duration of the
+ * failed connection attempts for the host. A read timeout shows that the host
+ * is reachable (if slow), so it is counted separately and does not contribute
+ * to opening the circuit.
+ * </p>
+ */
+public class HostHealthRegistry {
+
+	/** Default number of consecutive failures that opens a circuit. */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+	/** Default initial backoff interval (ms). */
+	public static final long DEFAULT_BACKOFF = TimeUnit.SECONDS.toMillis(30);
+	/** Default maximum backoff interval (ms). */
+	public static final long DEFAULT_MAX_BACKOFF = TimeUnit.MINUTES.toMillis(10);
+	private final int failureThreshold;
+	private final long initialBackoff;
+	private final long maxBackoff;
+	private final ConcurrentHashMap<String, HostHealth> hosts = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a registry using the default settings.
+	 */
+	public HostHealthRegistry() {
+		this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_BACKOFF, DEFAULT_MAX_BACKOFF);
+	}
+
+	/**
+	 * Constructs a registry using the given settings.
+	 * 
+	 * @param failureThreshold
+	 *            The number of consecutive connection failures that opens a
+	 *            circuit (must be positive).
+	 * @param initialBackoff
+	 *            The time (ms) to wait before re-probing a host after the
+	 *            circuit was first opened.
+	 * @param maxBackoff
+	 *            The maximum backoff interval (ms).
+	 */
+	public HostHealthRegistry(int failureThreshold, long initialBackoff,
+			long maxBackoff) {
+		if (failureThreshold < 1) {
+			throw new IllegalArgumentException(
+					"Failure threshold must be positive: " + failureThreshold);
+		}
+		this.failureThreshold = failureThreshold;
+		this.initialBackoff = initialBackoff;
+		this.maxBackoff = Math.max(initialBackoff, maxBackoff);
+	}
+
+	/**
+	 * Returns the number of consecutive connection failures that opens a
+	 * circuit.
+	 * 
+	 * @return A positive integer value.
+	 */
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	/**
+	 * Determines whether or not a request to the given host may be submitted.
+	 * If the request is refused, the estimated time saved is recorded.
+	 * 
+	 * @param host
+	 *            A host identifier (see {@link #hostKey(URI)}).
+	 * @return true if the circuit is closed or a re-probe is due; false if the
+	 *         request should fail immediately.
+	 */
+	public boolean allowRequest(String host) {
+		HostHealth health = hosts.get(host);
+		if (null == health) {
+			return true;
+		}
+		return health.allowRequest(System.currentTimeMillis());
+	}
+
+	/**
+	 * Records a successful connection to the given host; this closes its
+	 * circuit.
+	 * 
+	 * @param host
+	 *            A host identifier.
+	 */
+	public void recordSuccess(String host) {
+		HostHealth health = hosts.get(host);
+		if (null != health) {
+			health.recordSuccess();
+		}
+	}
+
+	/**
+	 * Records a request to the given host that timed out while waiting for the
+	 * response. Since a connection was established, this closes the circuit
+	 * like a success does.
+	 * 
+	 * @param host
+	 *            A host identifier.
+	 */
+	public void recordTimeout(String host) {
+		getHealth(host).recordTimeout();
+	}
+
+	/**
+	 * Records a failed attempt to connect to the given host.
+	 * 
+	 * @param host
+	 *            A host identifier.
+	 * @param elapsedMillis
+	 *            The time (ms) spent waiting for the attempt to fail.
+	 */
+	public void recordFailure(String host, long elapsedMillis) {
+		getHealth(host).recordFailure(elapsedMillis,
+				System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns the number of read timeouts recorded for the given host.
+	 * 
+	 * @param host
+	 *            A host identifier.
+	 * @return The number of requests that timed out after connecting.
+	 */
+	public int getTimeouts(String host) {
+		HostHealth health = hosts.get(host);
+		return (null != health) ? health.getTimeouts() : 0;
+	}
+
+	private HostHealth getHealth(String host) {
+		HostHealth health = hosts.get(host);
+		if (null == health) {
+			HostHealth newHealth = new HostHealth();
+			health = hosts.putIfAbsent(host, newHealth);
+			if (null == health) {
+				health = newHealth;
+			}
+		}
+		return health;
+	}
+
+	/**
+	 * Indicates whether or not the circuit for the given host is open.
+	 * 
+	 * @param host
+	 *            A host identifier.
+	 * @return true if requests to the host are currently refused.
+	 */
+	public boolean isOpen(String host) {
+		HostHealth health = hosts.get(host);
+		return null != health && health.isOpen();
+	}
+
+	/**
+	 * Returns the estimated total time saved by refusing requests to unhealthy
+	 * hosts.
+	 * 
+	 * @return The time saved (ms).
+	 */
+	public long getTimeSaved() {
+		long total = 0;
+		for (HostHealth health : hosts.values()) {
+			total += health.getTimeSaved();
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the total number of requests that were refused.
+	 * 
+	 * @return The number of short-circuited requests.
+	 */
+	public long getRefusedRequests() {
+		long total = 0;
+		for (HostHealth health : hosts.values()) {
+			total += health.getRefused();
+		}
+		return total;
+	}
+
+	/**
+	 * Summarizes the state of all hosts for which connection failures or read
+	 * timeouts were recorded.
+	 * 
+	 * @return A String containing a summary report (empty if no failures
+	 *         occurred).
+	 */
+	public String getSummary() {
+		if (hosts.isEmpty()) {
+			return "";
+		}
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format(
+				"Unhealthy hosts: %d requests refused, about %d s saved%n",
+				getRefusedRequests(),
+				TimeUnit.MILLISECONDS.toSeconds(getTimeSaved())));
+		for (Map.Entry<String, HostHealth> entry : hosts.entrySet()) {
+			summary.append("  ").append(entry.getKey()).append(": ")
+					.append(entry.getValue()).append(String.format("%n"));
+		}
+		return summary.toString();
+	}
+
+	/**
+	 * Removes all recorded host information.
+	 */
+	public void reset() {
+		hosts.clear();
+	}
+
+	/**
+	 * Returns the identifier for the host that a URI refers to. This consists
+	 * of the scheme, host name and port.
+	 * 
+	 * @param uri
+	 *            An absolute URI.
+	 * @return A String that identifies the host.
+	 */
+	public static String hostKey(URI uri) {
+		String scheme = (null != uri.getScheme()) ? uri.getScheme()
+				.toLowerCase() : "";
+		String host = (null != uri.getHost()) ? uri.getHost().toLowerCase()
+				: "";
+		return scheme + "://" + host + ":" + uri.getPort();
+	}
+
+	/**
+	 * The mutable health state of a single host.
+	 */
+	private class HostHealth {
+
+		private int consecutiveFailures;
+		private int totalFailures;
+		private int timeouts;
+		private long failureTime;
+		private long backoff = initialBackoff;
+		private long retryAt = -1;
+		private boolean probing;
+		private long refused;
+
+		synchronized boolean allowRequest(long now) {
+			if (retryAt < 0) {
+				return true;
+			}
+			if (now >= retryAt && !probing) {
+				probing = true;
+				return true;
+			}
+			refused++;
+			return false;
+		}
+
+		synchronized void recordSuccess() {
+			consecutiveFailures = 0;
+			retryAt = -1;
+			backoff = initialBackoff;
+			probing = false;
+		}
+
+		synchronized void recordTimeout() {
+			timeouts++;
+			recordSuccess();
+		}
+
+		synchronized int getTimeouts() {
+			return timeouts;
+		}
+
+		synchronized void recordFailure(long elapsedMillis, long now) {
+			consecutiveFailures++;
+			totalFailures++;
+			failureTime += elapsedMillis;
+			if (probing) {
+				probing = false;
+				backoff = Math.min(backoff * 2, maxBackoff);
+				retryAt = now + backoff;
+			} else if (consecutiveFailures >= failureThreshold && retryAt < 0) {
+				retryAt = now + backoff;
+			}
+		}
+
+		synchronized boolean isOpen() {
+			return retryAt >= 0;
+		}
+
+		synchronized long getRefused() {
+			return refused;
+		}
+
+		synchronized long getTimeSaved() {
+			return (totalFailures > 0) ? refused * (failureTime / totalFailures)
+					: 0;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format(
+					"%s, %d connection failures, %d read timeouts, "
+							+ "%d requests refused",
+					(retryAt >= 0) ? "unreachable" : "reachable",
+					totalFailures, timeouts, refused);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package org.opengis.cite.kml2.util;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
@@ -17,17 +18,24 @@ import com.sun.jersey.client.urlconnection.HttpURLConnectionFactory;
 import com.sun.jersey.client.urlconnection.URLConnectionClientHandler;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import javax.xml.transform.Source;
 import javax.xml.transform.dom.DOMSource;
 
+import org.opengis.cite.kml2.HostHealthFilter;
+import org.opengis.cite.kml2.LinkCacheFilter;
+import org.opengis.cite.kml2.RecordingFilter;
 import org.opengis.cite.kml2.ReusableEntityFilter;
+import org.opengis.cite.kml2.RouteLimitFilter;
 import org.w3c.dom.Document;
 
 /**
@@ -36,11 +44,31 @@ import org.w3c.dom.Document;
  */
 public class HttpClientUtils {
 
+	/** Connection timeout (ms). */
+	public static final int CONNECT_TIMEOUT = 10000;
+	/** Connection timeout (ms) of the shared client. */
+	public static final int SHARED_CONNECT_TIMEOUT = 5000;
+	/** Read timeout (ms). */
+	public static final int READ_TIMEOUT = 30000;
+	/** Maximum number of connections per route used by the shared client. */
+	public static final int MAX_CONNECTIONS_PER_ROUTE = 8;
+	/** System property that specifies a directory for recording responses. */
+	public static final String RECORD_DIR = "httpRecordDir";
+	/** System property that specifies a directory of recorded responses. */
+	public static final String REPLAY_DIR = "httpReplayDir";
+	/** System property that specifies the base URI of a stub server. */
+	public static final String STUB_SERVER = "httpStubServer";
+	private static volatile SharedClient sharedClient;
+	private static final HostHealthRegistry HOST_HEALTH = new HostHealthRegistry();
+	private static volatile LinkCheckCache linkCheckCache;
+
 	/**
 	 * Builds a client component for interacting with HTTP endpoints. The client
 	 * will automatically redirect to the URI declared in 3xx responses. The
-	 * connection timeout is 10 s. Request and response messages may be logged
-	 * to a JDK logger (in the namespace "com.sun.jersey.api.client").
+	 * connection timeout is 10 s. Request and response messages are logged to
+	 * a JDK logger (in the namespace "com.sun.jersey.api.client") only if it
+	 * is enabled for FINE messages, since the entire response entity is then
+	 * read into memory.
 	 *
 	 * @return A Client component.
 	 */
@@ -49,13 +77,220 @@ public class HttpClientUtils {
 		config.getProperties()
 				.put(ClientConfig.PROPERTY_FOLLOW_REDIRECTS, true);
 		config.getProperties()
-				.put(ClientConfig.PROPERTY_CONNECT_TIMEOUT, 10000);
+				.put(ClientConfig.PROPERTY_CONNECT_TIMEOUT, CONNECT_TIMEOUT);
 		Client client = Client.create(config);
 		client.addFilter(new ReusableEntityFilter());
-		client.addFilter(new LoggingFilter());
+		addLoggingFilter(client);
 		return client;
 	}
 
+	/**
+	 * Adds a filter that logs request and response messages if the logger
+	 * "com.sun.jersey.api.client.filter.LoggingFilter" is enabled for FINE
+	 * messages. The filter reads the entire response entity into memory, so
+	 * it is not added otherwise.
+	 * 
+	 * @param client
+	 *            A Client component.
+	 */
+	static void addLoggingFilter(Client client) {
+		Logger logger = Logger.getLogger(LoggingFilter.class.getName());
+		if (logger.isLoggable(Level.FINE)) {
+			client.addFilter(new LoggingFilter(logger));
+		}
+	}
+
+	/**
+	 * Returns the HTTP client component shared by all tests and validators in
+	 * this test run. It is created on first use and behaves like a client
+	 * built by {@link #buildClient()}, with the following additional
+	 * characteristics:
+	 * <ul>
+	 * <li>the connection timeout is {@value #SHARED_CONNECT_TIMEOUT} ms and
+	 * the read timeout is {@value #READ_TIMEOUT} ms;</li>
+	 * <li>requests to a host that has repeatedly been unreachable fail
+	 * immediately (see {@link #getHostHealthRegistry()});</li>
+	 * <li>at most {@value #MAX_CONNECTIONS_PER_ROUTE} connections per route
+	 * are in use at the same time; a request waits up to
+	 * {@value #READ_TIMEOUT} ms for a connection to become available (see
+	 * {@link RouteLimitFilter});</li>
+	 * <li>link probes are answered from the link check cache if one has been
+	 * set (see {@link #setLinkCheckCache(LinkCheckCache)});</li>
+	 * <li>messages are never logged, since the logging filter would buffer
+	 * every response entity.</li>
+	 * </ul>
+	 * 
+	 * <p>
+	 * The transport settings (see {@link #buildSharedClient()}) are read
+	 * whenever this method is invoked; if they differ from those of the
+	 * current shared client, a new client is built. A test run thus uses the
+	 * transport that was configured when it started.
+	 * </p>
+	 * 
+	 * <p>
+	 * Connections are made using HttpURLConnection, so persistent connections
+	 * are reused as configured for the JDK (see the "http.keepAlive" and
+	 * "http.maxConnections" networking properties). The per-route limit
+	 * applies to connections in use; "http.maxConnections" only limits the
+	 * number of idle connections kept alive. A response entity must be fully
+	 * read or the response closed, both for the connection to be reused and
+	 * for it to be counted as available again.
+	 * </p>
+	 * 
+	 * @return A (thread-safe) Client component.
+	 */
+	public static Client getSharedClient() {
+		List<String> transport = transportSettings();
+		SharedClient shared = sharedClient;
+		if (null == shared || !shared.transport.equals(transport)) {
+			synchronized (HttpClientUtils.class) {
+				shared = sharedClient;
+				if (null == shared || !shared.transport.equals(transport)) {
+					shared = new SharedClient(transport, buildSharedClient(
+							archiveAt(transport.get(0)),
+							archiveAt(transport.get(1)), transport.get(2)));
+					sharedClient = shared;
+				}
+			}
+		}
+		return shared.client;
+	}
+
+	private static List<String> transportSettings() {
+		return Arrays.asList(System.getProperty(RECORD_DIR),
+				System.getProperty(REPLAY_DIR), System.getProperty(STUB_SERVER));
+	}
+
+	/**
+	 * Builds a client component like the shared one. The transport is
+	 * selected using the following system properties:
+	 * <ul>
+	 * <li>{@value #RECORD_DIR}: all responses are recorded in an archive
+	 * located in the given directory;</li>
+	 * <li>{@value #REPLAY_DIR}: responses are served from an archive located in
+	 * the given directory (the network is never accessed);</li>
+	 * <li>{@value #STUB_SERVER}: all requests are sent to the server at the
+	 * given base URI (see {@link #stubURL(URI, URL)}).</li>
+	 * </ul>
+	 * 
+	 * @return A Client component.
+	 */
+	static Client buildSharedClient() {
+		List<String> transport = transportSettings();
+		return buildSharedClient(archiveAt(transport.get(0)),
+				archiveAt(transport.get(1)), transport.get(2));
+	}
+
+	/**
+	 * Builds a client component like the shared one, using the given transport
+	 * settings.
+	 * 
+	 * @param recordArchive
+	 *            An archive in which all responses are recorded (may be null).
+	 * @param replayArchive
+	 *            An archive from which responses are served (may be null).
+	 * @param stubServer
+	 *            The base URI of a stub server to which all requests are sent
+	 *            (may be null).
+	 * @return A Client component.
+	 */
+	static Client buildSharedClient(HttpExchangeArchive recordArchive,
+			final HttpExchangeArchive replayArchive, String stubServer) {
+		final URI stubURI = (null != stubServer && !stubServer.isEmpty()) ? URI
+				.create(stubServer) : null;
+		ClientConfig config = new DefaultClientConfig();
+		config.getProperties()
+				.put(ClientConfig.PROPERTY_FOLLOW_REDIRECTS, true);
+		config.getProperties().put(ClientConfig.PROPERTY_CONNECT_TIMEOUT,
+				SHARED_CONNECT_TIMEOUT);
+		config.getProperties().put(ClientConfig.PROPERTY_READ_TIMEOUT,
+				READ_TIMEOUT);
+		Client client = new Client(new URLConnectionClientHandler(
+				new HttpURLConnectionFactory() {
+					@Override
+					public HttpURLConnection getHttpURLConnection(URL url)
+							throws IOException {
+						if (null != replayArchive) {
+							return new ReplayConnection(url, replayArchive);
+						}
+						if (null != stubURI) {
+							url = stubURL(stubURI, url);
+						}
+						return (HttpURLConnection) url.openConnection();
+					}
+				}), config);
+		if (null != recordArchive && null == replayArchive) {
+			client.addFilter(new RecordingFilter(recordArchive));
+		}
+		client.addFilter(new HostHealthFilter(HOST_HEALTH));
+		client.addFilter(new RouteLimitFilter(MAX_CONNECTIONS_PER_ROUTE,
+				READ_TIMEOUT));
+		client.addFilter(new LinkCacheFilter());
+		client.addFilter(new ReusableEntityFilter());
+		return client;
+	}
+
+	/**
+	 * Maps a request URL to a resource on a stub server. The authority
+	 * (host:port) of the original URL is retained as the first path segment
+	 * so that resources with the same path on different hosts remain
+	 * distinct: for example, "http://tiles.example.org/a/b.png?v=1" is mapped
+	 * to "{stubServer}/tiles.example.org/a/b.png?v=1".
+	 * 
+	 * @param stubURI
+	 *            The base URI of the stub server.
+	 * @param url
+	 *            The original request URL.
+	 * @return The URL of the corresponding resource on the stub server.
+	 * @throws IOException
+	 *             If the URL cannot be constructed.
+	 */
+	static URL stubURL(URI stubURI, URL url) throws IOException {
+		String basePath = (null != stubURI.getRawPath()) ? stubURI
+				.getRawPath() : "";
+		if (basePath.endsWith("/")) {
+			basePath = basePath.substring(0, basePath.length() - 1);
+		}
+		return new URL(stubURI.getScheme(), stubURI.getHost(),
+				stubURI.getPort(), basePath + "/" + url.getAuthority()
+						+ url.getFile());
+	}
+
+	private static HttpExchangeArchive archiveAt(String dir) {
+		return (null != dir && !dir.isEmpty()) ? new HttpExchangeArchive(
+				new File(dir)) : null;
+	}
+
+	/**
+	 * Returns the registry that keeps track of unreachable hosts on behalf of
+	 * the shared client.
+	 * 
+	 * @return The HostHealthRegistry used by the shared client.
+	 */
+	public static HostHealthRegistry getHostHealthRegistry() {
+		return HOST_HEALTH;
+	}
+
+	/**
+	 * Returns the persistent link check cache used by the shared client.
+	 * 
+	 * @return A LinkCheckCache, or null if link checks are not cached.
+	 */
+	public static LinkCheckCache getLinkCheckCache() {
+		return linkCheckCache;
+	}
+
+	/**
+	 * Sets the persistent link check cache used by the shared client.
+	 * 
+	 * @param cache
+	 *            A LinkCheckCache instance; if null, link checks are not
+	 *            cached.
+	 */
+	public static void setLinkCheckCache(LinkCheckCache cache) {
+		linkCheckCache = cache;
+	}
+
 	/**
 	 * Constructs a client component that uses a specified web proxy. Proxy
 	 * authentication is not supported. Configuring the client to use an
@@ -85,7 +320,7 @@ public class HttpClientUtils {
 						return (HttpURLConnection) url.openConnection(proxy);
 					}
 				}), config);
-		client.addFilter(new LoggingFilter());
+		addLoggingFilter(client);
 		return client;
 	}
 
@@ -142,6 +377,74 @@ public class HttpClientUtils {
 		return req;
 	}
 
+	/**
+	 * Probes a resource in order to determine whether or not it is accessible,
+	 * without retrieving its content. A HEAD request is submitted first; a
+	 * redirection to another URI (which may use a different scheme) is
+	 * followed once. If the server rejects the HEAD request (status code 403
+	 * or 405), a GET request with a <code>Range: bytes=0-0</code> header is
+	 * submitted instead. In either case the response entity is not buffered,
+	 * and the response is closed as soon as its headers have been received.
+	 * 
+	 * @param client
+	 *            The client component used to submit requests.
+	 * @param uri
+	 *            An absolute 'http' or 'https' URI that refers to the resource.
+	 * @param mediaTypes
+	 *            A list of acceptable media types; if not specified, any
+	 *            representation ("*&#47;*") is acceptable.
+	 * @return A (closed) ClientResponse object providing access to the status
+	 *         code and the response headers. A successful probe yields status
+	 *         code 200 (OK) or 206 (Partial Content).
+	 */
+	public static ClientResponse probe(Client client, URI uri,
+			MediaType... mediaTypes) {
+		long start = System.nanoTime();
+		String host = (null != uri.getHost()) ? uri.getHost() : uri
+				.getScheme();
+		try {
+			ClientRequest req = buildHeadRequest(uri, null, mediaTypes);
+			ClientResponse rsp = client.handle(req);
+			rsp.close();
+			if (rsp.getStatusInfo().getFamily() == Response.Status.Family.REDIRECTION
+					&& null != rsp.getLocation()) {
+				// client won't automatically redirect from HTTP to HTTPS
+				uri = rsp.getLocation();
+				req.setURI(uri);
+				rsp = client.handle(req);
+				rsp.close();
+			}
+			if (rsp.getStatus() == HttpURLConnection.HTTP_FORBIDDEN
+					|| rsp.getStatus() == HttpURLConnection.HTTP_BAD_METHOD) {
+				// some servers reject HEAD requests
+				req = buildGetRequest(uri, null, mediaTypes);
+				req.getHeaders().putSingle("Range", "bytes=0-0");
+				req.getProperties().put(ReusableEntityFilter.BUFFER_ENTITY,
+						Boolean.FALSE);
+				rsp = client.handle(req);
+				rsp.close();
+			}
+			return rsp;
+		} finally {
+			Metrics.getInstance().record(Metrics.HTTP, host, start);
+		}
+	}
+
+	/**
+	 * Determines whether or not the response to a probe indicates that the
+	 * target resource is accessible.
+	 * 
+	 * @param rsp
+	 *            A response to a HEAD request or to a GET request for a byte
+	 *            range.
+	 * @return true if the status code is 200 (OK) or 206 (Partial Content);
+	 *         false otherwise.
+	 */
+	public static boolean isProbeSuccessful(ClientResponse rsp) {
+		return rsp.getStatus() == HttpURLConnection.HTTP_OK
+				|| rsp.getStatus() == HttpURLConnection.HTTP_PARTIAL;
+	}
+
 	/**
 	 * Creates a copy of the given MediaType object but without any parameters.
 	 *
@@ -255,4 +558,19 @@ public class HttpClientUtils {
 		}
 		return isAcceptable;
 	}
+
+	/**
+	 * The shared client together with the transport settings it was built
+	 * with.
+	 */
+	private static final class SharedClient {
+
+		final List<String> transport;
+		final Client client;
+
+		SharedClient(List<String> transport, Client client) {
+			this.transport = transport;
+			this.client = client;
+		}
+	}
 }
@@ -0,0 +1,224 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A local archive of recorded HTTP exchanges. Each exchange is identified by
+ * the request method, the request URI and (if present) the requested byte
+ * range. The response metadata (status code, reason phrase and header fields)
+ * is stored in a properties file; the response entity, if recorded, is stored
+ * in a separate file with the same base name.
+ * 
+ * <p>
+ * An archive is populated in record mode and consulted in replay mode (see
+ * {@link HttpClientUtils#getSharedClient()}).
+ * </p>
+ */
+public class HttpExchangeArchive {
+
+	private static final String HEADER_PREFIX = "header.";
+	private final File archiveDir;
+
+	/**
+	 * Constructs an archive located in the given directory.
+	 * 
+	 * @param archiveDir
+	 *            The archive directory (it will be created when the first
+	 *            exchange is recorded).
+	 */
+	public HttpExchangeArchive(File archiveDir) {
+		this.archiveDir = archiveDir;
+	}
+
+	/**
+	 * Returns the archive directory.
+	 * 
+	 * @return A File denoting a directory.
+	 */
+	public File getDirectory() {
+		return archiveDir;
+	}
+
+	/**
+	 * Records the response to a request.
+	 * 
+	 * @param method
+	 *            The request method.
+	 * @param uri
+	 *            The request URI.
+	 * @param range
+	 *            The value of the Range request header (may be null).
+	 * @param status
+	 *            The response status code.
+	 * @param reason
+	 *            The reason phrase (may be null).
+	 * @param headers
+	 *            The response header fields.
+	 * @return A File to which the response entity may be written.
+	 * @throws IOException
+	 *             If the response metadata could not be written.
+	 */
+	public File record(String method, URI uri, String range, int status,
+			String reason, Map<String, List<String>> headers)
+			throws IOException {
+		if (!archiveDir.isDirectory() && !archiveDir.mkdirs()) {
+			throw new IOException("Failed to create archive directory: "
+					+ archiveDir);
+		}
+		Properties props = new Properties();
+		props.setProperty("method", method);
+		props.setProperty("uri", uri.toString());
+		if (null != range) {
+			props.setProperty("range", range);
+		}
+		props.setProperty("status", Integer.toString(status));
+		if (null != reason) {
+			props.setProperty("reason", reason);
+		}
+		int i = 0;
+		for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+			if (null == header.getKey()) {
+				continue;
+			}
+			for (String value : header.getValue()) {
+				props.setProperty(HEADER_PREFIX + i++, header.getKey() + ": "
+						+ value);
+			}
+		}
+		String name = exchangeName(method, uri, range);
+		File bodyFile = new File(archiveDir, name + ".body");
+		if (bodyFile.exists()) {
+			bodyFile.delete();
+		}
+		try (OutputStream out = new FileOutputStream(new File(archiveDir, name
+				+ ".properties"))) {
+			props.store(out, method + " " + uri);
+		}
+		return bodyFile;
+	}
+
+	/**
+	 * Finds a recorded exchange.
+	 * 
+	 * @param method
+	 *            The request method.
+	 * @param uri
+	 *            The request URI.
+	 * @param range
+	 *            The value of the Range request header (may be null).
+	 * @return The recorded exchange, or null if no matching request was
+	 *         recorded.
+	 * @throws IOException
+	 *             If the recorded exchange could not be read.
+	 */
+	public Exchange find(String method, URI uri, String range)
+			throws IOException {
+		String name = exchangeName(method, uri, range);
+		File propsFile = new File(archiveDir, name + ".properties");
+		if (!propsFile.isFile()) {
+			return null;
+		}
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(propsFile)) {
+			props.load(in);
+		}
+		Map<String, List<String>> headers = new LinkedHashMap<>();
+		for (int i = 0; props.containsKey(HEADER_PREFIX + i); i++) {
+			String field = props.getProperty(HEADER_PREFIX + i);
+			int sep = field.indexOf(':');
+			String fieldName = field.substring(0, sep);
+			List<String> values = headers.get(fieldName);
+			if (null == values) {
+				values = new ArrayList<>();
+				headers.put(fieldName, values);
+			}
+			values.add(field.substring(sep + 1).trim());
+		}
+		File bodyFile = new File(archiveDir, name + ".body");
+		return new Exchange(Integer.parseInt(props.getProperty("status")),
+				props.getProperty("reason"), headers,
+				bodyFile.isFile() ? bodyFile : null);
+	}
+
+	/**
+	 * Generates the base name of the files for an exchange.
+	 * 
+	 * @param method
+	 *            The request method.
+	 * @param uri
+	 *            The request URI.
+	 * @param range
+	 *            The requested byte range (may be null).
+	 * @return A hexadecimal SHA-1 digest of the request key.
+	 */
+	static String exchangeName(String method, URI uri, String range) {
+		String key = method.toUpperCase() + " " + uri
+				+ ((null != range) ? " " + range : "");
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder();
+			for (byte b : hash) {
+				name.append(String.format("%02x", b));
+			}
+			return name.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * A recorded HTTP response.
+	 */
+	public static final class Exchange {
+
+		private final int status;
+		private final String reason;
+		private final Map<String, List<String>> headers;
+		private final File body;
+
+		Exchange(int status, String reason, Map<String, List<String>> headers,
+				File body) {
+			this.status = status;
+			this.reason = reason;
+			this.headers = Collections.unmodifiableMap(headers);
+			this.body = body;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+
+		public Map<String, List<String>> getHeaders() {
+			return headers;
+		}
+
+		/**
+		 * Returns the file containing the response entity.
+		 * 
+		 * @return A File, or null if no entity was recorded.
+		 */
+		public File getBody() {
+			return body;
+		}
+	}
+}
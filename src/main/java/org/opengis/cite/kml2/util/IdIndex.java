@@ -0,0 +1,194 @@
+package org.opengis.cite.kml2.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+
+import org.opengis.cite.kml2.KML2;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * An immutable index of the elements in a document, built in a single pass.
+ * It maps attribute values to elements in order to resolve shorthand XPointer
+ * expressions (like {@link XMLUtils#evaluateXPointer(String, Document)}, all
+ * attributes are considered, not only those of type ID; the first element in
+ * document order wins). It also records the identifiers of shared resources
+ * that appear in a kml:Document container:
+ * <ul>
+ * <li>shared styles (kml:Style, kml:StyleMap);</li>
+ * <li>custom schemas (kml:Schema).</li>
+ * </ul>
+ * 
+ * <p>
+ * An index may be registered for a document so that it is used by
+ * {@link XMLUtils#evaluateXPointer(String, Document)}. A document must not be
+ * modified once it has been indexed. The index is attached to the document as
+ * user data, so it does not prevent the document from being garbage
+ * collected.
+ * </p>
+ */
+public class IdIndex {
+
+	private static final String USER_DATA_KEY = IdIndex.class.getName();
+	private final Map<String, Element> elements = new HashMap<>();
+	private final Set<String> sharedStyles = new HashSet<>();
+	private final Set<String> customSchemas = new HashSet<>();
+	private int elementCount;
+
+	private IdIndex() {
+	}
+
+	/**
+	 * Builds an index for the given document.
+	 * 
+	 * @param doc
+	 *            A Document node.
+	 * @return A new IdIndex instance.
+	 */
+	public static IdIndex build(Document doc) {
+		IdIndex index = new IdIndex();
+		if (null != doc && null != doc.getDocumentElement()) {
+			index.indexElements(doc.getDocumentElement());
+		}
+		return index;
+	}
+
+	/**
+	 * Builds an index for the given document and registers it.
+	 * 
+	 * @param doc
+	 *            A Document node.
+	 * @return The IdIndex for the document.
+	 */
+	public static IdIndex register(Document doc) {
+		IdIndex index = build(doc);
+		synchronized (doc) {
+			doc.setUserData(USER_DATA_KEY, index, null);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the index registered for the given document.
+	 * 
+	 * @param doc
+	 *            A Document node.
+	 * @return The registered IdIndex, or null if there is none.
+	 */
+	public static IdIndex lookup(Document doc) {
+		if (null == doc) {
+			return null;
+		}
+		synchronized (doc) {
+			return (IdIndex) doc.getUserData(USER_DATA_KEY);
+		}
+	}
+
+	/**
+	 * Finds the first element (in document order) that has an attribute with
+	 * the given value.
+	 * 
+	 * @param value
+	 *            An attribute value (usually an identifier).
+	 * @return The matching Element, or null if there is none.
+	 */
+	public Element findElement(String value) {
+		return elements.get(value);
+	}
+
+	/**
+	 * Returns the identifiers of the shared styles (kml:Style and kml:StyleMap
+	 * elements in a kml:Document).
+	 * 
+	 * @return An immutable set of identifiers (possibly empty).
+	 */
+	public Set<String> getSharedStyles() {
+		return Collections.unmodifiableSet(sharedStyles);
+	}
+
+	/**
+	 * Returns the identifiers of the custom schemas (kml:Schema elements in a
+	 * kml:Document).
+	 * 
+	 * @return An immutable set of identifiers (possibly empty).
+	 */
+	public Set<String> getCustomSchemas() {
+		return Collections.unmodifiableSet(customSchemas);
+	}
+
+	/**
+	 * Returns the number of elements in the indexed document.
+	 * 
+	 * @return The element count.
+	 */
+	public int getElementCount() {
+		return elementCount;
+	}
+
+	private void indexElements(Element root) {
+		Node node = root;
+		while (null != node) {
+			if (node.getNodeType() == Node.ELEMENT_NODE) {
+				Element elem = (Element) node;
+				elementCount++;
+				NamedNodeMap attrs = elem.getAttributes();
+				for (int i = 0; i < attrs.getLength(); i++) {
+					Attr attr = (Attr) attrs.item(i);
+					if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attr
+							.getNamespaceURI())
+							&& !elements.containsKey(attr.getValue())) {
+						elements.put(attr.getValue(), elem);
+					}
+				}
+				addSharedResource(elem);
+			}
+			node = nextInDocumentOrder(node, root);
+		}
+	}
+
+	private void addSharedResource(Element elem) {
+		Node parent = elem.getParentNode();
+		if (!KML2.NS_NAME.equals(elem.getNamespaceURI())
+				|| null == parent
+				|| !KML2.NS_NAME.equals(parent.getNamespaceURI())
+				|| !"Document".equals(parent.getLocalName())) {
+			return;
+		}
+		String id = elem.getAttribute("id");
+		if (id.isEmpty()) {
+			return;
+		}
+		switch (elem.getLocalName()) {
+		case "Style":
+		case "StyleMap":
+			sharedStyles.add(id);
+			break;
+		case "Schema":
+			customSchemas.add(id);
+			break;
+		default:
+			break;
+		}
+	}
+
+	private static Node nextInDocumentOrder(Node node, Node root) {
+		if (node.hasChildNodes()) {
+			return node.getFirstChild();
+		}
+		while (null != node && node != root) {
+			if (null != node.getNextSibling()) {
+				return node.getNextSibling();
+			}
+			node = node.getParentNode();
+		}
+		return null;
+	}
+}
@@ -0,0 +1,265 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * The outcomes of checking the units of a test subject (see
+ * {@link FeatureFingerprints}), kept from one test run to the next so that a
+ * revised document can be tested incrementally. For each test, the failures
+ * that occurred in a unit are recorded under the fingerprint of the unit; the
+ * failure messages are keyed by the position of the failing element relative
+ * to the first target element in the unit. The outcome for a unit is not
+ * kept if a message locates an element by its position in the document.
+ *
+ * <p>
+ * The outcomes are stored in a tab-delimited text file in the store directory;
+ * the file name is derived from the location of the test subject. The stored
+ * outcomes are discarded if the context (including the level of conformance
+ * assessment and the suite version) differs from that of the current run.
+ * </p>
+ */
+public class IncrementalResults {
+
+	private static final String CONTEXT = "context";
+	private static final String UNIT = "unit";
+	private static final String FAIL = "fail";
+	private final File storeFile;
+	private final String context;
+	private final ConcurrentMap<String, ConcurrentMap<String, SortedMap<Integer, String>>> previous = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, ConcurrentMap<String, SortedMap<Integer, String>>> current = new ConcurrentHashMap<>();
+	private final AtomicLong reused = new AtomicLong();
+	private final AtomicLong checked = new AtomicLong();
+
+	/**
+	 * Constructs an empty set of outcomes.
+	 *
+	 * @param storeFile
+	 *            The file in which the outcomes are stored.
+	 * @param context
+	 *            A digest of the context shared by all units.
+	 */
+	public IncrementalResults(File storeFile, String context) {
+		this.storeFile = storeFile;
+		this.context = context;
+	}
+
+	/**
+	 * Creates a set of outcomes for the given test subject and loads the
+	 * outcomes of the previous test run (if the context is unchanged).
+	 *
+	 * @param storeDir
+	 *            The directory in which outcomes are stored.
+	 * @param subject
+	 *            The location of the test subject.
+	 * @param context
+	 *            A digest of the context shared by all units.
+	 * @return An IncrementalResults instance.
+	 * @throws IOException
+	 *             If the stored outcomes could not be read.
+	 */
+	public static IncrementalResults load(File storeDir, URI subject,
+			String context) throws IOException {
+		File storeFile = new File(storeDir, getStoreName(subject));
+		IncrementalResults results = new IncrementalResults(storeFile, context);
+		if (!storeFile.isFile()) {
+			return results;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(
+				storeFile.toPath(), StandardCharsets.UTF_8)) {
+			String line = reader.readLine();
+			if (null == line || !line.equals(CONTEXT + "\t" + context)) {
+				TestSuiteLogger.log(Level.CONFIG,
+						"Context has changed; all units will be checked.");
+				return results;
+			}
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", 5);
+				if (fields[0].equals(UNIT) && fields.length == 3) {
+					outcomes(results.previous, fields[1], fields[2]);
+				} else if (fields[0].equals(FAIL) && fields.length == 5) {
+					try {
+						outcomes(results.previous, fields[1], fields[2])
+								.put(Integer.valueOf(fields[3]),
+										unescape(fields[4]));
+					} catch (NumberFormatException nfe) {
+						TestSuiteLogger.log(Level.FINE,
+								"Skipping corrupt outcome: " + line);
+					}
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the failures that occurred in a unit when the given test was
+	 * last run.
+	 *
+	 * @param test
+	 *            The name of a test method.
+	 * @param unit
+	 *            The fingerprint of a unit.
+	 * @return An unmodifiable map of failure messages sorted by relative
+	 *         position (empty if there were none), or null if the unit was not
+	 *         checked.
+	 */
+	public SortedMap<Integer, String> getPreviousFailures(String test,
+			String unit) {
+		Map<String, SortedMap<Integer, String>> units = previous.get(test);
+		SortedMap<Integer, String> failures = (null != units) ? units
+				.get(unit) : null;
+		Metrics.getInstance().recordCacheAccess("incremental", null != failures);
+		if (null == failures) {
+			checked.incrementAndGet();
+			return null;
+		}
+		reused.incrementAndGet();
+		return Collections.unmodifiableSortedMap(failures);
+	}
+
+	/**
+	 * Records the failures that occurred in a unit in the current test run.
+	 *
+	 * @param test
+	 *            The name of a test method.
+	 * @param unit
+	 *            The fingerprint of a unit.
+	 * @param failures
+	 *            The failure messages sorted by relative position (may be
+	 *            empty).
+	 */
+	public void record(String test, String unit,
+			SortedMap<Integer, String> failures) {
+		outcomes(current, test, unit).putAll(failures);
+	}
+
+	/**
+	 * Writes the outcomes recorded in the current test run to the store file,
+	 * replacing those of the previous run. The file is replaced atomically.
+	 *
+	 * @throws IOException
+	 *             If the store file could not be written.
+	 */
+	public void save() throws IOException {
+		File storeDir = storeFile.getParentFile();
+		if (!storeDir.isDirectory() && !storeDir.mkdirs()) {
+			throw new IOException("Failed to create directory: " + storeDir);
+		}
+		File tmpFile = File.createTempFile("outcomes", ".tmp", storeDir);
+		try (BufferedWriter writer = Files.newBufferedWriter(tmpFile.toPath(),
+				StandardCharsets.UTF_8)) {
+			writer.write(CONTEXT + "\t" + context);
+			writer.newLine();
+			for (Map.Entry<String, ConcurrentMap<String, SortedMap<Integer, String>>> test : current
+					.entrySet()) {
+				for (Map.Entry<String, SortedMap<Integer, String>> unit : test
+						.getValue().entrySet()) {
+					writer.write(String.format("%s\t%s\t%s", UNIT,
+							test.getKey(), unit.getKey()));
+					writer.newLine();
+					for (Map.Entry<Integer, String> failure : unit.getValue()
+							.entrySet()) {
+						writer.write(String.format("%s\t%s\t%s\t%d\t%s", FAIL,
+								test.getKey(), unit.getKey(), failure.getKey(),
+								escape(failure.getValue())));
+						writer.newLine();
+					}
+				}
+			}
+		}
+		Files.move(tmpFile.toPath(), storeFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"Incremental results in %s: %d units reused, %d units checked",
+				storeFile, reused.get(), checked.get());
+	}
+
+	/**
+	 * Derives the name of the store file from the location of the subject.
+	 */
+	static String getStoreName(URI subject) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new RuntimeException(nsae);
+		}
+		byte[] hash = digest.digest(subject.toString().getBytes(
+				StandardCharsets.UTF_8));
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < 16; i++) {
+			name.append(String.format("%02x", hash[i] & 0xff));
+		}
+		return name.append(".tsv").toString();
+	}
+
+	private static SortedMap<Integer, String> outcomes(
+			ConcurrentMap<String, ConcurrentMap<String, SortedMap<Integer, String>>> outcomes,
+			String test, String unit) {
+		ConcurrentMap<String, SortedMap<Integer, String>> units = outcomes
+				.get(test);
+		if (null == units) {
+			outcomes.putIfAbsent(test,
+					new ConcurrentHashMap<String, SortedMap<Integer, String>>());
+			units = outcomes.get(test);
+		}
+		SortedMap<Integer, String> failures = units.get(unit);
+		if (null == failures) {
+			units.putIfAbsent(unit, Collections
+					.synchronizedSortedMap(new TreeMap<Integer, String>()));
+			failures = units.get(unit);
+		}
+		return failures;
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\t", "\\t")
+				.replace("\n", "\\n").replace("\r", "\\r");
+	}
+
+	private static String unescape(String value) {
+		StringBuilder str = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				switch (next) {
+				case 't':
+					c = '\t';
+					break;
+				case 'n':
+					c = '\n';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				default:
+					c = next;
+				}
+			}
+			str.append(c);
+		}
+		return str.toString();
+	}
+}
@@ -1,6 +1,7 @@
 package org.opengis.cite.kml2.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.xml.xpath.XPathExpressionException;
@@ -11,6 +12,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
@@ -21,6 +23,12 @@ import com.vividsolutions.jts.geom.Polygon;
 
 /**
  * Builds JTS geometry objects from KML representations.
+ * 
+ * <p>
+ * If a {@link CoordinateStore} is enabled for the document, the coordinates of
+ * lines, rings and polygons are read from the store instead of being copied to
+ * Coordinate objects on the heap.
+ * </p>
  */
 public class JTSGeometryBuilder {
 
@@ -89,10 +97,8 @@ public class JTSGeometryBuilder {
 			throw new IllegalArgumentException(
 					"Element does not represent a LineString.");
 		}
-		List<Coordinate> coordList = createCoordinateList(line
-				.getElementsByTagNameNS(KML2.NS_NAME, "coordinates").item(0));
-		return this.geomFactory.createLineString(coordList
-				.toArray(new Coordinate[coordList.size()]));
+		return this.geomFactory.createLineString(createCoordinateSequence(line
+				.getElementsByTagNameNS(KML2.NS_NAME, "coordinates").item(0)));
 	}
 
 	/**
@@ -107,10 +113,8 @@ public class JTSGeometryBuilder {
 			throw new IllegalArgumentException(
 					"Element does not represent a LinearRing.");
 		}
-		List<Coordinate> coordList = createCoordinateList(ring
-				.getElementsByTagNameNS(KML2.NS_NAME, "coordinates").item(0));
-		return this.geomFactory.createLinearRing(coordList
-				.toArray(new Coordinate[coordList.size()]));
+		return this.geomFactory.createLinearRing(createCoordinateSequence(ring
+				.getElementsByTagNameNS(KML2.NS_NAME, "coordinates").item(0)));
 	}
 
 	/**
@@ -176,17 +180,43 @@ public class JTSGeometryBuilder {
 	 * @return A JTS Polygon (with no interior boundaries).
 	 */
 	public Polygon buildPolygonFromCoordinates(Node coords) {
-		List<Coordinate> coordList = createCoordinateList(coords);
-		Coordinate lastCord = coordList.get(coordList.size() - 1);
-		if (!coordList.get(0).equals2D(lastCord)) {
+		CoordinateSequence coordSeq = createCoordinateSequence(coords);
+		int size = coordSeq.size();
+		Coordinate lastCoord = coordSeq.getCoordinate(size - 1);
+		if (!coordSeq.getCoordinate(0).equals2D(lastCoord)) {
 			// make a ring (e.g. LatLonQuad)
-			coordList.add(new Coordinate(coordList.get(0)));
+			Coordinate[] ring = Arrays.copyOf(coordSeq.toCoordinateArray(),
+					size + 1);
+			ring[size] = new Coordinate(ring[0]);
+			coordSeq = this.geomFactory.getCoordinateSequenceFactory().create(
+					ring);
 		}
-		Polygon polygon = this.geomFactory.createPolygon(coordList
-				.toArray(new Coordinate[coordList.size()]));
+		Polygon polygon = this.geomFactory.createPolygon(this.geomFactory
+				.createLinearRing(coordSeq));
 		return polygon;
 	}
 
+	/**
+	 * Creates a CoordinateSequence from the content of a kml:coordinates
+	 * element. The sequence is a view of the {@link CoordinateStore} for the
+	 * document if one is enabled; otherwise it is backed by a list of
+	 * Coordinate objects (see {@link #createCoordinateList(Node)}).
+	 * 
+	 * @param coords
+	 *            A node containing a coordinate sequence (kml:coordinates).
+	 * @return A CoordinateSequence containing one or more coordinates.
+	 */
+	CoordinateSequence createCoordinateSequence(Node coords) {
+		CoordinateStore store = CoordinateStore.forDocument(coords
+				.getOwnerDocument());
+		if (null != store) {
+			return store.getCoordinates(coords);
+		}
+		List<Coordinate> coordList = createCoordinateList(coords);
+		return this.geomFactory.getCoordinateSequenceFactory().create(
+				coordList.toArray(new Coordinate[coordList.size()]));
+	}
+
 	/**
 	 * Creates a Coordinate sequence from the content of a kml:coordinates
 	 * element.
@@ -20,8 +20,6 @@ import javax.xml.transform.Source;
 
 import net.sf.saxon.s9api.Axis;
 import net.sf.saxon.s9api.ItemType;
-import net.sf.saxon.s9api.ItemTypeFactory;
-import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.QName;
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XdmItem;
@@ -64,6 +62,7 @@ public class KMLUtils {
 	 */
 	public static Document parseKMLDocument(File file) throws IOException,
 			SAXException {
+		SuiteEvent event = SuiteEvent.begin(SuiteEvent.Type.PARSE);
 		Document kmlDoc = null;
 		try (FileInputStream fileStream = new FileInputStream(file)) {
 			if (XMLUtils.isXML(fileStream)) {
@@ -73,6 +72,13 @@ public class KMLUtils {
 						"Reading KMZ resource from " + file.toURI());
 				kmlDoc = parseKMLDocumentInArchive(file);
 			}
+		} finally {
+			if (event.isEnabled()) {
+				event.setURI(file.toURI().toString());
+				event.setBytes(file.length());
+				event.setOutcome((null != kmlDoc) ? "parsed" : "failed");
+			}
+			event.commit();
 		}
 		return kmlDoc;
 	}
@@ -102,11 +108,32 @@ public class KMLUtils {
 	 */
 	public static Document parseKMLDocumentInArchive(File file)
 			throws IOException, SAXException {
+		File mainKMLFile = extractKMLDocumentInArchive(file);
+		return (null != mainKMLFile) ? (Document) URIUtils
+				.parseURI(mainKMLFile.toURI()) : null;
+	}
+
+	/**
+	 * Unpacks the given KMZ archive file into the directory that contains it.
+	 * The first root-level KML document found within the archive is the main
+	 * document.
+	 * 
+	 * @param file
+	 *            A File object that presumably represents a KMZ file (ZIP
+	 *            archive).
+	 * @return The extracted main KML document, or {@code null} if a
+	 *         root-level KML file could not be found in the archive.
+	 * @throws IOException
+	 *             The file is not a valid ZIP archive or some other I/O error
+	 *             occurred.
+	 */
+	public static File extractKMLDocumentInArchive(File file)
+			throws IOException {
 		if (!file.exists()) {
 			throw new IllegalArgumentException("File does not exist: "
 					+ file.getAbsolutePath());
 		}
-		Document mainKMLDoc = null;
+		File mainKMLFile = null;
 		try (ZipFile zipFile = new ZipFile(file)) {
 			Enumeration<? extends ZipEntry> entries = zipFile.entries();
 			while (entries.hasMoreElements()) {
@@ -121,8 +148,9 @@ public class KMLUtils {
 				int nBytes = IOUtils.copy(input, output);
 				IOUtils.closeQuietly(input);
 				IOUtils.closeQuietly(output);
-				if ((null == mainKMLDoc) && destFile.getName().endsWith(".kml")) {
-					mainKMLDoc = (Document) URIUtils.parseURI(destFile.toURI());
+				if ((null == mainKMLFile)
+						&& destFile.getName().endsWith(".kml")) {
+					mainKMLFile = destFile;
 				}
 				if (TestSuiteLogger.isLoggable(Level.FINER)) {
 					TestSuiteLogger.log(Level.FINER, String.format(
@@ -131,7 +159,7 @@ public class KMLUtils {
 				}
 			}
 		}
-		return mainKMLDoc;
+		return mainKMLFile;
 	}
 
 	/**
@@ -231,31 +259,46 @@ public class KMLUtils {
 	 *         (kml:SimpleField, kml:SimpleArrayField) declared in the schema.
 	 */
 	public static Map<String, ItemType> getDeclaredFields(XdmNode schema) {
+		Map<String, ItemType> schemaFields = new HashMap<>();
+		for (Map.Entry<String, String> field : getDeclaredFieldTypeNames(
+				schema).entrySet()) {
+			AtomicTypeRegistry.Resolution resolution = AtomicTypeRegistry
+					.lookup(field.getValue());
+			// xs:anyAtomicType if unknown
+			ItemType atomicType = resolution.isResolved() ? resolution
+					.getType() : ItemType.ANY_ATOMIC_VALUE;
+			schemaFields.put(field.getKey(), atomicType);
+		}
+		return schemaFields;
+	}
+
+	/**
+	 * Gets the names of the data types of the fields declared in a custom
+	 * schema.
+	 * 
+	 * @param schema
+	 *            A node representing a kml:Schema element.
+	 * @return A Map containing the names (keys) of the fields (kml:SimpleField,
+	 *         kml:SimpleArrayField) declared in the schema and the (local)
+	 *         names of their data types (values).
+	 */
+	public static Map<String, String> getDeclaredFieldTypeNames(XdmNode schema) {
 		if (null == schema
 				|| !schema.getNodeName().getLocalName().equals("Schema")) {
 			throw new IllegalArgumentException("Not a kml:Schema element.");
 		}
-		Map<String, ItemType> schemaFields = new HashMap<>();
+		Map<String, String> typeNames = new HashMap<>();
 		QName name = new QName("name");
 		QName type = new QName("type");
-		ItemTypeFactory typeFactory = new ItemTypeFactory(new Processor(false));
 		XdmSequenceIterator childItr = schema.axisIterator(Axis.CHILD);
 		while (childItr.hasNext()) {
 			XdmNode child = (XdmNode) childItr.next();
 			if (child.getNodeKind().equals(XdmNodeKind.ELEMENT)) {
-				QName typeName = new QName("http://www.w3.org/2001/XMLSchema",
+				typeNames.put(child.getAttributeValue(name),
 						child.getAttributeValue(type));
-				ItemType atomicType;
-				try {
-					atomicType = typeFactory.getAtomicType(typeName);
-				} catch (SaxonApiException e) {
-					// xs:anyAtomicType
-					atomicType = ItemType.ANY_ATOMIC_VALUE;
-				}
-				schemaFields.put(child.getAttributeValue(name), atomicType);
 			}
 		}
-		return schemaFields;
+		return typeNames;
 	}
 
 }
@@ -0,0 +1,376 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * A persistent store of link check results that can be reused in subsequent
+ * test runs. Each entry records the outcome of probing a resource (status
+ * code, content type, redirect location) along with the validators (ETag,
+ * Last-Modified) needed to revalidate it by means of a conditional request.
+ * 
+ * <p>
+ * Entries are held in memory during a test run; they are read from and written
+ * to a tab-delimited text file (named {@value #FILE_NAME}) in the cache
+ * directory. An entry is fresh if it was checked or revalidated within the
+ * maximum age; a stale entry must be revalidated before it is used.
+ * </p>
+ * 
+ * <p>
+ * Several test runs may share a cache directory. When the cache is saved the
+ * entries it holds are merged with those currently in the file (the most
+ * recently checked entry wins) while an exclusive lock is held on a companion
+ * lock file; stale entries that cannot be revalidated are dropped.
+ * </p>
+ */
+public class LinkCheckCache {
+
+	/** The name of the file containing the cached entries. */
+	public static final String FILE_NAME = "link-checks.tsv";
+	/** The name of the file that is locked while the cache is saved. */
+	public static final String LOCK_FILE_NAME = FILE_NAME + ".lock";
+	private static final String EMPTY = "-";
+	private final File storeFile;
+	private final long maxAge;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong revalidations = new AtomicLong();
+
+	/**
+	 * Constructs an empty cache.
+	 * 
+	 * @param cacheDir
+	 *            The directory in which the cache file is stored.
+	 * @param maxAge
+	 *            The maximum age (ms) of a fresh entry; if zero, entries are
+	 *            always revalidated.
+	 */
+	public LinkCheckCache(File cacheDir, long maxAge) {
+		this.storeFile = new File(cacheDir, FILE_NAME);
+		this.maxAge = Math.max(0, maxAge);
+	}
+
+	/**
+	 * Creates a cache and loads any entries stored in the given directory.
+	 * 
+	 * @param cacheDir
+	 *            The directory in which the cache file is stored (it will be
+	 *            created if it does not exist).
+	 * @param maxAge
+	 *            The maximum age (ms) of a fresh entry.
+	 * @return A LinkCheckCache instance.
+	 * @throws IOException
+	 *             If the cache file could not be read.
+	 */
+	public static LinkCheckCache load(File cacheDir, long maxAge)
+			throws IOException {
+		LinkCheckCache cache = new LinkCheckCache(cacheDir, maxAge);
+		readEntries(cache.storeFile, cache.entries);
+		return cache;
+	}
+
+	/**
+	 * Writes all entries to the cache file, merging them with any entries
+	 * saved by other test runs in the meantime. Stale entries that have no
+	 * validator are not retained. The file is replaced atomically.
+	 * 
+	 * @throws IOException
+	 *             If the cache file could not be written.
+	 */
+	public void save() throws IOException {
+		File cacheDir = storeFile.getParentFile();
+		if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+			throw new IOException("Failed to create cache directory: "
+					+ cacheDir);
+		}
+		File lockFile = new File(cacheDir, LOCK_FILE_NAME);
+		try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw");
+				FileChannel channel = raf.getChannel();
+				FileLock lock = channel.lock()) {
+			Map<String, Entry> merged = new HashMap<>();
+			readEntries(storeFile, merged);
+			for (Map.Entry<String, Entry> item : entries.entrySet()) {
+				Entry saved = merged.get(item.getKey());
+				if (null == saved
+						|| saved.getCheckedAt() <= item.getValue()
+								.getCheckedAt()) {
+					merged.put(item.getKey(), item.getValue());
+				}
+			}
+			writeEntries(merged);
+		}
+	}
+
+	private void writeEntries(Map<String, Entry> merged) throws IOException {
+		File tmpFile = File.createTempFile("link-checks", ".tmp",
+				storeFile.getParentFile());
+		try (BufferedWriter writer = Files.newBufferedWriter(tmpFile.toPath(),
+				StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, Entry> item : merged.entrySet()) {
+				Entry entry = item.getValue();
+				if (isExpired(entry)) {
+					continue;
+				}
+				writer.write(String.format("%s\t%d\t%s\t%s\t%s\t%s\t%d",
+						item.getKey(), entry.getStatus(),
+						value(entry.getContentType()),
+						value(entry.getLocation()), value(entry.getETag()),
+						value(entry.getLastModified()), entry.getCheckedAt()));
+				writer.newLine();
+			}
+		}
+		Files.move(tmpFile.toPath(), storeFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads the entries stored in the given file. Corrupt entries are skipped.
+	 * 
+	 * @param file
+	 *            A cache file (it need not exist).
+	 * @param entries
+	 *            The map to which the entries are added.
+	 * @throws IOException
+	 *             If the file could not be read.
+	 */
+	private static void readEntries(File file, Map<String, Entry> entries)
+			throws IOException {
+		if (!file.isFile()) {
+			return;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(),
+				StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t");
+				if (fields.length != 7) {
+					continue;
+				}
+				try {
+					Entry entry = new Entry(Integer.parseInt(fields[1]),
+							field(fields[2]), field(fields[3]),
+							field(fields[4]), field(fields[5]),
+							Long.parseLong(fields[6]));
+					entries.put(fields[0], entry);
+				} catch (NumberFormatException nfe) {
+					TestSuiteLogger.log(Level.FINE,
+							"Skipping corrupt link cache entry: " + line);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the cached entry for the given key.
+	 * 
+	 * @param key
+	 *            A cache key (usually the request method and URI).
+	 * @return The entry, or null if there is none.
+	 */
+	public Entry get(String key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * Adds or replaces an entry.
+	 * 
+	 * @param key
+	 *            A cache key.
+	 * @param entry
+	 *            The entry to store.
+	 */
+	public void put(String key, Entry entry) {
+		entries.put(key, entry);
+	}
+
+	/**
+	 * Determines whether or not a response status is definitive, such that the
+	 * outcome of a link check can be cached. Server errors and client errors
+	 * that indicate a transient condition (408 Request Timeout, 425 Too Early,
+	 * 429 Too Many Requests) are not definitive.
+	 * 
+	 * @param status
+	 *            A response status code.
+	 * @return true if the status code may be cached; false otherwise.
+	 */
+	public static boolean isDefinitive(int status) {
+		if (status < HttpURLConnection.HTTP_OK
+				|| status >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+			return false;
+		}
+		switch (status) {
+		case HttpURLConnection.HTTP_NOT_MODIFIED:
+		case HttpURLConnection.HTTP_CLIENT_TIMEOUT:
+		case 425:
+		case 429:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Determines whether or not an entry can be used without revalidation.
+	 * 
+	 * @param entry
+	 *            A cached entry.
+	 * @return true if the entry is fresh; false if it is stale.
+	 */
+	public boolean isFresh(Entry entry) {
+		return System.currentTimeMillis() - entry.getCheckedAt() < maxAge;
+	}
+
+	/**
+	 * Determines whether or not an entry is of no further use: it is stale and
+	 * cannot be revalidated by means of a conditional request.
+	 * 
+	 * @param entry
+	 *            A cached entry.
+	 * @return true if the entry has expired; false otherwise.
+	 */
+	boolean isExpired(Entry entry) {
+		return !isFresh(entry) && !entry.hasValidator();
+	}
+
+	/**
+	 * Records that a fresh entry was used.
+	 */
+	public void recordHit() {
+		hits.incrementAndGet();
+	}
+
+	/**
+	 * Records that a stale entry was successfully revalidated (the server
+	 * responded with status code 304).
+	 */
+	public void recordRevalidation() {
+		revalidations.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of entries in the cache.
+	 * 
+	 * @return The cache size.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"Link check cache at %s: %d entries, %d hits, %d revalidated",
+				storeFile, entries.size(), hits.get(), revalidations.get());
+	}
+
+	private static String field(String value) {
+		return value.equals(EMPTY) ? null : value;
+	}
+
+	private static String value(String field) {
+		if (null == field || field.isEmpty()) {
+			return EMPTY;
+		}
+		return field.replaceAll("[\\t\\r\\n]", " ");
+	}
+
+	/**
+	 * An immutable record of the outcome of a link check.
+	 */
+	public static final class Entry {
+
+		private final int status;
+		private final String contentType;
+		private final String location;
+		private final String eTag;
+		private final String lastModified;
+		private final long checkedAt;
+
+		/**
+		 * Constructs a cache entry.
+		 * 
+		 * @param status
+		 *            The response status code.
+		 * @param contentType
+		 *            The value of the Content-Type header (may be null).
+		 * @param location
+		 *            The value of the Location header (may be null).
+		 * @param eTag
+		 *            The value of the ETag header (may be null).
+		 * @param lastModified
+		 *            The value of the Last-Modified header (may be null).
+		 * @param checkedAt
+		 *            The time at which the resource was last checked (ms since
+		 *            the epoch).
+		 */
+		public Entry(int status, String contentType, String location,
+				String eTag, String lastModified, long checkedAt) {
+			this.status = status;
+			this.contentType = contentType;
+			this.location = location;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.checkedAt = checkedAt;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getLocation() {
+			return location;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		public long getCheckedAt() {
+			return checkedAt;
+		}
+
+		/**
+		 * Indicates whether or not the entry can be revalidated using a
+		 * conditional request.
+		 * 
+		 * @return true if an ETag or Last-Modified value is available.
+		 */
+		public boolean hasValidator() {
+			return null != eTag || null != lastModified;
+		}
+
+		/**
+		 * Returns a copy of this entry with an updated check time.
+		 * 
+		 * @param time
+		 *            The time of revalidation (ms since the epoch).
+		 * @return A new Entry object.
+		 */
+		public Entry revalidatedAt(long time) {
+			return new Entry(status, contentType, location, eTag,
+					lastModified, time);
+		}
+	}
+}
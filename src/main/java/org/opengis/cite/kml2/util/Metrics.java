@@ -0,0 +1,526 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records where time goes during a test run: the wall time of each test
+ * method and the number of target elements it checked; call counts and
+ * latency histograms for validators, Schematron schemas, XPath expressions,
+ * and HTTP probes; and the hit rates of the various caches. Recording a
+ * timing only entails a few atomic updates, so the metrics are always
+ * collected.
+ *
+ * <p>
+ * The metrics are published by the {@link org.opengis.cite.kml2.TestRunListener
+ * TestRunListener}: they are exposed via JMX (see {@link MetricsMXBean}) and
+ * written in JSON format to a file named {@value #SUMMARY_FILE} alongside the
+ * TestNG results.
+ * </p>
+ *
+ * <p>
+ * Each test run collects its own metrics (see {@link #forTestRun()}), which
+ * are bound to the threads that perform the run (see {@link #bind(Metrics)})
+ * and are written to the summary file. Everything recorded by a test run is
+ * also added to the shared instance, which covers all test runs in the JVM
+ * (in batch or daemon mode there may be several at the same time) and is the
+ * one exposed via JMX; it is only reset on request.
+ * </p>
+ */
+public class Metrics implements MetricsMXBean {
+
+	/** The name under which the metrics are registered with JMX. */
+	public static final String OBJECT_NAME = "org.opengis.cite.kml2:type=Metrics";
+	/** The name of the JSON summary file. */
+	public static final String SUMMARY_FILE = "metrics.json";
+	/** Category: test methods. */
+	public static final String TEST = "test";
+	/** Category: validators (by class name). */
+	public static final String VALIDATOR = "validator";
+	/** Category: Schematron schemas (by file name and phase). */
+	public static final String SCHEMATRON = "schematron";
+	/** Category: XPath expressions. */
+	public static final String XPATH = "xpath";
+	/** Category: HTTP probes (by host name). */
+	public static final String HTTP = "http";
+	/**
+	 * The maximum number of distinct timers; additional timings are recorded
+	 * under the name {@value #OTHER}.
+	 */
+	static final int MAX_TIMERS = 1000;
+	/** The name of the timer that aggregates excess timings. */
+	static final String OTHER = "(other)";
+	/** The number of histogram buckets (powers of two, in microseconds). */
+	static final int BUCKETS = 32;
+	private static final Metrics INSTANCE = new Metrics();
+	private static final ThreadLocal<Metrics> CURRENT = new ThreadLocal<>();
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, AtomicLong> elementCounts = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, CacheStats> caches = new ConcurrentHashMap<>();
+	private final Metrics parent;
+	private volatile long startTime = System.currentTimeMillis();
+
+	/**
+	 * Creates an empty, stand-alone set of metrics.
+	 */
+	public Metrics() {
+		this(null);
+	}
+
+	private Metrics(Metrics parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * Creates the metrics of a test run. Everything recorded in them is also
+	 * added to the shared instance.
+	 *
+	 * @return A new Metrics instance.
+	 */
+	public static Metrics forTestRun() {
+		return new Metrics(INSTANCE);
+	}
+
+	/**
+	 * Returns the metrics of the test run performed by the current thread, or
+	 * the shared instance if no test run metrics are bound to it.
+	 *
+	 * @return The Metrics instance in which to record activity.
+	 */
+	public static Metrics getInstance() {
+		Metrics metrics = CURRENT.get();
+		return (null != metrics) ? metrics : INSTANCE;
+	}
+
+	/**
+	 * Binds the metrics of a test run to the current thread.
+	 *
+	 * @param metrics
+	 *            The metrics of a test run, or null to unbind them.
+	 * @return The metrics previously bound to the current thread (may be
+	 *         null).
+	 */
+	public static Metrics bind(Metrics metrics) {
+		Metrics previous = CURRENT.get();
+		if (null == metrics) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(metrics);
+		}
+		return previous;
+	}
+
+	/**
+	 * Registers the shared instance with the platform MBean server (if it is
+	 * not already registered).
+	 */
+	public static void registerMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			synchronized (Metrics.class) {
+				if (!server.isRegistered(name)) {
+					server.registerMBean(INSTANCE, name);
+				}
+			}
+		} catch (JMException | SecurityException e) {
+			TestSuiteLogger.log(Level.WARNING,
+					"Failed to register metrics MBean.", e);
+		}
+	}
+
+	/**
+	 * Records the time elapsed since the given instant.
+	 *
+	 * @param category
+	 *            The category of the timed activity (e.g. {@link #VALIDATOR}).
+	 * @param name
+	 *            The name of the timed activity.
+	 * @param startNanos
+	 *            The value of {@link System#nanoTime()} when the activity
+	 *            started.
+	 */
+	public void record(String category, String name, long startNanos) {
+		recordElapsed(category, name, System.nanoTime() - startNanos);
+	}
+
+	private void recordElapsed(String category, String name, long elapsed) {
+		String key = category + ':' + name;
+		Timer timer = timers.get(key);
+		if (null == timer) {
+			if (timers.size() >= MAX_TIMERS) {
+				key = category + ':' + OTHER;
+			}
+			timers.putIfAbsent(key, new Timer());
+			timer = timers.get(key);
+		}
+		timer.record(elapsed);
+		if (null != parent) {
+			parent.recordElapsed(category, name, elapsed);
+		}
+	}
+
+	/**
+	 * Records the number of target elements checked by a test method.
+	 *
+	 * @param test
+	 *            The name of a test method.
+	 * @param count
+	 *            The number of elements.
+	 */
+	public void recordElements(String test, long count) {
+		AtomicLong counter = elementCounts.get(test);
+		if (null == counter) {
+			elementCounts.putIfAbsent(test, new AtomicLong());
+			counter = elementCounts.get(test);
+		}
+		counter.addAndGet(count);
+		if (null != parent) {
+			parent.recordElements(test, count);
+		}
+	}
+
+	/**
+	 * Records a cache lookup.
+	 *
+	 * @param cache
+	 *            The name of the cache.
+	 * @param hit
+	 *            true if the entry was found; false otherwise.
+	 */
+	public void recordCacheAccess(String cache, boolean hit) {
+		CacheStats stats = caches.get(cache);
+		if (null == stats) {
+			caches.putIfAbsent(cache, new CacheStats());
+			stats = caches.get(cache);
+		}
+		(hit ? stats.hits : stats.misses).incrementAndGet();
+		if (null != parent) {
+			parent.recordCacheAccess(cache, hit);
+		}
+	}
+
+	@Override
+	public void reset() {
+		timers.clear();
+		elementCounts.clear();
+		caches.clear();
+		startTime = System.currentTimeMillis();
+	}
+
+	@Override
+	public long getStartTime() {
+		return startTime;
+	}
+
+	@Override
+	public List<TimerStats> getTimers() {
+		List<TimerStats> stats = new ArrayList<>();
+		for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+			String key = entry.getKey();
+			int sep = key.indexOf(':');
+			stats.add(new TimerStats(key.substring(0, sep), key
+					.substring(sep + 1), entry.getValue()));
+		}
+		Collections.sort(stats, new Comparator<TimerStats>() {
+			@Override
+			public int compare(TimerStats s1, TimerStats s2) {
+				int cmp = s1.getCategory().compareTo(s2.getCategory());
+				if (cmp == 0) {
+					cmp = Long.compare(s2.totalNanos, s1.totalNanos);
+				}
+				return cmp;
+			}
+		});
+		return stats;
+	}
+
+	@Override
+	public Map<String, Long> getElementCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		for (Map.Entry<String, AtomicLong> entry : elementCounts.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+
+	@Override
+	public Map<String, Double> getCacheHitRates() {
+		Map<String, Double> rates = new TreeMap<>();
+		for (Map.Entry<String, CacheStats> entry : caches.entrySet()) {
+			rates.put(entry.getKey(), entry.getValue().getHitRate());
+		}
+		return rates;
+	}
+
+	/**
+	 * Writes a summary of the metrics to a file in JSON format. Timings are
+	 * grouped by category and sorted by decreasing total time.
+	 *
+	 * @param file
+	 *            The destination file (it is replaced if it exists).
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public void writeSummary(File file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file.toPath(),
+				StandardCharsets.UTF_8)) {
+			writer.write(toJSON());
+		}
+	}
+
+	/**
+	 * Returns a summary of the metrics as a JSON object.
+	 *
+	 * @return A JSON string.
+	 */
+	public String toJSON() {
+		SimpleDateFormat dateFormat = new SimpleDateFormat(
+				"yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		Map<String, Long> elements = getElementCounts();
+		StringBuilder json = new StringBuilder("{\n");
+		json.append("  \"startTime\": ")
+				.append(quote(dateFormat.format(new Date(startTime))))
+				.append(",\n");
+		json.append("  \"elapsedMillis\": ")
+				.append(System.currentTimeMillis() - startTime).append(",\n");
+		json.append("  \"timers\": {");
+		String category = null;
+		for (TimerStats stats : getTimers()) {
+			if (!stats.getCategory().equals(category)) {
+				json.append((null == category) ? "\n" : "\n    ],\n");
+				category = stats.getCategory();
+				json.append("    ").append(quote(category)).append(": [\n");
+			} else {
+				json.append(",\n");
+			}
+			json.append("      {\"name\": ").append(quote(stats.getName()));
+			json.append(", \"count\": ").append(stats.getCount());
+			json.append(", \"totalMillis\": ").append(
+					String.format(Locale.ROOT, "%.3f", stats.getTotalMillis()));
+			json.append(", \"meanMicros\": ").append(stats.getMeanMicros());
+			json.append(", \"maxMicros\": ").append(stats.getMaxMicros());
+			json.append(", \"p50Micros\": ").append(stats.getP50Micros());
+			json.append(", \"p90Micros\": ").append(stats.getP90Micros());
+			json.append(", \"p99Micros\": ").append(stats.getP99Micros());
+			if (category.equals(TEST) && elements.containsKey(stats.getName())) {
+				json.append(", \"elements\": ").append(
+						elements.get(stats.getName()));
+			}
+			json.append(", \"histogram\": {");
+			long[] buckets = stats.buckets;
+			boolean first = true;
+			for (int i = 0; i < buckets.length; i++) {
+				if (buckets[i] == 0) {
+					continue;
+				}
+				json.append(first ? "" : ", ").append('"').append("le")
+						.append(upperBound(i)).append("us\": ")
+						.append(buckets[i]);
+				first = false;
+			}
+			json.append("}}");
+		}
+		json.append((null == category) ? "},\n" : "\n    ]\n  },\n");
+		json.append("  \"caches\": [");
+		boolean first = true;
+		for (Map.Entry<String, CacheStats> entry : new TreeMap<>(caches)
+				.entrySet()) {
+			CacheStats stats = entry.getValue();
+			json.append(first ? "\n" : ",\n");
+			json.append("    {\"name\": ").append(quote(entry.getKey()));
+			json.append(", \"hits\": ").append(stats.hits.get());
+			json.append(", \"misses\": ").append(stats.misses.get());
+			json.append(", \"hitRate\": ").append(
+					String.format(Locale.ROOT, "%.4f", stats.getHitRate()));
+			json.append('}');
+			first = false;
+		}
+		json.append(first ? "]\n" : "\n  ]\n").append("}\n");
+		return json.toString();
+	}
+
+	/**
+	 * Returns the (exclusive) upper bound of a histogram bucket.
+	 *
+	 * @param bucket
+	 *            A bucket index.
+	 * @return A duration in microseconds.
+	 */
+	static long upperBound(int bucket) {
+		return 1L << bucket;
+	}
+
+	private static String quote(String str) {
+		StringBuilder quoted = new StringBuilder(str.length() + 2);
+		quoted.append('"');
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+			case '"':
+			case '\\':
+				quoted.append('\\').append(c);
+				break;
+			case '\n':
+				quoted.append("\\n");
+				break;
+			case '\r':
+				quoted.append("\\r");
+				break;
+			case '\t':
+				quoted.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					quoted.append(String.format("\\u%04x", (int) c));
+				} else {
+					quoted.append(c);
+				}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Accumulates the durations of an activity. Durations are counted in
+	 * buckets whose upper bounds are successive powers of two (in
+	 * microseconds); the last bucket also counts all longer durations.
+	 */
+	private static class Timer {
+
+		final AtomicLong count = new AtomicLong();
+		final AtomicLong totalNanos = new AtomicLong();
+		final AtomicLong maxNanos = new AtomicLong();
+		final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+		void record(long nanos) {
+			count.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			long max = maxNanos.get();
+			while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+				max = maxNanos.get();
+			}
+			long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+			int bucket = 64 - Long.numberOfLeadingZeros(micros);
+			buckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+		}
+	}
+
+	private static class CacheStats {
+
+		final AtomicLong hits = new AtomicLong();
+		final AtomicLong misses = new AtomicLong();
+
+		double getHitRate() {
+			long h = hits.get();
+			long total = h + misses.get();
+			return (total > 0) ? (double) h / total : 0.0;
+		}
+	}
+
+	/**
+	 * A snapshot of the statistics recorded by a timer.
+	 */
+	public static class TimerStats {
+
+		private final String category;
+		private final String name;
+		private final long count;
+		private final long totalNanos;
+		private final long maxNanos;
+		private final long[] buckets = new long[BUCKETS];
+
+		TimerStats(String category, String name, Timer timer) {
+			this.category = category;
+			this.name = name;
+			this.count = timer.count.get();
+			this.totalNanos = timer.totalNanos.get();
+			this.maxNanos = timer.maxNanos.get();
+			for (int i = 0; i < BUCKETS; i++) {
+				buckets[i] = timer.buckets.get(i);
+			}
+		}
+
+		public String getCategory() {
+			return category;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getTotalMillis() {
+			return totalNanos / 1e6;
+		}
+
+		public long getMeanMicros() {
+			return (count > 0) ? TimeUnit.NANOSECONDS.toMicros(totalNanos
+					/ count) : 0;
+		}
+
+		public long getMaxMicros() {
+			return TimeUnit.NANOSECONDS.toMicros(maxNanos);
+		}
+
+		public long getP50Micros() {
+			return percentile(0.50);
+		}
+
+		public long getP90Micros() {
+			return percentile(0.90);
+		}
+
+		public long getP99Micros() {
+			return percentile(0.99);
+		}
+
+		/**
+		 * Estimates a percentile as the upper bound of the bucket in which it
+		 * falls (but no more than the maximum duration).
+		 */
+		private long percentile(double fraction) {
+			long total = 0;
+			for (long n : buckets) {
+				total += n;
+			}
+			long rank = (long) Math.ceil(fraction * total);
+			long cumulative = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				cumulative += buckets[i];
+				if (cumulative >= rank && cumulative > 0) {
+					return Math.min(upperBound(i), getMaxMicros());
+				}
+			}
+			return getMaxMicros();
+		}
+	}
+}
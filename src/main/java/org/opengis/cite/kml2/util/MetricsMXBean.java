@@ -0,0 +1,47 @@
+package org.opengis.cite.kml2.util;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The management interface of the {@link Metrics} collected during a test
+ * run. It is registered with the platform MBean server under the name
+ * {@value Metrics#OBJECT_NAME}, so that the metrics can be inspected (e.g.
+ * using JConsole) while tests are running.
+ */
+public interface MetricsMXBean {
+
+	/**
+	 * Returns the time at which the metrics were last reset.
+	 *
+	 * @return The start time (ms since the epoch).
+	 */
+	long getStartTime();
+
+	/**
+	 * Returns a summary of all recorded timings.
+	 *
+	 * @return A list of timer statistics, sorted by category and by decreasing
+	 *         total time.
+	 */
+	List<Metrics.TimerStats> getTimers();
+
+	/**
+	 * Returns the number of target elements checked by each test method.
+	 *
+	 * @return A map of element counts keyed by test name.
+	 */
+	Map<String, Long> getElementCounts();
+
+	/**
+	 * Returns the hit rate of each cache.
+	 *
+	 * @return A map of hit rates (0.0 - 1.0) keyed by cache name.
+	 */
+	Map<String, Double> getCacheHitRates();
+
+	/**
+	 * Discards all metrics.
+	 */
+	void reset();
+}
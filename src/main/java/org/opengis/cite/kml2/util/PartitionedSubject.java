@@ -0,0 +1,672 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.opengis.cite.kml2.KML2;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * A KML document that has been split into partitions so that it can be tested
+ * without building a DOM for the whole document. The document is read in a
+ * single streaming pass and cut at the boundaries between the children of the
+ * top-level container (the first kml:Document or kml:Folder element that is a
+ * child of the document element). Consecutive children are grouped until the
+ * number of elements in a partition reaches the given size; a child is never
+ * split, so the largest partition may be bigger than that.
+ *
+ * <p>
+ * Every partition is a well-formed KML document that is stored in a temporary
+ * file. The first partition contains everything that precedes the second one
+ * in the original document; the others contain a copy of the kml:kml and
+ * container start tags followed by a group of children (and, in the last
+ * partition, the elements that follow the container). A partition is parsed
+ * on demand (see {@link #getDocument(int)}) and may be discarded as soon as
+ * it has been checked.
+ * </p>
+ *
+ * <p>
+ * A small amount of global context is carried across partitions:
+ * </p>
+ * <ul>
+ * <li>the elements that occur in each partition, and the number of elements
+ * with the same name that precede it in the original document; the latter is
+ * used to build XPointer expressions that refer to the original document (see
+ * {@link XMLUtils#buildXPointer(Node)});</li>
+ * <li>a context document that contains copies of all shared styles and custom
+ * schemas (kml:Style, kml:StyleMap, and kml:Schema elements in a kml:Document)
+ * along with its {@link IdIndex}.</li>
+ * </ul>
+ */
+public class PartitionedSubject {
+
+	/** Default partition size (number of elements). */
+	public static final int DEFAULT_PARTITION_SIZE = 100000;
+	private static final Map<Document, Partition> REGISTRY = Collections
+			.synchronizedMap(new WeakHashMap<Document, Partition>());
+	private static final Set<String> SHARED_RESOURCES = new HashSet<>();
+	static {
+		SHARED_RESOURCES.add("Style");
+		SHARED_RESOURCES.add("StyleMap");
+		SHARED_RESOURCES.add("Schema");
+	}
+	private final File dir;
+	private final String documentURI;
+	private final List<Partition> partitions = new ArrayList<>();
+	private final Map<String, Integer> elementCounts = new HashMap<>();
+	private File contextFile;
+	private Document contextDoc;
+	private String coordinateStore;
+
+	private PartitionedSubject(File dir, String documentURI) {
+		this.dir = dir;
+		this.documentURI = documentURI;
+	}
+
+	/**
+	 * Splits a KML document into partitions. The partition files are written
+	 * to a new temporary directory.
+	 *
+	 * @param kmlFile
+	 *            A file containing a KML document.
+	 * @param partitionSize
+	 *            The number of elements at which a partition is cut.
+	 * @return A PartitionedSubject representing the document.
+	 * @throws IOException
+	 *             If the document cannot be read or a partition cannot be
+	 *             written.
+	 * @throws XMLStreamException
+	 *             If the document is not well-formed.
+	 */
+	public static PartitionedSubject split(File kmlFile, int partitionSize)
+			throws IOException, XMLStreamException {
+		File dir = Files.createTempDirectory("kml-partitions").toFile();
+		PartitionedSubject subject = new PartitionedSubject(dir, kmlFile
+				.toURI().toString());
+		long startTime = System.nanoTime();
+		try (InputStream in = new BufferedInputStream(new FileInputStream(
+				kmlFile))) {
+			new Splitter(subject, Math.max(partitionSize, 1)).split(in,
+					kmlFile.toURI().toString());
+		} catch (IOException | XMLStreamException | RuntimeException e) {
+			subject.delete();
+			throw e;
+		}
+		Metrics.getInstance().record(Metrics.VALIDATOR, "PartitionedSubject",
+				startTime);
+		TestSuiteLogger.log(Level.CONFIG, subject.toString());
+		return subject;
+	}
+
+	/**
+	 * Returns the partition that contains the given node.
+	 *
+	 * @param node
+	 *            A node in a partition document.
+	 * @return The partition, or null if the owner document is not a partition.
+	 */
+	static Partition lookup(Node node) {
+		if (null == node) {
+			return null;
+		}
+		Document doc = (node.getNodeType() == Node.DOCUMENT_NODE)
+				? (Document) node : node.getOwnerDocument();
+		return (null != doc) ? REGISTRY.get(doc) : null;
+	}
+
+	/**
+	 * Returns the number of elements with the same name as the given element
+	 * that precede the partition containing it in the original document. This
+	 * value must be added to the position of the element in the partition to
+	 * obtain its position in the original document.
+	 *
+	 * @param elem
+	 *            An element in a partition document.
+	 * @return The ordinal offset (0 if the element is not in a partition).
+	 */
+	public static int getOrdinalOffset(Node elem) {
+		Partition partition = lookup(elem);
+		if (null == partition) {
+			return 0;
+		}
+		Integer offset = partition.offsets.get(qualifiedName(
+				elem.getNamespaceURI(), elem.getLocalName()));
+		return (null != offset) ? offset : 0;
+	}
+
+	/**
+	 * Indicates whether or not the given element is a copy of an element that
+	 * belongs to a preceding partition: the document element or the top-level
+	 * container in any partition except the first one.
+	 *
+	 * @param elem
+	 *            An element in a partition document.
+	 * @return true if the element is a copy; false otherwise.
+	 */
+	public static boolean isCopy(Node elem) {
+		Partition partition = lookup(elem);
+		if (null == partition || partition.index == 0) {
+			return false;
+		}
+		Element docElem = elem.getOwnerDocument().getDocumentElement();
+		if (elem == docElem) {
+			return true;
+		}
+		if (elem.getParentNode() != docElem) {
+			return false;
+		}
+		for (Node child = docElem.getFirstChild(); null != child; child = child
+				.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE) {
+				return child == elem;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the context document associated with the given partition
+	 * document.
+	 *
+	 * @param doc
+	 *            A Document node.
+	 * @return The context document containing the shared styles and custom
+	 *         schemas, or null if the document is not a partition.
+	 * @throws IOException
+	 *             If the context document cannot be read.
+	 * @throws SAXException
+	 *             If the context document cannot be parsed.
+	 */
+	public static Document lookupContextDocument(Document doc)
+			throws SAXException, IOException {
+		Partition partition = lookup(doc);
+		return (null != partition) ? partition.subject.getContextDocument()
+				: null;
+	}
+
+	/**
+	 * Returns the number of partitions.
+	 *
+	 * @return The partition count (at least 1).
+	 */
+	public int size() {
+		return partitions.size();
+	}
+
+	/**
+	 * Returns the URI of the original document. Partition documents have the
+	 * same document URI, so relative references are resolved as usual.
+	 *
+	 * @return An absolute URI.
+	 */
+	public String getDocumentURI() {
+		return documentURI;
+	}
+
+	/**
+	 * Parses a partition. A new Document is returned every time, and an
+	 * {@link IdIndex} is registered for it.
+	 *
+	 * @param index
+	 *            The partition index (zero-based).
+	 * @return A Document representing the partition.
+	 * @throws SAXException
+	 *             If the partition cannot be parsed.
+	 * @throws IOException
+	 *             If the partition file cannot be read.
+	 */
+	public Document getDocument(int index) throws SAXException, IOException {
+		Partition partition = partitions.get(index);
+		Document doc = (Document) URIUtils.parseURI(partition.file.toURI());
+		doc.setDocumentURI(documentURI);
+		IdIndex.register(doc);
+		CoordinateStore.enable(doc, coordinateStore);
+		REGISTRY.put(doc, partition);
+		return doc;
+	}
+
+	/**
+	 * Sets the mode of the {@link CoordinateStore} enabled for every
+	 * partition document that is subsequently parsed.
+	 *
+	 * @param mode
+	 *            {@value CoordinateStore#DIRECT}, {@value
+	 *            CoordinateStore#MAPPED}, or null if coordinates are to be
+	 *            kept on the heap.
+	 */
+	public void setCoordinateStore(String mode) {
+		this.coordinateStore = mode;
+	}
+
+	/**
+	 * Returns the indexes of the partitions that contain at least one KML
+	 * element with one of the given names. Copies of preceding elements are
+	 * not taken into account.
+	 *
+	 * @param localNames
+	 *            A list of KML element names.
+	 * @return A list of partition indexes in ascending order (may be empty).
+	 */
+	public List<Integer> findPartitions(String... localNames) {
+		List<Integer> indexes = new ArrayList<>();
+		for (Partition partition : partitions) {
+			for (String localName : localNames) {
+				if (partition.names.contains(qualifiedName(KML2.NS_NAME,
+						localName))) {
+					indexes.add(partition.index);
+					break;
+				}
+			}
+		}
+		return indexes;
+	}
+
+	/**
+	 * Returns the number of KML elements with the given name in the original
+	 * document.
+	 *
+	 * @param localName
+	 *            A KML element name.
+	 * @return The element count.
+	 */
+	public int getElementCount(String localName) {
+		Integer count = elementCounts.get(qualifiedName(KML2.NS_NAME,
+				localName));
+		return (null != count) ? count : 0;
+	}
+
+	/**
+	 * Returns a document that contains copies of all shared styles and custom
+	 * schemas, regardless of the partition in which they occur. The document is
+	 * parsed when it is first requested; an {@link IdIndex} is registered for
+	 * it.
+	 *
+	 * @return A Document (kml:kml/kml:Document) that has the same document URI
+	 *         as the original document.
+	 * @throws SAXException
+	 *             If the context document cannot be parsed.
+	 * @throws IOException
+	 *             If the context document cannot be read.
+	 */
+	public synchronized Document getContextDocument() throws SAXException,
+			IOException {
+		if (null == contextDoc) {
+			contextDoc = (Document) URIUtils.parseURI(contextFile.toURI());
+			contextDoc.setDocumentURI(documentURI);
+			IdIndex.register(contextDoc);
+		}
+		return contextDoc;
+	}
+
+	/**
+	 * Deletes the partition files.
+	 */
+	public void delete() {
+		File[] files = dir.listFiles();
+		if (null != files) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Override
+	public String toString() {
+		long total = 0;
+		for (Integer count : elementCounts.values()) {
+			total += count;
+		}
+		return String.format(
+				"Partitioned subject: %d elements in %d partitions (%s)",
+				total, partitions.size(), documentURI);
+	}
+
+	static String qualifiedName(String nsURI, String localName) {
+		return (null == nsURI || nsURI.isEmpty()) ? localName : "{" + nsURI
+				+ "}" + localName;
+	}
+
+	/**
+	 * A part of the original document stored in a separate file.
+	 */
+	static class Partition {
+
+		final PartitionedSubject subject;
+		final int index;
+		final File file;
+		/** Names of the elements in the partition (excluding copies). */
+		final Set<String> names = new HashSet<>();
+		/** Ordinal offsets by element name. */
+		final Map<String, Integer> offsets;
+
+		Partition(PartitionedSubject subject, int index,
+				Map<String, Integer> offsets) {
+			this.subject = subject;
+			this.index = index;
+			this.file = new File(subject.dir, "partition-" + index + ".kml");
+			this.offsets = offsets;
+		}
+	}
+
+	/**
+	 * A start tag that is repeated at the beginning of every partition.
+	 */
+	private static class StartTag {
+
+		final String prefix;
+		final String localName;
+		final String nsURI;
+		final List<String[]> namespaces = new ArrayList<>();
+		final List<String[]> attributes = new ArrayList<>();
+
+		StartTag(XMLStreamReader reader) {
+			this.prefix = reader.getPrefix();
+			this.localName = reader.getLocalName();
+			this.nsURI = reader.getNamespaceURI();
+			for (int i = 0; i < reader.getNamespaceCount(); i++) {
+				namespaces.add(new String[] { reader.getNamespacePrefix(i),
+						reader.getNamespaceURI(i) });
+			}
+			for (int i = 0; i < reader.getAttributeCount(); i++) {
+				attributes.add(new String[] { reader.getAttributePrefix(i),
+						reader.getAttributeNamespace(i),
+						reader.getAttributeLocalName(i),
+						reader.getAttributeValue(i) });
+			}
+		}
+
+		String getQualifiedName() {
+			return qualifiedName(nsURI, localName);
+		}
+
+		void write(XMLStreamWriter writer) throws XMLStreamException {
+			writeStartElement(writer, prefix, localName, nsURI);
+			for (String[] ns : namespaces) {
+				writeNamespace(writer, ns[0], ns[1]);
+			}
+			for (String[] attr : attributes) {
+				writeAttribute(writer, attr[0], attr[1], attr[2], attr[3]);
+			}
+		}
+	}
+
+	/**
+	 * Reads the original document and writes the partitions.
+	 */
+	private static class Splitter {
+
+		private final PartitionedSubject subject;
+		private final int partitionSize;
+		private final XMLOutputFactory outputFactory = XMLOutputFactory
+				.newInstance();
+		/** Qualified names of the open elements. */
+		private final List<String> openElements = new ArrayList<>();
+		private StartTag rootTag;
+		private StartTag containerTag;
+		private boolean containerClosed;
+		private Partition partition;
+		private OutputStream partitionOut;
+		private XMLStreamWriter writer;
+		private int partitionElements;
+		private XMLStreamWriter contextWriter;
+		/** Depth of the shared resource being copied (0 if none). */
+		private int contextDepth;
+
+		Splitter(PartitionedSubject subject, int partitionSize) {
+			this.subject = subject;
+			this.partitionSize = partitionSize;
+		}
+
+		void split(InputStream in, String systemId) throws IOException,
+				XMLStreamException {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE,
+					Boolean.TRUE);
+			XMLStreamReader reader = factory.createXMLStreamReader(systemId,
+					in);
+			subject.contextFile = new File(subject.dir, "context.kml");
+			// copied resources may use prefixes declared on their ancestors
+			XMLOutputFactory repairingFactory = XMLOutputFactory.newInstance();
+			repairingFactory.setProperty(
+					XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+			try (OutputStream contextOut = new BufferedOutputStream(
+					new FileOutputStream(subject.contextFile))) {
+				contextWriter = repairingFactory.createXMLStreamWriter(
+						contextOut, "UTF-8");
+				try {
+					read(reader);
+				} finally {
+					reader.close();
+				}
+				contextWriter.writeEndDocument();
+				contextWriter.close();
+			}
+			if (null == rootTag) {
+				throw new XMLStreamException("No document element found in "
+						+ systemId);
+			}
+		}
+
+		private void read(XMLStreamReader reader) throws IOException,
+				XMLStreamException {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					startElement(reader);
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					endElement();
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					if (null != writer) {
+						writer.writeCharacters(reader.getTextCharacters(),
+								reader.getTextStart(), reader.getTextLength());
+					}
+					if (contextDepth > 0) {
+						contextWriter.writeCharacters(
+								reader.getTextCharacters(),
+								reader.getTextStart(), reader.getTextLength());
+					}
+					break;
+				case XMLStreamConstants.CDATA:
+					if (null != writer) {
+						writer.writeCData(reader.getText());
+					}
+					if (contextDepth > 0) {
+						contextWriter.writeCData(reader.getText());
+					}
+					break;
+				case XMLStreamConstants.COMMENT:
+					if (null != writer) {
+						writer.writeComment(reader.getText());
+					}
+					break;
+				default:
+					break;
+				}
+			}
+		}
+
+		private void startElement(XMLStreamReader reader) throws IOException,
+				XMLStreamException {
+			String name = qualifiedName(reader.getNamespaceURI(),
+					reader.getLocalName());
+			int depth = openElements.size();
+			if (depth == 0) {
+				rootTag = new StartTag(reader);
+				openPartition(new HashMap<String, Integer>());
+				rootTag.write(writer);
+				rootTag.write(contextWriter);
+				writeStartElement(contextWriter, rootTag.prefix, "Document",
+						KML2.NS_NAME);
+			} else {
+				if (depth == 2 && isContainerChild()
+						&& partitionElements >= partitionSize) {
+					cutPartition();
+				}
+				if (depth == 1 && null == containerTag && isContainer(name)) {
+					containerTag = new StartTag(reader);
+					containerTag.write(writer);
+				} else {
+					copyStartElement(reader, writer);
+				}
+				String parent = openElements.get(depth - 1);
+				if (contextDepth > 0) {
+					contextDepth++;
+					copyStartElement(reader, contextWriter);
+				} else if (parent.equals(qualifiedName(KML2.NS_NAME,
+						"Document"))
+						&& KML2.NS_NAME.equals(reader.getNamespaceURI())
+						&& SHARED_RESOURCES.contains(reader.getLocalName())) {
+					contextDepth = 1;
+					copyStartElement(reader, contextWriter);
+				}
+			}
+			openElements.add(name);
+			partition.names.add(name);
+			partitionElements++;
+			Integer count = subject.elementCounts.get(name);
+			subject.elementCounts.put(name, (null != count) ? count + 1 : 1);
+		}
+
+		private void endElement() throws IOException, XMLStreamException {
+			openElements.remove(openElements.size() - 1);
+			writer.writeEndElement();
+			if (contextDepth > 0) {
+				contextDepth--;
+				contextWriter.writeEndElement();
+			}
+			if (openElements.size() == 1 && null != containerTag) {
+				containerClosed = true;
+			}
+			if (openElements.isEmpty()) {
+				contextWriter.writeEndElement();
+				contextWriter.writeEndElement();
+				closePartition();
+			}
+		}
+
+		private boolean isContainerChild() {
+			return null != containerTag && !containerClosed
+					&& openElements.get(1).equals(
+							containerTag.getQualifiedName());
+		}
+
+		private static boolean isContainer(String name) {
+			return name.equals(qualifiedName(KML2.NS_NAME, "Document"))
+					|| name.equals(qualifiedName(KML2.NS_NAME, "Folder"));
+		}
+
+		/**
+		 * Closes the current partition and begins the next one with copies of
+		 * the document element and container start tags.
+		 */
+		private void cutPartition() throws IOException, XMLStreamException {
+			writer.writeEndElement();
+			writer.writeEndElement();
+			closePartition();
+			Map<String, Integer> offsets = new HashMap<>(subject.elementCounts);
+			offsets.put(rootTag.getQualifiedName(),
+					offsets.get(rootTag.getQualifiedName()) - 1);
+			offsets.put(containerTag.getQualifiedName(),
+					offsets.get(containerTag.getQualifiedName()) - 1);
+			openPartition(offsets);
+			rootTag.write(writer);
+			containerTag.write(writer);
+		}
+
+		private void openPartition(Map<String, Integer> offsets)
+				throws IOException, XMLStreamException {
+			partition = new Partition(subject, subject.partitions.size(),
+					offsets);
+			subject.partitions.add(partition);
+			partitionOut = new BufferedOutputStream(new FileOutputStream(
+					partition.file));
+			writer = outputFactory.createXMLStreamWriter(partitionOut,
+					"UTF-8");
+			writer.writeStartDocument("UTF-8", "1.0");
+			partitionElements = 0;
+		}
+
+		private void closePartition() throws IOException, XMLStreamException {
+			writer.writeEndDocument();
+			writer.close();
+			writer = null;
+			partitionOut.close();
+		}
+
+		private static void copyStartElement(XMLStreamReader reader,
+				XMLStreamWriter writer) throws XMLStreamException {
+			writeStartElement(writer, reader.getPrefix(),
+					reader.getLocalName(), reader.getNamespaceURI());
+			for (int i = 0; i < reader.getNamespaceCount(); i++) {
+				writeNamespace(writer, reader.getNamespacePrefix(i),
+						reader.getNamespaceURI(i));
+			}
+			for (int i = 0; i < reader.getAttributeCount(); i++) {
+				writeAttribute(writer, reader.getAttributePrefix(i),
+						reader.getAttributeNamespace(i),
+						reader.getAttributeLocalName(i),
+						reader.getAttributeValue(i));
+			}
+		}
+	}
+
+	static void writeStartElement(XMLStreamWriter writer, String prefix,
+			String localName, String nsURI) throws XMLStreamException {
+		writer.writeStartElement((null != prefix) ? prefix
+				: XMLConstants.DEFAULT_NS_PREFIX, localName,
+				(null != nsURI) ? nsURI : XMLConstants.NULL_NS_URI);
+	}
+
+	static void writeNamespace(XMLStreamWriter writer, String prefix,
+			String nsURI) throws XMLStreamException {
+		if (null == prefix || prefix.isEmpty()) {
+			writer.writeDefaultNamespace((null != nsURI) ? nsURI
+					: XMLConstants.NULL_NS_URI);
+		} else {
+			writer.writeNamespace(prefix, nsURI);
+		}
+	}
+
+	static void writeAttribute(XMLStreamWriter writer, String prefix,
+			String nsURI, String localName, String value)
+			throws XMLStreamException {
+		if (null == nsURI || nsURI.isEmpty()) {
+			writer.writeAttribute(localName, value);
+		} else {
+			writer.writeAttribute((null != prefix) ? prefix
+					: XMLConstants.DEFAULT_NS_PREFIX, nsURI, localName, value);
+		}
+	}
+}
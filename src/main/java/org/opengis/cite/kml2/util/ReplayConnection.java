@@ -0,0 +1,119 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An HTTP connection that serves a response recorded in an
+ * {@link HttpExchangeArchive} instead of accessing the network. An IOException
+ * is thrown when connecting if no matching response was recorded.
+ */
+class ReplayConnection extends HttpURLConnection {
+
+	private final HttpExchangeArchive archive;
+	private HttpExchangeArchive.Exchange exchange;
+
+	ReplayConnection(URL url, HttpExchangeArchive archive) {
+		super(url);
+		this.archive = archive;
+	}
+
+	@Override
+	public void connect() throws IOException {
+		if (connected) {
+			return;
+		}
+		try {
+			exchange = archive.find(getRequestMethod(), url.toURI(),
+					getRequestProperty("Range"));
+		} catch (URISyntaxException e) {
+			throw new IOException(e);
+		}
+		if (null == exchange) {
+			throw new IOException(String.format(
+					"No recorded response for %s %s in %s",
+					getRequestMethod(), url, archive.getDirectory()));
+		}
+		connected = true;
+	}
+
+	@Override
+	public void disconnect() {
+		connected = false;
+	}
+
+	@Override
+	public boolean usingProxy() {
+		return false;
+	}
+
+	@Override
+	public int getResponseCode() throws IOException {
+		connect();
+		return exchange.getStatus();
+	}
+
+	@Override
+	public String getResponseMessage() throws IOException {
+		connect();
+		return exchange.getReason();
+	}
+
+	@Override
+	public Map<String, List<String>> getHeaderFields() {
+		try {
+			connect();
+		} catch (IOException e) {
+			return super.getHeaderFields();
+		}
+		return exchange.getHeaders();
+	}
+
+	@Override
+	public String getHeaderField(String name) {
+		for (Map.Entry<String, List<String>> field : getHeaderFields()
+				.entrySet()) {
+			if (field.getKey().equalsIgnoreCase(name)
+					&& !field.getValue().isEmpty()) {
+				return field.getValue().get(field.getValue().size() - 1);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		connect();
+		if (exchange.getStatus() >= HTTP_BAD_REQUEST) {
+			throw new FileNotFoundException(url.toString());
+		}
+		return openBody();
+	}
+
+	@Override
+	public InputStream getErrorStream() {
+		if (!connected || exchange.getStatus() < HTTP_BAD_REQUEST) {
+			return null;
+		}
+		try {
+			return openBody();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private InputStream openBody() throws IOException {
+		if (null == exchange.getBody() || getRequestMethod().equals("HEAD")) {
+			return new ByteArrayInputStream(new byte[0]);
+		}
+		return new FileInputStream(exchange.getBody());
+	}
+}
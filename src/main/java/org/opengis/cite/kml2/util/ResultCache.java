@@ -0,0 +1,149 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMSource;
+
+/**
+ * An on-disk store of test results keyed by the content of the test subject.
+ * The key is a SHA-256 digest computed over the bytes of the subject exactly
+ * as it was retrieved (a KMZ archive is hashed as a whole), the level of
+ * conformance assessment, and the version of the test suite. A subject that is
+ * resubmitted without change thus yields the same key, and the stored results
+ * can be returned instead of running the test suite again.
+ *
+ * <p>
+ * Each entry is a copy of the TestNG results document (testng-results.xml)
+ * named <code>${key}.xml</code>. Entries are never expired; note that the
+ * outcome of some tests (e.g. link checks) may change even if the subject
+ * does not, in which case the subject must be revalidated explicitly.
+ * </p>
+ */
+public class ResultCache {
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private final File cacheDir;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constructs a result cache.
+	 *
+	 * @param cacheDir
+	 *            The directory in which cached results are stored (it will be
+	 *            created when the first entry is added).
+	 */
+	public ResultCache(File cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * Computes the cache key for a test run.
+	 *
+	 * @param subject
+	 *            A file containing the representation of the test subject.
+	 * @param level
+	 *            The level of conformance assessment.
+	 * @param version
+	 *            The version of the test suite.
+	 * @return A hexadecimal string (64 characters).
+	 * @throws IOException
+	 *             If the subject cannot be read.
+	 */
+	public static String computeKey(File subject, String level, String version)
+			throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new RuntimeException(nsae);
+		}
+		try (InputStream in = Files.newInputStream(subject.toPath())) {
+			byte[] buffer = new byte[8 * 1024];
+			int bytesRead;
+			while ((bytesRead = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, bytesRead);
+			}
+		}
+		digest.update(String.format("%nlvl=%s%nversion=%s", level, version)
+				.getBytes(StandardCharsets.UTF_8));
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest()) {
+			key.append(String.format("%02x", b & 0xff));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns the cached results for the given key.
+	 *
+	 * @param key
+	 *            A cache key (see {@link #computeKey(File, String, String)}).
+	 * @return A file containing the TestNG results, or null if there is no
+	 *         such entry.
+	 */
+	public File get(String key) {
+		File entry = new File(cacheDir, key + ".xml");
+		if (entry.isFile()) {
+			hits.incrementAndGet();
+			return entry;
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Adds or replaces an entry. The entry file is replaced atomically so that
+	 * concurrent test runs never see a partially written entry.
+	 *
+	 * @param key
+	 *            A cache key.
+	 * @param results
+	 *            The TestNG results (testng-results.xml).
+	 * @return The file containing the cached results.
+	 * @throws IOException
+	 *             If the entry could not be written.
+	 */
+	public File put(String key, Source results) throws IOException {
+		if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+			throw new IOException("Failed to create cache directory: "
+					+ cacheDir);
+		}
+		File entry = new File(cacheDir, key + ".xml");
+		File tmpFile = File.createTempFile("results-", ".tmp", cacheDir);
+		try {
+			if (results instanceof DOMSource) {
+				try (OutputStream out = new FileOutputStream(tmpFile)) {
+					XMLUtils.writeNode(((DOMSource) results).getNode(), out);
+				}
+			} else {
+				File resultsFile = new File(URI.create(results.getSystemId()));
+				Files.copy(resultsFile.toPath(), tmpFile.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+			Files.move(tmpFile.toPath(), entry.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmpFile.toPath());
+		}
+		return entry;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Result cache at %s: %d hits, %d misses",
+				cacheDir, hits.get(), misses.get());
+	}
+}
@@ -0,0 +1,234 @@
+package org.opengis.cite.kml2.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * An immutable snapshot of the test subject that may be shared by any number
+ * of threads. A DOM Document is not safe for concurrent use, even if it is only
+ * read: node lists are cached and deferred nodes are expanded on demand, both
+ * of which modify the internal state of the tree. The snapshot therefore holds
+ * a serialized image of the document from which fully materialized replicas
+ * (without deferred nodes) are built as required. An image larger than
+ * {@value #MAX_IMAGE_IN_MEMORY} bytes is written to a temporary file, which is
+ * removed when the snapshot is {@linkplain #delete() deleted}.
+ *
+ * <p>
+ * Each thread obtains its own replica by calling {@link #getDocument()}; the
+ * replica can then be navigated freely without locking, but it must not be
+ * passed to another thread or modified. A shorthand XPointer index (see
+ * {@link IdIndex}) is registered for every replica, as is a
+ * {@link CoordinateStore} if the test subject has one.
+ * </p>
+ */
+public final class SubjectSnapshot {
+
+	/** Xerces parser feature that controls deferred node expansion. */
+	static final String DEFER_NODE_EXPANSION = "http://apache.org/xml/features/dom/defer-node-expansion";
+	/** The maximum size (bytes) of an image held in memory. */
+	public static final int MAX_IMAGE_IN_MEMORY = 64 * 1024 * 1024;
+	/** The image (null if it was written to a file). */
+	private final byte[] image;
+	/** The file containing the image (null if it is held in memory). */
+	private final File imageFile;
+	private final String documentURI;
+	/** The mode of the coordinate store used by the replicas (or null). */
+	private final String coordinateStore;
+	private final DocumentBuilderFactory factory;
+	private final Map<Thread, Document> replicas = Collections
+			.synchronizedMap(new WeakHashMap<Thread, Document>());
+
+	private SubjectSnapshot(byte[] image, File imageFile, String documentURI,
+			String coordinateStore) {
+		this.image = image;
+		this.imageFile = imageFile;
+		this.documentURI = documentURI;
+		this.coordinateStore = coordinateStore;
+		this.factory = DocumentBuilderFactory.newInstance();
+		this.factory.setNamespaceAware(true);
+		try {
+			this.factory.setFeature(DEFER_NODE_EXPANSION, false);
+		} catch (ParserConfigurationException pce) {
+			TestSuiteLogger.log(Level.CONFIG,
+					"Deferred node expansion cannot be disabled.", pce);
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the given document. The document is locked while it
+	 * is being serialized.
+	 *
+	 * @param doc
+	 *            A Document node (the test subject).
+	 * @return A new SubjectSnapshot instance.
+	 */
+	public static SubjectSnapshot of(Document doc) {
+		return of(doc, MAX_IMAGE_IN_MEMORY);
+	}
+
+	/**
+	 * Takes a snapshot of the given document, writing the image to a file if
+	 * it exceeds the given size.
+	 *
+	 * @param doc
+	 *            A Document node (the test subject).
+	 * @param maxInMemory
+	 *            The maximum size (bytes) of an image held in memory.
+	 * @return A new SubjectSnapshot instance.
+	 */
+	static SubjectSnapshot of(Document doc, int maxInMemory) {
+		DeferredFileOutputStream buffer = new DeferredFileOutputStream(
+				maxInMemory, "subject-", ".xml", null);
+		synchronized (doc) {
+			try {
+				Transformer transformer = TransformerFactory.newInstance()
+						.newTransformer();
+				Properties outProps = new Properties();
+				outProps.setProperty(OutputKeys.METHOD, "xml");
+				outProps.setProperty(OutputKeys.ENCODING, "UTF-8");
+				outProps.setProperty(OutputKeys.INDENT, "no");
+				transformer.setOutputProperties(outProps);
+				try {
+					transformer.transform(new DOMSource(doc), new StreamResult(
+							buffer));
+				} finally {
+					buffer.close();
+				}
+			} catch (TransformerException | IOException ex) {
+				if (null != buffer.getFile()) {
+					buffer.getFile().delete();
+				}
+				throw new RuntimeException("Failed to serialize test subject.",
+						ex);
+			}
+			String coordinateStore = CoordinateStore.getMode(doc);
+			if (buffer.isInMemory()) {
+				return new SubjectSnapshot(buffer.getData(), null,
+						doc.getDocumentURI(), coordinateStore);
+			}
+			buffer.getFile().deleteOnExit();
+			return new SubjectSnapshot(null, buffer.getFile(),
+					doc.getDocumentURI(), coordinateStore);
+		}
+	}
+
+	/**
+	 * Returns the replica that belongs to the current thread. It is built the
+	 * first time this method is invoked on the thread.
+	 *
+	 * @return A Document that is confined to the current thread.
+	 */
+	public Document getDocument() {
+		Thread thread = Thread.currentThread();
+		Document replica = replicas.get(thread);
+		if (null == replica) {
+			replica = newDocument();
+			replicas.put(thread, replica);
+		}
+		return replica;
+	}
+
+	/**
+	 * Builds a new, fully materialized replica of the test subject. The caller
+	 * is responsible for confining it to a single thread.
+	 *
+	 * @return A new Document node.
+	 */
+	public Document newDocument() {
+		Document replica;
+		try {
+			DocumentBuilder builder;
+			synchronized (factory) {
+				builder = factory.newDocumentBuilder();
+			}
+			try (InputStream in = openImage()) {
+				replica = builder.parse(in);
+			}
+		} catch (ParserConfigurationException | SAXException | IOException e) {
+			throw new RuntimeException("Failed to build replica of "
+					+ documentURI, e);
+		}
+		replica.setDocumentURI(documentURI);
+		IdIndex.register(replica);
+		CoordinateStore.enable(replica, coordinateStore);
+		return replica;
+	}
+
+	private InputStream openImage() throws IOException {
+		if (null != image) {
+			return new ByteArrayInputStream(image);
+		}
+		return new BufferedInputStream(new FileInputStream(imageFile));
+	}
+
+	/**
+	 * Returns the URI of the original document.
+	 *
+	 * @return A URI reference (may be null).
+	 */
+	public String getDocumentURI() {
+		return documentURI;
+	}
+
+	/**
+	 * Returns the size of the serialized image.
+	 *
+	 * @return The number of bytes in the image.
+	 */
+	public long getImageSize() {
+		return (null != image) ? image.length : imageFile.length();
+	}
+
+	/**
+	 * Indicates whether the image was written to a (temporary) file.
+	 *
+	 * @return true if the image is held in a file; false if it is held in
+	 *         memory.
+	 */
+	public boolean isImageInFile() {
+		return null != imageFile;
+	}
+
+	/**
+	 * Discards the replicas built so far; they are otherwise retained until
+	 * the threads that own them terminate. A thread that subsequently calls
+	 * {@link #getDocument()} obtains a new replica.
+	 */
+	public void clear() {
+		replicas.clear();
+	}
+
+	/**
+	 * Discards the replicas and deletes the image file (if any). No replica
+	 * can be built afterwards.
+	 */
+	public void delete() {
+		clear();
+		if (null != imageFile) {
+			imageFile.delete();
+		}
+	}
+}
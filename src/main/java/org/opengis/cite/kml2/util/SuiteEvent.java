@@ -0,0 +1,156 @@
+package org.opengis.cite.kml2.util;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+
+/**
+ * A timed event that may be recorded by a profiling tool, such as the JDK
+ * Flight Recorder (JFR). Events are emitted when the test subject is parsed
+ * and validated, when a Schematron schema is checked, and when remote
+ * resources are probed or retrieved, so that a slow schema can be told apart
+ * from a slow host.
+ *
+ * <p>
+ * Events are created by a {@link SuiteEventProvider} that is located using the
+ * {@link ServiceLoader} facility. If there is none (the JFR provider is only
+ * built if the "jfr" profile is active), or if event recording is off,
+ * {@link #begin}
+ * returns a shared event that does nothing. Attribute values that are costly
+ * to compute (e.g. an XPointer) should only be set if the event is
+ * {@link #isEnabled() enabled}.
+ * </p>
+ *
+ * <pre>
+ * SuiteEvent event = SuiteEvent.begin(SuiteEvent.Type.PARSE);
+ * try {
+ *     ...
+ * } finally {
+ *     event.setURI(uri);
+ *     event.commit();
+ * }
+ * </pre>
+ */
+public class SuiteEvent {
+
+	/**
+	 * The kinds of events.
+	 */
+	public enum Type {
+		/** Parsing a KML document (or KMZ archive). */
+		PARSE,
+		/** Validating a KML document against the XML Schema. */
+		SCHEMA_VALIDATION,
+		/** Validating a resource against a Schematron schema. */
+		SCHEMATRON,
+		/** Checking the referent of a kml:Link (or similar) element. */
+		LINK_CHECK,
+		/** Checking that a referenced resource exists. */
+		REFERENT_CHECK,
+		/** Retrieving a remote resource. */
+		DEREFERENCE
+	}
+
+	/** An event that is never recorded. */
+	public static final SuiteEvent DISABLED = new SuiteEvent();
+	private static final SuiteEventProvider PROVIDER = loadProvider();
+
+	/**
+	 * Constructs an event. An event records the time that elapses until it is
+	 * committed.
+	 */
+	protected SuiteEvent() {
+	}
+
+	/**
+	 * Begins an event of the given type.
+	 *
+	 * @param type
+	 *            The event type.
+	 * @return A new event, or {@link #DISABLED} if events of this type are not
+	 *         being recorded.
+	 */
+	public static SuiteEvent begin(Type type) {
+		return (null != PROVIDER) ? PROVIDER.begin(type) : DISABLED;
+	}
+
+	/**
+	 * Indicates whether or not this event will be recorded.
+	 *
+	 * @return true if the event is recorded; false otherwise.
+	 */
+	public boolean isEnabled() {
+		return false;
+	}
+
+	/**
+	 * Sets the URI of the resource involved.
+	 *
+	 * @param uri
+	 *            An absolute URI (may be null).
+	 */
+	public void setURI(String uri) {
+	}
+
+	/**
+	 * Sets the schema used for validation.
+	 *
+	 * @param schema
+	 *            A schema identifier (e.g. a URI, possibly with a phase name
+	 *            appended as a fragment identifier).
+	 */
+	public void setSchema(String schema) {
+	}
+
+	/**
+	 * Sets the location of the element involved.
+	 *
+	 * @param xpointer
+	 *            An XPointer expression.
+	 */
+	public void setXPointer(String xpointer) {
+	}
+
+	/**
+	 * Sets the number of bytes read.
+	 *
+	 * @param bytes
+	 *            The size of the resource.
+	 */
+	public void setBytes(long bytes) {
+	}
+
+	/**
+	 * Sets the outcome of the activity.
+	 *
+	 * @param outcome
+	 *            A brief description (e.g. "valid", "HTTP 404").
+	 */
+	public void setOutcome(String outcome) {
+	}
+
+	/**
+	 * Ends the event and records it.
+	 */
+	public void commit() {
+	}
+
+	private static SuiteEventProvider loadProvider() {
+		try {
+			Iterator<SuiteEventProvider> providers = ServiceLoader.load(
+					SuiteEventProvider.class).iterator();
+			if (providers.hasNext()) {
+				SuiteEventProvider provider = providers.next();
+				TestSuiteLogger.log(Level.CONFIG, "Using event provider: "
+						+ provider.getClass().getName());
+				return provider;
+			}
+		} catch (ServiceConfigurationError | LinkageError e) {
+			// e.g. JFR provider on a JRE that lacks the jdk.jfr module
+			TestSuiteLogger.log(Level.CONFIG, "No event provider available: "
+					+ e.getMessage());
+		}
+		return null;
+	}
+}
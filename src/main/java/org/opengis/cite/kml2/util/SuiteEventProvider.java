@@ -0,0 +1,20 @@
+package org.opengis.cite.kml2.util;
+
+/**
+ * A service provider that creates {@link SuiteEvent} instances for a profiling
+ * tool. A provider is registered in a provider-configuration file named
+ * <code>META-INF/services/org.opengis.cite.kml2.util.SuiteEventProvider</code>.
+ */
+public interface SuiteEventProvider {
+
+	/**
+	 * Begins an event of the given type. This method is invoked frequently, so
+	 * it should return {@link SuiteEvent#DISABLED} as cheaply as possible if
+	 * events of this type are not being recorded.
+	 *
+	 * @param type
+	 *            The event type.
+	 * @return A new event (or a disabled one).
+	 */
+	SuiteEvent begin(SuiteEvent.Type type);
+}
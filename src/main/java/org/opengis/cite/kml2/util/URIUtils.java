@@ -13,13 +13,13 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.opengis.cite.kml2.ReusableEntityFilter;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
-import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientRequest;
 import com.sun.jersey.api.client.ClientResponse;
-import com.sun.jersey.api.client.WebResource;
 
 /**
  * Provides a collection of utility methods for manipulating or resolving URI
@@ -109,25 +109,43 @@ public class URIUtils {
 		if (uriRef.getScheme().equalsIgnoreCase("file")) {
 			return new File(uriRef);
 		}
-		Client client = Client.create();
-		WebResource webRes = client.resource(uriRef);
-		ClientResponse rsp = webRes.get(ClientResponse.class);
+		ClientRequest req = HttpClientUtils.buildGetRequest(uriRef, null);
+		// stream entity to file instead of buffering it in memory
+		req.getProperties().put(ReusableEntityFilter.BUFFER_ENTITY,
+				Boolean.FALSE);
+		SuiteEvent event = SuiteEvent.begin(SuiteEvent.Type.DEREFERENCE);
+		event.setURI(uriRef.toString());
+		ClientResponse rsp;
+		try {
+			rsp = HttpClientUtils.getSharedClient().handle(req);
+		} catch (RuntimeException e) {
+			event.setOutcome(e.getMessage());
+			event.commit();
+			throw e;
+		}
+		event.setOutcome("HTTP " + rsp.getStatus());
 		String suffix = null;
-		if (rsp.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE).endsWith("xml")) {
+		String contentType = rsp.getHeaders().getFirst(
+				HttpHeaders.CONTENT_TYPE);
+		if (null != contentType && contentType.endsWith("xml")) {
 			suffix = ".xml";
 		}
 		File destFile = File.createTempFile("entity-", suffix);
-		if (rsp.hasEntity()) {
-			InputStream is = rsp.getEntityInputStream();
-			OutputStream os = new FileOutputStream(destFile);
-			byte[] buffer = new byte[8 * 1024];
-			int bytesRead;
-			while ((bytesRead = is.read(buffer)) != -1) {
-				os.write(buffer, 0, bytesRead);
+		try {
+			if (rsp.hasEntity()) {
+				try (InputStream is = rsp.getEntityInputStream();
+						OutputStream os = new FileOutputStream(destFile)) {
+					byte[] buffer = new byte[8 * 1024];
+					int bytesRead;
+					while ((bytesRead = is.read(buffer)) != -1) {
+						os.write(buffer, 0, bytesRead);
+					}
+				}
 			}
-			is.close();
-			os.flush();
-			os.close();
+		} finally {
+			rsp.close();
+			event.setBytes(destFile.length());
+			event.commit();
 		}
 		TestSuiteLogger.log(Level.FINE, "Wrote " + destFile.length()
 				+ " bytes to file at " + destFile.getAbsolutePath());
@@ -7,6 +7,10 @@ import java.net.URL;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 
 import javax.xml.XMLConstants;
@@ -37,6 +41,12 @@ public class ValidationUtils {
 
 	static final String ROOT_PKG = "/org/opengis/cite/kml2/";
 	private static final XMLCatalogResolver SCH_RESOLVER = initCatalogResolver();
+	/** Compiled KML schemas by version (Schema objects are thread-safe). */
+	private static final ConcurrentMap<String, Schema> KML_SCHEMAS = new ConcurrentHashMap<>();
+	/** The maximum number of idle Schematron validators per schema phase. */
+	static final int MAX_IDLE_SCH_VALIDATORS = 8;
+	/** Idle Schematron validators, by schema and phase (not thread-safe). */
+	private static final ConcurrentMap<String, BlockingQueue<SchematronValidator>> SCH_VALIDATORS = new ConcurrentHashMap<>();
 
 	private static XMLCatalogResolver initCatalogResolver() {
 		return (XMLCatalogResolver) createSchemaResolver(Namespaces.SCH);
@@ -107,6 +117,71 @@ public class ValidationUtils {
 		return validator;
 	}
 
+	/**
+	 * Obtains a SchematronValidator for the given schema and phase. Compiling a
+	 * Schematron schema is expensive, so a validator that has been returned by
+	 * {@link #releaseSchematronValidator(URL, String, SchematronValidator)} is
+	 * reused if one is available; otherwise a new one is constructed. A
+	 * validator is not thread-safe, so it is used by one thread at a time;
+	 * at most {@value #MAX_IDLE_SCH_VALIDATORS} idle validators are kept for
+	 * each schema and phase (in a pool shared by all threads).
+	 *
+	 * @param schemaRef
+	 *            A URL that denotes the location of a Schematron schema.
+	 * @param phase
+	 *            The name of the phase to invoke.
+	 * @return A SchematronValidator that is not in use.
+	 * @throws Exception
+	 *             If the Schematron schema cannot be compiled.
+	 */
+	public static SchematronValidator obtainSchematronValidator(URL schemaRef,
+			String phase) throws Exception {
+		SchematronValidator validator = getIdleSchematronValidators(schemaRef,
+				phase).poll();
+		Metrics.getInstance().recordCacheAccess("schematron-validators",
+				null != validator);
+		if (null == validator) {
+			validator = new SchematronValidator(new StreamSource(
+					schemaRef.toString()), phase);
+		}
+		return validator;
+	}
+
+	/**
+	 * Returns a validator obtained from
+	 * {@link #obtainSchematronValidator(URL, String)} so that it may be reused
+	 * (by any thread). A validator that detected any rule violations is
+	 * discarded, since its state carries over to subsequent validation
+	 * episodes; so is a validator that exceeds the number of idle validators
+	 * kept.
+	 *
+	 * @param schemaRef
+	 *            A URL that denotes the location of a Schematron schema.
+	 * @param phase
+	 *            The name of the phase that was invoked.
+	 * @param validator
+	 *            The validator that is no longer in use.
+	 */
+	public static void releaseSchematronValidator(URL schemaRef, String phase,
+			SchematronValidator validator) {
+		if (!validator.ruleViolationsDetected()) {
+			getIdleSchematronValidators(schemaRef, phase).offer(validator);
+		}
+	}
+
+	private static BlockingQueue<SchematronValidator> getIdleSchematronValidators(
+			URL schemaRef, String phase) {
+		String key = schemaRef + "#" + phase;
+		BlockingQueue<SchematronValidator> idle = SCH_VALIDATORS.get(key);
+		if (null == idle) {
+			SCH_VALIDATORS.putIfAbsent(key,
+					new ArrayBlockingQueue<SchematronValidator>(
+							MAX_IDLE_SCH_VALIDATORS));
+			idle = SCH_VALIDATORS.get(key);
+		}
+		return idle;
+	}
+
 	/**
 	 * Extracts a set of XML Schema references from a source XML document. The
 	 * document element is expected to include the standard xsi:schemaLocation
@@ -165,6 +240,33 @@ public class ValidationUtils {
 		return schemaURIs;
 	}
 
+	/**
+	 * Returns a Schema object for the given KML version. The schema is
+	 * compiled only once and then shared by all test runs in the JVM.
+	 *
+	 * @param version
+	 *            The KML version, denoted by the string "i.j" (default is
+	 *            "2.2").
+	 * @return An immutable Schema object, or {@code null} if the schema could
+	 *         not be compiled.
+	 *
+	 * @see #createKMLSchema(String)
+	 */
+	public static Schema getKMLSchema(String version) {
+		Schema schema = KML_SCHEMAS.get(version);
+		Metrics.getInstance().recordCacheAccess("kml-schemas", null != schema);
+		if (null == schema) {
+			schema = createKMLSchema(version);
+			if (null != schema) {
+				Schema existing = KML_SCHEMAS.putIfAbsent(version, schema);
+				if (null != existing) {
+					schema = existing;
+				}
+			}
+		}
+		return schema;
+	}
+
 	/**
 	 * Creates a Schema object representing the complete set of constraints
 	 * defined in a KML 2.x schema. It incorporates schema components from all
@@ -62,12 +62,13 @@ public class XMLUtils {
 	private static final Logger LOGR = Logger.getLogger(XMLUtils.class
 			.getPackage().getName());
 	private static final XMLInputFactory STAX_FACTORY = initXMLInputFactory();
-	private static final XPathFactory XPATH_FACTORY = initXPathFactory();
-
-	private static XPathFactory initXPathFactory() {
-		XPathFactory factory = XPathFactory.newInstance();
-		return factory;
-	}
+	// XPathFactory is not thread-safe
+	private static final ThreadLocal<XPathFactory> XPATH_FACTORY = new ThreadLocal<XPathFactory>() {
+		@Override
+		protected XPathFactory initialValue() {
+			return XPathFactory.newInstance();
+		}
+	};
 
 	private static XMLInputFactory initXMLInputFactory() {
 		XMLInputFactory factory = XMLInputFactory.newInstance();
@@ -195,17 +196,19 @@ public class XMLUtils {
 			Map<String, String> namespaceBindings, QName returnType) {
 		NamespaceBindings bindings = NamespaceBindings.withStandardBindings();
 		bindings.addAllBindings(namespaceBindings);
-		XPathFactory factory = XPATH_FACTORY;
+		XPathFactory factory = XPATH_FACTORY.get();
 		// WARNING: If context node is Saxon NodeOverNodeInfo, the factory must
 		// use the same Configuration object to avoid IllegalArgumentException
 		XPath xpath = factory.newXPath();
 		xpath.setNamespaceContext(bindings);
+		long start = System.nanoTime();
 		Object result;
 		try {
 			result = xpath.evaluate(expr, context, returnType);
 		} catch (XPathExpressionException e) {
 			throw new RuntimeException(e.getMessage());
 		}
+		Metrics.getInstance().record(Metrics.XPATH, expr, start);
 		return result;
 	}
 
@@ -248,7 +251,10 @@ public class XMLUtils {
 			node = builder.build(xmlSource);
 		}
 		xpath.setContextItem(node);
-		return xpath.evaluate();
+		long start = System.nanoTime();
+		XdmValue result = xpath.evaluate();
+		Metrics.getInstance().record(Metrics.XPATH, expr, start);
+		return result;
 	}
 
 	/**
@@ -459,15 +465,17 @@ public class XMLUtils {
 		switch (node.getNodeType()) {
 		case Node.ELEMENT_NODE:
 			// Find the element in the list of all similarly named descendants
-			// of the document root.
+			// of the document root (of the original document if it belongs to
+			// a partition).
 			NodeList elementsByName = node.getOwnerDocument()
 					.getElementsByTagNameNS(nsURI, node.getLocalName());
 			for (int i = 0; i < elementsByName.getLength(); i++) {
 				if (elementsByName.item(i).isSameNode(node)) {
+					int offset = PartitionedSubject.getOrdinalOffset(node);
 					xpointer.append("//");
 					xpointer.append(nsPrefix).append(':')
 							.append(node.getLocalName()).append(")[")
-							.append(i + 1).append("])");
+							.append(i + 1 + offset).append("])");
 					break;
 				}
 			}
@@ -492,7 +500,9 @@ public class XMLUtils {
 	/**
 	 * Evaluates an XPointer expression against the given XML document. Only the
 	 * shorthand syntax is supported; however, instead of matching the value of
-	 * a schema-determined ID, all attributes are checked.
+	 * a schema-determined ID, all attributes are checked. If an
+	 * {@link IdIndex} has been registered for the document, it is used instead
+	 * of scanning the document.
 	 * 
 	 * @param xpointer
 	 *            An XPointer expression (shorthand syntax).
@@ -508,6 +518,10 @@ public class XMLUtils {
 		if (null == doc || xpointer.contains("(")) {
 			return null; // scheme-based pointer not supported
 		}
+		IdIndex index = IdIndex.lookup(doc);
+		if (null != index) {
+			return index.findElement(xpointer);
+		}
 		// look for any matching attribute; in general, validate doc to discover
 		// schema-determined ID (e.g. normalizeDocument to add PSVI)
 		String xpath = String.format("//*[attribute::*='%s']", xpointer);
@@ -543,6 +557,24 @@ public class XMLUtils {
 		return newDoc;
 	}
 
+	/**
+	 * Creates a deep copy of the given document (including the document URI).
+	 * A DOM implementation is not required to be thread-safe, even for
+	 * reading; the source document is locked while it is being copied, and the
+	 * copy should be confined to a single thread.
+	 *
+	 * @param doc
+	 *            A Document node (possibly shared by several threads).
+	 * @return A new Document node.
+	 */
+	public static Document copyDocument(Document doc) {
+		synchronized (doc) {
+			Document copy = (Document) doc.cloneNode(true);
+			copy.setDocumentURI(doc.getDocumentURI());
+			return copy;
+		}
+	}
+
 	/**
 	 * Returns a List view of the nodes in the given NodeList collection.
 	 *
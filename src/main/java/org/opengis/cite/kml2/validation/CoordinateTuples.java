@@ -0,0 +1,199 @@
+package org.opengis.cite.kml2.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.opengis.cite.kml2.ErrorMessage;
+import org.opengis.cite.kml2.ErrorMessageKeys;
+
+/**
+ * The rules that apply to the coordinate tuples in a kml:coordinates element.
+ * They are shared by the {@link CoordinatesValidator} and the
+ * {@link StreamingValidator} so that both report the same errors for the same
+ * content.
+ *
+ * <p>
+ * Tuples are separated by white space (as matched by the regular expression
+ * {@code \s}); values within a tuple are separated by commas. Content that
+ * contains no tuples at all is treated as a single empty tuple, which has
+ * dimension 1.
+ * </p>
+ */
+final class CoordinateTuples {
+
+	private CoordinateTuples() {
+	}
+
+	/**
+	 * Indicates whether the given character separates tuples.
+	 *
+	 * @param c
+	 *            A character.
+	 * @return true if the character is white space; false otherwise.
+	 */
+	static boolean isSeparator(char c) {
+		switch (c) {
+		case ' ':
+		case '\t':
+		case '\n':
+		case '\u000B':
+		case '\f':
+		case '\r':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Splits the content of a kml:coordinates element into tuples.
+	 *
+	 * @param content
+	 *            The text content of a kml:coordinates element.
+	 * @return An array containing at least one tuple.
+	 */
+	static String[] split(String content) {
+		List<String> tuples = new ArrayList<>();
+		int start = -1;
+		for (int i = 0; i < content.length(); i++) {
+			if (isSeparator(content.charAt(i))) {
+				if (start >= 0) {
+					tuples.add(content.substring(start, i));
+					start = -1;
+				}
+			} else if (start < 0) {
+				start = i;
+			}
+		}
+		if (start >= 0) {
+			tuples.add(content.substring(start));
+		}
+		if (tuples.isEmpty()) {
+			tuples.add("");
+		}
+		return tuples.toArray(new String[tuples.size()]);
+	}
+
+	/**
+	 * Checks the number of tuples in a geometry element.
+	 *
+	 * @param geometry
+	 *            The local name of the geometry element (kml:Point,
+	 *            kml:LineString, kml:LinearRing or kml:LatLonQuad).
+	 * @param count
+	 *            The number of tuples.
+	 * @return An error message, or null if the count is acceptable.
+	 */
+	static String checkTupleCount(String geometry, int count) {
+		String key;
+		switch (geometry) {
+		case "Point":
+			key = (count != 1) ? ErrorMessageKeys.POINT_COORDS : null;
+			break;
+		case "LineString":
+			key = (count < 2) ? ErrorMessageKeys.LINE_COORDS : null;
+			break;
+		case "LinearRing":
+			key = (count < 4) ? ErrorMessageKeys.RING_COORDS : null;
+			break;
+		case "LatLonQuad":
+			key = (count != 4) ? ErrorMessageKeys.QUAD_COORDS : null;
+			break;
+		default:
+			key = null;
+			break;
+		}
+		return (null != key) ? ErrorMessage.format(key, count) : null;
+	}
+
+	/**
+	 * Checks that a tuple has two or three values.
+	 *
+	 * @param index
+	 *            The (zero-based) position of the tuple.
+	 * @param dimension
+	 *            The number of values in the tuple.
+	 * @return An error message, or null if the dimension is acceptable.
+	 */
+	static String checkDimension(int index, int dimension) {
+		if (dimension < 2 || dimension > 3) {
+			return ErrorMessage.format(ErrorMessageKeys.COORD_DIM, index,
+					"2-3", dimension);
+		}
+		return null;
+	}
+
+	/**
+	 * Checks that a tuple includes a height value if the altitude mode is
+	 * not 'clampToGround' (ATC-202).
+	 *
+	 * @param index
+	 *            The (zero-based) position of the tuple.
+	 * @param dimension
+	 *            The number of values in the tuple (2-3).
+	 * @param clampToGround
+	 *            true if the altitude mode is 'clampToGround'; false
+	 *            otherwise.
+	 * @return An error message, or null if the dimension is acceptable.
+	 */
+	static String checkAltitudeDimension(int index, int dimension,
+			boolean clampToGround) {
+		if (!clampToGround && dimension != 3) {
+			return ErrorMessage.format(ErrorMessageKeys.COORD_DIM, index,
+					"3 (altitudeMode is not 'clampToGround')", dimension);
+		}
+		return null;
+	}
+
+	/**
+	 * Checks that the values in a tuple are numeric.
+	 *
+	 * @param values
+	 *            The values in a tuple.
+	 * @return A list of error messages (one for each value that is not a
+	 *         number); it is empty if all values are numeric.
+	 */
+	static List<String> checkValues(String[] values) {
+		List<String> errors = Collections.emptyList();
+		for (String val : values) {
+			try {
+				Float.parseFloat(val);
+			} catch (NumberFormatException e) {
+				if (errors.isEmpty()) {
+					errors = new ArrayList<>();
+				}
+				errors.add(ErrorMessage.format(ErrorMessageKeys.NAN, val));
+			}
+		}
+		return errors;
+	}
+
+	/**
+	 * Checks a tuple: its dimension, then (if that is acceptable) its
+	 * dimension with respect to the altitude mode, and then (if that is also
+	 * acceptable) its values.
+	 *
+	 * @param tuple
+	 *            A coordinate tuple.
+	 * @param index
+	 *            The (zero-based) position of the tuple.
+	 * @param clampToGround
+	 *            true if the altitude mode is 'clampToGround'; false
+	 *            otherwise.
+	 * @return A list of error messages; it is empty if the tuple is valid.
+	 */
+	static List<String> checkTuple(String tuple, int index,
+			boolean clampToGround) {
+		String[] values = tuple.split(",");
+		String error = checkDimension(index, values.length);
+		if (null == error) {
+			error = checkAltitudeDimension(index, values.length,
+					clampToGround);
+		}
+		if (null != error) {
+			return Collections.singletonList(error);
+		}
+		return checkValues(values);
+	}
+}
@@ -5,6 +5,7 @@ import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.util.KMLUtils;
+import org.opengis.cite.kml2.util.Metrics;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.validation.ErrorLocator;
 import org.opengis.cite.validation.ErrorSeverity;
@@ -45,30 +46,18 @@ import org.w3c.dom.NodeList;
  */
 public class CoordinatesValidator {
 
-	ValidationErrorHandler errHandler;
+	private static final CoordinatesValidator INSTANCE = new CoordinatesValidator();
 
-	/**
-	 * Default constructor.
-	 */
-	public CoordinatesValidator() {
-		this.errHandler = new ValidationErrorHandler();
+	private CoordinatesValidator() {
 	}
 
 	/**
-	 * Returns the error messages reported during the last call to
-	 * <code>isValid</code>.
+	 * Returns the shared (stateless) validator instance.
 	 * 
-	 * @return A String containing error messages (may be empty).
-	 */
-	public String getErrorMessages() {
-		return errHandler.toString();
-	}
-
-	/**
-	 * Resets the error handler.
+	 * @return A CoordinatesValidator.
 	 */
-	public void reset() {
-		errHandler.reset();
+	public static CoordinatesValidator getInstance() {
+		return INSTANCE;
 	}
 
 	/**
@@ -81,10 +70,27 @@ public class CoordinatesValidator {
 	 * 
 	 * @param node
 	 *            An Element node that contains a kml:coordinates element.
-	 * @return true if the tuple sequence is valid; false otherwise.
+	 * @return The result of validation.
+	 */
+	public ValidationResult validate(Node node) {
+		long start = System.nanoTime();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		checkCoordinates(node, errHandler);
+		ValidationResult result = ValidationResult.of(errHandler);
+		Metrics.getInstance().record(Metrics.VALIDATOR,
+				"CoordinatesValidator", start);
+		return result;
+	}
+
+	/**
+	 * Checks the coordinate tuples contained by the given node.
+	 * 
+	 * @param node
+	 *            An Element node that contains a kml:coordinates element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 */
-	public boolean isValid(Node node) {
-		errHandler.reset();
+	void checkCoordinates(Node node, ValidationErrorHandler errHandler) {
 		Element elem = (Element) node;
 		NodeList coords = elem.getElementsByTagNameNS(KML2.NS_NAME,
 				"coordinates");
@@ -92,73 +98,26 @@ public class CoordinatesValidator {
 			errHandler.addError(ErrorSeverity.ERROR,
 					ErrorMessage.get(ErrorMessageKeys.MISSING_COORDS),
 					new ErrorLocator(-1, -1, XMLUtils.buildXPointer(node)));
-			return false;
+			return;
 		}
-		String[] tuples = coords.item(0).getTextContent().trim().split("\\s+");
-		switch (node.getLocalName()) {
-		case "Point":
-			if (tuples.length != 1) {
-				errHandler.addError(ErrorSeverity.ERROR, ErrorMessage.format(
-						ErrorMessageKeys.POINT_COORDS, tuples.length),
-						new ErrorLocator(-1, -1, XMLUtils.buildXPointer(node)));
-			}
-			break;
-		case "LineString":
-			if (tuples.length < 2) {
-				errHandler.addError(ErrorSeverity.ERROR, ErrorMessage.format(
-						ErrorMessageKeys.LINE_COORDS, tuples.length),
-						new ErrorLocator(-1, -1, XMLUtils.buildXPointer(node)));
-			}
-			break;
-		case "LinearRing":
-			if (tuples.length < 4) {
-				errHandler.addError(ErrorSeverity.ERROR, ErrorMessage.format(
-						ErrorMessageKeys.RING_COORDS, tuples.length),
-						new ErrorLocator(-1, -1, XMLUtils.buildXPointer(node)));
-			}
-			break;
-		case "LatLonQuad":
-			if (tuples.length != 4) {
-				errHandler.addError(ErrorSeverity.ERROR, ErrorMessage.format(
-						ErrorMessageKeys.QUAD_COORDS, tuples.length),
-						new ErrorLocator(-1, -1, XMLUtils.buildXPointer(node)));
-			}
-			break;
-		default:
-			break;
+		String[] tuples = CoordinateTuples.split(coords.item(0)
+				.getTextContent());
+		String countError = CoordinateTuples.checkTupleCount(
+				node.getLocalName(), tuples.length);
+		if (null != countError) {
+			errHandler.addError(ErrorSeverity.ERROR, countError,
+					new ErrorLocator(-1, -1, XMLUtils.buildXPointer(node)));
 		}
+		// ATC-202
+		boolean clampToGround = (KMLUtils.getAltitudeMode(elem)
+				== AltitudeMode.CLAMP_TO_GROUND);
 		for (int i = 0; i < tuples.length; i++) {
-			String[] tuple = tuples[i].trim().split(",");
-			if (tuple.length < 2 || tuple.length > 3) {
-				errHandler.addError(ErrorSeverity.ERROR, ErrorMessage.format(
-						ErrorMessageKeys.COORD_DIM, i, "2-3", tuple.length),
+			for (String error : CoordinateTuples.checkTuple(tuples[i], i,
+					clampToGround)) {
+				errHandler.addError(ErrorSeverity.ERROR, error,
 						new ErrorLocator(-1, -1, XMLUtils.buildXPointer(node)));
-				continue;
-			}
-			// ATC-202
-			AltitudeMode altMode = KMLUtils.getAltitudeMode(elem);
-			if (altMode != AltitudeMode.CLAMP_TO_GROUND && tuple.length != 3) {
-				errHandler.addError(ErrorSeverity.ERROR, ErrorMessage
-						.format(ErrorMessageKeys.COORD_DIM, i,
-								"3 (altitudeMode is not 'clampToGround')",
-								tuple.length), new ErrorLocator(-1, -1,
-						XMLUtils.buildXPointer(node)));
-				continue;
-			}
-			for (String val : tuple) {
-				try {
-					Float.parseFloat(val);
-				} catch (NumberFormatException e) {
-					errHandler.addError(
-							ErrorSeverity.ERROR,
-							ErrorMessage.format(ErrorMessageKeys.NAN, val),
-							new ErrorLocator(-1, -1, XMLUtils
-									.buildXPointer(node)));
-					continue;
-				}
 			}
 		}
-		return !errHandler.errorsDetected();
 	}
 
 }
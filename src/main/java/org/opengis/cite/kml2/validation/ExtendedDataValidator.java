@@ -1,5 +1,6 @@
 package org.opengis.cite.kml2.validation;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.HashSet;
 import java.util.Map;
@@ -18,6 +19,8 @@ import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.util.KMLUtils;
+import org.opengis.cite.kml2.util.Metrics;
+import org.opengis.cite.kml2.util.PartitionedSubject;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.validation.ErrorLocator;
 import org.opengis.cite.validation.ErrorSeverity;
@@ -26,6 +29,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
 
 /**
  * Checks constraints to apply to kml:ExtendedData elements. The relevant type
@@ -52,36 +56,18 @@ import org.w3c.dom.NodeList;
  */
 public class ExtendedDataValidator {
 
-	ValidationErrorHandler errHandler;
-	SchemaChecker schemaChecker;
-	Document ownerDocument;
+	private static final ExtendedDataValidator INSTANCE = new ExtendedDataValidator();
 
-	/**
-	 * Intended to facilitate unit testing only.
-	 * 
-	 * @param doc
-	 *            The document containing the custom data.
-	 */
-	void setOwnerDocument(Document doc) {
-		this.ownerDocument = doc;
-	}
-
-	/**
-	 * Default constructor.
-	 */
-	public ExtendedDataValidator() {
-		this.errHandler = new ValidationErrorHandler();
-		this.schemaChecker = new SchemaChecker();
+	private ExtendedDataValidator() {
 	}
 
 	/**
-	 * Returns all error messages reported during the last call to
-	 * <code>isValid</code>.
+	 * Returns the shared (stateless) validator instance.
 	 * 
-	 * @return A String containing the reported error messages (may be empty).
+	 * @return An ExtendedDataValidator.
 	 */
-	public String getErrorMessages() {
-		return errHandler.toString();
+	public static ExtendedDataValidator getInstance() {
+		return INSTANCE;
 	}
 
 	/**
@@ -89,19 +75,22 @@ public class ExtendedDataValidator {
 	 * 
 	 * @param node
 	 *            A kml:ExtendedData element.
-	 * @return true if the extended data elements are valid; false otherwise.
+	 * @return The result of validation.
 	 */
-	public boolean isValid(Node node) {
+	public ValidationResult validate(Node node) {
+		long start = System.nanoTime();
 		if (!node.getLocalName().equals("ExtendedData")) {
 			throw new IllegalArgumentException("Not an ExtendedData element: "
 					+ node.getLocalName());
 		}
-		errHandler.reset();
-		this.ownerDocument = node.getOwnerDocument();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
 		Element extData = (Element) node;
-		checkData(extData);
-		checkSchemaData(extData);
-		return !errHandler.errorsDetected();
+		checkData(extData, errHandler);
+		checkSchemaData(extData, errHandler);
+		ValidationResult result = ValidationResult.of(errHandler);
+		Metrics.getInstance().record(Metrics.VALIDATOR,
+				"ExtendedDataValidator", start);
+		return result;
 	}
 
 	/**
@@ -115,11 +104,13 @@ public class ExtendedDataValidator {
 	 * 
 	 * @param extData
 	 *            A kml:ExtendedData element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "OGC KML 2.3 – Abstract Test Suite, ATC-128: Data element has distinct name"
 	 * @see "OGC KML 2.3 – Abstract Test Suite, ATC-233: Valid unit of measurement"
 	 */
-	void checkData(Element extData) {
+	void checkData(Element extData, ValidationErrorHandler errHandler) {
 		NodeList dataList = extData
 				.getElementsByTagNameNS(KML2.NS_NAME, "Data");
 		HashSet<String> nameSet = new HashSet<>(dataList.getLength());
@@ -134,9 +125,8 @@ public class ExtendedDataValidator {
 						new ErrorLocator(-1, -1, XMLUtils
 								.buildXPointer(extData)));
 			}
-			schemaChecker.checkUnitOfMeasure(data);
+			SchemaChecker.getInstance().checkUnitOfMeasure(data, errHandler);
 		}
-		this.errHandler.addErrors(schemaChecker.getErrors());
 	}
 
 	/**
@@ -154,10 +144,12 @@ public class ExtendedDataValidator {
 	 * 
 	 * @param extData
 	 *            A kml:ExtendedData element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "OGC KML 2.3 - Abstract Test Suite, ATC-127: SchemaData content"
 	 */
-	void checkSchemaData(Element extData) {
+	void checkSchemaData(Element extData, ValidationErrorHandler errHandler) {
 		NodeList schemaDataList = extData.getElementsByTagNameNS(KML2.NS_NAME,
 				"SchemaData");
 		for (int i = 0; i < schemaDataList.getLength(); i++) {
@@ -174,10 +166,9 @@ public class ExtendedDataValidator {
 				continue;
 			}
 			URI schemaURI = URI.create(schemaUrl);
-			XdmNode schema = null;
-			try {
-				schema = fetchSchema(schemaURI);
-			} catch (SaxonApiException | RuntimeException e) {
+			SchemaFieldCache.SchemaFields schemaFields = lookupSchema(
+					extData.getOwnerDocument(), schemaURI);
+			if (!schemaFields.exists()) {
 				errHandler.addError(
 						ErrorSeverity.ERROR,
 						ErrorMessage.format(ErrorMessageKeys.NOT_FOUND,
@@ -186,12 +177,76 @@ public class ExtendedDataValidator {
 								.buildXPointer(schemaData)));
 				continue;
 			}
-			Map<String, ItemType> schemaFields = KMLUtils
-					.getDeclaredFields(schema);
-			validateSchemaData(schemaData, schemaFields);
+			validateSchemaData(schemaData, schemaFields, errHandler);
 		}
 	}
 
+	/**
+	 * Gets information about the fields declared in the custom schema
+	 * referenced by the given URI. The result is cached (see
+	 * {@link SchemaFieldCache}), so each distinct schema is fetched only once.
+	 * 
+	 * @param ownerDoc
+	 *            The document containing the custom data.
+	 * @param schemaURI
+	 *            A URI containing a fragment identifier that refers to a
+	 *            kml:Schema element.
+	 * @return An immutable Map containing the names (keys) and data types of
+	 *         the declared fields, or null if the schema could not be found.
+	 */
+	Map<String, ItemType> getSchemaFields(Document ownerDoc, URI schemaURI) {
+		return lookupSchema(ownerDoc, schemaURI).getFields();
+	}
+
+	/**
+	 * Looks up the custom schema referenced by the given URI in the
+	 * {@link SchemaFieldCache}, fetching and adding it first if necessary.
+	 * 
+	 * @param ownerDoc
+	 *            The document containing the custom data.
+	 * @param schemaURI
+	 *            A URI containing a fragment identifier that refers to a
+	 *            kml:Schema element.
+	 * @return A descriptor of the declared fields (which may indicate that the
+	 *         schema was not found). A failure to retrieve the referenced
+	 *         resource may be transient, so it is not cached.
+	 */
+	SchemaFieldCache.SchemaFields lookupSchema(Document ownerDoc,
+			URI schemaURI) {
+		if (null == schemaURI.getScheme()) {
+			// a schema in another partition of the same document
+			try {
+				Document contextDoc = PartitionedSubject
+						.lookupContextDocument(ownerDoc);
+				if (null != contextDoc) {
+					ownerDoc = contextDoc;
+				}
+			} catch (SAXException | IOException e) {
+				return SchemaFieldCache.SchemaFields.NOT_FOUND;
+			}
+		}
+		SchemaFieldCache cache = SchemaFieldCache.getInstance();
+		SchemaFieldCache.SchemaFields entry = cache.get(ownerDoc, schemaURI);
+		if (null == entry) {
+			XdmNode schema;
+			try {
+				schema = fetchSchema(ownerDoc, schemaURI);
+			} catch (SaxonApiException | RuntimeException e) {
+				// may be transient (e.g. resource not accessible); not cached
+				return SchemaFieldCache.SchemaFields.NOT_FOUND;
+			}
+			if (null == schema) {
+				entry = SchemaFieldCache.SchemaFields.NOT_FOUND;
+			} else {
+				entry = new SchemaFieldCache.SchemaFields(
+						KMLUtils.getDeclaredFields(schema),
+						KMLUtils.getDeclaredFieldTypeNames(schema));
+			}
+			cache.put(ownerDoc, schemaURI, entry);
+		}
+		return entry;
+	}
+
 	/**
 	 * Validates the content of a kml:SchemaData element against the associated
 	 * custom schema. In particular, for each data element:
@@ -205,32 +260,42 @@ public class ExtendedDataValidator {
 	 *            A kml:SchemaData element containing kml:SimpleData or
 	 *            kml:SimpleArrayData elements.
 	 * @param schemaFields
-	 *            A Map containing information (name, type) about the fields
-	 *            declared in the custom schema.
+	 *            Information (name, type) about the fields declared in the
+	 *            custom schema.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 */
 	void validateSchemaData(Element schemaData,
-			Map<String, ItemType> schemaFields) {
+			SchemaFieldCache.SchemaFields schemaFields,
+			ValidationErrorHandler errHandler) {
 		NodeList dataNodes = null;
 		try {
 			dataNodes = XMLUtils.evaluateXPath(schemaData,
 					"kml:SimpleData | kml:SimpleArrayData", null);
 		} catch (XPathExpressionException e) {
 		}
+		Map<String, ItemType> fields = schemaFields.getFields();
 		for (int i = 0; i < dataNodes.getLength(); i++) {
 			Element data = (Element) dataNodes.item(i);
 			String name = data.getAttribute("name");
-			if (!schemaFields.containsKey(name)) {
+			if (!fields.containsKey(name)) {
 				errHandler.addError(ErrorSeverity.ERROR, ErrorMessage.format(
 						ErrorMessageKeys.CONSTRAINT_VIOLATION,
 						"Name not found in custom schema: " + name),
 						new ErrorLocator(-1, -1, XMLUtils.buildXPointer(data)));
 			}
+			LexicalValidator lexicalValidator = schemaFields
+					.getLexicalValidator(name);
 			String[] dataValues = getDataValues(data);
 			for (String value : dataValues) {
+				if (null != lexicalValidator && lexicalValidator.isValid(value)) {
+					continue;
+				}
+				// exotic type or (possibly) invalid value: let Saxon decide
 				try {
 					@SuppressWarnings("unused")
 					XdmAtomicValue xdmValue = new XdmAtomicValue(value,
-							schemaFields.get(name));
+							fields.get(name));
 				} catch (SaxonApiException e) {
 					errHandler.addError(ErrorSeverity.ERROR, ErrorMessage
 							.format(ErrorMessageKeys.CONSTRAINT_VIOLATION,
@@ -267,18 +332,21 @@ public class ExtendedDataValidator {
 	 * Fetches the kml:Schema element referenced by the given URI. A relative
 	 * URI is expected to be a same-document reference.
 	 * 
+	 * @param ownerDoc
+	 *            The document containing the custom data.
 	 * @param schemaURI
 	 *            A URI containing a fragment identifier that refers to a
 	 *            kml:Schema element.
-	 * @return An XdmNode representing a kml:Schema element.
+	 * @return An XdmNode representing a kml:Schema element, or null if the
+	 *         target resource contains no matching element.
 	 * @throws SaxonApiException
 	 *             If an error occurs while trying to retrieve the target
 	 *             resource.
 	 * @throws RuntimeException
-	 *             If a matching kml:Schema element cannot be obtained.
+	 *             If the target resource cannot be obtained.
 	 */
-	XdmNode fetchSchema(URI schemaURI) throws SaxonApiException,
-			RuntimeException {
+	XdmNode fetchSchema(Document ownerDoc, URI schemaURI)
+			throws SaxonApiException, RuntimeException {
 		String xpath;
 		if (null == schemaURI.getScheme()) { // relative URI
 			xpath = String.format("//kml:Schema[@id='%s']",
@@ -289,10 +357,9 @@ public class ExtendedDataValidator {
 			xpath = String.format("doc('%s')//kml:Schema[@id='%s']", schemaURI
 					.toString().substring(0, numSign), schemaURI.getFragment());
 		}
-		Source src = new DOMSource(this.ownerDocument,
-				this.ownerDocument.getBaseURI());
+		Source src = new DOMSource(ownerDoc, ownerDoc.getBaseURI());
 		XdmValue result = XMLUtils.evaluateXPath2(src, xpath, null);
-		return (XdmNode) result.itemAt(0);
+		return (result.size() > 0) ? (XdmNode) result.itemAt(0) : null;
 	}
 
 }
\ No newline at end of file
@@ -2,7 +2,6 @@ package org.opengis.cite.kml2.validation;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 import javax.xml.xpath.XPathConstants;
@@ -11,10 +10,10 @@ import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.util.JTSGeometryBuilder;
+import org.opengis.cite.kml2.util.Metrics;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.validation.ErrorLocator;
 import org.opengis.cite.validation.ErrorSeverity;
-import org.opengis.cite.validation.ValidationError;
 import org.opengis.cite.validation.ValidationErrorHandler;
 import org.testng.Assert;
 import org.w3c.dom.Element;
@@ -46,8 +45,7 @@ public class GeoExtentValidator {
 	private static final String BOX_MIN_ALT = "minAltitude";
 	private static final String BOX_MAX_ALT = "maxAltitude";
 	private static final Map<String, Double> DEFAULT_BOX = initDefaultBox();
-	private ValidationErrorHandler errHandler;
-	private CoordinatesValidator coordsValidator;
+	private static final GeoExtentValidator INSTANCE = new GeoExtentValidator();
 
 	private static Map<String, Double> initDefaultBox() {
 		Map<String, Double> defaultBox = new HashMap<>();
@@ -60,48 +58,38 @@ public class GeoExtentValidator {
 		return Collections.unmodifiableMap(defaultBox);
 	}
 
-	/**
-	 * Constructor with default error handler.
-	 */
-	public GeoExtentValidator() {
-		this.errHandler = new ValidationErrorHandler();
-		this.coordsValidator = new CoordinatesValidator();
+	private GeoExtentValidator() {
 	}
 
 	/**
-	 * Returns the error messages reported during the last validation episode.
+	 * Returns the shared (stateless) validator instance.
 	 * 
-	 * @return A String containing error messages (may be empty).
+	 * @return A GeoExtentValidator.
 	 */
-	public String getErrorMessages() {
-		return errHandler.toString();
+	public static GeoExtentValidator getInstance() {
+		return INSTANCE;
 	}
 
 	/**
-	 * Returns the errors reported during the last validation episode.
+	 * Validates a geographic extent (kml:LatLonBox, kml:LatLonAltBox, or
+	 * kml:LatLonQuad).
 	 * 
-	 * @return An iterator over the reported validation errors.
-	 */
-	public Iterator<ValidationError> getErrors() {
-		return errHandler.iterator();
-	}
-
-	/**
-	 * Resets the error handler.
+	 * @param node
+	 *            An element that substitutes for kml:AbstractExtentGroup.
+	 * @return The result of validation.
 	 */
-	public void reset() {
-		errHandler.reset();
-	}
-
-	public boolean validGeoExtent(Node node) {
-		errHandler.reset();
-		boolean isValid = false;
+	public ValidationResult validateGeoExtent(Node node) {
+		long start = System.nanoTime();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
 		if (node.getLocalName().endsWith("Box")) {
-			isValid = validateBox(node);
+			checkBox(node, errHandler);
 		} else {
-			isValid = validateQuadrilateral(node);
+			checkQuadrilateral(node, errHandler);
 		}
-		return isValid;
+		ValidationResult result = ValidationResult.of(errHandler);
+		Metrics.getInstance().record(Metrics.VALIDATOR,
+				"GeoExtentValidator", start);
+		return result;
 	}
 
 	/**
@@ -118,18 +106,39 @@ public class GeoExtentValidator {
 	 * 
 	 * @param latlonQuad
 	 *            A kml:LatLonQuad element.
-	 * @return true if all constraints are satisfied; false otherwise.
+	 * @return The result of validation.
 	 * 
 	 * @see "ATC-103: Valid geometry coordinates"
 	 * @see "ATC-149: LatLonQuad coordinates"
 	 */
-	public boolean validateQuadrilateral(Node latlonQuad) {
+	public ValidationResult validateQuadrilateral(Node latlonQuad) {
+		long start = System.nanoTime();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		checkQuadrilateral(latlonQuad, errHandler);
+		ValidationResult result = ValidationResult.of(errHandler);
+		Metrics.getInstance().record(Metrics.VALIDATOR,
+				"GeoExtentValidator", start);
+		return result;
+	}
+
+	/**
+	 * Checks a kml:LatLonQuad element (see
+	 * {@link #validateQuadrilateral(Node)}).
+	 * 
+	 * @param latlonQuad
+	 *            A kml:LatLonQuad element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
+	 */
+	void checkQuadrilateral(Node latlonQuad, ValidationErrorHandler errHandler) {
 		JTSGeometryBuilder jtsBuilder = new JTSGeometryBuilder();
 		Polygon crsPolygon = jtsBuilder.buildPolygon(new Envelope(-180, 180,
 				-90, 90));
 		Element quad = (Element) latlonQuad;
-		Assert.assertTrue(coordsValidator.isValid(quad),
-				coordsValidator.getErrorMessages());
+		ValidationResult coordsResult = CoordinatesValidator.getInstance()
+				.validate(quad);
+		Assert.assertTrue(coordsResult.isValid(),
+				coordsResult.getErrorMessages());
 		Polygon jtsPolygon = null;
 		try {
 			Node coords = quad.getElementsByTagNameNS(KML2.NS_NAME,
@@ -158,7 +167,6 @@ public class GeoExtentValidator {
 					ErrorMessageKeys.QUAD_NOT_CONVEX, jtsPolygon.toText()),
 					new ErrorLocator(-1, -1, XMLUtils.buildXPointer(quad)));
 		}
-		return !errHandler.errorsDetected();
 	}
 
 	/**
@@ -185,14 +193,29 @@ public class GeoExtentValidator {
 	 * @param boxNode
 	 *            An Element node that contains a bounding box element
 	 *            (kml:LatLon[Alt]Box).
-	 * @return true if the box satisfies all constraints; false otherwise.
+	 * @return The result of validation.
+	 */
+	ValidationResult validateBox(Node boxNode) {
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		checkBox(boxNode, errHandler);
+		return ValidationResult.of(errHandler);
+	}
+
+	/**
+	 * Checks a bounding box (see {@link #validateBox(Node)}).
+	 * 
+	 * @param boxNode
+	 *            An Element node that contains a bounding box element
+	 *            (kml:LatLon[Alt]Box).
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 */
-	boolean validateBox(Node boxNode) {
+	void checkBox(Node boxNode, ValidationErrorHandler errHandler) {
 		if (null == boxNode || !boxNode.getLocalName().startsWith("LatLon")) {
 			errHandler.addError(ErrorSeverity.ERROR, ErrorMessage.format(
 					ErrorMessageKeys.MISSING_INFOSET_ITEM, "kml:LatLon*"),
 					new ErrorLocator(-1, -1, XMLUtils.buildXPointer(boxNode)));
-			return false;
+			return;
 		}
 		Map<String, Double> boxProps = getNumericProperties(boxNode,
 				DEFAULT_BOX);
@@ -257,7 +280,6 @@ public class GeoExtentValidator {
 			}
 
 		}
-		return !errHandler.errorsDetected();
 	}
 
 	/**
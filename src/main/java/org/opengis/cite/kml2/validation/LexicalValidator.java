@@ -0,0 +1,313 @@
+package org.opengis.cite.kml2.validation;
+
+/**
+ * Allocation-free lexical validators for the XML Schema datatypes most
+ * commonly used in custom KML schemas. These are intended to quickly accept
+ * valid values; they are conservative, so a value that is rejected may in fact
+ * be valid (e.g. "-0" as an xs:unsignedInt) and must then be checked by a
+ * general-purpose validator such as Saxon. A value that is accepted is always
+ * valid.
+ * 
+ * @see <a href="http://www.w3.org/TR/xmlschema-2/" target="_blank">XML Schema
+ *      Part 2: Datatypes Second Edition</a>
+ */
+public enum LexicalValidator {
+
+	/** xs:int */
+	INT("int") {
+		@Override
+		public boolean isValid(CharSequence value) {
+			return isIntegerInRange(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		}
+	},
+	/** xs:unsignedInt */
+	UNSIGNED_INT("unsignedInt") {
+		@Override
+		public boolean isValid(CharSequence value) {
+			return isIntegerInRange(value, 0, 0xFFFFFFFFL);
+		}
+	},
+	/** xs:short */
+	SHORT("short") {
+		@Override
+		public boolean isValid(CharSequence value) {
+			return isIntegerInRange(value, Short.MIN_VALUE, Short.MAX_VALUE);
+		}
+	},
+	/** xs:unsignedShort */
+	UNSIGNED_SHORT("unsignedShort") {
+		@Override
+		public boolean isValid(CharSequence value) {
+			return isIntegerInRange(value, 0, 0xFFFF);
+		}
+	},
+	/** xs:float */
+	FLOAT("float") {
+		@Override
+		public boolean isValid(CharSequence value) {
+			return isFloatingPoint(value, 38);
+		}
+	},
+	/** xs:double */
+	DOUBLE("double") {
+		@Override
+		public boolean isValid(CharSequence value) {
+			return isFloatingPoint(value, 308);
+		}
+	},
+	/** xs:boolean */
+	BOOLEAN("boolean") {
+		@Override
+		public boolean isValid(CharSequence value) {
+			String str = value.toString();
+			return str.equals("true") || str.equals("false")
+					|| str.equals("1") || str.equals("0");
+		}
+	},
+	/** xs:string (any sequence of XML characters) */
+	STRING("string") {
+		@Override
+		public boolean isValid(CharSequence value) {
+			return true;
+		}
+	},
+	/** xs:dateTime */
+	DATE_TIME("dateTime") {
+		@Override
+		public boolean isValid(CharSequence value) {
+			return isDateTime(value);
+		}
+	};
+
+	private final String typeName;
+
+	private LexicalValidator(String typeName) {
+		this.typeName = typeName;
+	}
+
+	/**
+	 * Returns the (local) name of the XML Schema datatype.
+	 * 
+	 * @return A datatype name (e.g. "int").
+	 */
+	public String getTypeName() {
+		return typeName;
+	}
+
+	/**
+	 * Determines whether or not a value is a valid lexical representation of
+	 * the datatype. Leading or trailing whitespace is not permitted.
+	 * 
+	 * @param value
+	 *            A character sequence.
+	 * @return true if the value is definitely valid; false if it is invalid or
+	 *         its validity could not be ascertained.
+	 */
+	public abstract boolean isValid(CharSequence value);
+
+	/**
+	 * Finds the validator for the given XML Schema datatype.
+	 * 
+	 * @param typeName
+	 *            The (local) name of a built-in datatype, optionally with a
+	 *            namespace prefix (e.g. "int", "xsd:int").
+	 * @return The matching validator, or null if there is none.
+	 */
+	public static LexicalValidator forType(String typeName) {
+		if (null == typeName) {
+			return null;
+		}
+		String localName = typeName.substring(typeName.indexOf(':') + 1)
+				.trim();
+		for (LexicalValidator validator : values()) {
+			if (validator.typeName.equals(localName)) {
+				return validator;
+			}
+		}
+		return null;
+	}
+
+	static boolean isIntegerInRange(CharSequence value, long min, long max) {
+		int len = value.length();
+		int pos = 0;
+		boolean negative = false;
+		if (len > 0 && (value.charAt(0) == '+' || value.charAt(0) == '-')) {
+			negative = value.charAt(0) == '-';
+			pos++;
+		}
+		if (pos == len) {
+			return false;
+		}
+		long magnitude = 0;
+		for (; pos < len; pos++) {
+			char ch = value.charAt(pos);
+			if (ch < '0' || ch > '9') {
+				return false;
+			}
+			magnitude = magnitude * 10 + (ch - '0');
+			if (magnitude > 0xFFFFFFFFL) { // beyond any supported range
+				return false;
+			}
+		}
+		long number = negative ? -magnitude : magnitude;
+		if (negative && min >= 0) {
+			return false; // "-0" is valid, but let another validator decide
+		}
+		return number >= min && number <= max;
+	}
+
+	/**
+	 * Checks the lexical space of xs:float and xs:double. Special values are
+	 * "INF", "-INF" and "NaN". Values with a decimal exponent beyond the given
+	 * maximum are not accepted (they may be rounded to infinity).
+	 */
+	static boolean isFloatingPoint(CharSequence value, int maxExponent) {
+		String str = value.toString();
+		if (str.equals("INF") || str.equals("-INF") || str.equals("NaN")) {
+			return true;
+		}
+		int len = value.length();
+		int pos = 0;
+		if (len > 0 && (value.charAt(0) == '+' || value.charAt(0) == '-')) {
+			pos++;
+		}
+		int digits = 0;
+		int intDigits = 0;
+		boolean leadingZeros = true;
+		for (; pos < len && isDigit(value.charAt(pos)); pos++) {
+			digits++;
+			if (leadingZeros && value.charAt(pos) == '0') {
+				continue;
+			}
+			leadingZeros = false;
+			intDigits++;
+		}
+		if (pos < len && value.charAt(pos) == '.') {
+			pos++;
+			for (; pos < len && isDigit(value.charAt(pos)); pos++) {
+				digits++;
+			}
+		}
+		if (digits == 0) {
+			return false;
+		}
+		int exponent = 0;
+		if (pos < len && (value.charAt(pos) == 'e' || value.charAt(pos) == 'E')) {
+			pos++;
+			boolean negative = false;
+			if (pos < len
+					&& (value.charAt(pos) == '+' || value.charAt(pos) == '-')) {
+				negative = value.charAt(pos) == '-';
+				pos++;
+			}
+			int expDigits = 0;
+			for (; pos < len && isDigit(value.charAt(pos)); pos++) {
+				expDigits++;
+				if (expDigits > 4) {
+					return false;
+				}
+				exponent = exponent * 10 + (value.charAt(pos) - '0');
+			}
+			if (expDigits == 0) {
+				return false;
+			}
+			if (negative) {
+				exponent = -exponent;
+			}
+		}
+		if (pos != len) {
+			return false;
+		}
+		// magnitude is less than 10^(intDigits + exponent)
+		return intDigits + exponent <= maxExponent;
+	}
+
+	/**
+	 * Checks the lexical space of xs:dateTime:
+	 * <code>yyyy-mm-ddThh:mm:ss(.s+)?(Z|(+|-)hh:mm)?</code>. Negative years,
+	 * years with more than four digits and the time "24:00:00" are not
+	 * accepted.
+	 */
+	static boolean isDateTime(CharSequence value) {
+		int len = value.length();
+		if (len < 19 || value.charAt(4) != '-' || value.charAt(7) != '-'
+				|| value.charAt(10) != 'T' || value.charAt(13) != ':'
+				|| value.charAt(16) != ':') {
+			return false;
+		}
+		int year = digits(value, 0, 4);
+		int month = digits(value, 5, 2);
+		int day = digits(value, 8, 2);
+		int hour = digits(value, 11, 2);
+		int minute = digits(value, 14, 2);
+		int second = digits(value, 17, 2);
+		if (year < 1 || month < 1 || month > 12 || day < 1
+				|| day > daysInMonth(year, month) || hour < 0 || hour > 23
+				|| minute < 0 || minute > 59 || second < 0 || second > 59) {
+			return false;
+		}
+		int pos = 19;
+		if (pos < len && value.charAt(pos) == '.') {
+			pos++;
+			int start = pos;
+			while (pos < len && isDigit(value.charAt(pos))) {
+				pos++;
+			}
+			if (pos == start) {
+				return false;
+			}
+		}
+		if (pos == len) {
+			return true;
+		}
+		char tz = value.charAt(pos);
+		if (tz == 'Z') {
+			return pos + 1 == len;
+		}
+		if ((tz != '+' && tz != '-') || pos + 6 != len
+				|| value.charAt(pos + 3) != ':') {
+			return false;
+		}
+		int tzHour = digits(value, pos + 1, 2);
+		int tzMinute = digits(value, pos + 4, 2);
+		return tzHour >= 0 && tzMinute >= 0 && tzMinute <= 59
+				&& (tzHour < 14 || (tzHour == 14 && tzMinute == 0));
+	}
+
+	private static boolean isDigit(char ch) {
+		return ch >= '0' && ch <= '9';
+	}
+
+	/**
+	 * Parses a fixed-length sequence of decimal digits.
+	 * 
+	 * @return The value, or -1 if a non-digit character is encountered.
+	 */
+	private static int digits(CharSequence value, int offset, int count) {
+		int number = 0;
+		for (int i = offset; i < offset + count; i++) {
+			char ch = value.charAt(i);
+			if (!isDigit(ch)) {
+				return -1;
+			}
+			number = number * 10 + (ch - '0');
+		}
+		return number;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			boolean leap = (year % 4 == 0 && year % 100 != 0)
+					|| year % 400 == 0;
+			return leap ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+}
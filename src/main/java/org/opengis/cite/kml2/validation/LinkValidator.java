@@ -2,31 +2,28 @@ package org.opengis.cite.kml2.validation;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.net.HttpURLConnection;
 import java.net.URI;
 import java.util.Arrays;
-import java.util.Iterator;
 
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
 
 import org.opengis.cite.kml2.ETSAssert;
 import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
 import org.opengis.cite.kml2.util.HttpClientUtils;
+import org.opengis.cite.kml2.util.Metrics;
+import org.opengis.cite.kml2.util.SuiteEvent;
 import org.opengis.cite.kml2.util.URIUtils;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.validation.ErrorLocator;
 import org.opengis.cite.validation.ErrorSeverity;
-import org.opengis.cite.validation.ValidationError;
 import org.opengis.cite.validation.ValidationErrorHandler;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import com.sun.jersey.api.client.Client;
-import com.sun.jersey.api.client.ClientRequest;
 import com.sun.jersey.api.client.ClientResponse;
 
 /**
@@ -60,10 +57,9 @@ import com.sun.jersey.api.client.ClientResponse;
  */
 public class LinkValidator {
 
-	private int conformanceLevel = 1;
-	private ValidationErrorHandler errHandler;
-	private MediaType[] mediaTypes;
-	private Client httpClient;
+	private final int conformanceLevel;
+	private final MediaType[] mediaTypes;
+	private final Client httpClient;
 
 	/**
 	 * Constructs a LinkValidator to check all mandatory constraints.
@@ -73,14 +69,12 @@ public class LinkValidator {
 	 *            type is acceptable.
 	 */
 	public LinkValidator(MediaType... mediaTypes) {
-		this.errHandler = new ValidationErrorHandler();
-		this.mediaTypes = mediaTypes;
-		this.httpClient = HttpClientUtils.buildClient();
+		this(1, mediaTypes);
 	}
 
 	/**
 	 * Constructs a LinkValidator to check the constraints that apply to the
-	 * specified conformance level.
+	 * specified conformance level. Instances are immutable and may be shared.
 	 * 
 	 * @param level
 	 *            The applicable conformance level.
@@ -89,36 +83,9 @@ public class LinkValidator {
 	 *            type is acceptable.
 	 */
 	public LinkValidator(int level, MediaType... mediaTypes) {
-		this(mediaTypes);
-		if (level > 0 && level < 4) {
-			this.conformanceLevel = level;
-		}
-	}
-
-	/**
-	 * Returns all error messages reported during the last call to
-	 * <code>isValid</code>.
-	 * 
-	 * @return A String containing the reported error messages (may be empty).
-	 */
-	public String getErrorMessages() {
-		return errHandler.toString();
-	}
-
-	/**
-	 * Returns the errors reported during the last call to <code>isValid</code>.
-	 * 
-	 * @return An iterator over the reported validation errors.
-	 */
-	public Iterator<ValidationError> getErrors() {
-		return errHandler.iterator();
-	}
-
-	/**
-	 * Resets the error handler.
-	 */
-	public void reset() {
-		errHandler.reset();
+		this.conformanceLevel = (level > 0 && level < 4) ? level : 1;
+		this.mediaTypes = (null != mediaTypes) ? mediaTypes.clone() : null;
+		this.httpClient = HttpClientUtils.getSharedClient();
 	}
 
 	/**
@@ -133,25 +100,30 @@ public class LinkValidator {
 	 * 
 	 * @param node
 	 *            A kml:Link or kml:Icon element.
-	 * @return true if the link is valid; false otherwise.
+	 * @return The result of validation.
 	 */
-	public boolean isValid(Node node) {
-		errHandler.reset();
+	public ValidationResult validate(Node node) {
+		long start = System.nanoTime();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
 		Element link = (Element) node;
-		checkLinkReferent(link);
-		checkLinkProperties(link);
+		checkLinkReferent(link, errHandler);
+		checkLinkProperties(link, errHandler);
 		if (this.conformanceLevel > 1) {
-			checkLinkConstraintsAtLevel2(link);
+			checkLinkConstraintsAtLevel2(link, errHandler);
 		}
-		return !errHandler.errorsDetected();
+		ValidationResult result = ValidationResult.of(errHandler);
+		Metrics.getInstance().record(Metrics.VALIDATOR,
+				"LinkValidator", start);
+		return result;
 	}
 
 	/**
 	 * Checks that the link URI (href value) refers to an accessible resource
 	 * whose content type is compatible with an acceptable media type. The
-	 * resource is the target of a HEAD request; however if a 403 (Forbidden)
-	 * status code is received because the request was rejected, a GET request
-	 * will then be attempted.
+	 * resource is the target of a HEAD request; however if a 403 (Forbidden) or
+	 * 405 (Method Not Allowed) status code is received because the request was
+	 * rejected, a GET request for the first byte only will then be attempted.
+	 * The response entity is never retrieved.
 	 * <p>
 	 * If the URI contains tile parameters (for a large image), the single tile
 	 * at level 0 will be requested. That is, all tile parameters are replaced
@@ -160,10 +132,12 @@ public class LinkValidator {
 	 * 
 	 * @param link
 	 *            An Element representing a link (of type kml:LinkType).
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "OGC KML 2.3 - Abstract Test Suite, ATC-139: Link reference"
 	 */
-	void checkLinkReferent(Element link) {
+	void checkLinkReferent(Element link, ValidationErrorHandler errHandler) {
 		NodeList hrefList = link.getElementsByTagNameNS(KML2.NS_NAME, "href");
 		if (hrefList.getLength() == 0) {
 			errHandler.addError(ErrorSeverity.ERROR, ErrorMessage.format(
@@ -176,6 +150,10 @@ public class LinkValidator {
 			href = href.replaceAll("\\$\\[\\w+]", "0");
 		}
 		URI uri = URI.create(href);
+		SuiteEvent event = SuiteEvent.begin(SuiteEvent.Type.LINK_CHECK);
+		if (event.isEnabled()) {
+			event.setXPointer(XMLUtils.buildXPointer(link));
+		}
 		try {
 			if (!uri.isAbsolute()) {
 				uri = URIUtils.resolveRelativeURI(link.getOwnerDocument()
@@ -186,24 +164,13 @@ public class LinkValidator {
 				if (!file.exists()) {
 					throw new FileNotFoundException("File not found");
 				}
+				event.setBytes(file.length());
+				event.setOutcome("file");
 			} else {
-				ClientRequest req = HttpClientUtils.buildHeadRequest(uri, null,
-						mediaTypes);
-				ClientResponse rsp = this.httpClient.handle(req);
-				if (rsp.getStatusInfo().getFamily() == Response.Status.Family.REDIRECTION) {
-					// client won't automatically redirect from HTTP to HTTPS
-					URI newURI = rsp.getLocation();
-					req.setURI(newURI);
-					rsp = this.httpClient.handle(req);
-				}
-				if (rsp.getStatus() == Response.Status.FORBIDDEN
-						.getStatusCode()) {
-					// some servers reject HEAD requests
-					req = HttpClientUtils
-							.buildGetRequest(uri, null, mediaTypes);
-					rsp = this.httpClient.handle(req);
-				}
-				if (rsp.getStatus() != HttpURLConnection.HTTP_OK) {
+				ClientResponse rsp = HttpClientUtils.probe(this.httpClient,
+						uri, mediaTypes);
+				event.setOutcome("HTTP " + rsp.getStatus());
+				if (!HttpClientUtils.isProbeSuccessful(rsp)) {
 					errHandler.addError(ErrorSeverity.ERROR, ErrorMessage
 							.format(ErrorMessageKeys.UNEXPECTED_STATUS, uri,
 									rsp.getStatus()), new ErrorLocator(-1, -1,
@@ -222,9 +189,13 @@ public class LinkValidator {
 				}
 			}
 		} catch (Exception e) {
+			event.setOutcome(e.getMessage());
 			errHandler.addError(ErrorSeverity.ERROR, ErrorMessage.format(
 					ErrorMessageKeys.URI_NOT_ACCESSIBLE, uri, e.getMessage()),
 					new ErrorLocator(-1, -1, XMLUtils.buildXPointer(link)));
+		} finally {
+			event.setURI(uri.toString());
+			event.commit();
 		}
 	}
 
@@ -233,10 +204,12 @@ public class LinkValidator {
 	 * 
 	 * @param link
 	 *            An Element representing a link (of type kml:LinkType).
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "OGC 14-068, ATC-109: Link properties"
 	 */
-	void checkLinkProperties(Element link) {
+	void checkLinkProperties(Element link, ValidationErrorHandler errHandler) {
 		Node refresh = link.getElementsByTagNameNS(KML2.NS_NAME,
 				"refreshInterval").item(0);
 		if (null != refresh
@@ -277,8 +250,11 @@ public class LinkValidator {
 	 * 
 	 * @param link
 	 *            An Element representing a link (of type kml:LinkType).
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 */
-	void checkLinkConstraintsAtLevel2(Element link) {
+	void checkLinkConstraintsAtLevel2(Element link,
+			ValidationErrorHandler errHandler) {
 		Node viewFormat = link.getElementsByTagNameNS(KML2.NS_NAME,
 				"viewFormat").item(0);
 		if (null != viewFormat && viewFormat.getTextContent().isEmpty()) {
@@ -1,10 +1,9 @@
 package org.opengis.cite.kml2.validation;
 
-import java.util.Iterator;
-
 import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.kml2.util.Metrics;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.validation.ErrorLocator;
 import org.opengis.cite.validation.ErrorSeverity;
@@ -41,59 +40,45 @@ import org.w3c.dom.Node;
  */
 public class RegionValidator {
 
-	private ValidationErrorHandler errHandler;
-	private GeoExtentValidator geoExtentValidator;
-	private int conformanceLevel = 1;
+	private static final RegionValidator INSTANCE = new RegionValidator();
 
-	/**
-	 * Default constructor.
-	 */
-	public RegionValidator() {
-		this.errHandler = new ValidationErrorHandler();
-		this.geoExtentValidator = new GeoExtentValidator();
+	private RegionValidator() {
 	}
 
 	/**
-	 * Constructs a RegionValidator to check the constraints that apply to the
-	 * specified conformance level.
+	 * Returns the shared (stateless) validator instance.
 	 * 
-	 * @param level
-	 *            The applicable conformance level.
+	 * @return A RegionValidator.
 	 */
-	public RegionValidator(int level) {
-		this();
-		if (level > 0 && level < 4) {
-			this.conformanceLevel = level;
-		}
+	public static RegionValidator getInstance() {
+		return INSTANCE;
 	}
 
 	/**
-	 * Returns the error messages reported during the last call to
-	 * <code>validateRegionExtent</code>.
-	 * 
-	 * @return A String containing error messages (may be empty).
-	 */
-	public String getErrorMessages() {
-		return errHandler.toString();
-	}
-
-	/**
-	 * Validates a kml:Region element.
+	 * Validates a kml:Region element against the constraints that apply to
+	 * the specified conformance level.
 	 * 
 	 * @param node
 	 *            A kml:Region element.
-	 * @return true if the region satisfies all applicable constraints; false
-	 *         otherwise.
+	 * @param level
+	 *            The applicable conformance level (1 if not in the range
+	 *            1-3).
+	 * @return The result of validation.
 	 */
-	public boolean isValid(Node node) {
-		errHandler.reset();
+	public ValidationResult validate(Node node, int level) {
+		long start = System.nanoTime();
+		int conformanceLevel = (level > 0 && level < 4) ? level : 1;
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
 		Element region = (Element) node;
-		checkRegionExtent(region);
-		checkRegionVisibility(region);
-		if (this.conformanceLevel > 2) {
-			checkLodFadeRange(region);
+		checkRegionExtent(region, errHandler);
+		checkRegionVisibility(region, errHandler);
+		if (conformanceLevel > 2) {
+			checkLodFadeRange(region, errHandler);
 		}
-		return !errHandler.errorsDetected();
+		ValidationResult result = ValidationResult.of(errHandler);
+		Metrics.getInstance().record(Metrics.VALIDATOR,
+				"RegionValidator", start);
+		return result;
 	}
 
 	/**
@@ -102,8 +87,10 @@ public class RegionValidator {
 	 * 
 	 * @param region
 	 *            A kml:Region element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 */
-	void checkRegionExtent(Element region) {
+	void checkRegionExtent(Element region, ValidationErrorHandler errHandler) {
 		Node boxNode = region.getElementsByTagNameNS(KML2.NS_NAME,
 				"LatLonAltBox").item(0);
 		if (null == boxNode) {
@@ -113,10 +100,10 @@ public class RegionValidator {
 					-1, XMLUtils.buildXPointer(region)));
 			return;
 		}
-		if (!geoExtentValidator.validGeoExtent(boxNode)) {
-			Iterator<ValidationError> errors = geoExtentValidator.getErrors();
-			while (errors.hasNext()) {
-				ValidationError err = errors.next();
+		ValidationResult result = GeoExtentValidator.getInstance()
+				.validateGeoExtent(boxNode);
+		if (!result.isValid()) {
+			for (ValidationError err : result.getErrors()) {
 				errHandler.addError(
 						err.getSeverity(),
 						err.getMessage(),
@@ -137,10 +124,13 @@ public class RegionValidator {
 	 * 
 	 * @param region
 	 *            A kml:Region element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "OGC KML 2.3 - Abstract Test Suite, ATC-138: Region visibility (LOD)"
 	 */
-	void checkRegionVisibility(Element region) {
+	void checkRegionVisibility(Element region,
+			ValidationErrorHandler errHandler) {
 		Node lodNode = region.getElementsByTagNameNS(KML2.NS_NAME, "Lod").item(
 				0);
 		if (null == lodNode) {
@@ -188,10 +178,12 @@ public class RegionValidator {
 	 * 
 	 * @param region
 	 *            a kml:Region element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "OGC KML 2.3 - Abstract Test Suite, ATC-306: LOD fade range"
 	 */
-	void checkLodFadeRange(Element region) {
+	void checkLodFadeRange(Element region, ValidationErrorHandler errHandler) {
 		double minLodPixels = getLodParameterValue(region, "minLodPixels");
 		double maxLodPixels = getLodParameterValue(region, "maxLodPixels");
 		double minFadeExtent = getLodParameterValue(region, "minFadeExtent");
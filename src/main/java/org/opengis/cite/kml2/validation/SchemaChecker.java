@@ -1,32 +1,34 @@
 package org.opengis.cite.kml2.validation;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
 
 import javax.ws.rs.core.MediaType;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
-
-import net.sf.saxon.s9api.ItemType;
-import net.sf.saxon.s9api.ItemTypeFactory;
-import net.sf.saxon.s9api.Processor;
-import net.sf.saxon.s9api.QName;
-import net.sf.saxon.s9api.SaxonApiException;
-import net.sf.saxon.s9api.XdmValue;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.opengis.cite.kml2.ETSAssert;
 import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.kml2.util.AtomicTypeRegistry;
+import org.opengis.cite.kml2.util.Metrics;
+import org.opengis.cite.kml2.util.TestSuiteLogger;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.validation.ErrorLocator;
 import org.opengis.cite.validation.ErrorSeverity;
-import org.opengis.cite.validation.ValidationError;
 import org.opengis.cite.validation.ValidationErrorHandler;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -62,42 +64,31 @@ import org.w3c.dom.NodeList;
 public class SchemaChecker {
 
 	private static final String UCUM_NS = "http://unitsofmeasure.org/ucum-essence";
-	ValidationErrorHandler errHandler;
-	URL uomCodeListRef;
+	private static final SchemaChecker INSTANCE = new SchemaChecker();
+	/** Index of UCUM unit codes (null if the code list is unavailable). */
+	private final Set<String> uomCodes;
 	/** List of common prefix symbols in UCUM ('c','k', 'M', ..). */
-	List<String> commonPrefixes;
+	private final List<String> commonPrefixes;
 
-	/**
-	 * Default constructor.
-	 */
-	public SchemaChecker() {
-		this.errHandler = new ValidationErrorHandler();
-		this.uomCodeListRef = SchemaChecker.class.getResource("ucum.xml");
-		this.commonPrefixes = Arrays.asList(new String[] { "E", "P", "T", "G",
-				"M", "k", "h", "da", "d", "c", "m", "u", "n", "p", "f", "a" });
-	}
-
-	List<String> getUomPrefixes() {
-		return commonPrefixes;
+	private SchemaChecker() {
+		this.uomCodes = indexUnitCodes(SchemaChecker.class
+				.getResource("ucum.xml"));
+		this.commonPrefixes = Collections.unmodifiableList(Arrays
+				.asList(new String[] { "E", "P", "T", "G", "M", "k", "h", "da",
+						"d", "c", "m", "u", "n", "p", "f", "a" }));
 	}
 
 	/**
-	 * Returns all error messages reported during the last call to
-	 * <code>isValid</code>.
+	 * Returns the shared (stateless) checker instance.
 	 * 
-	 * @return A String containing the reported error messages (may be empty).
+	 * @return A SchemaChecker.
 	 */
-	public String getErrorMessages() {
-		return errHandler.toString();
+	public static SchemaChecker getInstance() {
+		return INSTANCE;
 	}
 
-	/**
-	 * Returns all errors reported to the handler.
-	 * 
-	 * @return A list containing error descriptions (may be empty).
-	 */
-	public List<ValidationError> getErrors() {
-		return errHandler.getErrors();
+	List<String> getUomPrefixes() {
+		return commonPrefixes;
 	}
 
 	/**
@@ -105,23 +96,27 @@ public class SchemaChecker {
 	 * 
 	 * @param node
 	 *            A kml:Schema element.
-	 * @return true if the schema is valid; false otherwise.
+	 * @return The result of validation.
 	 */
-	public boolean isValid(Node node) {
+	public ValidationResult validate(Node node) {
+		long start = System.nanoTime();
 		if (!node.getLocalName().equals("Schema")) {
 			throw new IllegalArgumentException("Not a Schema element: "
 					+ node.getLocalName());
 		}
-		errHandler.reset();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
 		Element schema = (Element) node;
 		if (schema.getAttribute("id").isEmpty()) {
 			errHandler.addError(ErrorSeverity.ERROR, ErrorMessage.format(
 					ErrorMessageKeys.MISSING_INFOSET_ITEM, "@id"),
 					new ErrorLocator(-1, -1, XMLUtils.buildXPointer(schema)));
 		}
-		checkSimpleFields(schema);
-		checkSimpleArrayFields(schema);
-		return !errHandler.errorsDetected();
+		checkSimpleFields(schema, errHandler);
+		checkSimpleArrayFields(schema, errHandler);
+		ValidationResult result = ValidationResult.of(errHandler);
+		Metrics.getInstance().record(Metrics.VALIDATOR,
+				"SchemaChecker", start);
+		return result;
 	}
 
 	/**
@@ -130,9 +125,10 @@ public class SchemaChecker {
 	 * 
 	 * @param schema
 	 *            A kml:Schema element.
-	 * 
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 */
-	void checkSimpleFields(Element schema) {
+	void checkSimpleFields(Element schema, ValidationErrorHandler errHandler) {
 		NodeList simpleFields = schema.getElementsByTagNameNS(KML2.NS_NAME,
 				"SimpleField");
 		for (int i = 0; i < simpleFields.getLength(); i++) {
@@ -145,8 +141,8 @@ public class SchemaChecker {
 										"@name"), new ErrorLocator(-1, -1,
 										XMLUtils.buildXPointer(simpleField)));
 			}
-			checkDataType(simpleField);
-			checkUnitOfMeasure(simpleField);
+			checkDataType(simpleField, errHandler);
+			checkUnitOfMeasure(simpleField, errHandler);
 		}
 	}
 
@@ -156,13 +152,16 @@ public class SchemaChecker {
 	 * 
 	 * @param schema
 	 *            A kml:Schema element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 */
-	void checkSimpleArrayFields(Element schema) {
+	void checkSimpleArrayFields(Element schema,
+			ValidationErrorHandler errHandler) {
 		NodeList arrayFields = schema.getElementsByTagNameNS(KML2.NS_NAME,
 				"SimpleArrayField");
 		for (int i = 0; i < arrayFields.getLength(); i++) {
 			Element arrayField = (Element) arrayFields.item(i);
-			checkUnitOfMeasure(arrayField);
+			checkUnitOfMeasure(arrayField, errHandler);
 		}
 	}
 
@@ -179,12 +178,14 @@ public class SchemaChecker {
 	 * 
 	 * @param simpleField
 	 *            A kml:SimpleField element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "OGC KML 2.3, 9.11.4.1: kml:SimpleField - type"
 	 * @see <a href="http://www.w3.org/TR/xmlschema11-2/" target="_blank">W3C
 	 *      XML Schema Definition Language (XSD) 1.1 Part 2: Datatypes</a>
 	 */
-	void checkDataType(Element simpleField) {
+	void checkDataType(Element simpleField, ValidationErrorHandler errHandler) {
 		String type = simpleField.getAttribute("type");
 		if (type.isEmpty()) {
 			errHandler.addError(
@@ -195,16 +196,13 @@ public class SchemaChecker {
 							.buildXPointer(simpleField)));
 			return;
 		}
-		QName typeName = new QName("http://www.w3.org/2001/XMLSchema", type);
-		ItemTypeFactory typeFactory = new ItemTypeFactory(new Processor(false));
-		try {
-			@SuppressWarnings("unused")
-			ItemType atomicType = typeFactory.getAtomicType(typeName);
-		} catch (SaxonApiException e) {
+		AtomicTypeRegistry.Resolution atomicType = AtomicTypeRegistry
+				.lookup(type);
+		if (!atomicType.isResolved()) {
 			errHandler.addError(
 					ErrorSeverity.ERROR,
 					ErrorMessage.format(ErrorMessageKeys.INVALID_DATATYPE,
-							e.getMessage()),
+							atomicType.getErrorMessage()),
 					new ErrorLocator(-1, -1, XMLUtils
 							.buildXPointer(simpleField)));
 		}
@@ -219,11 +217,14 @@ public class SchemaChecker {
 	 * 
 	 * @param schemaField
 	 *            A kml:SimpleField or kml:SimpleArrayField element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * @see <a target="_blank"
 	 *      href="http://unitsofmeasure.org/ucum.html">Unified Code for Units of
 	 *      Measure</a>
 	 */
-	public void checkUnitOfMeasure(Element schemaField) {
+	public void checkUnitOfMeasure(Element schemaField,
+			ValidationErrorHandler errHandler) {
 		String uom = schemaField.getAttribute("uom");
 		if (uom.isEmpty()) {
 			return;
@@ -250,22 +251,49 @@ public class SchemaChecker {
 				break;
 			}
 		}
-		String xpath = String.format(
-				"//(ucum:base-unit | ucum:unit)[@Code = '%s']", uomCode);
-		Source uomSource = new StreamSource(uomCodeListRef.toString());
-		try {
-			XdmValue result = XMLUtils.evaluateXPath2(uomSource, xpath,
-					Collections.singletonMap(UCUM_NS, "ucum"));
-			if (result.size() == 0) {
-				errHandler
-						.addError(
-								ErrorSeverity.ERROR,
-								ErrorMessage.format(
-										ErrorMessageKeys.UOM_NOT_DEFN, uom),
-								new ErrorLocator(-1, -1, XMLUtils
-										.buildXPointer(schemaField)));
+		if (null != uomCodes && !uomCodes.contains(uomCode)) {
+			errHandler.addError(
+					ErrorSeverity.ERROR,
+					ErrorMessage.format(ErrorMessageKeys.UOM_NOT_DEFN, uom),
+					new ErrorLocator(-1, -1, XMLUtils
+							.buildXPointer(schemaField)));
+		}
+	}
+
+	/**
+	 * Reads the UCUM code list and builds an index of the unit codes it
+	 * defines (base units and derived units). The code list is read only once
+	 * instead of being queried for every unit of measure reference.
+	 * 
+	 * @param codeListRef
+	 *            A URL that refers to the UCUM essence document.
+	 * @return An immutable set of case-sensitive unit codes, or {@code null}
+	 *         if the code list cannot be read.
+	 */
+	static Set<String> indexUnitCodes(URL codeListRef) {
+		Set<String> codes = new HashSet<>();
+		try (InputStream input = codeListRef.openStream()) {
+			XMLStreamReader reader = XMLInputFactory.newInstance()
+					.createXMLStreamReader(input);
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String name = reader.getLocalName();
+				if (UCUM_NS.equals(reader.getNamespaceURI())
+						&& (name.equals("base-unit") || name.equals("unit"))) {
+					String code = reader.getAttributeValue(null, "Code");
+					if (null != code) {
+						codes.add(code);
+					}
+				}
 			}
-		} catch (SaxonApiException e) {
+			reader.close();
+		} catch (IOException | XMLStreamException e) {
+			TestSuiteLogger.log(Level.WARNING,
+					"Failed to read UCUM code list at " + codeListRef, e);
+			return null;
 		}
+		return Collections.unmodifiableSet(codes);
 	}
-}
\ No newline at end of file
+}
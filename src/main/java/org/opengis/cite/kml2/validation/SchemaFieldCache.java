@@ -0,0 +1,287 @@
+package org.opengis.cite.kml2.validation;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.saxon.s9api.ItemType;
+
+import org.opengis.cite.kml2.util.DocumentCache;
+import org.opengis.cite.kml2.util.Metrics;
+import org.w3c.dom.Document;
+
+/**
+ * A run-scoped cache of the fields declared in custom schemas (kml:Schema
+ * elements), keyed by the value of the 'schemaUrl' attribute that refers to
+ * them. A same-document reference (a relative URI) is scoped to the document
+ * that contains it; an absolute URI is shared by all documents. An entry may
+ * also record that the referenced schema could not be found, so that a broken
+ * reference is not resolved again for every kml:SchemaData element.
+ * 
+ * <p>
+ * Entries for absolute URIs are bounded in number (the least recently used
+ * ones are evicted) and expire after a time to live, so that a cache retained
+ * for a long time (e.g. by the validation daemon) neither grows without limit
+ * nor keeps stale schemas. Entries for same-document references are discarded
+ * along with the document.
+ * </p>
+ * 
+ * <p>
+ * The shared instance may be used by several test runs at once. Each run
+ * {@linkplain #retain() retains} the cache when it starts and
+ * {@linkplain #release() releases} it when it finishes; the cache is cleared
+ * only when the last run using it has finished.
+ * </p>
+ */
+public class SchemaFieldCache {
+
+	/** Default maximum number of entries for absolute URIs. */
+	public static final int DEFAULT_MAX_REMOTE_SCHEMAS = 1000;
+	private static final SchemaFieldCache INSTANCE = new SchemaFieldCache();
+	private final Map<Document, Map<String, SchemaFields>> localSchemas = Collections
+			.synchronizedMap(new WeakHashMap<Document, Map<String, SchemaFields>>());
+	private final LinkedHashMap<String, RemoteEntry> remoteSchemas;
+	private final int maxRemoteSchemas;
+	private final long timeToLive; // ns
+	private int users;
+
+	/**
+	 * Constructs an empty cache that holds up to
+	 * {@value #DEFAULT_MAX_REMOTE_SCHEMAS} entries for absolute URIs; these
+	 * expire after the {@linkplain DocumentCache#DEFAULT_TIME_TO_LIVE default
+	 * time to live} of cached documents.
+	 */
+	public SchemaFieldCache() {
+		this(DEFAULT_MAX_REMOTE_SCHEMAS, DocumentCache.DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Constructs an empty cache with the given limits on entries for absolute
+	 * URIs.
+	 * 
+	 * @param maxRemoteSchemas
+	 *            The maximum number of entries for absolute URIs.
+	 * @param timeToLive
+	 *            The time (ms) after which such an entry expires.
+	 */
+	public SchemaFieldCache(int maxRemoteSchemas, long timeToLive) {
+		this.maxRemoteSchemas = maxRemoteSchemas;
+		this.timeToLive = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+		this.remoteSchemas = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns the cache used during the current test run.
+	 * 
+	 * @return The shared SchemaFieldCache instance.
+	 */
+	public static SchemaFieldCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Gets the cached fields for the schema referenced by the given URI.
+	 * 
+	 * @param doc
+	 *            The document containing the reference.
+	 * @param schemaURI
+	 *            A 'schemaUrl' value.
+	 * @return The cached entry, or null if the reference has not been resolved
+	 *         yet.
+	 */
+	public SchemaFields get(Document doc, URI schemaURI) {
+		SchemaFields fields;
+		if (schemaURI.isAbsolute()) {
+			fields = getRemoteSchema(schemaURI.toString());
+		} else {
+			synchronized (localSchemas) {
+				Map<String, SchemaFields> docSchemas = localSchemas.get(doc);
+				fields = (null != docSchemas) ? docSchemas.get(schemaURI
+						.toString()) : null;
+			}
+		}
+		Metrics.getInstance().recordCacheAccess("schema-fields", null != fields);
+		return fields;
+	}
+
+	/**
+	 * Adds an entry to the cache.
+	 * 
+	 * @param doc
+	 *            The document containing the reference.
+	 * @param schemaURI
+	 *            A 'schemaUrl' value.
+	 * @param fields
+	 *            The fields declared in the referenced schema.
+	 */
+	public void put(Document doc, URI schemaURI, SchemaFields fields) {
+		if (schemaURI.isAbsolute()) {
+			synchronized (remoteSchemas) {
+				remoteSchemas.put(schemaURI.toString(),
+						new RemoteEntry(fields));
+				Iterator<RemoteEntry> itr = remoteSchemas.values()
+						.iterator();
+				while (remoteSchemas.size() > maxRemoteSchemas
+						&& itr.hasNext()) {
+					itr.next();
+					itr.remove();
+				}
+			}
+			return;
+		}
+		synchronized (localSchemas) {
+			Map<String, SchemaFields> docSchemas = localSchemas.get(doc);
+			if (null == docSchemas) {
+				docSchemas = new ConcurrentHashMap<>();
+				localSchemas.put(doc, docSchemas);
+			}
+			docSchemas.put(schemaURI.toString(), fields);
+		}
+	}
+
+	private SchemaFields getRemoteSchema(String schemaURI) {
+		synchronized (remoteSchemas) {
+			RemoteEntry entry = remoteSchemas.get(schemaURI);
+			if (null == entry) {
+				return null;
+			}
+			if (System.nanoTime() - entry.created >= timeToLive) {
+				remoteSchemas.remove(schemaURI);
+				return null;
+			}
+			return entry.fields;
+		}
+	}
+
+	/**
+	 * Returns the number of entries for absolute URIs.
+	 * 
+	 * @return The number of cached remote schemas.
+	 */
+	public int getRemoteSchemaCount() {
+		synchronized (remoteSchemas) {
+			return remoteSchemas.size();
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		localSchemas.clear();
+		synchronized (remoteSchemas) {
+			remoteSchemas.clear();
+		}
+	}
+
+	/**
+	 * Registers a test run that uses the cache.
+	 */
+	public synchronized void retain() {
+		users++;
+	}
+
+	/**
+	 * Unregisters a test run that used the cache. All entries are removed if
+	 * no other run is using it.
+	 */
+	public synchronized void release() {
+		if (users > 0) {
+			users--;
+		}
+		if (users == 0) {
+			clear();
+		}
+	}
+
+	/**
+	 * The fields of a remote schema along with the time they were cached.
+	 */
+	private static final class RemoteEntry {
+
+		final SchemaFields fields;
+		final long created = System.nanoTime();
+
+		RemoteEntry(SchemaFields fields) {
+			this.fields = fields;
+		}
+	}
+
+	/**
+	 * An immutable descriptor of the fields declared in a custom schema. Where
+	 * possible, a {@link LexicalValidator} is associated with a field in order
+	 * to check its values quickly.
+	 */
+	public static final class SchemaFields {
+
+		/** Indicates that the referenced schema was not found. */
+		public static final SchemaFields NOT_FOUND = new SchemaFields(null,
+				null);
+		private final Map<String, ItemType> fields;
+		private final Map<String, LexicalValidator> validators;
+
+		/**
+		 * Constructs a schema descriptor.
+		 * 
+		 * @param fields
+		 *            A Map containing the names (keys) and data types of the
+		 *            declared fields; null if the schema was not found.
+		 * @param typeNames
+		 *            A Map containing the names (keys) of the declared fields
+		 *            and the names of their data types (may be null).
+		 */
+		public SchemaFields(Map<String, ItemType> fields,
+				Map<String, String> typeNames) {
+			this.fields = (null != fields) ? Collections.unmodifiableMap(fields)
+					: null;
+			Map<String, LexicalValidator> fieldValidators = new HashMap<>();
+			if (null != typeNames) {
+				for (Map.Entry<String, String> entry : typeNames.entrySet()) {
+					LexicalValidator validator = LexicalValidator
+							.forType(entry.getValue());
+					if (null != validator) {
+						fieldValidators.put(entry.getKey(), validator);
+					}
+				}
+			}
+			this.validators = fieldValidators;
+		}
+
+		/**
+		 * Indicates whether or not the referenced schema was found.
+		 * 
+		 * @return true if the schema exists; false otherwise.
+		 */
+		public boolean exists() {
+			return null != fields;
+		}
+
+		/**
+		 * Returns the declared fields.
+		 * 
+		 * @return An immutable Map containing the names (keys) and data types
+		 *         of the fields, or null if the schema was not found.
+		 */
+		public Map<String, ItemType> getFields() {
+			return fields;
+		}
+
+		/**
+		 * Returns the lexical validator for the given field.
+		 * 
+		 * @param fieldName
+		 *            The name of a declared field.
+		 * @return A LexicalValidator, or null if there is none for the data
+		 *         type of the field.
+		 */
+		public LexicalValidator getLexicalValidator(String fieldName) {
+			return validators.get(fieldName);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package org.opengis.cite.kml2.validation;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.opengis.cite.kml2.util.XMLUtils;
+import org.opengis.cite.validation.ValidationError;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * The result of checking a KML document in a single streaming pass (see
+ * {@link StreamingValidator}). Only a limited number of errors are retained,
+ * but all of them are counted.
+ *
+ * <p>
+ * The result is written as an XML document like the following:
+ * </p>
+ *
+ * <pre>
+ * &lt;streaming-results subject="file:/data/big.kml" elements="52000000"
+ *   checked="2000000" errors="2" truncated="false"&gt;
+ *   &lt;error line="1042" column="17"
+ *     location="xmlns(tns=http://www.opengis.net/kml/2.2)xpointer((//tns:LinearRing)[12])"&gt;
+ *     A LinearRing element must contain four or more coordinate tuples. Found 3
+ *   &lt;/error&gt;
+ *   ...
+ * &lt;/streaming-results&gt;
+ * </pre>
+ */
+public class StreamingResult {
+
+	/** Name of the result file written to the output directory. */
+	public static final String FILE_NAME = "streaming-results.xml";
+	private final String subject;
+	private final int maxErrors;
+	private final List<ValidationError> errors = new ArrayList<>();
+	private long errorCount;
+	long elementCount;
+	long checkedCount;
+
+	/**
+	 * Constructs an empty result.
+	 *
+	 * @param subject
+	 *            The location of the KML document.
+	 * @param maxErrors
+	 *            The maximum number of errors to retain.
+	 */
+	StreamingResult(String subject, int maxErrors) {
+		this.subject = subject;
+		this.maxErrors = maxErrors;
+	}
+
+	void addError(ValidationError error) {
+		errorCount++;
+		if (errors.size() < maxErrors) {
+			errors.add(error);
+		}
+	}
+
+	/**
+	 * Returns the location of the KML document.
+	 *
+	 * @return A URI (jar URI if the document was read from a KMZ archive).
+	 */
+	public String getSubject() {
+		return subject;
+	}
+
+	/**
+	 * Indicates whether or not any errors were found.
+	 *
+	 * @return true if no errors were found; false otherwise.
+	 */
+	public boolean isValid() {
+		return errorCount == 0;
+	}
+
+	/**
+	 * Returns the total number of errors found.
+	 *
+	 * @return The error count (which may exceed the number of retained errors).
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Returns the retained errors, in document order.
+	 *
+	 * @return An unmodifiable list of validation errors (may be empty).
+	 */
+	public List<ValidationError> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+
+	/**
+	 * Returns the number of elements read.
+	 *
+	 * @return The number of elements in the document.
+	 */
+	public long getElementCount() {
+		return elementCount;
+	}
+
+	/**
+	 * Returns the number of elements that were checked.
+	 *
+	 * @return The number of target elements.
+	 */
+	public long getCheckedCount() {
+		return checkedCount;
+	}
+
+	/**
+	 * Builds an XML representation of the result.
+	 *
+	 * @return A DOM Document (streaming-results).
+	 */
+	public Document toDocument() {
+		Document doc;
+		try {
+			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+					.newDocument();
+		} catch (ParserConfigurationException pce) {
+			throw new RuntimeException(pce);
+		}
+		Element root = doc.createElement("streaming-results");
+		doc.appendChild(root);
+		root.setAttribute("subject", subject);
+		root.setAttribute("elements", Long.toString(elementCount));
+		root.setAttribute("checked", Long.toString(checkedCount));
+		root.setAttribute("errors", Long.toString(errorCount));
+		root.setAttribute("truncated",
+				Boolean.toString(errorCount > errors.size()));
+		for (ValidationError error : errors) {
+			Element entry = doc.createElement("error");
+			entry.setAttribute("line", Integer.toString(error.getLineNumber()));
+			entry.setAttribute("column",
+					Integer.toString(error.getColumnNumber()));
+			entry.setAttribute("location",
+					String.valueOf(error.getLocation()));
+			entry.setTextContent(error.getMessage());
+			root.appendChild(entry);
+		}
+		return doc;
+	}
+
+	/**
+	 * Writes the result to a file named {@value #FILE_NAME} in the given
+	 * directory.
+	 *
+	 * @param outputDir
+	 *            The directory in which to write the result.
+	 * @return The result file.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public File write(File outputDir) throws IOException {
+		if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+			throw new IOException("Cannot create directory " + outputDir);
+		}
+		File resultFile = new File(outputDir, FILE_NAME);
+		try (OutputStream out = new FileOutputStream(resultFile)) {
+			XMLUtils.writeNode(toDocument(), out);
+		}
+		return resultFile;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"Streaming results: %d elements, %d checked, %d errors",
+				elementCount, checkedCount, errorCount);
+	}
+}
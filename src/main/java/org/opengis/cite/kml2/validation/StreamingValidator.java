@@ -0,0 +1,732 @@
+package org.opengis.cite.kml2.validation;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.opengis.cite.kml2.ErrorMessage;
+import org.opengis.cite.kml2.ErrorMessageKeys;
+import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.kml2.util.Metrics;
+import org.opengis.cite.kml2.util.XMLUtils;
+import org.opengis.cite.validation.ErrorSeverity;
+import org.opengis.cite.validation.ValidationError;
+
+/**
+ * Checks the element-level constraints of conformance level 1 in a single
+ * streaming (StAX) pass over a KML document. A DOM is never built: the text
+ * content of a kml:coordinates element is checked tuple by tuple as it is
+ * read (only the current tuple is buffered), and any other value that is
+ * needed is buffered only until the end of the element that contains it (up
+ * to {@value #MAX_VALUE_LENGTH} characters). The memory required is therefore
+ * independent of the size of the document, so that very large exports can be
+ * screened with a small, fixed heap.
+ *
+ * <p>
+ * The following constraints are checked for elements that do not appear in an
+ * update context (i.e. that do not have a {@code targetId} attribute):
+ * </p>
+ * <ul>
+ * <li>kml:coordinates in kml:Point, kml:LineString, kml:LinearRing and
+ * kml:LatLonQuad: tuple count, tuple dimension (also with respect to the
+ * altitude mode), numeric values (see {@link CoordinatesValidator})</li>
+ * <li>ATC-104: TimeSpan interval</li>
+ * <li>ATC-105: TimeStamp value</li>
+ * <li>ATC-109: Link properties (kml:Link, kml:Icon)</li>
+ * <li>ATC-120: NetworkLinkControl refresh period</li>
+ * <li>ATC-138: Region visibility (LOD); the presence of kml:LatLonAltBox is
+ * also checked (ATC-140), but not its content</li>
+ * </ul>
+ *
+ * <p>
+ * Constraints that involve other parts of the document (e.g. style and schema
+ * references) or other resources (e.g. link referents) are not checked. The
+ * error locations are the same XPointer expressions that the full test suite
+ * reports, with the line and column numbers where the elements start.
+ * </p>
+ */
+public class StreamingValidator {
+
+	/** The default maximum number of errors that are retained. */
+	public static final int DEFAULT_MAX_ERRORS = 1000;
+	/** The maximum number of characters buffered for a simple value. */
+	public static final int MAX_VALUE_LENGTH = 256;
+	private static final DateTimeFormatter TIME_PARSER = ISODateTimeFormat
+			.dateTimeParser();
+	private final XMLInputFactory factory;
+	private final int maxErrors;
+
+	/**
+	 * Constructs a validator that retains up to {@value #DEFAULT_MAX_ERRORS}
+	 * errors.
+	 */
+	public StreamingValidator() {
+		this(DEFAULT_MAX_ERRORS);
+	}
+
+	/**
+	 * Constructs a validator that retains a limited number of errors; any
+	 * additional errors are counted but not retained. Instances are immutable
+	 * and may be shared.
+	 *
+	 * @param maxErrors
+	 *            The maximum number of errors to retain.
+	 */
+	public StreamingValidator(int maxErrors) {
+		this.maxErrors = Math.max(0, maxErrors);
+		this.factory = XMLInputFactory.newInstance();
+		// report text in chunks instead of buffering entire text nodes
+		this.factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		this.factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	}
+
+	/**
+	 * Validates a KML document or a KMZ archive. In the latter case the first
+	 * KML document in the archive is read directly from it (entries are not
+	 * extracted).
+	 *
+	 * @param file
+	 *            A KML or KMZ file.
+	 * @return The result of validation.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 * @throws XMLStreamException
+	 *             If the KML document is not well-formed.
+	 */
+	public StreamingResult validate(File file) throws IOException,
+			XMLStreamException {
+		String systemId = file.toURI().toString();
+		try (InputStream input = new BufferedInputStream(new FileInputStream(
+				file))) {
+			if (XMLUtils.isXML(input)) {
+				return validate(input, systemId);
+			}
+		}
+		try (ZipFile zipFile = new ZipFile(file)) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (!entry.isDirectory() && entry.getName().endsWith(".kml")) {
+					try (InputStream input = zipFile.getInputStream(entry)) {
+						return validate(input, "jar:" + systemId + "!/"
+								+ entry.getName());
+					}
+				}
+			}
+		}
+		throw new IOException("No KML document found in " + systemId);
+	}
+
+	/**
+	 * Validates the KML document read from the given input stream.
+	 *
+	 * @param input
+	 *            An input stream; it is not closed.
+	 * @param systemId
+	 *            The location of the document (used in error reports).
+	 * @return The result of validation.
+	 * @throws XMLStreamException
+	 *             If the document is not well-formed.
+	 */
+	public StreamingResult validate(InputStream input, String systemId)
+			throws XMLStreamException {
+		long start = System.nanoTime();
+		StreamingResult result = new StreamingResult(systemId, maxErrors);
+		XMLStreamReader reader = factory.createXMLStreamReader(systemId,
+				input);
+		try {
+			new Pass(reader, result).run();
+		} finally {
+			reader.close();
+		}
+		Metrics.getInstance().record(Metrics.VALIDATOR, "StreamingValidator",
+				start);
+		return result;
+	}
+
+	/**
+	 * The state of a single pass over a document.
+	 */
+	private class Pass {
+
+		final XMLStreamReader reader;
+		final StreamingResult result;
+		/** Open target elements (innermost last). */
+		final List<Target> targets = new ArrayList<>();
+		/** Occurrences of each kind of target element (for XPointers). */
+		final Map<String, int[]> ordinals = new HashMap<>();
+		final StringBuilder value = new StringBuilder();
+		int depth;
+		/** Depth of the child element whose content is read (or -1). */
+		int readDepth = -1;
+		int readMode;
+		String readName;
+
+		Pass(XMLStreamReader reader, StreamingResult result) {
+			this.reader = reader;
+			this.result = result;
+		}
+
+		void run() throws XMLStreamException {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					startElement();
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					endElement();
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					if (readDepth > 0) {
+						characters();
+					}
+					break;
+				default:
+					break;
+				}
+			}
+		}
+
+		void startElement() {
+			depth++;
+			result.elementCount++;
+			if (!KML2.NS_NAME.equals(reader.getNamespaceURI())) {
+				return;
+			}
+			String localName = reader.getLocalName();
+			Target target = createTarget(localName);
+			if (null != target) {
+				int ordinal = nextOrdinal(localName);
+				if (readDepth < 0
+						&& null == reader.getAttributeValue(null, "targetId")) {
+					target.name = localName;
+					target.depth = depth;
+					target.ordinal = ordinal;
+					target.prefix = reader.getPrefix();
+					target.id = reader.getAttributeValue(null, "id");
+					target.line = reader.getLocation().getLineNumber();
+					target.column = reader.getLocation().getColumnNumber();
+					targets.add(target);
+					result.checkedCount++;
+					return;
+				}
+			}
+			if (targets.isEmpty() || readDepth > 0) {
+				return;
+			}
+			Target owner = targets.get(targets.size() - 1);
+			int mode = owner.accept(localName, depth - owner.depth);
+			if (mode != Target.IGNORE) {
+				readDepth = depth;
+				readMode = mode;
+				readName = localName;
+				value.setLength(0);
+			}
+		}
+
+		void characters() {
+			if (readMode == Target.STREAM) {
+				targets.get(targets.size() - 1).text(reader.getTextCharacters(),
+						reader.getTextStart(), reader.getTextLength(), this);
+			} else if (value.length() < MAX_VALUE_LENGTH) {
+				int length = Math.min(reader.getTextLength(),
+						MAX_VALUE_LENGTH - value.length());
+				value.append(reader.getTextCharacters(), reader.getTextStart(),
+						length);
+			}
+		}
+
+		void endElement() {
+			if (depth == readDepth) {
+				Target owner = targets.get(targets.size() - 1);
+				owner.end(readName, (readMode == Target.VALUE) ? value
+						.toString().trim() : null, this);
+				readDepth = -1;
+			} else if (!targets.isEmpty()
+					&& depth == targets.get(targets.size() - 1).depth) {
+				targets.remove(targets.size() - 1).finish(this);
+			}
+			depth--;
+		}
+
+		int nextOrdinal(String localName) {
+			int[] count = ordinals.get(localName);
+			if (null == count) {
+				count = new int[1];
+				ordinals.put(localName, count);
+			}
+			return ++count[0];
+		}
+
+		/**
+		 * Reports a constraint violation.
+		 */
+		void report(Target target, String message) {
+			result.addError(new ValidationError(ErrorSeverity.ERROR, message,
+					result.getSubject(), target.line, target.column, target
+							.getXPointer()));
+		}
+
+		void reportConstraint(Target target, String constraint) {
+			report(target, ErrorMessage.format(
+					ErrorMessageKeys.CONSTRAINT_VIOLATION, constraint,
+					target.getXPointer()));
+		}
+	}
+
+	private static Target createTarget(String localName) {
+		switch (localName) {
+		case "Point":
+		case "LineString":
+		case "LinearRing":
+		case "LatLonQuad":
+			return new GeometryTarget();
+		case "TimeSpan":
+			return new TimeSpanTarget();
+		case "TimeStamp":
+			return new TimeStampTarget();
+		case "Link":
+		case "Icon":
+			return new LinkTarget();
+		case "NetworkLinkControl":
+			return new LinkControlTarget();
+		case "Region":
+			return new RegionTarget();
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * An element that is checked. A target is notified of (KML) elements that
+	 * it contains, and it may ask to receive their content.
+	 */
+	private abstract static class Target {
+
+		static final int IGNORE = 0;
+		/** Receive the (trimmed) text content when the element ends. */
+		static final int VALUE = 1;
+		/** Receive chunks of text content as they are read. */
+		static final int STREAM = 2;
+		String name;
+		String prefix;
+		String id;
+		int depth;
+		int ordinal;
+		int line;
+		int column;
+
+		/**
+		 * Returns the same XPointer as {@link XMLUtils#buildXPointer}.
+		 */
+		String getXPointer() {
+			if (null != id) {
+				return name + "[@id='" + id + "']";
+			}
+			String nsPrefix = (null == prefix || prefix.isEmpty()) ? "tns"
+					: prefix;
+			return "xmlns(" + nsPrefix + "=" + KML2.NS_NAME + ")xpointer((//"
+					+ nsPrefix + ":" + name + ")[" + ordinal + "])";
+		}
+
+		/**
+		 * Indicates how the content of a descendant element is read.
+		 *
+		 * @param localName
+		 *            The local name of a KML element.
+		 * @param level
+		 *            1 for a child element, 2 for a grandchild, and so on.
+		 * @return IGNORE, VALUE or STREAM.
+		 */
+		abstract int accept(String localName, int level);
+
+		void text(char[] chars, int start, int length, Pass pass) {
+		}
+
+		abstract void end(String localName, String value, Pass pass);
+
+		abstract void finish(Pass pass);
+	}
+
+	/**
+	 * Checks kml:coordinates by applying the same rules as the
+	 * {@link CoordinatesValidator} (see {@link CoordinateTuples}). The
+	 * altitude mode normally precedes the coordinates; until it has been
+	 * read, the checks that depend on it are deferred for 2D tuples. Their
+	 * positions are kept as ranges (consecutive 2D tuples take up a single
+	 * range), and they are checked at the end of the geometry.
+	 */
+	private static class GeometryTarget extends Target {
+
+		final StringBuilder tuple = new StringBuilder();
+		boolean hasCoords;
+		boolean coordsDone;
+		boolean altModeSeen;
+		boolean seaFloorAltModeSeen;
+		boolean clampToGround = true;
+		int tupleCount;
+		/** Ranges [start, end) of 2D tuples read before the altitude mode. */
+		int[] deferred2DTuples = new int[2];
+		int deferredRangeCount;
+		/** Errors about the values of the deferred 2D tuples. */
+		final List<String> deferredValueErrors = new ArrayList<>();
+
+		@Override
+		int accept(String localName, int level) {
+			if (level > 1) {
+				return IGNORE;
+			}
+			switch (localName) {
+			case "coordinates":
+				if (coordsDone) {
+					return IGNORE;
+				}
+				hasCoords = true;
+				return STREAM;
+			case "altitudeMode":
+			case "seaFloorAltitudeMode":
+				return VALUE;
+			default:
+				return IGNORE;
+			}
+		}
+
+		@Override
+		void text(char[] chars, int start, int length, Pass pass) {
+			for (int i = start; i < start + length; i++) {
+				char c = chars[i];
+				if (CoordinateTuples.isSeparator(c)) {
+					if (tuple.length() > 0) {
+						endTuple(pass);
+					}
+				} else {
+					tuple.append(c);
+				}
+			}
+		}
+
+		void endTuple(Pass pass) {
+			int index = tupleCount++;
+			String[] values = tuple.toString().split(",");
+			tuple.setLength(0);
+			String error = CoordinateTuples.checkDimension(index,
+					values.length);
+			if (null == error && values.length == 2 && !altModeSeen) {
+				defer2DTuple(index);
+				deferredValueErrors.addAll(CoordinateTuples
+						.checkValues(values));
+				return;
+			}
+			if (null == error) {
+				error = CoordinateTuples.checkAltitudeDimension(index,
+						values.length, clampToGround);
+			}
+			if (null != error) {
+				pass.report(this, error);
+				return;
+			}
+			for (String valueError : CoordinateTuples.checkValues(values)) {
+				pass.report(this, valueError);
+			}
+		}
+
+		void defer2DTuple(int index) {
+			if (deferredRangeCount > 0
+					&& deferred2DTuples[2 * deferredRangeCount - 1] == index) {
+				deferred2DTuples[2 * deferredRangeCount - 1]++;
+				return;
+			}
+			if (2 * deferredRangeCount == deferred2DTuples.length) {
+				deferred2DTuples = Arrays.copyOf(deferred2DTuples,
+						2 * deferred2DTuples.length);
+			}
+			deferred2DTuples[2 * deferredRangeCount] = index;
+			deferred2DTuples[2 * deferredRangeCount + 1] = index + 1;
+			deferredRangeCount++;
+		}
+
+		@Override
+		void end(String localName, String value, Pass pass) {
+			if (localName.equals("coordinates")) {
+				if (tuple.length() > 0 || tupleCount == 0) {
+					// content without tuples is a single empty tuple
+					endTuple(pass);
+				}
+				coordsDone = true;
+			} else if (localName.equals("seaFloorAltitudeMode")) {
+				// takes precedence over kml:altitudeMode
+				if (!seaFloorAltModeSeen) {
+					seaFloorAltModeSeen = true;
+					altModeSeen = true;
+					clampToGround = value.equals("clampToGround");
+				}
+			} else if (!altModeSeen) {
+				altModeSeen = true;
+				clampToGround = value.equals("clampToGround");
+			}
+		}
+
+		@Override
+		void finish(Pass pass) {
+			if (!hasCoords) {
+				pass.report(this,
+						ErrorMessage.get(ErrorMessageKeys.MISSING_COORDS));
+				return;
+			}
+			if (clampToGround) {
+				for (String valueError : deferredValueErrors) {
+					pass.report(this, valueError);
+				}
+			} else {
+				for (int i = 0; i < deferredRangeCount; i++) {
+					int end = deferred2DTuples[2 * i + 1];
+					for (int index = deferred2DTuples[2 * i]; index < end; index++) {
+						pass.report(this, CoordinateTuples
+								.checkAltitudeDimension(index, 2, false));
+					}
+				}
+			}
+			String countError = CoordinateTuples.checkTupleCount(name,
+					tupleCount);
+			if (null != countError) {
+				pass.report(this, countError);
+			}
+		}
+	}
+
+	/**
+	 * Checks a kml:TimeSpan element (ATC-104).
+	 */
+	private static class TimeSpanTarget extends Target {
+
+		String begin;
+		String end;
+
+		@Override
+		int accept(String localName, int level) {
+			return (level == 1 && (localName.equals("begin") || localName
+					.equals("end"))) ? VALUE : IGNORE;
+		}
+
+		@Override
+		void end(String localName, String value, Pass pass) {
+			if (localName.equals("begin")) {
+				begin = value;
+			} else {
+				end = value;
+			}
+		}
+
+		@Override
+		void finish(Pass pass) {
+			if (null == begin && null == end) {
+				pass.report(this, ErrorMessage.format(
+						ErrorMessageKeys.EMPTY_TIMESPAN, getXPointer()));
+				return;
+			}
+			if (null == begin || null == end) {
+				return;
+			}
+			DateTime beginTime;
+			DateTime endTime;
+			try {
+				beginTime = TIME_PARSER.parseDateTime(begin);
+				endTime = TIME_PARSER.parseDateTime(end);
+			} catch (IllegalArgumentException e) {
+				return; // not a temporal value (schema-invalid)
+			}
+			if (!endTime.isAfter(beginTime)) {
+				pass.report(this,
+						ErrorMessage.get(ErrorMessageKeys.TIMESPAN_INTERVAL));
+			}
+		}
+	}
+
+	/**
+	 * Checks a kml:TimeStamp element (ATC-105).
+	 */
+	private static class TimeStampTarget extends Target {
+
+		int whenCount;
+
+		@Override
+		int accept(String localName, int level) {
+			if (localName.equals("when")) {
+				whenCount++;
+			}
+			return IGNORE;
+		}
+
+		@Override
+		void end(String localName, String value, Pass pass) {
+		}
+
+		@Override
+		void finish(Pass pass) {
+			if (whenCount != 1) {
+				pass.report(this, ErrorMessage.format(
+						ErrorMessageKeys.EMPTY_TIMESTAMP, getXPointer()));
+			}
+		}
+	}
+
+	/**
+	 * Checks the properties of a kml:Link or kml:Icon element (ATC-109).
+	 */
+	private static class LinkTarget extends Target {
+
+		@Override
+		int accept(String localName, int level) {
+			if (level > 1) {
+				return IGNORE;
+			}
+			switch (localName) {
+			case "refreshInterval":
+			case "viewRefreshTime":
+			case "viewBoundScale":
+				return VALUE;
+			default:
+				return IGNORE;
+			}
+		}
+
+		@Override
+		void end(String localName, String value, Pass pass) {
+			if (!(parseDouble(value) > 0)) {
+				pass.reportConstraint(this, "kml:" + localName + " > 0");
+			}
+		}
+
+		@Override
+		void finish(Pass pass) {
+		}
+	}
+
+	/**
+	 * Checks a kml:NetworkLinkControl element (ATC-120).
+	 */
+	private static class LinkControlTarget extends Target {
+
+		@Override
+		int accept(String localName, int level) {
+			return (level == 1 && localName.equals("minRefreshPeriod")) ? VALUE
+					: IGNORE;
+		}
+
+		@Override
+		void end(String localName, String value, Pass pass) {
+			if (!(parseDouble(value) >= 0)) {
+				pass.reportConstraint(this, "kml:minRefreshPeriod >= 0");
+			}
+		}
+
+		@Override
+		void finish(Pass pass) {
+		}
+	}
+
+	/**
+	 * Checks a kml:Region element (ATC-138, ATC-140; see
+	 * {@link RegionValidator}).
+	 */
+	private static class RegionTarget extends Target {
+
+		boolean hasBox;
+		boolean hasLod;
+		String minLodPixels;
+		String maxLodPixels;
+
+		@Override
+		int accept(String localName, int level) {
+			switch (localName) {
+			case "LatLonAltBox":
+				hasBox = true;
+				return IGNORE;
+			case "Lod":
+				hasLod = true;
+				return IGNORE;
+			case "minLodPixels":
+			case "maxLodPixels":
+				return VALUE;
+			default:
+				return IGNORE;
+			}
+		}
+
+		@Override
+		void end(String localName, String value, Pass pass) {
+			if (localName.equals("minLodPixels")) {
+				minLodPixels = value;
+			} else {
+				maxLodPixels = value;
+			}
+		}
+
+		@Override
+		void finish(Pass pass) {
+			if (!hasBox) {
+				pass.reportConstraint(this, "[ATC-140] Expected LatLonAltBox");
+			}
+			if (!hasLod) {
+				pass.reportConstraint(this, "[ATC-140] Expected Lod");
+				return;
+			}
+			if (null == minLodPixels) {
+				pass.reportConstraint(this,
+						"[ATC-138] Expected minLodPixels in Lod");
+				return;
+			}
+			double min;
+			double max = Double.POSITIVE_INFINITY;
+			try {
+				min = Double.parseDouble(minLodPixels);
+				if (null != maxLodPixels) {
+					max = Double.parseDouble(maxLodPixels);
+				}
+			} catch (NumberFormatException e) {
+				pass.reportConstraint(this,
+						"[ATC-138] Lod pixel values are numeric");
+				return;
+			}
+			if (max == -1) {
+				max = Double.POSITIVE_INFINITY;
+			}
+			if (min >= max) {
+				pass.reportConstraint(this,
+						"[ATC-138] Expected minLodPixels < maxLodPixels in Lod");
+			}
+		}
+	}
+
+	/**
+	 * Parses a numeric value; NaN is returned if it is not a number (so that
+	 * any comparison fails).
+	 */
+	private static double parseDouble(String value) {
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+}
@@ -4,7 +4,6 @@ import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -16,6 +15,7 @@ import org.opengis.cite.kml2.ETSAssert;
 import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.kml2.util.Metrics;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.validation.ErrorLocator;
 import org.opengis.cite.validation.ErrorSeverity;
@@ -50,8 +50,8 @@ import org.w3c.dom.NodeList;
  */
 public class StyleChecker {
 
-	ValidationErrorHandler errHandler;
-	private LinkValidator linkChecker;
+	private static final StyleChecker INSTANCE = new StyleChecker();
+	private final LinkValidator linkChecker;
 	/**
 	 * Immutable set of all NetworkLink states (ListStyle/ItemIcon).
 	 */
@@ -65,22 +65,17 @@ public class StyleChecker {
 		NETWORK_LINK_STATE_SET = Collections.unmodifiableSet(aSet);
 	}
 
-	/**
-	 * Default constructor.
-	 */
-	public StyleChecker() {
-		this.errHandler = new ValidationErrorHandler();
+	private StyleChecker() {
 		this.linkChecker = new LinkValidator(MediaType.valueOf("image/*"));
 	}
 
 	/**
-	 * Returns all error messages reported during the last call to
-	 * <code>isValid</code>.
+	 * Returns the shared (stateless) checker instance.
 	 * 
-	 * @return A String containing the reported error messages (may be empty).
+	 * @return A StyleChecker.
 	 */
-	public String getErrorMessages() {
-		return errHandler.toString();
+	public static StyleChecker getInstance() {
+		return INSTANCE;
 	}
 
 	/**
@@ -88,18 +83,22 @@ public class StyleChecker {
 	 * 
 	 * @param node
 	 *            A kml:Style element.
-	 * @return true if the style is valid; false otherwise.
+	 * @return The result of validation.
 	 */
-	public boolean isValid(Node node) {
+	public ValidationResult validate(Node node) {
+		long start = System.nanoTime();
 		if (!node.getLocalName().equals("Style")) {
 			throw new IllegalArgumentException("Not a Style element: "
 					+ node.getLocalName());
 		}
-		errHandler.reset();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
 		Element style = (Element) node;
-		checkIconStyle(style);
-		checkListStyle(style);
-		return !errHandler.errorsDetected();
+		checkIconStyle(style, errHandler);
+		checkListStyle(style, errHandler);
+		ValidationResult result = ValidationResult.of(errHandler);
+		Metrics.getInstance().record(Metrics.VALIDATOR,
+				"StyleChecker", start);
+		return result;
 	}
 
 	/**
@@ -107,10 +106,12 @@ public class StyleChecker {
 	 * 
 	 * @param style
 	 *            A kml:Style element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "ATC-118: Icon element refers to image"
 	 */
-	void checkIconStyle(Element style) {
+	void checkIconStyle(Element style, ValidationErrorHandler errHandler) {
 		Node icon = null;
 		try {
 			icon = XMLUtils
@@ -118,10 +119,12 @@ public class StyleChecker {
 							0);
 		} catch (XPathExpressionException e) {
 		}
-		if (null != icon && !linkChecker.isValid(icon)) {
-			Iterator<ValidationError> errors = linkChecker.getErrors();
-			while (errors.hasNext()) {
-				ValidationError err = errors.next();
+		if (null == icon) {
+			return;
+		}
+		ValidationResult result = linkChecker.validate(icon);
+		if (!result.isValid()) {
+			for (ValidationError err : result.getErrors()) {
 				errHandler.addError(err.getSeverity(), err.getMessage(),
 						new ErrorLocator(-1, -1, XMLUtils.buildXPointer(icon)));
 			}
@@ -133,10 +136,12 @@ public class StyleChecker {
 	 * 
 	 * @param style
 	 *            A kml:Style element.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "ATC-136: ItemIcon refers to image resource"
 	 */
-	void checkListStyle(Element style) {
+	void checkListStyle(Element style, ValidationErrorHandler errHandler) {
 		NodeList itemIcons = null;
 		try {
 			itemIcons = XMLUtils.evaluateXPath(style,
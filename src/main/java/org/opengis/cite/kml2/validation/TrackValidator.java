@@ -3,6 +3,8 @@ package org.opengis.cite.kml2.validation;
 import org.opengis.cite.kml2.ErrorMessage;
 import org.opengis.cite.kml2.ErrorMessageKeys;
 import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.kml2.util.CoordinateStore;
+import org.opengis.cite.kml2.util.Metrics;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.validation.ErrorLocator;
 import org.opengis.cite.validation.ErrorSeverity;
@@ -12,6 +14,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.Envelope;
 
 /**
@@ -47,30 +50,18 @@ public class TrackValidator {
 	static {
 		CRS_EXTENT = new Envelope(-180, 180, -90, 90);
 	}
-	ValidationErrorHandler errHandler;
+	private static final TrackValidator INSTANCE = new TrackValidator();
 
-	/**
-	 * Default constructor.
-	 */
-	public TrackValidator() {
-		this.errHandler = new ValidationErrorHandler();
+	private TrackValidator() {
 	}
 
 	/**
-	 * Returns the error messages reported during the last call to
-	 * <code>isValid</code>.
+	 * Returns the shared (stateless) validator instance.
 	 * 
-	 * @return A String containing error messages (may be empty).
-	 */
-	public String getErrorMessages() {
-		return errHandler.toString();
-	}
-
-	/**
-	 * Resets the error handler.
+	 * @return A TrackValidator.
 	 */
-	public void reset() {
-		errHandler.reset();
+	public static TrackValidator getInstance() {
+		return INSTANCE;
 	}
 
 	/**
@@ -84,13 +75,13 @@ public class TrackValidator {
 	 * 
 	 * @param node
 	 *            A kml:Track element.
-	 * @return true if the track satisfies all applicable constraints; false
-	 *         otherwise.
+	 * @return The result of validation.
 	 */
-	public boolean isValid(Node node) {
-		errHandler.reset();
+	public ValidationResult validate(Node node) {
+		long start = System.nanoTime();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
 		Element track = (Element) node;
-		checkCoordList(track);
+		checkCoordList(track, errHandler);
 		// ATC-147: Track properties constitute parallel array
 		if (track.getElementsByTagNameNS(KML2.NS_NAME, "when").getLength() != track
 				.getElementsByTagNameNS(KML2.NS_NAME, "coord").getLength()) {
@@ -103,8 +94,11 @@ public class TrackValidator {
 											""), new ErrorLocator(-1, -1,
 									XMLUtils.buildXPointer(track)));
 		}
-		checkAngles(track);
-		return !errHandler.errorsDetected();
+		checkAngles(track, errHandler);
+		ValidationResult result = ValidationResult.of(errHandler);
+		Metrics.getInstance().record(Metrics.VALIDATOR,
+				"TrackValidator", start);
+		return result;
 	}
 
 	/**
@@ -114,10 +108,12 @@ public class TrackValidator {
 	 * 
 	 * @param track
 	 *            A kml:Track element
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "OGC 14-068r1: OGC KML 2.3 - Abstract Test Suite, ATC-146"
 	 */
-	void checkCoordList(Element track) {
+	void checkCoordList(Element track, ValidationErrorHandler errHandler) {
 		NodeList coordList = track
 				.getElementsByTagNameNS(KML2.NS_NAME, "coord");
 		if (coordList.getLength() == 0) {
@@ -127,12 +123,15 @@ public class TrackValidator {
 					-1, XMLUtils.buildXPointer(track)));
 			return;
 		}
+		if (hasValidStoredPositions(track)) {
+			return;
+		}
 		for (int i = 0; i < coordList.getLength(); i++) {
 			Node coordNode = coordList.item(i);
 			if (coordNode.getTextContent().isEmpty()) {
 				continue; // permitted to indicate missing data
 			}
-			double[] coord = getNumericValues(coordNode);
+			double[] coord = getNumericValues(coordNode, errHandler);
 			if (coord.length != 3) {
 				errHandler.addError(
 						ErrorSeverity.ERROR,
@@ -154,6 +153,36 @@ public class TrackValidator {
 		}
 	}
 
+	/**
+	 * Checks the track positions held in the {@link CoordinateStore} for the
+	 * document, if one is enabled. This avoids creating objects for every
+	 * position in a long track; the positions are checked one by one only if
+	 * some of them are invalid (so that the errors can be reported).
+	 * 
+	 * @param track
+	 *            A kml:Track element
+	 * @return true if all positions are known to be valid; false otherwise.
+	 */
+	boolean hasValidStoredPositions(Element track) {
+		CoordinateStore store = CoordinateStore.forDocument(track
+				.getOwnerDocument());
+		if (null == store) {
+			return false;
+		}
+		CoordinateSequence positions;
+		try {
+			positions = store.getTrackCoordinates(track);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		for (int i = 0; i < positions.size(); i++) {
+			if (!CRS_EXTENT.intersects(positions.getX(i), positions.getY(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Verifies that each kml:angles element contained by a Track satisfies the
 	 * following constraints: (a) it contains a space-delimited list of numeric
@@ -162,10 +191,12 @@ public class TrackValidator {
 	 * 
 	 * @param track
 	 *            A kml:Track element
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * 
 	 * @see "OGC 14-068r1: OGC KML 2.3 - Abstract Test Suite, ATC-148"
 	 */
-	void checkAngles(Element track) {
+	void checkAngles(Element track, ValidationErrorHandler errHandler) {
 		NodeList anglesList = track.getElementsByTagNameNS(KML2.NS_NAME,
 				"angles");
 		for (int i = 0; i < anglesList.getLength(); i++) {
@@ -173,7 +204,7 @@ public class TrackValidator {
 			if (anglesNode.getTextContent().isEmpty()) {
 				continue; // permitted to indicate missing data
 			}
-			double[] angles = getNumericValues(anglesNode);
+			double[] angles = getNumericValues(anglesNode, errHandler);
 			if (null == track.getElementsByTagNameNS(KML2.NS_NAME, "Model")
 					.item(0) && (angles.length > 1)) {
 				errHandler
@@ -195,9 +226,11 @@ public class TrackValidator {
 	 * @param node
 	 *            A node containing a sequence of space-separated values, all of
 	 *            which are presumed to be a parsable double.
+	 * @param errHandler
+	 *            The error handler that receives any errors.
 	 * @return A double[] array.
 	 */
-	double[] getNumericValues(Node node) {
+	double[] getNumericValues(Node node, ValidationErrorHandler errHandler) {
 		String[] values = node.getTextContent().trim().split("\\s+");
 		double[] numericValues = new double[values.length];
 		for (int j = 0; j < values.length; j++) {
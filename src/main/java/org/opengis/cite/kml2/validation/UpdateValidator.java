@@ -8,6 +8,7 @@ import javax.xml.transform.dom.DOMSource;
 
 import org.opengis.cite.kml2.ETSAssert;
 import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.kml2.util.Metrics;
 import org.opengis.cite.kml2.util.XMLUtils;
 import org.opengis.cite.validation.ErrorLocator;
 import org.opengis.cite.validation.ErrorSeverity;
@@ -43,23 +44,18 @@ import org.w3c.dom.Node;
  */
 public class UpdateValidator {
 
-	ValidationErrorHandler errHandler;
+	private static final UpdateValidator INSTANCE = new UpdateValidator();
 
-	/**
-	 * Default constructor.
-	 */
-	public UpdateValidator() {
-		this.errHandler = new ValidationErrorHandler();
+	private UpdateValidator() {
 	}
 
 	/**
-	 * Returns all error messages reported during the last call to
-	 * <code>isValid</code>.
+	 * Returns the shared (stateless) validator instance.
 	 * 
-	 * @return A String containing the reported error messages (may be empty).
+	 * @return An UpdateValidator.
 	 */
-	public String getErrorMessages() {
-		return errHandler.toString();
+	public static UpdateValidator getInstance() {
+		return INSTANCE;
 	}
 
 	/**
@@ -79,10 +75,11 @@ public class UpdateValidator {
 	 * 
 	 * @param updateNode
 	 *            A node that represents a kml:Update element.
-	 * @return true if no constraints are violated; false otherwise.
+	 * @return The result of validation.
 	 */
-	public boolean isValid(Node updateNode) {
-		errHandler.reset();
+	public ValidationResult validate(Node updateNode) {
+		long start = System.nanoTime();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
 		Element update = (Element) updateNode;
 		Element targetUri = (Element) update.getElementsByTagNameNS(
 				KML2.NS_NAME, "targetHref").item(0);
@@ -100,6 +97,9 @@ public class UpdateValidator {
 			errHandler.addError(ErrorSeverity.ERROR, e.getMessage(),
 					new ErrorLocator(-1, -1, XMLUtils.buildXPointer(update)));
 		}
-		return !errHandler.errorsDetected();
+		ValidationResult result = ValidationResult.of(errHandler);
+		Metrics.getInstance().record(Metrics.VALIDATOR,
+				"UpdateValidator", start);
+		return result;
 	}
 }
@@ -0,0 +1,86 @@
+package org.opengis.cite.kml2.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.opengis.cite.validation.ValidationError;
+import org.opengis.cite.validation.ValidationErrorHandler;
+
+/**
+ * An immutable record of the outcome of a single validation episode. Since
+ * the validators do not retain any state between calls, every call returns a
+ * new ValidationResult; instances may be safely shared among threads.
+ */
+public final class ValidationResult {
+
+	/** A result with no errors. */
+	public static final ValidationResult VALID = new ValidationResult(
+			Collections.<ValidationError> emptyList(), "");
+	private final List<ValidationError> errors;
+	private final String errorMessages;
+
+	private ValidationResult(List<ValidationError> errors, String errorMessages) {
+		this.errors = errors;
+		this.errorMessages = errorMessages;
+	}
+
+	/**
+	 * Creates a result containing the errors reported to the given handler.
+	 * The handler may be reused afterwards without affecting the result.
+	 *
+	 * @param errHandler
+	 *            An error handler (not shared with other threads).
+	 * @return An immutable ValidationResult.
+	 */
+	public static ValidationResult of(ValidationErrorHandler errHandler) {
+		if (!errHandler.errorsDetected()) {
+			return VALID;
+		}
+		List<ValidationError> errList = new ArrayList<>();
+		errList.addAll(errHandler.getErrors());
+		return new ValidationResult(Collections.unmodifiableList(errList),
+				errHandler.toString());
+	}
+
+	/**
+	 * Indicates whether or not any errors were reported.
+	 *
+	 * @return true if no errors were reported; false otherwise.
+	 */
+	public boolean isValid() {
+		return errors.isEmpty();
+	}
+
+	/**
+	 * Returns the number of reported errors.
+	 *
+	 * @return The error count.
+	 */
+	public int getErrorCount() {
+		return errors.size();
+	}
+
+	/**
+	 * Returns the reported errors.
+	 *
+	 * @return An unmodifiable list of validation errors (may be empty).
+	 */
+	public List<ValidationError> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Returns the reported error messages.
+	 *
+	 * @return A String containing error messages (may be empty).
+	 */
+	public String getErrorMessages() {
+		return errorMessages;
+	}
+
+	@Override
+	public String toString() {
+		return errorMessages;
+	}
+}
@@ -0,0 +1,186 @@
+package org.opengis.cite.kml2.jfr;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import org.opengis.cite.kml2.util.SuiteEvent;
+import org.opengis.cite.kml2.util.SuiteEventProvider;
+
+/**
+ * Creates JDK Flight Recorder events. An event object is only allocated if
+ * events of the requested type are enabled in a running recording; otherwise
+ * the shared {@link SuiteEvent#DISABLED} instance is returned.
+ *
+ * <p>
+ * All events belong to the "OGC KML ETS" category. For example, to record
+ * them while running the test suite:
+ * </p>
+ *
+ * <pre>
+ * java -XX:StartFlightRecording=filename=ets.jfr -jar ets-kml2-aio.jar test-run-props.xml
+ * </pre>
+ */
+public class JfrEventProvider implements SuiteEventProvider {
+
+	private final Map<SuiteEvent.Type, EventType> eventTypes = new EnumMap<>(
+			SuiteEvent.Type.class);
+
+	public JfrEventProvider() {
+		eventTypes.put(SuiteEvent.Type.PARSE,
+				EventType.getEventType(ParseEvent.class));
+		eventTypes.put(SuiteEvent.Type.SCHEMA_VALIDATION,
+				EventType.getEventType(SchemaValidationEvent.class));
+		eventTypes.put(SuiteEvent.Type.SCHEMATRON,
+				EventType.getEventType(SchematronEvent.class));
+		eventTypes.put(SuiteEvent.Type.LINK_CHECK,
+				EventType.getEventType(LinkCheckEvent.class));
+		eventTypes.put(SuiteEvent.Type.REFERENT_CHECK,
+				EventType.getEventType(ReferentCheckEvent.class));
+		eventTypes.put(SuiteEvent.Type.DEREFERENCE,
+				EventType.getEventType(DereferenceEvent.class));
+	}
+
+	@Override
+	public SuiteEvent begin(SuiteEvent.Type type) {
+		if (!eventTypes.get(type).isEnabled()) {
+			return SuiteEvent.DISABLED;
+		}
+		KmlEvent event;
+		switch (type) {
+		case PARSE:
+			event = new ParseEvent();
+			break;
+		case SCHEMA_VALIDATION:
+			event = new SchemaValidationEvent();
+			break;
+		case SCHEMATRON:
+			event = new SchematronEvent();
+			break;
+		case LINK_CHECK:
+			event = new LinkCheckEvent();
+			break;
+		case REFERENT_CHECK:
+			event = new ReferentCheckEvent();
+			break;
+		default:
+			event = new DereferenceEvent();
+		}
+		event.begin();
+		return new RecordedEvent(event);
+	}
+
+	/**
+	 * Adapts a JFR event to the SuiteEvent interface.
+	 */
+	static class RecordedEvent extends SuiteEvent {
+
+		private final KmlEvent event;
+
+		RecordedEvent(KmlEvent event) {
+			this.event = event;
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return true;
+		}
+
+		@Override
+		public void setURI(String uri) {
+			event.uri = uri;
+		}
+
+		@Override
+		public void setSchema(String schema) {
+			event.schema = schema;
+		}
+
+		@Override
+		public void setXPointer(String xpointer) {
+			event.xpointer = xpointer;
+		}
+
+		@Override
+		public void setBytes(long bytes) {
+			event.bytes = bytes;
+		}
+
+		@Override
+		public void setOutcome(String outcome) {
+			event.outcome = outcome;
+		}
+
+		@Override
+		public void commit() {
+			event.end();
+			if (event.shouldCommit()) {
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * The attributes common to all events; not every event type uses all of
+	 * them.
+	 */
+	@Category({ "OGC KML ETS" })
+	@StackTrace(false)
+	abstract static class KmlEvent extends Event {
+
+		@Label("URI")
+		String uri;
+
+		@Label("Schema")
+		String schema;
+
+		@Label("Element")
+		@Description("XPointer that identifies the element involved")
+		String xpointer;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Label("Outcome")
+		String outcome;
+	}
+
+	@Name("org.opengis.cite.kml2.Parse")
+	@Label("Parse KML Document")
+	static class ParseEvent extends KmlEvent {
+	}
+
+	@Name("org.opengis.cite.kml2.SchemaValidation")
+	@Label("XML Schema Validation")
+	static class SchemaValidationEvent extends KmlEvent {
+	}
+
+	@Name("org.opengis.cite.kml2.Schematron")
+	@Label("Schematron Validation")
+	static class SchematronEvent extends KmlEvent {
+	}
+
+	@Name("org.opengis.cite.kml2.LinkCheck")
+	@Label("Link Check")
+	static class LinkCheckEvent extends KmlEvent {
+	}
+
+	@Name("org.opengis.cite.kml2.ReferentCheck")
+	@Label("Referent Check")
+	static class ReferentCheckEvent extends KmlEvent {
+	}
+
+	@Name("org.opengis.cite.kml2.Dereference")
+	@Label("Dereference URI")
+	static class DereferenceEvent extends KmlEvent {
+	}
+}
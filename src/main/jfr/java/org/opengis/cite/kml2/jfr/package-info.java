@@ -0,0 +1,5 @@
+/**
+ * This package provides custom JDK Flight Recorder events (requires JDK 11 or
+ * later). It is only built if the "jfr" profile is active.
+ */
+package org.opengis.cite.kml2.jfr;
@@ -0,0 +1,459 @@
+package org.opengis.cite.kml2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opengis.cite.kml2.util.FeatureFingerprints;
+import org.opengis.cite.kml2.util.IncrementalResults;
+import org.opengis.cite.kml2.util.PartitionedSubject;
+import org.opengis.cite.kml2.util.XMLUtils;
+import org.testng.Assert;
+import org.testng.IHookCallBack;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.internal.ConstructorOrMethod;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Verifies the behavior of the CommonFixture class.
+ */
+public class VerifyCommonFixture {
+
+	private static DocumentBuilder docBuilder;
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUpFixture() throws Exception {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		docBuilder = dbf.newDocumentBuilder();
+	}
+
+	@Test
+	public void checkManyElementsReportsFailuresInDocumentOrder() {
+		int count = 4 * CommonFixture.PARALLEL_THRESHOLD;
+		CommonFixture fixture = new CommonFixture();
+		fixture.kmlDoc = createDocument(count);
+		fixture.setThreadCount(4);
+		fixture.findTargetElements("name");
+		try {
+			fixture.checkTargetElements(new ElementCheck() {
+				@Override
+				public void check(Element elem) {
+					int index = Integer.parseInt(elem.getTextContent());
+					Assert.assertTrue(index % 1000 != 7,
+							elem.getTextContent());
+				}
+			});
+			fail("Expected AssertionError.");
+		} catch (AssertionError e) {
+			String[] lines = e.getMessage().split("\n");
+			assertEquals("Unexpected number of failures.",
+					(count + 992) / 1000, lines.length);
+			for (int i = 0; i < lines.length; i++) {
+				assertTrue("Unexpected failure: " + lines[i],
+						lines[i].startsWith(Integer.toString(i * 1000 + 7)));
+			}
+		}
+	}
+
+	@Test
+	public void checkElementsWithoutFailure() {
+		CommonFixture fixture = new CommonFixture();
+		fixture.kmlDoc = createDocument(CommonFixture.PARALLEL_THRESHOLD);
+		fixture.findTargetElements("name");
+		fixture.checkTargetElements(new ElementCheck() {
+			@Override
+			public void check(Element elem) {
+				Assert.assertTrue(elem.getLocalName().equals("name"),
+						"Unexpected element.");
+			}
+		});
+	}
+
+	@Test
+	public void reportSingleFailure() {
+		SortedMap<Integer, Throwable> failures = new TreeMap<>();
+		AssertionError failure = new AssertionError("failed");
+		failures.put(3, failure);
+		try {
+			CommonFixture.reportFailures(failures);
+			fail("Expected AssertionError.");
+		} catch (AssertionError e) {
+			assertSame(failure, e);
+		}
+	}
+
+	@Test
+	public void reportUnexpectedException() {
+		SortedMap<Integer, Throwable> failures = new TreeMap<>();
+		IllegalArgumentException ex = new IllegalArgumentException();
+		failures.put(1, ex);
+		try {
+			CommonFixture.reportFailures(failures);
+			fail("Expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) {
+			assertSame(ex, e);
+		}
+	}
+
+	@Test
+	public void reportUnexpectedExceptionsWithFailures() {
+		SortedMap<Integer, Throwable> failures = new TreeMap<>();
+		IllegalArgumentException ex1 = new IllegalArgumentException("bad 1");
+		failures.put(1, ex1);
+		failures.put(5, new AssertionError("failed"));
+		IllegalStateException ex2 = new IllegalStateException("bad 9");
+		failures.put(9, ex2);
+		try {
+			CommonFixture.reportFailures(failures);
+			fail("Expected AssertionError.");
+		} catch (AssertionError e) {
+			String[] lines = e.getMessage().split("\n");
+			assertEquals("Unexpected number of failures.", 3, lines.length);
+			assertEquals("failed", lines[1]);
+			assertSame(ex1, e.getCause());
+			assertEquals(1, e.getSuppressed().length);
+			assertSame(ex2, e.getSuppressed()[0]);
+		}
+	}
+
+	@Test
+	public void eachThreadUsesItsOwnCheck() {
+		int count = 4 * CommonFixture.PARALLEL_THRESHOLD;
+		CommonFixture fixture = new CommonFixture();
+		fixture.kmlDoc = createDocument(count);
+		fixture.setThreadCount(4);
+		fixture.findTargetElements("name");
+		final Map<ElementCheck, Thread> owners = new ConcurrentHashMap<>();
+		final AtomicInteger checked = new AtomicInteger();
+		fixture.checkTargetElements(new ElementCheck.Factory() {
+			@Override
+			public ElementCheck newCheck() {
+				return new ElementCheck() {
+					@Override
+					public void check(Element elem) {
+						Thread owner = owners.get(this);
+						if (null == owner) {
+							owners.put(this, Thread.currentThread());
+						} else {
+							Assert.assertTrue(
+									owner == Thread.currentThread(),
+									"Check used by more than one thread.");
+						}
+						checked.incrementAndGet();
+					}
+				};
+			}
+		});
+		assertEquals("Unexpected number of elements checked.", count,
+				checked.get());
+	}
+
+	@Test
+	public void reportTooManyFailures() {
+		SortedMap<Integer, Throwable> failures = new TreeMap<>();
+		int count = CommonFixture.MAX_REPORTED_FAILURES + 5;
+		for (int i = 0; i < count; i++) {
+			failures.put(i, new AssertionError("failure " + i));
+		}
+		try {
+			CommonFixture.reportFailures(failures);
+			fail("Expected AssertionError.");
+		} catch (AssertionError e) {
+			String[] lines = e.getMessage().split("\n");
+			assertEquals("Unexpected number of lines.",
+					CommonFixture.MAX_REPORTED_FAILURES + 1, lines.length);
+			assertTrue("Expected summary of omitted failures.",
+					lines[lines.length - 1].contains("5"));
+		}
+	}
+
+	@Test
+	public void incrementalCheckSkipsUnchangedFeatures() throws Exception {
+		File storeDir = tmpDir.newFolder("incremental");
+		URI subject = URI.create("http://example.org/doc.kml");
+		final AtomicInteger checked = new AtomicInteger();
+		ElementCheck check = new ElementCheck() {
+			@Override
+			public void check(Element elem) {
+				checked.incrementAndGet();
+				Assert.assertTrue(!elem.getTextContent().equals("3"),
+						"Bad name: 3");
+			}
+		};
+		Document doc = createDocument(10);
+		String context = FeatureFingerprints.of(doc).getContextDigest();
+		IncrementalResults results = IncrementalResults.load(storeDir,
+				subject, context);
+		checkIncrementally(doc, results, check);
+		assertEquals("Unexpected number of elements checked.", 10,
+				checked.get());
+		results.save();
+		Document revision = createDocument(10);
+		((Element) revision.getElementsByTagNameNS(KML2.NS_NAME, "Placemark")
+				.item(5)).setAttribute("id", "p5");
+		assertEquals("Expected same context.", context, FeatureFingerprints
+				.of(revision).getContextDigest());
+		checked.set(0);
+		checkIncrementally(revision,
+				IncrementalResults.load(storeDir, subject, context), check);
+		assertEquals("Unexpected number of elements checked.", 1,
+				checked.get());
+	}
+
+	@Test
+	public void incrementalCheckRelocatesFailures() throws Exception {
+		File storeDir = tmpDir.newFolder("incremental");
+		URI subject = URI.create("http://example.org/doc.kml");
+		ElementCheck check = new ElementCheck() {
+			@Override
+			public void check(Element elem) {
+				Assert.assertTrue(!elem.getTextContent().equals("3"),
+						"Bad name: 3 at "
+								+ XMLUtils.buildXPointer(elem.getParentNode()));
+			}
+		};
+		Document doc = createDocument(10);
+		String context = FeatureFingerprints.of(doc).getContextDigest();
+		IncrementalResults results = IncrementalResults.load(storeDir,
+				subject, context);
+		checkIncrementally(doc, results, check);
+		results.save();
+		Document revision = createDocument(10);
+		Element folder = (Element) revision.getElementsByTagNameNS(
+				KML2.NS_NAME, "Folder").item(0);
+		Element placemark = revision.createElementNS(KML2.NS_NAME,
+				"Placemark");
+		Element name = revision.createElementNS(KML2.NS_NAME, "name");
+		name.setTextContent("new");
+		placemark.appendChild(name);
+		folder.insertBefore(placemark, folder.getFirstChild());
+		String message = checkIncrementally(revision,
+				IncrementalResults.load(storeDir, subject, context), check);
+		assertTrue("Unexpected location: " + message,
+				message.contains("(//tns:Placemark)[5])"));
+	}
+
+	@Test
+	public void runTestMethodForEachPartition() throws Exception {
+		PartitionedSubject partitions = splitDocument(5);
+		try {
+			PartitionedFixture fixture = new PartitionedFixture();
+			fixture.setPartitionedSubject(partitions);
+			fixture.findTargetElements("Placemark");
+			try {
+				runTestMethod(fixture, "checkNames");
+				fail("Expected AssertionError.");
+			} catch (AssertionError e) {
+				String[] lines = e.getMessage().split("\n");
+				assertEquals("Unexpected number of failures.", 2,
+						lines.length);
+				assertTrue("Unexpected failure: " + lines[1], lines[1]
+						.startsWith("Bad name: 4")
+						&& lines[1].endsWith("(//tns:Placemark)[5])"));
+			}
+			assertEquals("Unexpected number of invocations.", 5,
+					fixture.invocations);
+		} finally {
+			partitions.delete();
+		}
+	}
+
+	@Test
+	public void sameMessageInPartitionsReportedForEachElement()
+			throws Exception {
+		PartitionedSubject partitions = splitDocument(5);
+		try {
+			PartitionedFixture fixture = new PartitionedFixture();
+			fixture.setPartitionedSubject(partitions);
+			fixture.findTargetElements("Placemark");
+			try {
+				runTestMethod(fixture, "checkNamesWithoutLocation");
+				fail("Expected AssertionError.");
+			} catch (AssertionError e) {
+				assertEquals("Unexpected failures.", "Bad name\nBad name",
+						e.getMessage());
+			}
+		} finally {
+			partitions.delete();
+		}
+	}
+
+	@Test
+	public void partitionsReusedByTestMethods() throws Exception {
+		PartitionedSubject partitions = splitDocument(5);
+		try {
+			PartitionedFixture fixture = new PartitionedFixture();
+			fixture.setPartitionedSubject(partitions);
+			fixture.findTargetElements("Placemark");
+			runTestMethod(fixture, "recordDocument");
+			runTestMethod(fixture, "recordDocument");
+			assertEquals("Unexpected number of invocations.", 10,
+					fixture.invocations);
+			assertEquals("Expected each partition to be parsed once.", 5,
+					fixture.documents.size());
+			fixture.releasePartitions();
+		} finally {
+			partitions.delete();
+		}
+	}
+
+	@Test
+	public void dataProviderSuppliesElementsInEveryPartition()
+			throws Exception {
+		PartitionedSubject partitions = splitDocument(5);
+		try {
+			PartitionedFixture fixture = new PartitionedFixture();
+			fixture.setPartitionedSubject(partitions);
+			fixture.findTargetElements("Placemark");
+			Iterator<Object> elements = fixture.targetElementsProvider();
+			int count = 0;
+			while (elements.hasNext()) {
+				Element elem = (Element) ((Object[]) elements.next())[0];
+				assertSame("Element is not in current partition.",
+						fixture.kmlDoc, elem.getOwnerDocument());
+				assertEquals("Unexpected element.", Integer.toString(count),
+						elem.getTextContent().trim());
+				count++;
+			}
+			assertEquals("Unexpected number of elements.", 5, count);
+		} finally {
+			partitions.delete();
+		}
+	}
+
+	/**
+	 * Splits a document with the given number of placemarks so that every
+	 * placemark ends up in a partition of its own.
+	 */
+	private PartitionedSubject splitDocument(int count) throws Exception {
+		File file = tmpDir.newFile("doc.kml");
+		try (OutputStream out = new FileOutputStream(file)) {
+			XMLUtils.writeNode(createDocument(count), out);
+		}
+		return PartitionedSubject.split(file, 2);
+	}
+
+	/**
+	 * Runs a test method of the given fixture as TestNG would.
+	 */
+	private static void runTestMethod(CommonFixture fixture, String name)
+			throws Exception {
+		ITestNGMethod testMethod = mock(ITestNGMethod.class);
+		when(testMethod.getConstructorOrMethod()).thenReturn(
+				new ConstructorOrMethod(fixture.getClass().getMethod(name)));
+		ITestResult testResult = mock(ITestResult.class);
+		when(testResult.getMethod()).thenReturn(testMethod);
+		IHookCallBack callBack = mock(IHookCallBack.class);
+		when(callBack.getParameters()).thenReturn(new Object[0]);
+		fixture.run(callBack, testResult);
+	}
+
+	/**
+	 * A fixture with test methods that check the placemarks in the current
+	 * partition.
+	 */
+	public static class PartitionedFixture extends CommonFixture {
+
+		int invocations;
+		final Set<Document> documents = Collections
+				.newSetFromMap(new IdentityHashMap<Document, Boolean>());
+
+		public void checkNames() {
+			invocations++;
+			checkTargetElements(new ElementCheck() {
+				@Override
+				public void check(Element elem) {
+					String name = elem.getTextContent().trim();
+					if (name.equals("1") || name.equals("4")) {
+						throw new AssertionError("Bad name: " + name + " at "
+								+ XMLUtils.buildXPointer(elem));
+					}
+				}
+			});
+		}
+
+		public void checkNamesWithoutLocation() {
+			checkTargetElements(new ElementCheck() {
+				@Override
+				public void check(Element elem) {
+					String name = elem.getTextContent().trim();
+					if (name.equals("1") || name.equals("4")) {
+						throw new AssertionError("Bad name");
+					}
+				}
+			});
+		}
+
+		public void recordDocument() {
+			invocations++;
+			documents.add(kmlDoc);
+		}
+	}
+
+	private static String checkIncrementally(Document doc,
+			IncrementalResults results, ElementCheck check) {
+		CommonFixture fixture = new CommonFixture() {
+			@Override
+			String getCurrentTestName() {
+				return "VerifyCommonFixture.test";
+			}
+		};
+		fixture.kmlDoc = doc;
+		fixture.setIncrementalResults(results);
+		fixture.findTargetElements("name");
+		try {
+			fixture.checkTargetElements(check);
+			fail("Expected AssertionError.");
+		} catch (AssertionError e) {
+			assertTrue("Unexpected message: " + e.getMessage(), e
+					.getMessage().startsWith("Bad name: 3"));
+			return e.getMessage();
+		}
+		return null;
+	}
+
+	private static Document createDocument(int count) {
+		Document doc = docBuilder.newDocument();
+		Element root = doc.createElementNS(KML2.NS_NAME, "kml");
+		doc.appendChild(root);
+		Element folder = doc.createElementNS(KML2.NS_NAME, "Folder");
+		root.appendChild(folder);
+		for (int i = 0; i < count; i++) {
+			Element placemark = doc.createElementNS(KML2.NS_NAME, "Placemark");
+			Element name = doc.createElementNS(KML2.NS_NAME, "name");
+			name.setTextContent(Integer.toString(i));
+			placemark.appendChild(name);
+			folder.appendChild(placemark);
+		}
+		return doc;
+	}
+}
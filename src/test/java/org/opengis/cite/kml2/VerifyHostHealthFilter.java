@@ -0,0 +1,47 @@
+package org.opengis.cite.kml2;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.opengis.cite.kml2.util.HostHealthRegistry;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Verifies the behavior of the HostHealthFilter class.
+ */
+public class VerifyHostHealthFilter {
+
+	private static final String HOST = "http://tiles.example.org:-1";
+	private static final String ICON = "http://tiles.example.org/icon.png";
+
+	@Test
+	public void unexpectedExceptionEndsProbe() {
+		HostHealthRegistry registry = new HostHealthRegistry(1, 0, 0);
+		registry.recordFailure(HOST, 100);
+		Client client = new Client(new ClientHandler() {
+			@Override
+			public ClientResponse handle(ClientRequest req)
+					throws ClientHandlerException {
+				throw new IllegalStateException("Unexpected failure");
+			}
+		});
+		client.addFilter(new HostHealthFilter(registry));
+		try {
+			client.resource(ICON).get(ClientResponse.class);
+			fail("Expected IllegalStateException.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertTrue("Expected circuit to stay open.", registry.isOpen(HOST));
+		// the probe has ended, so another one is allowed after the backoff
+		assertTrue("Expected new probe.", registry.allowRequest(HOST));
+		assertFalse(registry.allowRequest(HOST));
+	}
+}
@@ -0,0 +1,104 @@
+package org.opengis.cite.kml2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+import org.junit.Test;
+import org.opengis.cite.kml2.util.HostHealthRegistry;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+/**
+ * Verifies the behavior of the RouteLimitFilter class.
+ */
+public class VerifyRouteLimitFilter {
+
+	private static final URI ICON = URI
+			.create("http://tiles.example.org/icon.png");
+	private static final String ROUTE = HostHealthRegistry.hostKey(ICON);
+
+	private static Client createClient(RouteLimitFilter filter,
+			final byte[] entity) {
+		Client client = new Client(new ClientHandler() {
+			@Override
+			public ClientResponse handle(ClientRequest req)
+					throws ClientHandlerException {
+				return new ClientResponse(200, new InBoundHeaders(),
+						new ByteArrayInputStream(entity), null);
+			}
+		});
+		client.addFilter(filter);
+		return client;
+	}
+
+	@Test
+	public void connectionInUseUntilEntityClosed() throws IOException {
+		RouteLimitFilter filter = new RouteLimitFilter(1, 10);
+		Client client = createClient(filter, new byte[] { 0x4b });
+		ClientResponse rsp = client.resource(ICON).get(ClientResponse.class);
+		assertEquals(0, filter.getAvailableConnections(ROUTE));
+		try {
+			client.resource(ICON).get(ClientResponse.class);
+			fail("Expected ClientHandlerException.");
+		} catch (ClientHandlerException e) {
+			// expected: no connection available
+		}
+		rsp.close();
+		assertEquals(1, filter.getAvailableConnections(ROUTE));
+		client.resource(ICON).get(ClientResponse.class).close();
+		assertEquals(1, filter.getAvailableConnections(ROUTE));
+	}
+
+	@Test
+	public void connectionAvailableAtEndOfEntity() throws IOException {
+		RouteLimitFilter filter = new RouteLimitFilter(1, 10);
+		Client client = createClient(filter, new byte[] { 0x4b, 0x4d });
+		ClientResponse rsp = client.resource(ICON).get(ClientResponse.class);
+		InputStream in = rsp.getEntityInputStream();
+		while (in.read() >= 0) {
+			// consume entity
+		}
+		assertEquals(1, filter.getAvailableConnections(ROUTE));
+		in.close();
+		assertEquals("Connection released twice.", 1,
+				filter.getAvailableConnections(ROUTE));
+	}
+
+	@Test
+	public void connectionAvailableIfNoEntity() {
+		RouteLimitFilter filter = new RouteLimitFilter(1, 10);
+		Client client = createClient(filter, new byte[0]);
+		client.resource(ICON).get(ClientResponse.class);
+		assertEquals(1, filter.getAvailableConnections(ROUTE));
+	}
+
+	@Test
+	public void connectionAvailableAfterFailure() {
+		RouteLimitFilter filter = new RouteLimitFilter(1, 10);
+		Client client = new Client(new ClientHandler() {
+			@Override
+			public ClientResponse handle(ClientRequest req)
+					throws ClientHandlerException {
+				throw new ClientHandlerException("Connection refused");
+			}
+		});
+		client.addFilter(filter);
+		try {
+			client.resource(ICON).get(ClientResponse.class);
+			fail("Expected ClientHandlerException.");
+		} catch (ClientHandlerException e) {
+			// expected
+		}
+		assertEquals(1, filter.getAvailableConnections(ROUTE));
+	}
+}
@@ -1,11 +1,14 @@
 package org.opengis.cite.kml2;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -17,6 +20,7 @@ import org.junit.Test;
 import org.mockito.Matchers;
 import org.testng.ISuite;
 import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
 import org.w3c.dom.Document;
 
 public class VerifySuiteFixtureListener {
@@ -69,4 +73,82 @@ public class VerifySuiteFixtureListener {
 				Matchers.isA(Document.class));
 	}
 
+	@Test
+	public void threadsAbsent() {
+		ISuite parallelSuite = configureThreads(null);
+		verify(parallelSuite.getXmlSuite(), never()).setParallel(
+				Matchers.anyString());
+		verify(parallelSuite).setAttribute(
+				SuiteAttribute.THREAD_COUNT.getName(), 1);
+	}
+
+	@Test
+	public void singleThread() {
+		ISuite parallelSuite = configureThreads("1");
+		verify(parallelSuite.getXmlSuite(), never()).setParallel(
+				Matchers.anyString());
+		verify(parallelSuite).setAttribute(
+				SuiteAttribute.THREAD_COUNT.getName(), 1);
+	}
+
+	@Test
+	public void multipleThreads() {
+		ISuite parallelSuite = configureThreads(" 4 ");
+		XmlSuite parallelXmlSuite = parallelSuite.getXmlSuite();
+		verify(parallelXmlSuite).setParallel("tests");
+		verify(parallelXmlSuite).setThreadCount(4);
+		XmlTest xmlTest = parallelXmlSuite.getTests().get(0);
+		verify(xmlTest).setParallel("classes");
+		verify(xmlTest).setThreadCount(4);
+		verify(parallelSuite).setAttribute(
+				SuiteAttribute.THREAD_COUNT.getName(), 4);
+	}
+
+	@Test
+	public void nonNumericThreadsIgnored() {
+		ISuite parallelSuite = configureThreads("many");
+		verify(parallelSuite.getXmlSuite(), never()).setParallel(
+				Matchers.anyString());
+		verify(parallelSuite).setAttribute(
+				SuiteAttribute.THREAD_COUNT.getName(), 1);
+	}
+
+	@Test
+	public void partitionSizeArgument() {
+		Map<String, String> params = new HashMap<String, String>();
+		SuiteFixtureListener iut = new SuiteFixtureListener();
+		assertEquals(0, iut.getPartitionSize(params));
+		params.put(TestRunArg.PARTITION_SIZE.toString(), " 500 ");
+		assertEquals(500, iut.getPartitionSize(params));
+		params.put(TestRunArg.PARTITION_SIZE.toString(), "-5");
+		assertEquals(0, iut.getPartitionSize(params));
+	}
+
+	@Test
+	public void argumentNamesInCamelCase() {
+		assertEquals("partitionSize", TestRunArg.PARTITION_SIZE.toString());
+		assertEquals("incrementalDir", TestRunArg.INCREMENTAL_DIR.toString());
+		assertEquals("coordinateStore",
+				TestRunArg.COORDINATE_STORE.toString());
+		assertEquals("threads", TestRunArg.THREADS.toString());
+	}
+
+	/**
+	 * Invokes configureParallelMode on a mock suite with the given value of
+	 * the "threads" parameter (absent if null).
+	 */
+	private static ISuite configureThreads(String threads) {
+		Map<String, String> params = new HashMap<String, String>();
+		if (null != threads) {
+			params.put(TestRunArg.THREADS.toString(), threads);
+		}
+		XmlTest xmlTest = mock(XmlTest.class);
+		XmlSuite parallelXmlSuite = mock(XmlSuite.class);
+		when(parallelXmlSuite.getParameters()).thenReturn(params);
+		when(parallelXmlSuite.getTests()).thenReturn(Arrays.asList(xmlTest));
+		ISuite parallelSuite = mock(ISuite.class);
+		when(parallelSuite.getXmlSuite()).thenReturn(parallelXmlSuite);
+		new SuiteFixtureListener().configureParallelMode(parallelSuite);
+		return parallelSuite;
+	}
 }
@@ -1,10 +1,13 @@
 package org.opengis.cite.kml2;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.net.URI;
 import java.net.URL;
 import java.util.InvalidPropertiesFormatException;
 import java.util.Properties;
@@ -18,6 +21,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.opengis.cite.kml2.util.XMLUtils;
+import org.opengis.cite.kml2.validation.StreamingResult;
 import org.w3c.dom.Document;
 
 import net.sf.saxon.s9api.XdmValue;
@@ -61,4 +65,68 @@ public class VerifyTestNGController {
 		int nFailed = Integer.parseInt(failed.itemAt(0).getStringValue());
 		assertEquals("Unexpected number of fail verdicts.", 1, nFailed);
 	}
+
+	@Test
+	public void copyOfTestRunArgsIsIndependent() throws Exception {
+		this.testRunProps.setProperty(TestRunArg.KML.toString(),
+				"http://example.org/a.kml");
+		ByteArrayOutputStream outStream = new ByteArrayOutputStream(1024);
+		this.testRunProps.storeToXML(outStream, "Copy test");
+		Document testRunArgs = docBuilder.parse(new ByteArrayInputStream(outStream.toByteArray()));
+		Document copy = TestNGController.copyTestRunArgs(testRunArgs);
+		assertTrue("Expected equal arguments.",
+				testRunArgs.getDocumentElement().isEqualNode(copy.getDocumentElement()));
+		copy.getDocumentElement().appendChild(copy.createElement("entry"));
+		assertEquals("Original arguments were modified.",
+				this.testRunProps.size(),
+				testRunArgs.getDocumentElement().getElementsByTagName("entry").getLength());
+	}
+
+	@Test
+	public void createTestRunArgsForBatch() throws Exception {
+		this.testRunProps.setProperty(TestRunArg.KML.toString(),
+				"http://example.org/ignored.kml");
+		this.testRunProps.setProperty(TestRunArg.LVL.toString(), "2");
+		ByteArrayOutputStream outStream = new ByteArrayOutputStream(1024);
+		this.testRunProps.storeToXML(outStream, "Batch test");
+		Document baseArgs = docBuilder.parse(new ByteArrayInputStream(outStream.toByteArray()));
+		TestNGController controller = new TestNGController();
+		URI subject = URI.create("file:/data/a.kml");
+		Document testRunArgs = controller.createTestRunArgs(baseArgs, subject);
+		controller.validateTestRunArgs(testRunArgs);
+		assertEquals("Unexpected number of kml arguments.", 1,
+				XMLUtils.evaluateXPath(testRunArgs, "/properties/entry[@key='kml']", null).getLength());
+		assertEquals("Unexpected kml argument.", subject.toString(),
+				XMLUtils.evaluateXPath(testRunArgs, "/properties/entry[@key='kml']", null).item(0)
+						.getTextContent());
+		assertEquals("Unexpected lvl argument.", "2",
+				XMLUtils.evaluateXPath(testRunArgs, "/properties/entry[@key='lvl']", null).item(0)
+						.getTextContent());
+		assertEquals("Unexpected batch argument.", "true",
+				XMLUtils.evaluateXPath(testRunArgs, "/properties/entry[@key='batch']", null).item(0)
+						.getTextContent());
+	}
+
+	@Test
+	public void streamingRunWithSubjectPath() throws Exception {
+		File subject = new File(getClass().getResource(
+				"/geom/LinearRing-001.xml").toURI());
+		this.testRunProps.setProperty(TestRunArg.KML.toString(),
+				subject.getPath());
+		ByteArrayOutputStream outStream = new ByteArrayOutputStream(1024);
+		this.testRunProps.storeToXML(outStream, "Streaming test");
+		Document testRunArgs = docBuilder.parse(new ByteArrayInputStream(outStream.toByteArray()));
+		StreamingResult result = new TestNGController().doStreamingRun(
+				testRunArgs, 10);
+		assertEquals("Unexpected error count.", 1, result.getErrorCount());
+		assertTrue("Subject file was deleted.", subject.isFile());
+	}
+
+	@Test
+	public void localSubjectWithoutScheme() throws Exception {
+		URI subjectRef = URI.create("target/a.kml");
+		File subject = TestNGController.getLocalSubject(subjectRef);
+		assertEquals("Unexpected subject file.",
+				new File("target", "a.kml").getAbsoluteFile(), subject);
+	}
 }
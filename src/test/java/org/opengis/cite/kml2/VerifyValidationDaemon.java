@@ -0,0 +1,144 @@
+package org.opengis.cite.kml2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Verifies the behavior of the ValidationDaemon class.
+ */
+public class VerifyValidationDaemon {
+
+	private static final String RESULTS = "<testng-results total=\"1\" failed=\"0\"/>";
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	private ValidationDaemon daemon;
+
+	@Before
+	public void startDaemon() throws Exception {
+		File resultsFile = tmpDir.newFile("testng-results.xml");
+		Files.write(resultsFile.toPath(),
+				RESULTS.getBytes(StandardCharsets.UTF_8));
+		TestNGController controller = mock(TestNGController.class);
+		when(controller.doTestRun(any(Document.class))).thenReturn(
+				new StreamSource(resultsFile));
+		daemon = new ValidationDaemon(controller, 0, 2);
+		daemon.start();
+	}
+
+	@After
+	public void stopDaemon() {
+		daemon.stop();
+	}
+
+	@Test
+	public void postTestRunArgs() throws IOException {
+		HttpURLConnection conn = post("<properties><entry key='kml'>http://www.example.org/a.kml</entry></properties>");
+		assertEquals("Unexpected status code.", 200, conn.getResponseCode());
+		assertEquals("Unexpected results.", RESULTS,
+				readEntity(conn.getInputStream()));
+	}
+
+	@Test
+	public void postMalformedEntity() throws IOException {
+		HttpURLConnection conn = post("<properties>");
+		assertEquals("Unexpected status code.", 400, conn.getResponseCode());
+	}
+
+	@Test
+	public void postFileSubject() throws IOException {
+		HttpURLConnection conn = post("<properties><entry key='kml'>file:/etc/passwd</entry></properties>");
+		assertEquals("Unexpected status code.", 400, conn.getResponseCode());
+	}
+
+	@Test
+	public void postEntityWithDoctype() throws IOException {
+		HttpURLConnection conn = post("<!DOCTYPE properties [<!ENTITY x SYSTEM 'file:/etc/hosts'>]>"
+				+ "<properties><entry key='kml'>&x;</entry></properties>");
+		assertEquals("Unexpected status code.", 400, conn.getResponseCode());
+	}
+
+	@Test
+	public void testRunIsPartOfBatch() throws Exception {
+		Document args = ValidationDaemon.newDocumentBuilder().parse(
+				new ByteArrayInputStream(("<properties>"
+						+ "<entry key='kml'>https://www.example.org/a.kmz</entry>"
+						+ "<entry key='batch'>false</entry></properties>")
+						.getBytes(StandardCharsets.UTF_8)));
+		ValidationDaemon.prepareTestRunArgs(args);
+		NodeList entries = args.getElementsByTagName("entry");
+		assertEquals("Unexpected number of entries.", 2, entries.getLength());
+		Element batch = (Element) entries.item(1);
+		assertEquals("batch", batch.getAttribute("key"));
+		assertEquals("true", batch.getTextContent());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void relativeSubjectIsRejected() throws Exception {
+		Document args = ValidationDaemon.newDocumentBuilder().parse(
+				new ByteArrayInputStream("<properties><entry key='kml'>a.kml</entry></properties>"
+						.getBytes(StandardCharsets.UTF_8)));
+		ValidationDaemon.prepareTestRunArgs(args);
+	}
+
+	@Test
+	public void getRuns() throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) daemon.getEndpoint()
+				.toURL().openConnection();
+		assertEquals("Unexpected status code.", 405, conn.getResponseCode());
+	}
+
+	@Test
+	public void getStatus() throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) daemon.getEndpoint()
+				.resolve(ValidationDaemon.STATUS_PATH).toURL().openConnection();
+		assertEquals("Unexpected status code.", 200, conn.getResponseCode());
+		assertTrue(readEntity(conn.getInputStream()).startsWith("active:"));
+	}
+
+	private HttpURLConnection post(String entity) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) daemon.getEndpoint()
+				.toURL().openConnection();
+		conn.setRequestMethod("POST");
+		conn.setDoOutput(true);
+		conn.setRequestProperty("Content-Type", "application/xml");
+		try (OutputStream out = conn.getOutputStream()) {
+			out.write(entity.getBytes(StandardCharsets.UTF_8));
+		}
+		return conn;
+	}
+
+	private static String readEntity(InputStream in) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		byte[] bytes = new byte[1024];
+		int n;
+		while ((n = in.read(bytes)) > 0) {
+			buffer.write(bytes, 0, n);
+		}
+		in.close();
+		return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,43 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Verifies the behavior of the AtomicTypeRegistry class.
+ */
+public class VerifyAtomicTypeRegistry {
+
+	@Test
+	public void lookupBuiltInType() {
+		AtomicTypeRegistry.Resolution result = AtomicTypeRegistry
+				.lookup("unsignedShort");
+		assertTrue(result.isResolved());
+		assertNotNull(result.getType());
+		assertSame(result, AtomicTypeRegistry.lookup("unsignedShort"));
+	}
+
+	@Test
+	public void lookupUnknownType() {
+		AtomicTypeRegistry.Resolution result = AtomicTypeRegistry
+				.lookup("integr");
+		assertFalse(result.isResolved());
+		assertTrue(result.getErrorMessage().contains("Unknown atomic type"));
+		assertSame(result, AtomicTypeRegistry.lookup("integr"));
+	}
+
+	@Test
+	public void unknownTypesAreEvicted() {
+		AtomicTypeRegistry.Resolution result = AtomicTypeRegistry
+				.lookup("type0");
+		for (int i = 1; i <= AtomicTypeRegistry.MAX_OTHER_TYPES; i++) {
+			AtomicTypeRegistry.lookup("type" + i);
+		}
+		assertNotSame(result, AtomicTypeRegistry.lookup("type0"));
+	}
+}
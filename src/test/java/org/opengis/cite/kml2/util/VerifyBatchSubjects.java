@@ -0,0 +1,81 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Verifies the behavior of the BatchSubjects class.
+ */
+public class VerifyBatchSubjects {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	private File dataDir;
+
+	@Before
+	public void createFiles() throws IOException {
+		dataDir = tmpDir.newFolder("data");
+		File subDir = new File(dataDir, "sub");
+		subDir.mkdir();
+		new File(dataDir, "b.kml").createNewFile();
+		new File(dataDir, "a.KMZ").createNewFile();
+		new File(dataDir, "notes.txt").createNewFile();
+		new File(subDir, "c.kml").createNewFile();
+	}
+
+	@Test
+	public void resolveDirectory() throws IOException {
+		List<URI> subjects = BatchSubjects.resolve(dataDir.getPath());
+		assertEquals("Unexpected number of subjects.", 3, subjects.size());
+		assertTrue(subjects.get(0).toString().endsWith("/data/a.KMZ"));
+		assertTrue(subjects.get(1).toString().endsWith("/data/b.kml"));
+		assertTrue(subjects.get(2).toString().endsWith("/data/sub/c.kml"));
+	}
+
+	@Test
+	public void resolveGlob() throws IOException {
+		String glob = dataDir.getPath() + File.separator + "*.kml";
+		List<URI> subjects = BatchSubjects.resolve(glob);
+		assertEquals("Unexpected number of subjects.", 1, subjects.size());
+		assertTrue(subjects.get(0).toString().endsWith("/data/b.kml"));
+	}
+
+	@Test
+	public void resolveRecursiveGlob() throws IOException {
+		String glob = dataDir.getPath() + File.separator + "**.kml";
+		List<URI> subjects = BatchSubjects.resolve(glob);
+		assertEquals("Unexpected number of subjects.", 2, subjects.size());
+	}
+
+	@Test
+	public void resolveManifest() throws IOException {
+		File manifest = new File(dataDir, "manifest.txt");
+		Files.write(manifest.toPath(), Arrays.asList("# test subjects",
+				"sub/c.kml", "", "http://example.org/d.kml"),
+				StandardCharsets.UTF_8);
+		List<URI> subjects = BatchSubjects.resolve(manifest.getPath());
+		assertEquals("Unexpected number of subjects.", 2, subjects.size());
+		assertEquals(new File(dataDir, "sub/c.kml").toURI(), subjects.get(0));
+		assertEquals(URI.create("http://example.org/d.kml"), subjects.get(1));
+	}
+
+	@Test
+	public void resolveMissingDirectory() throws IOException {
+		List<URI> subjects = BatchSubjects.resolve(new File(dataDir,
+				"missing/*.kml").getPath());
+		assertTrue("Expected no subjects.", subjects.isEmpty());
+	}
+}
@@ -0,0 +1,179 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.cite.kml2.KML2;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Verifies the behavior of the CoordinateStore class.
+ */
+public class VerifyCoordinateStore {
+
+	private static final String KML_START = "<kml xmlns='http://www.opengis.net/kml/2.2'>";
+	private static DocumentBuilder docBuilder;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		docBuilder = dbf.newDocumentBuilder();
+	}
+
+	private static Document parse(String kml) throws Exception {
+		return docBuilder.parse(new ByteArrayInputStream(kml
+				.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static Node coordinates(Document doc, int index) {
+		return doc.getElementsByTagNameNS(KML2.NS_NAME, "coordinates").item(
+				index);
+	}
+
+	@Test
+	public void coordinatesAreParsedOnce() throws Exception {
+		Document doc = parse(KML_START + "<LineString><coordinates>\n"
+				+ "  -123.5,49.25,10 -123.25,49.5\t-123,49.75,\n"
+				+ "</coordinates></LineString></kml>");
+		CoordinateStore iut = CoordinateStore.register(doc, false);
+		CoordinateSequence seq = iut.getCoordinates(coordinates(doc, 0));
+		assertEquals("Unexpected size.", 3, seq.size());
+		assertEquals(-123.5, seq.getX(0), 0);
+		assertEquals(49.25, seq.getY(0), 0);
+		assertEquals(10, seq.getOrdinate(0, CoordinateSequence.Z), 0);
+		assertEquals(0, seq.getOrdinate(1, CoordinateSequence.Z), 0);
+		assertEquals(49.75, seq.getCoordinate(2).y, 0);
+		assertSame(seq, iut.getCoordinates(coordinates(doc, 0)));
+		assertEquals("Unexpected tuple count.", 3, iut.getTupleCount());
+	}
+
+	@Test
+	public void sequencesShareBlock() throws Exception {
+		Document doc = parse(KML_START + "<MultiGeometry>"
+				+ "<LineString><coordinates>1,2 3,4</coordinates></LineString>"
+				+ "<LineString><coordinates>5,6 7,8 9,10</coordinates>"
+				+ "</LineString>"
+				+ "</MultiGeometry></kml>");
+		CoordinateStore iut = CoordinateStore.register(doc, false);
+		CoordinateSequence first = iut.getCoordinates(coordinates(doc, 0));
+		CoordinateSequence second = iut.getCoordinates(coordinates(doc, 1));
+		assertEquals(4, first.getY(1), 0);
+		assertEquals(5, second.getX(0), 0);
+		assertEquals(10, second.getY(2), 0);
+		assertEquals("Unexpected capacity.", CoordinateStore.MIN_BLOCK_SIZE,
+				iut.getCapacity());
+		Envelope env = second.expandEnvelope(new Envelope());
+		assertEquals(9, env.getMaxX(), 0);
+		assertEquals(6, env.getMinY(), 0);
+	}
+
+	@Test
+	public void mappedStore() throws Exception {
+		Document doc = parse(KML_START
+				+ "<LinearRing><coordinates>0,0 1,0 1,1 0,0</coordinates>"
+				+ "</LinearRing></kml>");
+		CoordinateStore iut = CoordinateStore.register(doc, true);
+		CoordinateSequence seq = iut.getCoordinates(coordinates(doc, 0));
+		assertEquals("Unexpected size.", 4, seq.size());
+		assertEquals(1, seq.getY(2), 0);
+		assertEquals("Unexpected number of coordinates.", 4,
+				seq.toCoordinateArray().length);
+	}
+
+	@Test
+	public void cloneIsIndependent() throws Exception {
+		Document doc = parse(KML_START
+				+ "<LineString><coordinates>1,2,3 4,5,6</coordinates>"
+				+ "</LineString></kml>");
+		CoordinateStore iut = CoordinateStore.register(doc, false);
+		CoordinateSequence seq = iut.getCoordinates(coordinates(doc, 0));
+		CoordinateSequence copy = (CoordinateSequence) seq.clone();
+		copy.setOrdinate(1, CoordinateSequence.X, 40);
+		assertEquals(4, seq.getX(1), 0);
+		assertEquals(40, copy.getX(1), 0);
+		assertEquals(6, copy.getOrdinate(1, CoordinateSequence.Z), 0);
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void incompleteTuple() throws Exception {
+		Document doc = parse(KML_START
+				+ "<LineString><coordinates>1,2 3</coordinates>"
+				+ "</LineString></kml>");
+		CoordinateStore iut = CoordinateStore.register(doc, false);
+		iut.getCoordinates(coordinates(doc, 0));
+	}
+
+	@Test
+	public void trackCoordinates() throws Exception {
+		Document doc = parse(KML_START + "<Track>"
+				+ "<when>2010-05-28T02:02:09Z</when>"
+				+ "<when>2010-05-28T02:02:35Z</when>"
+				+ "<when>2010-05-28T02:02:44Z</when>"
+				+ "<coord>-122.207881 37.371915 156.0</coord><coord/>"
+				+ "<coord> -122.205712  37.373288 152.0 </coord>"
+				+ "</Track></kml>");
+		CoordinateStore iut = CoordinateStore.register(doc, false);
+		Element track = (Element) doc.getDocumentElement().getFirstChild();
+		CoordinateSequence seq = iut.getTrackCoordinates(track);
+		assertEquals("Unexpected number of positions.", 2, seq.size());
+		assertEquals(37.373288, seq.getY(1), 0);
+		assertEquals(152, seq.getOrdinate(1, CoordinateSequence.Z), 0);
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void trackCoordinateWithTwoValues() throws Exception {
+		Document doc = parse(KML_START + "<Track>"
+				+ "<when>2010-05-28T02:02:09Z</when>"
+				+ "<coord>-122.207881 37.371915</coord></Track></kml>");
+		CoordinateStore iut = CoordinateStore.register(doc, false);
+		iut.getTrackCoordinates((Element) doc.getDocumentElement()
+				.getFirstChild());
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void trackCoordinateWithOnlyWhitespace() throws Exception {
+		Document doc = parse(KML_START + "<Track>"
+				+ "<when>2010-05-28T02:02:09Z</when>"
+				+ "<coord> </coord></Track></kml>");
+		CoordinateStore iut = CoordinateStore.register(doc, false);
+		iut.getTrackCoordinates((Element) doc.getDocumentElement()
+				.getFirstChild());
+	}
+
+	@Test
+	public void storeIsDisabledByDefault() throws Exception {
+		Document doc = parse(KML_START + "<Point/></kml>");
+		assertNull(CoordinateStore.forDocument(doc));
+	}
+
+	@Test
+	public void enableMappedStore() throws Exception {
+		Document doc = parse(KML_START + "<Point/></kml>");
+		CoordinateStore iut = CoordinateStore.enable(doc, "Mapped");
+		assertSame(iut, CoordinateStore.forDocument(doc));
+		assertEquals(CoordinateStore.MAPPED, CoordinateStore.getMode(doc));
+	}
+
+	@Test
+	public void unknownModeIgnored() throws Exception {
+		Document doc = parse(KML_START + "<Point/></kml>");
+		assertNull(CoordinateStore.enable(doc, "heap"));
+		assertNull(CoordinateStore.forDocument(doc));
+		assertNull(CoordinateStore.getMode(doc));
+	}
+}
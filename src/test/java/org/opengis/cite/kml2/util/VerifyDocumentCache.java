@@ -0,0 +1,114 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * Verifies the behavior of the DocumentCache class.
+ */
+public class VerifyDocumentCache {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+
+	@Test
+	public void resolveFragmentsInSameDocument() throws SAXException,
+			IOException, URISyntaxException {
+		URL url = this.getClass().getResource("/kml22/SharedStyle.xml");
+		DocumentCache iut = new DocumentCache(1000);
+		Node style = iut.resolve(URI.create(url.toString() + "#defaultStyles"));
+		assertEquals("Node has unexpected [local name].", "Style",
+				style.getLocalName());
+		Node doc = iut.resolve(url.toURI());
+		assertTrue(doc instanceof Document);
+		assertSame(style.getOwnerDocument(), doc);
+		assertEquals(1, iut.size());
+	}
+
+	@Test
+	public void documentExceedsBudget() throws SAXException, IOException,
+			URISyntaxException {
+		URL url = this.getClass().getResource("/kml22/SharedStyle.xml");
+		DocumentCache iut = new DocumentCache(1);
+		Node doc = iut.resolve(url.toURI());
+		assertTrue(doc instanceof Document);
+		assertEquals(0, iut.size());
+	}
+
+	@Test(expected = IOException.class)
+	public void missingDocument() throws SAXException, IOException {
+		DocumentCache iut = new DocumentCache(1000);
+		try {
+			iut.resolve(URI.create("file:/tmp/no-such-file.kml#s1"));
+		} finally {
+			assertEquals("I/O error should not be cached.", 0, iut.size());
+		}
+	}
+
+	@Test
+	public void documentAvailableAfterIOError() throws Exception {
+		File file = new File(tmpDir.getRoot(), "styles.xml");
+		DocumentCache iut = new DocumentCache(1000);
+		try {
+			iut.resolve(file.toURI());
+		} catch (IOException e) {
+			// expected: not yet created
+		}
+		Files.copy(this.getClass().getResourceAsStream("/kml22/SharedStyle.xml"),
+				file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Node doc = iut.resolve(file.toURI());
+		assertTrue(doc instanceof Document);
+		assertEquals(1, iut.size());
+	}
+
+	@Test
+	public void expiredEntryIsRefreshed() throws SAXException, IOException,
+			URISyntaxException {
+		URL url = this.getClass().getResource("/kml22/SharedStyle.xml");
+		DocumentCache iut = new DocumentCache(1000, 0);
+		Node doc = iut.resolve(url.toURI());
+		assertNotSame(doc, iut.resolve(url.toURI()));
+		assertEquals(1, iut.size());
+	}
+
+	@Test
+	public void documentInsertedWithoutExpiry() throws SAXException,
+			IOException, URISyntaxException {
+		URL url = this.getClass().getResource("/kml22/SharedStyle.xml");
+		DocumentCache iut = new DocumentCache(1000, 0);
+		Document doc = (Document) iut.resolve(url.toURI());
+		iut.put(url.toURI(), doc);
+		assertSame(doc, iut.resolve(url.toURI()));
+	}
+
+	@Test
+	public void clearedWhenLastRunReleases() throws SAXException,
+			IOException, URISyntaxException {
+		URL url = this.getClass().getResource("/kml22/SharedStyle.xml");
+		DocumentCache iut = new DocumentCache(1000);
+		iut.retain();
+		iut.retain();
+		iut.resolve(url.toURI());
+		iut.release();
+		assertEquals(1, iut.size());
+		iut.release();
+		assertEquals(0, iut.size());
+	}
+}
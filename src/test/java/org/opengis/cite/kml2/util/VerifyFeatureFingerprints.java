@@ -0,0 +1,100 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.cite.kml2.KML2;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Verifies the behavior of the FeatureFingerprints class.
+ */
+public class VerifyFeatureFingerprints {
+
+	private static final String KML = "<kml xmlns='http://www.opengis.net/kml/2.2'>"
+			+ "<Document><Style id='s1'/>"
+			+ "<Folder><Placemark id='a'><styleUrl>#s1</styleUrl></Placemark>"
+			+ "<Placemark id='b'><name>%s</name></Placemark></Folder>"
+			+ "<Placemark id='c'><styleUrl>#%s</styleUrl></Placemark>"
+			+ "</Document></kml>";
+	private static DocumentBuilder docBuilder;
+
+	@BeforeClass
+	public static void setUpFixture() throws Exception {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		docBuilder = dbf.newDocumentBuilder();
+	}
+
+	@Test
+	public void featuresInNestedContainersAreUnits() throws Exception {
+		Document doc = parse("B", "s1");
+		FeatureFingerprints fingerprints = FeatureFingerprints.of(doc);
+		assertEquals("Unexpected number of units.", 3,
+				fingerprints.getUnitCount());
+		Element placemark = placemark(doc, 1);
+		Element unit = fingerprints.getUnit(placemark.getFirstChild());
+		assertEquals("Unexpected unit.", placemark, unit);
+		assertEquals("Unexpected digest length.", 64,
+				fingerprints.getDigest(unit).length());
+		assertNull("Expected no unit for shared style.", fingerprints
+				.getUnit(doc.getElementsByTagNameNS(KML2.NS_NAME, "Style")
+						.item(0)));
+	}
+
+	@Test
+	public void changeAffectsOnlyOneUnit() throws Exception {
+		Document doc = parse("B", "s1");
+		Document revision = parse("B2", "s1");
+		FeatureFingerprints before = FeatureFingerprints.of(doc);
+		FeatureFingerprints after = FeatureFingerprints.of(revision);
+		assertEquals("Expected same context.", before.getContextDigest(),
+				after.getContextDigest());
+		assertEquals("Expected same digest for unchanged unit.",
+				before.getDigest(placemark(doc, 0)),
+				after.getDigest(placemark(revision, 0)));
+		assertFalse("Expected different digest for changed unit.", before
+				.getDigest(placemark(doc, 1)).equals(
+						after.getDigest(placemark(revision, 1))));
+	}
+
+	@Test
+	public void referenceToOtherUnitHasNoFingerprint() throws Exception {
+		Document doc = parse("B", "b");
+		FeatureFingerprints fingerprints = FeatureFingerprints.of(doc);
+		assertNull("Expected no fingerprint for dependent unit.",
+				fingerprints.getUnit(placemark(doc, 2)));
+		assertNotNull("Expected fingerprint for referenced unit.",
+				fingerprints.getUnit(placemark(doc, 1)));
+	}
+
+	@Test
+	public void unresolvedReferenceHasNoFingerprint() throws Exception {
+		Document doc = parse("B", "missing");
+		assertNull("Expected no fingerprint for unresolved reference.",
+				FeatureFingerprints.of(doc).getUnit(placemark(doc, 2)));
+	}
+
+	private static Document parse(String name, String styleRef)
+			throws Exception {
+		String kml = String.format(KML, name, styleRef);
+		return docBuilder.parse(new ByteArrayInputStream(kml
+				.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static Element placemark(Document doc, int index) {
+		return (Element) doc.getElementsByTagNameNS(KML2.NS_NAME, "Placemark")
+				.item(index);
+	}
+}
@@ -0,0 +1,80 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+
+import org.junit.Test;
+
+/**
+ * Verifies the behavior of the HostHealthRegistry class.
+ */
+public class VerifyHostHealthRegistry {
+
+	private static final String HOST = "http://tiles.example.org:-1";
+
+	@Test
+	public void hostKey() {
+		String key = HostHealthRegistry.hostKey(URI
+				.create("http://Tiles.Example.org/icons/1.png"));
+		assertEquals(HOST, key);
+	}
+
+	@Test
+	public void circuitOpensAfterConsecutiveFailures() {
+		HostHealthRegistry iut = new HostHealthRegistry(2, 60000, 60000);
+		iut.recordFailure(HOST, 100);
+		assertTrue(iut.allowRequest(HOST));
+		iut.recordFailure(HOST, 300);
+		assertTrue(iut.isOpen(HOST));
+		assertFalse(iut.allowRequest(HOST));
+		assertFalse(iut.allowRequest(HOST));
+		assertEquals(2, iut.getRefusedRequests());
+		assertEquals("Unexpected time saved.", 400, iut.getTimeSaved());
+	}
+
+	@Test
+	public void successResetsFailureCount() {
+		HostHealthRegistry iut = new HostHealthRegistry(2, 60000, 60000);
+		iut.recordFailure(HOST, 100);
+		iut.recordSuccess(HOST);
+		iut.recordFailure(HOST, 100);
+		assertFalse(iut.isOpen(HOST));
+		assertTrue(iut.allowRequest(HOST));
+	}
+
+	@Test
+	public void reprobeAfterBackoff() {
+		HostHealthRegistry iut = new HostHealthRegistry(1, 0, 0);
+		iut.recordFailure(HOST, 100);
+		assertTrue(iut.isOpen(HOST));
+		// only one re-probe is allowed at a time
+		assertTrue(iut.allowRequest(HOST));
+		assertFalse(iut.allowRequest(HOST));
+		iut.recordSuccess(HOST);
+		assertFalse(iut.isOpen(HOST));
+		assertTrue(iut.allowRequest(HOST));
+	}
+
+	@Test
+	public void unknownHostIsHealthy() {
+		HostHealthRegistry iut = new HostHealthRegistry();
+		assertTrue(iut.allowRequest(HOST));
+		assertTrue(iut.getSummary().isEmpty());
+	}
+
+	@Test
+	public void readTimeoutsDoNotOpenCircuit() {
+		HostHealthRegistry iut = new HostHealthRegistry(2, 60000, 60000);
+		iut.recordFailure(HOST, 100);
+		iut.recordTimeout(HOST);
+		iut.recordTimeout(HOST);
+		iut.recordFailure(HOST, 100);
+		assertFalse(iut.isOpen(HOST));
+		assertEquals("Unexpected number of timeouts.", 2,
+				iut.getTimeouts(HOST));
+		assertTrue(iut.getSummary().contains("2 read timeouts"));
+	}
+}
@@ -1,13 +1,36 @@
 package org.opengis.cite.kml2.util;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import javax.ws.rs.core.MediaType;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 
 /**
  * Verifies the behavior of the HttpClientUtils class.
@@ -16,6 +39,63 @@ public class VerifyHttpClientUtils {
 
 	@Rule
 	public ExpectedException thrown = ExpectedException.none();
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	private HttpServer server;
+	private final List<String> requests = new ArrayList<>();
+	private final List<String> paths = new ArrayList<>();
+	private final Set<Integer> clientPorts = new HashSet<>();
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String method = exchange.getRequestMethod();
+				String range = exchange.getRequestHeaders().getFirst("Range");
+				requests.add(method + " " + range);
+				paths.add(exchange.getRequestURI().getPath());
+				clientPorts.add(exchange.getRemoteAddress().getPort());
+				exchange.getResponseHeaders().add("Content-Type", "image/png");
+				exchange.getResponseHeaders().add("ETag", "\"v1\"");
+				if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst(
+						"If-None-Match"))) {
+					exchange.sendResponseHeaders(
+							HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+					exchange.close();
+					return;
+				}
+				if (method.equals("HEAD")
+						&& exchange.getRequestURI().getPath()
+								.contains("/nohead/")) {
+					exchange.sendResponseHeaders(
+							HttpURLConnection.HTTP_BAD_METHOD, -1);
+				} else if (method.equals("HEAD")) {
+					exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, -1);
+				} else {
+					exchange.sendResponseHeaders(
+							HttpURLConnection.HTTP_PARTIAL, 1);
+					try (OutputStream out = exchange.getResponseBody()) {
+						out.write(0x89);
+					}
+				}
+				exchange.close();
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	private URI serverURI(String path) {
+		return URI.create(String.format("http://localhost:%d%s", server
+				.getAddress().getPort(), path));
+	}
 
 	@Test
 	public void acceptableXmlMediaType() {
@@ -34,4 +114,111 @@ public class VerifyHttpClientUtils {
 		assertFalse("Expected invalid Link.", result);
 	}
 
+	@Test
+	public void probeWithHead() {
+		ClientResponse rsp = HttpClientUtils.probe(
+				HttpClientUtils.buildClient(), serverURI("/icon.png"),
+				new MediaType("image", "*"));
+		assertTrue(HttpClientUtils.isProbeSuccessful(rsp));
+		assertEquals("Unexpected number of requests.", 1, requests.size());
+		assertEquals("image/png", rsp.getType().toString());
+	}
+
+	@Test
+	public void probeWithRangeRequestIfHeadRejected() {
+		ClientResponse rsp = HttpClientUtils.probe(
+				HttpClientUtils.buildClient(), serverURI("/nohead/icon.png"));
+		assertEquals(HttpURLConnection.HTTP_PARTIAL, rsp.getStatus());
+		assertTrue(HttpClientUtils.isProbeSuccessful(rsp));
+		assertEquals("GET bytes=0-0", requests.get(requests.size() - 1));
+	}
+
+	@Test
+	public void sharedClientIsReused() {
+		Client client = HttpClientUtils.getSharedClient();
+		assertSame(client, HttpClientUtils.getSharedClient());
+		ClientResponse rsp = HttpClientUtils.probe(client,
+				serverURI("/icon.png"));
+		assertTrue(HttpClientUtils.isProbeSuccessful(rsp));
+	}
+
+	@Test
+	public void revalidateCachedLinkCheck() throws IOException {
+		LinkCheckCache cache = new LinkCheckCache(tmpDir.getRoot(), 0);
+		HttpClientUtils.setLinkCheckCache(cache);
+		try {
+			Client client = HttpClientUtils.getSharedClient();
+			URI uri = serverURI("/cached.png");
+			HttpClientUtils.probe(client, uri);
+			ClientResponse rsp = HttpClientUtils.probe(client, uri);
+			assertEquals(HttpURLConnection.HTTP_OK, rsp.getStatus());
+			assertEquals("image/png", rsp.getType().toString());
+			assertEquals("Unexpected number of requests.", 2, requests.size());
+			assertEquals(1, cache.size());
+		} finally {
+			HttpClientUtils.setLinkCheckCache(null);
+		}
+	}
+
+	@Test
+	public void replayRecordedResponses() throws IOException {
+		HttpExchangeArchive archive = new HttpExchangeArchive(
+				tmpDir.newFolder("http"));
+		Client recorder = HttpClientUtils
+				.buildSharedClient(archive, null, null);
+		URI uri = serverURI("/nohead/icon.png");
+		HttpClientUtils.probe(recorder, uri);
+		requests.clear();
+		Client player = HttpClientUtils.buildSharedClient(null, archive, null);
+		ClientResponse rsp = HttpClientUtils.probe(player, uri);
+		assertEquals(HttpURLConnection.HTTP_PARTIAL, rsp.getStatus());
+		assertEquals("image/png", rsp.getType().toString());
+		assertTrue("Network was accessed.", requests.isEmpty());
+	}
+
+	@Test
+	public void useStubServer() {
+		Client client = HttpClientUtils.buildSharedClient(null, null,
+				serverURI("/").toString());
+		ClientResponse rsp = HttpClientUtils.probe(client,
+				URI.create("http://tiles.example.org/nohead/icon.png"));
+		assertEquals(HttpURLConnection.HTTP_PARTIAL, rsp.getStatus());
+		assertEquals("/tiles.example.org/nohead/icon.png",
+				paths.get(paths.size() - 1));
+	}
+
+	@Test
+	public void sharedClientReusesConnections() {
+		Client client = HttpClientUtils.getSharedClient();
+		// more requests than the route limit: every connection is returned
+		int count = 2 * HttpClientUtils.MAX_CONNECTIONS_PER_ROUTE;
+		for (int i = 0; i < count; i++) {
+			ClientResponse rsp = client.resource(serverURI("/icon.png")).get(
+					ClientResponse.class);
+			assertEquals(HttpURLConnection.HTTP_PARTIAL, rsp.getStatus());
+			rsp.close();
+		}
+		assertEquals("Unexpected number of requests.", count, requests.size());
+		assertEquals("Expected a single (persistent) connection.", 1,
+				clientPorts.size());
+	}
+
+	@Test
+	public void sharedClientFollowsTransportSettings() {
+		Client client = HttpClientUtils.getSharedClient();
+		System.setProperty(HttpClientUtils.STUB_SERVER, serverURI("/")
+				.toString());
+		try {
+			Client stubClient = HttpClientUtils.getSharedClient();
+			assertNotSame(client, stubClient);
+			assertSame(stubClient, HttpClientUtils.getSharedClient());
+			HttpClientUtils.probe(stubClient,
+					URI.create("http://tiles.example.org:8080/icon.png"));
+			assertEquals("/tiles.example.org:8080/icon.png", paths.get(0));
+		} finally {
+			System.clearProperty(HttpClientUtils.STUB_SERVER);
+		}
+		assertNotSame(client, HttpClientUtils.getSharedClient());
+	}
+
 }
@@ -0,0 +1,62 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * Verifies the behavior of the IdIndex class.
+ */
+public class VerifyIdIndex {
+
+	@Test
+	public void findSharedStyle() throws URISyntaxException, SAXException,
+			IOException {
+		URL url = this.getClass().getResource("/kml22/SharedStyle.xml");
+		Document doc = KMLUtils.parseKMLDocument(new File(url.toURI()));
+		IdIndex iut = IdIndex.build(doc);
+		assertEquals("Unexpected number of shared styles", 1, iut
+				.getSharedStyles().size());
+		assertTrue("Expected set to contain 'defaultStyles'", iut
+				.getSharedStyles().contains("defaultStyles"));
+		assertTrue(iut.getCustomSchemas().isEmpty());
+	}
+
+	@Test
+	public void findCustomSchema() throws URISyntaxException, SAXException,
+			IOException {
+		URL url = this.getClass().getResource(
+				"/kml22/Placemark-SchemaData-1.xml");
+		Document doc = KMLUtils.parseKMLDocument(new File(url.toURI()));
+		IdIndex iut = IdIndex.build(doc);
+		assertEquals("Unexpected number of custom schemas", 1, iut
+				.getCustomSchemas().size());
+		assertTrue(iut.getCustomSchemas().contains("TrailHead"));
+		Element schema = iut.findElement("TrailHead");
+		assertEquals("Schema", schema.getLocalName());
+		assertNull(iut.findElement("NoSuchId"));
+	}
+
+	@Test
+	public void registeredIndexUsedByXPointer() throws URISyntaxException,
+			SAXException, IOException {
+		URL url = this.getClass().getResource("/kml22/SharedStyle.xml");
+		Document doc = KMLUtils.parseKMLDocument(new File(url.toURI()));
+		IdIndex iut = IdIndex.register(doc);
+		assertSame(iut, IdIndex.lookup(doc));
+		Node style = XMLUtils.evaluateXPointer("defaultStyles", doc);
+		assertSame(iut.findElement("defaultStyles"), style);
+	}
+}
@@ -13,10 +13,12 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.opengis.cite.kml2.KML2;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.LineString;
 import com.vividsolutions.jts.geom.Polygon;
 
 /**
@@ -113,4 +115,34 @@ public class VerifyJTSGeometryBuilder {
 		assertTrue("Expected first coord: " + expected.toString(), polygon
 				.getExteriorRing().getCoordinateN(0).equals2D(expected));
 	}
+
+	@Test
+	public void buildPolygonFromLatLonQuadInStore() throws SAXException,
+			IOException {
+		Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
+				"/geom/LatLonQuad.xml"));
+		CoordinateStore store = CoordinateStore.register(doc, false);
+		Node coords = doc.getDocumentElement()
+				.getElementsByTagNameNS(KML2.NS_NAME, "coordinates").item(0);
+		JTSGeometryBuilder iut = new JTSGeometryBuilder();
+		Polygon polygon = iut.buildPolygonFromCoordinates(coords);
+		assertEquals("Unexpected number of vertices.", 5,
+				polygon.getNumPoints());
+		assertEquals("Unexpected number of stored tuples.", 4,
+				store.getTupleCount());
+	}
+
+	@Test
+	public void buildLinearRingInStore() throws SAXException, IOException {
+		Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
+				"/geom/Polygon.xml"));
+		CoordinateStore store = CoordinateStore.register(doc, false);
+		Element ring = (Element) doc.getElementsByTagNameNS(KML2.NS_NAME,
+				"LinearRing").item(0);
+		JTSGeometryBuilder iut = new JTSGeometryBuilder();
+		LineString line = iut.buildLinearRing(ring);
+		assertSame("Expected view of stored coordinates.",
+				store.getCoordinates(ring.getElementsByTagNameNS(KML2.NS_NAME,
+						"coordinates").item(0)), line.getCoordinateSequence());
+	}
 }
@@ -0,0 +1,102 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Verifies the behavior of the LinkCheckCache class.
+ */
+public class VerifyLinkCheckCache {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+
+	@Test
+	public void saveAndLoad() throws IOException {
+		File cacheDir = new File(tmpDir.getRoot(), "link-cache");
+		LinkCheckCache cache = new LinkCheckCache(cacheDir, 60000);
+		cache.put("HEAD http://example.org/a.png", new LinkCheckCache.Entry(
+				200, "image/png", null, "\"abc\"",
+				"Tue, 15 Nov 1994 12:45:26 GMT", 1000L));
+		cache.save();
+		LinkCheckCache copy = LinkCheckCache.load(cacheDir, 60000);
+		assertEquals(1, copy.size());
+		LinkCheckCache.Entry entry = copy.get("HEAD http://example.org/a.png");
+		assertEquals(200, entry.getStatus());
+		assertEquals("image/png", entry.getContentType());
+		assertNull(entry.getLocation());
+		assertEquals("\"abc\"", entry.getETag());
+		assertEquals(1000L, entry.getCheckedAt());
+	}
+
+	@Test
+	public void loadFromMissingDirectory() throws IOException {
+		LinkCheckCache cache = LinkCheckCache.load(new File(tmpDir.getRoot(),
+				"none"), 60000);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void entryFreshness() {
+		LinkCheckCache cache = new LinkCheckCache(tmpDir.getRoot(), 60000);
+		LinkCheckCache.Entry entry = new LinkCheckCache.Entry(200, null, null,
+				null, null, System.currentTimeMillis());
+		assertTrue(cache.isFresh(entry));
+		assertFalse(entry.hasValidator());
+		assertFalse(cache.isFresh(entry.revalidatedAt(0)));
+	}
+
+	@Test
+	public void saveMergesConcurrentUpdates() throws IOException {
+		File cacheDir = new File(tmpDir.getRoot(), "link-cache");
+		long now = System.currentTimeMillis();
+		LinkCheckCache run1 = LinkCheckCache.load(cacheDir, 60000);
+		LinkCheckCache run2 = LinkCheckCache.load(cacheDir, 60000);
+		run1.put("HEAD http://example.org/a", new LinkCheckCache.Entry(200,
+				null, null, null, null, now));
+		run1.put("HEAD http://example.org/c", new LinkCheckCache.Entry(200,
+				null, null, null, null, now - 1000));
+		run2.put("HEAD http://example.org/b", new LinkCheckCache.Entry(404,
+				null, null, null, null, now));
+		run2.put("HEAD http://example.org/c", new LinkCheckCache.Entry(410,
+				null, null, null, null, now));
+		run1.save();
+		run2.save();
+		LinkCheckCache copy = LinkCheckCache.load(cacheDir, 60000);
+		assertEquals(3, copy.size());
+		assertEquals(410, copy.get("HEAD http://example.org/c").getStatus());
+	}
+
+	@Test
+	public void saveDropsExpiredEntries() throws IOException {
+		File cacheDir = new File(tmpDir.getRoot(), "link-cache");
+		LinkCheckCache cache = new LinkCheckCache(cacheDir, 60000);
+		cache.put("HEAD http://example.org/a", new LinkCheckCache.Entry(200,
+				null, null, null, null, 1000L));
+		cache.put("HEAD http://example.org/b", new LinkCheckCache.Entry(200,
+				null, null, "\"b\"", null, 1000L));
+		cache.save();
+		LinkCheckCache copy = LinkCheckCache.load(cacheDir, 60000);
+		assertEquals(1, copy.size());
+		assertNull(copy.get("HEAD http://example.org/a"));
+	}
+
+	@Test
+	public void transientStatusIsNotDefinitive() {
+		assertTrue(LinkCheckCache.isDefinitive(200));
+		assertTrue(LinkCheckCache.isDefinitive(302));
+		assertTrue(LinkCheckCache.isDefinitive(404));
+		assertFalse(LinkCheckCache.isDefinitive(408));
+		assertFalse(LinkCheckCache.isDefinitive(429));
+		assertFalse(LinkCheckCache.isDefinitive(503));
+	}
+}
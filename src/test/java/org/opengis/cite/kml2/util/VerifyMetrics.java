@@ -0,0 +1,129 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Verifies the behavior of the Metrics class.
+ */
+public class VerifyMetrics {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+
+	@Test
+	public void recordTimings() {
+		Metrics metrics = new Metrics();
+		long now = System.nanoTime();
+		metrics.record(Metrics.VALIDATOR, "Fast", now);
+		metrics.record(Metrics.VALIDATOR, "Slow",
+				now - TimeUnit.MILLISECONDS.toNanos(20));
+		metrics.record(Metrics.VALIDATOR, "Slow",
+				now - TimeUnit.MILLISECONDS.toNanos(10));
+		List<Metrics.TimerStats> timers = metrics.getTimers();
+		assertEquals("Unexpected number of timers.", 2, timers.size());
+		Metrics.TimerStats slow = timers.get(0);
+		assertEquals("Expected slowest timer first.", "Slow", slow.getName());
+		assertEquals("Unexpected count.", 2, slow.getCount());
+		assertTrue("Unexpected total time: " + slow.getTotalMillis(),
+				slow.getTotalMillis() >= 30);
+		assertTrue("Unexpected max time: " + slow.getMaxMicros(),
+				slow.getMaxMicros() >= 20000);
+		assertTrue("Unexpected median: " + slow.getP50Micros(),
+				slow.getP50Micros() >= 8192
+						&& slow.getP50Micros() <= slow.getMaxMicros());
+	}
+
+	@Test
+	public void excessTimersAreAggregated() {
+		Metrics metrics = new Metrics();
+		for (int i = 0; i <= Metrics.MAX_TIMERS; i++) {
+			metrics.record(Metrics.XPATH, "//kml:*[@id='" + i + "']",
+					System.nanoTime());
+		}
+		List<Metrics.TimerStats> timers = metrics.getTimers();
+		assertEquals("Unexpected number of timers.", Metrics.MAX_TIMERS + 1,
+				timers.size());
+		int count = 0;
+		for (Metrics.TimerStats stats : timers) {
+			if (stats.getName().equals(Metrics.OTHER)) {
+				count++;
+			}
+		}
+		assertEquals("Expected one aggregate timer.", 1, count);
+	}
+
+	@Test
+	public void cacheHitRate() {
+		Metrics metrics = new Metrics();
+		metrics.recordCacheAccess("documents", true);
+		metrics.recordCacheAccess("documents", true);
+		metrics.recordCacheAccess("documents", true);
+		metrics.recordCacheAccess("documents", false);
+		assertEquals("Unexpected hit rate.", 0.75, metrics.getCacheHitRates()
+				.get("documents"), 1e-9);
+	}
+
+	@Test
+	public void testRunsRecordSeparately() {
+		Metrics run1 = Metrics.forTestRun();
+		Metrics run2 = Metrics.forTestRun();
+		Long sharedCount = Metrics.getInstance().getElementCounts()
+				.get("Tests.separate");
+		long before = (null != sharedCount) ? sharedCount : 0;
+		run1.recordElements("Tests.separate", 3);
+		run2.recordElements("Tests.separate", 5);
+		assertEquals("Unexpected count in first run.", Long.valueOf(3), run1
+				.getElementCounts().get("Tests.separate"));
+		assertEquals("Unexpected count in second run.", Long.valueOf(5), run2
+				.getElementCounts().get("Tests.separate"));
+		assertEquals("Unexpected count in shared metrics.", before + 8,
+				Metrics.getInstance().getElementCounts().get("Tests.separate")
+						.longValue());
+	}
+
+	@Test
+	public void boundMetricsUsedByThread() {
+		Metrics run = Metrics.forTestRun();
+		Metrics previous = Metrics.bind(run);
+		try {
+			assertSame("Expected bound metrics.", run, Metrics.getInstance());
+		} finally {
+			Metrics.bind(previous);
+		}
+		assertNotSame("Expected shared metrics.", run, Metrics.getInstance());
+	}
+
+	@Test
+	public void writeSummary() throws Exception {
+		Metrics metrics = new Metrics();
+		metrics.record(Metrics.TEST, "Tests.a", System.nanoTime());
+		metrics.recordElements("Tests.a", 42);
+		metrics.record(Metrics.XPATH, "//kml:Placemark[@id=\"p1\"]",
+				System.nanoTime());
+		metrics.recordCacheAccess("documents", false);
+		File summary = new File(tmpDir.getRoot(), Metrics.SUMMARY_FILE);
+		metrics.writeSummary(summary);
+		String json = new String(Files.readAllBytes(summary.toPath()),
+				StandardCharsets.UTF_8);
+		assertTrue("Expected element count.",
+				json.contains("\"name\": \"Tests.a\", \"count\": 1"));
+		assertTrue("Expected element count.", json.contains("\"elements\": 42"));
+		assertTrue("Expected escaped expression.",
+				json.contains("//kml:Placemark[@id=\\\"p1\\\"]"));
+		assertTrue("Expected cache statistics.",
+				json.contains("\"hits\": 0, \"misses\": 1"));
+	}
+}
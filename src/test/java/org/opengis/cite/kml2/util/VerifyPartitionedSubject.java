@@ -0,0 +1,149 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opengis.cite.kml2.KML2;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Verifies the behavior of the PartitionedSubject class.
+ */
+public class VerifyPartitionedSubject {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	private PartitionedSubject iut;
+
+	@After
+	public void deletePartitions() {
+		if (null != iut) {
+			iut.delete();
+		}
+	}
+
+	/**
+	 * Creates a document containing a shared style, a custom schema, and
+	 * several placemarks (four elements each) in a kml:Document container.
+	 */
+	private File createDocument(int placemarks) throws Exception {
+		StringBuilder kml = new StringBuilder();
+		kml.append("<kml xmlns='http://www.opengis.net/kml/2.2'><Document>");
+		kml.append("<Style id='s1'><LineStyle/></Style>");
+		kml.append("<Schema id='schema1'>");
+		kml.append("<SimpleField type='int' name='n'/></Schema>");
+		for (int i = 1; i <= placemarks; i++) {
+			kml.append("<Placemark><name>p").append(i).append("</name>");
+			kml.append("<Point><coordinates>").append(i)
+					.append(",0</coordinates></Point></Placemark>\n");
+		}
+		kml.append("</Document></kml>");
+		File file = tmpDir.newFile("doc.kml");
+		Files.write(file.toPath(), kml.toString().getBytes(
+				StandardCharsets.UTF_8));
+		return file;
+	}
+
+	@Test
+	public void splitBetweenContainerChildren() throws Exception {
+		File file = createDocument(6);
+		iut = PartitionedSubject.split(file, 6);
+		// the shared resources fill the first partition
+		assertEquals("Unexpected number of partitions.", 4, iut.size());
+		assertEquals("Unexpected number of placemarks.", 6,
+				iut.getElementCount("Placemark"));
+		for (int i = 1; i < iut.size(); i++) {
+			Document doc = iut.getDocument(i);
+			assertEquals(file.toURI().toString(), doc.getDocumentURI());
+			Element container = (Element) doc.getDocumentElement()
+					.getFirstChild();
+			assertEquals("Document", container.getLocalName());
+			NodeList names = doc.getElementsByTagNameNS(KML2.NS_NAME, "name");
+			assertEquals("Unexpected number of names in partition " + i, 2,
+					names.getLength());
+			assertEquals("p" + (2 * i), names.item(1).getTextContent());
+		}
+		assertEquals(Arrays.asList(0), iut.findPartitions("Style", "Schema"));
+		assertEquals(Arrays.asList(1, 2, 3), iut.findPartitions("Point"));
+		assertTrue(iut.findPartitions("Polygon").isEmpty());
+	}
+
+	@Test
+	public void xpointerRefersToOriginalDocument() throws Exception {
+		File file = createDocument(5);
+		iut = PartitionedSubject.split(file, 8);
+		Document doc = iut.getDocument(iut.size() - 1);
+		NodeList points = doc.getElementsByTagNameNS(KML2.NS_NAME, "Point");
+		Node lastPoint = points.item(points.getLength() - 1);
+		assertEquals(
+				"xmlns(tns=http://www.opengis.net/kml/2.2)xpointer((//tns:Point)[5])",
+				XMLUtils.buildXPointer(lastPoint));
+		Node container = doc.getDocumentElement().getFirstChild();
+		assertEquals(
+				"xmlns(tns=http://www.opengis.net/kml/2.2)xpointer((//tns:Document)[1])",
+				XMLUtils.buildXPointer(iut.getDocument(0).getDocumentElement()
+						.getFirstChild()));
+		assertTrue("Expected copy of container.",
+				PartitionedSubject.isCopy(container));
+		assertFalse(PartitionedSubject.isCopy(lastPoint));
+	}
+
+	@Test
+	public void contextDocumentContainsSharedResources() throws Exception {
+		File file = createDocument(3);
+		iut = PartitionedSubject.split(file, 1);
+		Document contextDoc = iut.getContextDocument();
+		IdIndex index = IdIndex.lookup(contextDoc);
+		assertTrue(index.getSharedStyles().contains("s1"));
+		assertTrue(index.getCustomSchemas().contains("schema1"));
+		assertEquals("SimpleField", index.findElement("schema1")
+				.getElementsByTagNameNS(KML2.NS_NAME, "SimpleField").item(0)
+				.getLocalName());
+		Document lastPartition = iut.getDocument(iut.size() - 1);
+		assertSame(contextDoc,
+				PartitionedSubject.lookupContextDocument(lastPartition));
+	}
+
+	@Test
+	public void documentWithoutContainer() throws Exception {
+		File file = tmpDir.newFile("placemark.kml");
+		String kml = "<kml xmlns='http://www.opengis.net/kml/2.2'>"
+				+ "<Placemark><Point><coordinates>1,2</coordinates></Point>"
+				+ "</Placemark></kml>";
+		Files.write(file.toPath(), kml.getBytes(StandardCharsets.UTF_8));
+		iut = PartitionedSubject.split(file, 1);
+		assertEquals("Unexpected number of partitions.", 1, iut.size());
+		assertEquals(4, iut.getDocument(0).getElementsByTagName("*")
+				.getLength());
+	}
+
+	@Test
+	public void elementsAfterContainerInLastPartition() throws Exception {
+		File file = tmpDir.newFile("trailing.kml");
+		String kml = "<kml xmlns='http://www.opengis.net/kml/2.2'"
+				+ " xmlns:gx='http://www.google.com/kml/ext/2.2'><Folder>"
+				+ "<Placemark/><Placemark/><Placemark/></Folder>"
+				+ "<gx:Tour/></kml>";
+		Files.write(file.toPath(), kml.getBytes(StandardCharsets.UTF_8));
+		iut = PartitionedSubject.split(file, 1);
+		assertEquals("Unexpected number of partitions.", 4, iut.size());
+		Document doc = iut.getDocument(3);
+		Element tour = (Element) doc.getDocumentElement().getLastChild();
+		assertEquals("Tour", tour.getLocalName());
+		assertEquals(Arrays.asList(0), iut.findPartitions("Folder"));
+	}
+}
@@ -0,0 +1,80 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Verifies the behavior of the ResultCache class.
+ */
+public class VerifyResultCache {
+
+	private static final String RESULTS = "<testng-results total=\"2\" passed=\"2\" failed=\"0\" skipped=\"0\"/>";
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	private File subject;
+
+	@Before
+	public void createSubject() throws IOException {
+		subject = tmpDir.newFile("subject.kml");
+		Files.write(subject.toPath(), "<kml xmlns=\"http://www.opengis.net/kml/2.2\"/>"
+				.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void keyIsStable() throws IOException {
+		String key = ResultCache.computeKey(subject, "1", "0.6");
+		assertEquals("Unexpected key length.", 64, key.length());
+		assertEquals("Expected same key.", key,
+				ResultCache.computeKey(subject, "1", "0.6"));
+	}
+
+	@Test
+	public void keyDependsOnLevelAndVersion() throws IOException {
+		String key = ResultCache.computeKey(subject, "1", "0.6");
+		assertFalse("Expected different key for level 2.",
+				key.equals(ResultCache.computeKey(subject, "2", "0.6")));
+		assertFalse("Expected different key for version 0.7.",
+				key.equals(ResultCache.computeKey(subject, "1", "0.7")));
+	}
+
+	@Test
+	public void keyDependsOnContent() throws IOException {
+		String key = ResultCache.computeKey(subject, "1", "0.6");
+		Files.write(subject.toPath(), " ".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+		assertFalse("Expected different key for modified subject.",
+				key.equals(ResultCache.computeKey(subject, "1", "0.6")));
+	}
+
+	@Test
+	public void putAndGet() throws IOException {
+		File cacheDir = new File(tmpDir.getRoot(), "result-cache");
+		ResultCache cache = new ResultCache(cacheDir);
+		String key = ResultCache.computeKey(subject, "1", "0.6");
+		assertNull("Unexpected entry in empty cache.", cache.get(key));
+		File resultsFile = tmpDir.newFile("testng-results.xml");
+		Files.write(resultsFile.toPath(), RESULTS.getBytes(StandardCharsets.UTF_8));
+		cache.put(key, new StreamSource(resultsFile));
+		File entry = cache.get(key);
+		assertNotNull("Expected cached results.", entry);
+		assertEquals("Unexpected content.", RESULTS, new String(
+				Files.readAllBytes(entry.toPath()), StandardCharsets.UTF_8));
+		assertEquals("Unexpected number of files in cache directory.", 1,
+				cacheDir.list().length);
+	}
+}
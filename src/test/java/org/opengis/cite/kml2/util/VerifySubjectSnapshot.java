@@ -0,0 +1,201 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.cite.kml2.KML2;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Verifies the behavior of the SubjectSnapshot class.
+ */
+public class VerifySubjectSnapshot {
+
+	private static final int THREADS = 8;
+	private static DocumentBuilder docBuilder;
+
+	@BeforeClass
+	public static void setUpFixture() throws Exception {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		docBuilder = dbf.newDocumentBuilder();
+	}
+
+	@Test
+	public void largeImageWrittenToFile() throws Exception {
+		Document doc = docBuilder.parse(getClass().getResourceAsStream(
+				"/kml22/SharedStyle.xml"));
+		SubjectSnapshot snapshot = SubjectSnapshot.of(doc, 64);
+		assertTrue("Expected image in file.", snapshot.isImageInFile());
+		assertTrue("Unexpected image size.", snapshot.getImageSize() > 64);
+		Document replica = snapshot.getDocument();
+		assertTrue("Expected replica to equal original.",
+				doc.getDocumentElement().isEqualNode(
+						replica.getDocumentElement()));
+		snapshot.delete();
+		assertFalse("Expected image to be held in memory.", SubjectSnapshot
+				.of(doc).isImageInFile());
+	}
+
+	@Test
+	public void replicaEqualsOriginal() throws Exception {
+		Document doc = docBuilder.parse(getClass().getResourceAsStream(
+				"/kml22/SharedStyle.xml"));
+		doc.setDocumentURI("http://example.org/SharedStyle.kml");
+		SubjectSnapshot snapshot = SubjectSnapshot.of(doc);
+		Document replica = snapshot.newDocument();
+		assertNotSame("Expected a new Document node.", doc, replica);
+		assertTrue("Expected replica to equal original.",
+				doc.getDocumentElement().isEqualNode(
+						replica.getDocumentElement()));
+		assertEquals("Unexpected document URI.", doc.getDocumentURI(),
+				replica.getDocumentURI());
+		assertNotNull("Expected IdIndex for replica.",
+				IdIndex.lookup(replica));
+	}
+
+	@Test
+	public void replicaHasCoordinateStore() throws Exception {
+		Document doc = docBuilder.parse(getClass().getResourceAsStream(
+				"/kml22/SharedStyle.xml"));
+		CoordinateStore.enable(doc, CoordinateStore.DIRECT);
+		Document replica = SubjectSnapshot.of(doc).newDocument();
+		assertNotNull("Expected coordinate store for replica.",
+				CoordinateStore.forDocument(replica));
+		assertEquals(CoordinateStore.DIRECT, CoordinateStore.getMode(replica));
+	}
+
+	@Test
+	public void replicaIsFullyMaterialized() throws Exception {
+		Document doc = docBuilder.parse(getClass().getResourceAsStream(
+				"/kml22/SharedStyle.xml"));
+		Document replica = SubjectSnapshot.of(doc).newDocument();
+		assertFalse("Expected nodes to be fully expanded: "
+				+ replica.getClass().getName(), replica.getClass()
+				.getSimpleName().startsWith("Deferred"));
+	}
+
+	@Test
+	public void replicaIsConfinedToThread() throws Exception {
+		Document doc = docBuilder.parse(getClass().getResourceAsStream(
+				"/kml22/SharedStyle.xml"));
+		final SubjectSnapshot snapshot = SubjectSnapshot.of(doc);
+		Document replica = snapshot.getDocument();
+		assertSame("Expected same replica.", replica, snapshot.getDocument());
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			Document other = pool.submit(new Callable<Document>() {
+				@Override
+				public Document call() {
+					return snapshot.getDocument();
+				}
+			}).get();
+			assertNotSame("Expected replica owned by other thread.", replica,
+					other);
+		} finally {
+			pool.shutdown();
+		}
+		snapshot.clear();
+		assertNotSame("Expected new replica.", replica, snapshot.getDocument());
+	}
+
+	@Test
+	public void concurrentReaders() throws Exception {
+		final int placemarks = 2000;
+		Document doc = createDocument(placemarks);
+		final SubjectSnapshot snapshot = SubjectSnapshot.of(doc);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Future<Double>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < 4 * THREADS; i++) {
+				results.add(pool.submit(new Callable<Double>() {
+					@Override
+					public Double call() throws Exception {
+						start.await();
+						return sumCoordinates(snapshot.getDocument(),
+								placemarks);
+					}
+				}));
+			}
+			start.countDown();
+			double expected = sumCoordinates(doc, placemarks);
+			for (Future<Double> result : results) {
+				assertEquals("Unexpected result.", expected, result.get(), 0);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Navigates the document in several ways (node lists, sibling axes, and
+	 * XPath), checking that each one yields the expected number of nodes.
+	 */
+	private static double sumCoordinates(Document doc, int count)
+			throws Exception {
+		NodeList coords = doc.getElementsByTagNameNS(KML2.NS_NAME,
+				"coordinates");
+		assertEquals("Unexpected number of coordinates elements.", count,
+				coords.getLength());
+		double sum = 0;
+		for (int i = coords.getLength() - 1; i >= 0; i--) {
+			String[] tuple = coords.item(i).getTextContent().split(",");
+			sum += Double.parseDouble(tuple[0]) + Double.parseDouble(tuple[1]);
+		}
+		int siblings = 0;
+		Node folder = doc.getDocumentElement().getFirstChild();
+		for (Node node = folder.getFirstChild(); null != node; node = node
+				.getNextSibling()) {
+			siblings++;
+			assertNotNull(((Element) node).getAttribute("id"));
+		}
+		assertEquals("Unexpected number of placemarks.", count, siblings);
+		NodeList points = XMLUtils.evaluateXPath(doc,
+				"//kml:Placemark[@id]/kml:Point", null);
+		assertEquals("Unexpected number of points.", count,
+				points.getLength());
+		assertNotNull(XMLUtils.evaluateXPointer("p" + (count - 1), doc));
+		return sum;
+	}
+
+	private static Document createDocument(int count) {
+		Document doc = docBuilder.newDocument();
+		Element root = doc.createElementNS(KML2.NS_NAME, "kml");
+		doc.appendChild(root);
+		Element folder = doc.createElementNS(KML2.NS_NAME, "Folder");
+		root.appendChild(folder);
+		for (int i = 0; i < count; i++) {
+			Element placemark = doc.createElementNS(KML2.NS_NAME, "Placemark");
+			placemark.setAttribute("id", "p" + i);
+			Element point = doc.createElementNS(KML2.NS_NAME, "Point");
+			Element coords = doc.createElementNS(KML2.NS_NAME, "coordinates");
+			coords.setTextContent(String.format("%d.5,%d.25", i % 180,
+					i % 90));
+			point.appendChild(coords);
+			placemark.appendChild(point);
+			folder.appendChild(placemark);
+		}
+		return doc;
+	}
+}
@@ -0,0 +1,30 @@
+package org.opengis.cite.kml2.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Verifies the behavior of the SuiteEvent class.
+ */
+public class VerifySuiteEvent {
+
+	@Test
+	public void eventIsDisabledIfNotRecording() {
+		SuiteEvent event = SuiteEvent.begin(SuiteEvent.Type.PARSE);
+		assertSame("Expected shared disabled event.", SuiteEvent.DISABLED,
+				event);
+		assertFalse("Expected event to be disabled.", event.isEnabled());
+	}
+
+	@Test
+	public void disabledEventIgnoresAttributes() {
+		SuiteEvent event = SuiteEvent.DISABLED;
+		event.setURI("http://www.example.org/doc.kml");
+		event.setBytes(1024);
+		event.setOutcome("HTTP 404");
+		event.commit();
+		assertFalse("Expected event to be disabled.", event.isEnabled());
+	}
+}
@@ -1,6 +1,7 @@
 package org.opengis.cite.kml2.util;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -8,7 +9,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.net.URL;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.stream.StreamSource;
@@ -45,6 +50,32 @@ public class VerifyValidationUtils {
 		assertNotNull(result);
 	}
 
+	@Test
+	public void releasedSchematronValidatorIsSharedByThreads()
+			throws Exception {
+		final URL schemaRef = getClass().getResource(
+				"/org/opengis/cite/kml2/sch/kml-tour.sch");
+		final String phase = "#ALL";
+		SchematronValidator validator = ValidationUtils
+				.obtainSchematronValidator(schemaRef, phase);
+		ValidationUtils.releaseSchematronValidator(schemaRef, phase, validator);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			SchematronValidator reused = executor.submit(
+					new Callable<SchematronValidator>() {
+						@Override
+						public SchematronValidator call() throws Exception {
+							return ValidationUtils.obtainSchematronValidator(
+									schemaRef, phase);
+						}
+					}).get();
+			assertSame("Expected idle validator to be reused.", validator,
+					reused);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	@Test
 	public void extractRelativeSchemaReference() throws FileNotFoundException,
 			XMLStreamException {
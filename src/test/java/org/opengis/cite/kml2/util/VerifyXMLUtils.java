@@ -168,4 +168,19 @@ public class VerifyXMLUtils {
 		assertEquals("Node has unexpected [local name].", "Style",
 				result.getLocalName());
 	}
+
+	@Test
+	public void copyDocumentRetainsURI() throws SAXException, IOException {
+		Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
+				"/kml22/SharedStyle.xml"));
+		doc.setDocumentURI("http://example.org/SharedStyle.kml");
+		Document copy = XMLUtils.copyDocument(doc);
+		assertNotSame("Expected a new Document node.", doc, copy);
+		assertEquals("Unexpected document URI.", doc.getDocumentURI(),
+				copy.getDocumentURI());
+		assertEquals("Unexpected document element.", doc.getDocumentElement()
+				.getLocalName(), copy.getDocumentElement().getLocalName());
+		assertNotNull("Expected matching node in copy.",
+				XMLUtils.evaluateXPointer("defaultStyles", copy));
+	}
 }
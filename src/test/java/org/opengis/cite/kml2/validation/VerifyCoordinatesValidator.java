@@ -1,9 +1,16 @@
 package org.opengis.cite.kml2.validation;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -35,33 +42,61 @@ public class VerifyCoordinatesValidator {
 	public void pointWithoutCoordinates() throws SAXException, IOException {
 		Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
 				"/geom/PointNoCoordinates.xml"));
-		CoordinatesValidator iut = new CoordinatesValidator();
-		assertFalse("Expected invalid Point.",
-				iut.isValid(doc.getDocumentElement()));
+		CoordinatesValidator iut = CoordinatesValidator.getInstance();
+		ValidationResult result = iut.validate(doc.getDocumentElement());
+		assertFalse("Expected invalid Point.", result.isValid());
 		assertTrue("Unexpected error message.",
-				iut.getErrorMessages().contains("No kml:coordinates element found"));
+				result.getErrorMessages().contains("No kml:coordinates element found"));
 	}
 
 	@Test
 	public void validPoint() throws SAXException, IOException {
 		Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
 				"/geom/Point-001.xml"));
-		CoordinatesValidator iut = new CoordinatesValidator();
-		assertTrue("Expected valid Point.",
-				iut.isValid(doc.getDocumentElement()));
-		assertTrue("Expected no errors.", iut.getErrorMessages().isEmpty());
+		CoordinatesValidator iut = CoordinatesValidator.getInstance();
+		ValidationResult result = iut.validate(doc.getDocumentElement());
+		assertTrue("Expected valid Point.", result.isValid());
+		assertTrue("Expected no errors.", result.getErrorMessages().isEmpty());
 	}
 
 	@Test
 	public void invalidLinearRing() throws SAXException, IOException {
 		Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
 				"/geom/LinearRing-001.xml"));
-		CoordinatesValidator iut = new CoordinatesValidator();
-		assertFalse("Expected invalid LinearRing.",
-				iut.isValid(doc.getDocumentElement()));
+		CoordinatesValidator iut = CoordinatesValidator.getInstance();
+		ValidationResult result = iut.validate(doc.getDocumentElement());
+		assertFalse("Expected invalid LinearRing.", result.isValid());
 		assertTrue(
 				"Unexpected error message.",
-				iut.getErrorMessages().contains(
+				result.getErrorMessages().contains(
 						"LinearRing element must contain four or more"));
 	}
+
+	@Test
+	public void sharedInstanceUsedConcurrently() throws Exception {
+		final CoordinatesValidator iut = CoordinatesValidator.getInstance();
+		List<Callable<Boolean>> tasks = new ArrayList<>();
+		for (int i = 0; i < 32; i++) {
+			String resource = (i % 2 == 0) ? "/geom/Point-001.xml"
+					: "/geom/LinearRing-001.xml";
+			final Document doc = docBuilder.parse(this.getClass()
+					.getResourceAsStream(resource));
+			tasks.add(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return iut.validate(doc.getDocumentElement()).isValid();
+				}
+			});
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = executor.invokeAll(tasks);
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals("Unexpected result for task " + i, i % 2 == 0,
+						results.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
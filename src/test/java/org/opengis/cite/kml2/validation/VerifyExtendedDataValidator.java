@@ -4,10 +4,12 @@ import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 
+import net.sf.saxon.s9api.ItemType;
 import net.sf.saxon.s9api.QName;
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XdmNode;
@@ -18,6 +20,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.validation.ValidationErrorHandler;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
@@ -45,12 +48,13 @@ public class VerifyExtendedDataValidator {
 				"/kml23/ExtendedData-001.xml"));
 		Element extData = (Element) doc.getElementsByTagNameNS(KML2.NS_NAME,
 				"ExtendedData").item(0);
-		ExtendedDataValidator iut = new ExtendedDataValidator();
-		iut.checkData(extData);
-		assertFalse("Expected an error.", iut.getErrorMessages().isEmpty());
+		ExtendedDataValidator iut = ExtendedDataValidator.getInstance();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		iut.checkData(extData, errHandler);
+		assertFalse("Expected an error.", errHandler.toString().isEmpty());
 		assertTrue(
 				"Expected error message to contain 'No definition found for unit of measure: yd'",
-				iut.getErrorMessages().contains(
+				errHandler.toString().contains(
 						"No definition found for unit of measure: yd"));
 	}
 
@@ -61,13 +65,14 @@ public class VerifyExtendedDataValidator {
 				"/kml23/ExtendedData-002.xml"));
 		Element extData = (Element) doc.getElementsByTagNameNS(KML2.NS_NAME,
 				"ExtendedData").item(0);
-		ExtendedDataValidator iut = new ExtendedDataValidator();
-		iut.checkData(extData);
-		System.out.println(iut.getErrorMessages());
-		assertFalse("Expected an error.", iut.getErrorMessages().isEmpty());
+		ExtendedDataValidator iut = ExtendedDataValidator.getInstance();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		iut.checkData(extData, errHandler);
+		System.out.println(errHandler.toString());
+		assertFalse("Expected an error.", errHandler.toString().isEmpty());
 		assertTrue(
 				"Expected message to contain \"kml:Data element has non-unique name: 'membership'\"",
-				iut.getErrorMessages().contains(
+				errHandler.toString().contains(
 						"kml:Data element has non-unique name: 'membership'"));
 	}
 
@@ -76,9 +81,8 @@ public class VerifyExtendedDataValidator {
 			SaxonApiException {
 		Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
 				"/kml22/Placemark-SchemaData-1.xml"));
-		ExtendedDataValidator iut = new ExtendedDataValidator();
-		iut.setOwnerDocument(doc);
-		XdmNode schema = iut.fetchSchema(URI.create("#TrailHead"));
+		ExtendedDataValidator iut = ExtendedDataValidator.getInstance();
+		XdmNode schema = iut.fetchSchema(doc, URI.create("#TrailHead"));
 		assertNotNull("Schema not found.", schema);
 		assertEquals("Schema has unexpected name.", "TrailHeadSchema",
 				schema.getAttributeValue(new QName("name")));
@@ -90,11 +94,10 @@ public class VerifyExtendedDataValidator {
 			SaxonApiException {
 		Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
 				"/kml22/Placemark-SchemaData.xml"));
-		ExtendedDataValidator iut = new ExtendedDataValidator();
-		iut.setOwnerDocument(doc); // required but irrelevant for remote schema
+		ExtendedDataValidator iut = ExtendedDataValidator.getInstance();
 		URI uri = URI
 				.create("https://kml-samples.googlecode.com/svn/trunk/kml/Schema/schemadata-trailhead.kml#TrailHeadTypeId");
-		XdmNode schema = iut.fetchSchema(uri);
+		XdmNode schema = iut.fetchSchema(doc, uri);
 		assertNotNull("Schema not found.", schema);
 		assertEquals("Schema has unexpected name.", "TrailHeadType",
 				schema.getAttributeValue(new QName("name")));
@@ -106,10 +109,10 @@ public class VerifyExtendedDataValidator {
 				"/kml22/Placemark-SchemaData-1.xml"));
 		Element extData = (Element) doc.getElementsByTagNameNS(KML2.NS_NAME,
 				"ExtendedData").item(0);
-		ExtendedDataValidator iut = new ExtendedDataValidator();
-		iut.setOwnerDocument(doc);
-		iut.checkSchemaData(extData);
-		assertTrue("Unexpected error.", iut.getErrorMessages().isEmpty());
+		ExtendedDataValidator iut = ExtendedDataValidator.getInstance();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		iut.checkSchemaData(extData, errHandler);
+		assertTrue("Unexpected error.", errHandler.toString().isEmpty());
 	}
 
 	@Test
@@ -119,13 +122,13 @@ public class VerifyExtendedDataValidator {
 				"/kml22/Placemark-SchemaData-2.xml"));
 		Element extData = (Element) doc.getElementsByTagNameNS(KML2.NS_NAME,
 				"ExtendedData").item(0);
-		ExtendedDataValidator iut = new ExtendedDataValidator();
-		iut.setOwnerDocument(doc);
-		iut.checkSchemaData(extData);
-		assertFalse("Expected an error.", iut.getErrorMessages().isEmpty());
+		ExtendedDataValidator iut = ExtendedDataValidator.getInstance();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		iut.checkSchemaData(extData, errHandler);
+		assertFalse("Expected an error.", errHandler.toString().isEmpty());
 		assertTrue(
 				"Expected error message to contain 'Resource not found: #TrailHeadSchema'",
-				iut.getErrorMessages().contains(
+				errHandler.toString().contains(
 						"Resource not found: #TrailHeadSchema"));
 	}
 
@@ -136,13 +139,13 @@ public class VerifyExtendedDataValidator {
 				"/kml22/Placemark-SchemaData-3.xml"));
 		Element extData = (Element) doc.getElementsByTagNameNS(KML2.NS_NAME,
 				"ExtendedData").item(0);
-		ExtendedDataValidator iut = new ExtendedDataValidator();
-		iut.setOwnerDocument(doc);
-		iut.checkSchemaData(extData);
-		assertFalse("Expected an error.", iut.getErrorMessages().isEmpty());
+		ExtendedDataValidator iut = ExtendedDataValidator.getInstance();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		iut.checkSchemaData(extData, errHandler);
+		assertFalse("Expected an error.", errHandler.toString().isEmpty());
 		assertTrue(
 				"Expected error message to contain 'Cannot convert string \"Approx 3500 m\" to an integer'",
-				iut.getErrorMessages()
+				errHandler.toString()
 						.contains(
 								"Cannot convert string \"Approx 3500 m\" to an integer"));
 	}
@@ -153,12 +156,36 @@ public class VerifyExtendedDataValidator {
 				"/kml22/Placemark-SchemaData-3.xml"));
 		Element extData = (Element) doc.getElementsByTagNameNS(KML2.NS_NAME,
 				"ExtendedData").item(0);
-		ExtendedDataValidator iut = new ExtendedDataValidator();
-		iut.isValid(extData);
-		assertFalse("Expected an error.", iut.getErrorMessages().isEmpty());
+		ExtendedDataValidator iut = ExtendedDataValidator.getInstance();
+		ValidationResult result = iut.validate(extData);
+		assertFalse("Expected an error.", result.getErrorMessages().isEmpty());
 		assertTrue(
 				"Expected error message to contain 'Cannot convert string \"Approx 3500 m\"'",
-				iut.getErrorMessages().contains(
+				result.getErrorMessages().contains(
 						"Cannot convert string \"Approx 3500 m\""));
 	}
+
+	@Test
+	public void getSchemaFieldsIsCached() throws SAXException, IOException {
+		Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
+				"/kml22/Placemark-SchemaData-1.xml"));
+		ExtendedDataValidator iut = ExtendedDataValidator.getInstance();
+		URI schemaURI = URI.create("#TrailHead");
+		Map<String, ItemType> fields = iut.getSchemaFields(doc, schemaURI);
+		assertNotNull("Schema not found.", fields);
+		assertSame(fields, SchemaFieldCache.getInstance().get(doc, schemaURI)
+				.getFields());
+		assertSame(fields, iut.getSchemaFields(doc, schemaURI));
+	}
+
+	@Test
+	public void getSchemaFieldsNotFound() throws SAXException, IOException {
+		Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
+				"/kml22/Placemark-SchemaData-2.xml"));
+		ExtendedDataValidator iut = ExtendedDataValidator.getInstance();
+		URI schemaURI = URI.create("#TrailHeadSchema");
+		assertNull(iut.getSchemaFields(doc, schemaURI));
+		assertFalse(SchemaFieldCache.getInstance().get(doc, schemaURI)
+				.exists());
+	}
 }
@@ -38,10 +38,10 @@ public class VerifyGeoExtentValidator {
 	public void validRegionExtent() throws SAXException, IOException {
 		URL url = this.getClass().getResource("/extents/Box-001.xml");
 		Document box = docBuilder.parse(url.toString());
-		GeoExtentValidator iut = new GeoExtentValidator();
-		boolean isValid = iut.validateBox(box.getDocumentElement());
-		assertTrue("Expected valid LatLonAltBox.", isValid);
-		assertTrue("Expected no errors.", iut.getErrorMessages().isEmpty());
+		GeoExtentValidator iut = GeoExtentValidator.getInstance();
+		ValidationResult result = iut.validateBox(box.getDocumentElement());
+		assertTrue("Expected valid LatLonAltBox.", result.isValid());
+		assertTrue("Expected no errors.", result.getErrorMessages().isEmpty());
 	}
 
 	@Test
@@ -49,23 +49,24 @@ public class VerifyGeoExtentValidator {
 			IOException {
 		URL url = this.getClass().getResource("/extents/Box-002.xml");
 		Document box = docBuilder.parse(url.toString());
-		GeoExtentValidator iut = new GeoExtentValidator();
-		assertFalse("Expected invalid LatLonAltBox.",
-				iut.validateBox(box.getDocumentElement()));
+		GeoExtentValidator iut = GeoExtentValidator.getInstance();
+		ValidationResult result = iut.validateBox(box.getDocumentElement());
+		assertFalse("Expected invalid LatLonAltBox.", result.isValid());
 		assertTrue("Unexpected error message.",
-				iut.getErrorMessages().contains("uniqueness"));
+				result.getErrorMessages().contains("uniqueness"));
 	}
 
 	@Test
 	public void invalidQuadOrientation() throws SAXException, IOException {
 		URL url = this.getClass().getResource("/extents/LatLonQuad-001.xml");
 		Document quad = docBuilder.parse(url.toString());
-		GeoExtentValidator iut = new GeoExtentValidator();
-		assertFalse("Expected invalid LatLonQuad.",
-				iut.validateQuadrilateral(quad.getDocumentElement()));
+		GeoExtentValidator iut = GeoExtentValidator.getInstance();
+		ValidationResult result = iut.validateQuadrilateral(quad
+				.getDocumentElement());
+		assertFalse("Expected invalid LatLonQuad.", result.isValid());
 		assertTrue(
 				"Unexpected error message.",
-				iut.getErrorMessages().contains(
+				result.getErrorMessages().contains(
 						"boundary ring is not oriented counter-clockwise"));
 	}
 
@@ -73,7 +74,7 @@ public class VerifyGeoExtentValidator {
 	public void getLatLonAltBoxProperties() throws SAXException, IOException {
 		URL url = this.getClass().getResource("/extents/Box-001.xml");
 		Document box = docBuilder.parse(url.toString());
-		GeoExtentValidator iut = new GeoExtentValidator();
+		GeoExtentValidator iut = GeoExtentValidator.getInstance();
 		Map<String, Double> boxProperties = iut.getNumericProperties(
 				box.getDocumentElement(), null);
 		assertEquals("Unexpected value for 'east' edge", 28.125,
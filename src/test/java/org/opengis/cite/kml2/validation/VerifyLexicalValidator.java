@@ -0,0 +1,76 @@
+package org.opengis.cite.kml2.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Verifies the behavior of the LexicalValidator enumeration.
+ */
+public class VerifyLexicalValidator {
+
+	@Test
+	public void forType() {
+		assertEquals(LexicalValidator.UNSIGNED_SHORT,
+				LexicalValidator.forType("xsd:unsignedShort"));
+		assertEquals(LexicalValidator.INT, LexicalValidator.forType("int"));
+		assertNull(LexicalValidator.forType("gYearMonth"));
+	}
+
+	@Test
+	public void validIntegers() {
+		assertTrue(LexicalValidator.INT.isValid("-2147483648"));
+		assertTrue(LexicalValidator.INT.isValid("+0002147483647"));
+		assertTrue(LexicalValidator.UNSIGNED_INT.isValid("4294967295"));
+		assertTrue(LexicalValidator.SHORT.isValid("-32768"));
+		assertTrue(LexicalValidator.UNSIGNED_SHORT.isValid("65535"));
+	}
+
+	@Test
+	public void invalidIntegers() {
+		assertFalse(LexicalValidator.INT.isValid("Approx 3500 m"));
+		assertFalse(LexicalValidator.INT.isValid("2147483648"));
+		assertFalse(LexicalValidator.INT.isValid("-"));
+		assertFalse(LexicalValidator.INT.isValid(""));
+		assertFalse(LexicalValidator.INT.isValid("1.0"));
+		assertFalse(LexicalValidator.UNSIGNED_INT.isValid("-1"));
+		assertFalse(LexicalValidator.SHORT.isValid("32768"));
+		assertFalse(LexicalValidator.UNSIGNED_SHORT.isValid("65536"));
+	}
+
+	@Test
+	public void floatingPointValues() {
+		assertTrue(LexicalValidator.DOUBLE.isValid("-1.5E-3"));
+		assertTrue(LexicalValidator.DOUBLE.isValid(".5"));
+		assertTrue(LexicalValidator.DOUBLE.isValid("INF"));
+		assertTrue(LexicalValidator.FLOAT.isValid("NaN"));
+		assertTrue(LexicalValidator.FLOAT.isValid("1e-50"));
+		assertFalse(LexicalValidator.FLOAT.isValid("1e39"));
+		assertFalse(LexicalValidator.DOUBLE.isValid("1e"));
+		assertFalse(LexicalValidator.DOUBLE.isValid("."));
+		assertFalse(LexicalValidator.DOUBLE.isValid("0x1p3"));
+		assertFalse(LexicalValidator.DOUBLE.isValid("inf"));
+	}
+
+	@Test
+	public void booleanValues() {
+		assertTrue(LexicalValidator.BOOLEAN.isValid("1"));
+		assertTrue(LexicalValidator.BOOLEAN.isValid("false"));
+		assertFalse(LexicalValidator.BOOLEAN.isValid("TRUE"));
+	}
+
+	@Test
+	public void dateTimeValues() {
+		assertTrue(LexicalValidator.DATE_TIME.isValid("2016-02-29T23:59:59Z"));
+		assertTrue(LexicalValidator.DATE_TIME
+				.isValid("2015-11-30T08:30:00.125-08:00"));
+		assertTrue(LexicalValidator.DATE_TIME.isValid("2015-01-01T00:00:00"));
+		assertFalse(LexicalValidator.DATE_TIME.isValid("2015-02-29T00:00:00"));
+		assertFalse(LexicalValidator.DATE_TIME.isValid("2015-01-01"));
+		assertFalse(LexicalValidator.DATE_TIME.isValid("2015-01-01T00:00:00+15:00"));
+		assertFalse(LexicalValidator.DATE_TIME.isValid("2015-01-01T00:00:00."));
+	}
+}
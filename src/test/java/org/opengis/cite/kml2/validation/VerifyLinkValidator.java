@@ -40,9 +40,9 @@ public class VerifyLinkValidator {
 				"/links/Icon-001.xml"));
 		MediaType imageType = MediaType.valueOf("image/*");
 		LinkValidator iut = new LinkValidator(imageType);
-		assertTrue("Expected valid Link.",
-				iut.isValid(link.getDocumentElement()));
-		assertTrue("Expected no errors.", iut.getErrors().hasNext());
+		ValidationResult result = iut.validate(link.getDocumentElement());
+		assertTrue("Expected valid Link.", result.isValid());
+		assertTrue("Expected no errors.", result.getErrors().isEmpty());
 	}
 
 	@Test
@@ -51,9 +51,9 @@ public class VerifyLinkValidator {
 		Document link = docBuilder.parse(url.toString());
 		MediaType imageType = MediaType.valueOf("image/*");
 		LinkValidator iut = new LinkValidator(imageType);
-		boolean isValid = iut.isValid(link.getDocumentElement());
-		assertTrue("Expected valid Link.", isValid);
-		assertFalse("Expected no errors.", iut.getErrors().hasNext());
+		ValidationResult result = iut.validate(link.getDocumentElement());
+		assertTrue("Expected valid Link.", result.isValid());
+		assertTrue("Expected no errors.", result.getErrors().isEmpty());
 	}
 
 	@Test
@@ -62,9 +62,9 @@ public class VerifyLinkValidator {
 		Document link = docBuilder.parse(url.toString());
 		MediaType imageType = MediaType.valueOf("model/*");
 		LinkValidator iut = new LinkValidator(imageType);
-		boolean isValid = iut.isValid(link.getDocumentElement());
-		assertFalse("Expected invalid Link.", isValid);
-		assertTrue("Unexpected error message.", iut.getErrorMessages()
+		ValidationResult result = iut.validate(link.getDocumentElement());
+		assertFalse("Expected invalid Link.", result.isValid());
+		assertTrue("Unexpected error message.", result.getErrorMessages()
 				.contains("URI is not accessible"));
 	}
 
@@ -74,9 +74,9 @@ public class VerifyLinkValidator {
 		Document link = docBuilder.parse(url.toString());
 		MediaType imageType = MediaType.valueOf("model/*");
 		LinkValidator iut = new LinkValidator(2, imageType);
-		boolean isValid = iut.isValid(link.getDocumentElement());
-		assertFalse("Expected invalid Link.", isValid);
-		assertTrue("Unexpected error message.", iut.getErrorMessages()
+		ValidationResult result = iut.validate(link.getDocumentElement());
+		assertFalse("Expected invalid Link.", result.isValid());
+		assertTrue("Unexpected error message.", result.getErrorMessages()
 				.contains("not(kml:refreshInterval)"));
 	}
 
@@ -36,19 +36,30 @@ public class VerifyRegionValidator {
 	public void validRegion() throws SAXException, IOException {
 		URL url = this.getClass().getResource("/extents/Region-001.xml");
 		Document region = docBuilder.parse(url.toString());
-		RegionValidator iut = new RegionValidator(3);
-		boolean isValid = iut.isValid(region.getDocumentElement());
-		assertTrue("Expected valid Link.", isValid);
+		RegionValidator iut = RegionValidator.getInstance();
+		ValidationResult result = iut.validate(region.getDocumentElement(), 3);
+		assertTrue("Expected valid Link.", result.isValid());
 	}
 
 	@Test
 	public void invalidLodFadeRange() throws SAXException, IOException {
 		URL url = this.getClass().getResource("/extents/Region-002.xml");
 		Document region = docBuilder.parse(url.toString());
-		RegionValidator iut = new RegionValidator(3);
-		boolean isValid = iut.isValid(region.getDocumentElement());
-		assertFalse("Expected inivalid Link.", isValid);
-		assertTrue("Expected error message to contain 'ATC-306'", iut
+		RegionValidator iut = RegionValidator.getInstance();
+		ValidationResult result = iut.validate(region.getDocumentElement(), 3);
+		assertFalse("Expected inivalid Link.", result.isValid());
+		assertTrue("Expected error message to contain 'ATC-306'", result
+				.getErrorMessages().contains("ATC-306"));
+	}
+
+	@Test
+	public void lodFadeRangeNotCheckedAtLevel1() throws SAXException,
+			IOException {
+		URL url = this.getClass().getResource("/extents/Region-002.xml");
+		Document region = docBuilder.parse(url.toString());
+		RegionValidator iut = RegionValidator.getInstance();
+		ValidationResult result = iut.validate(region.getDocumentElement(), 1);
+		assertFalse("Unexpected error for ATC-306.", result
 				.getErrorMessages().contains("ATC-306"));
 	}
 
@@ -12,6 +12,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.validation.ValidationErrorHandler;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
@@ -38,9 +39,10 @@ public class VerifySchemaChecker {
 		Element simpleField = doc.createElementNS(KML2.NS_NAME, "SimpleField");
 		simpleField.setAttribute("uom", "km");
 		doc.appendChild(simpleField);
-		SchemaChecker iut = new SchemaChecker();
-		iut.checkUnitOfMeasure(simpleField);
-		assertTrue("Unexpected error.", iut.getErrorMessages().isEmpty());
+		SchemaChecker iut = SchemaChecker.getInstance();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		iut.checkUnitOfMeasure(simpleField, errHandler);
+		assertTrue("Unexpected error.", errHandler.toString().isEmpty());
 	}
 
 	@Test
@@ -49,9 +51,10 @@ public class VerifySchemaChecker {
 		Element simpleField = doc.createElementNS(KML2.NS_NAME, "SimpleField");
 		simpleField.setAttribute("uom", "[nmi_i]");
 		doc.appendChild(simpleField);
-		SchemaChecker iut = new SchemaChecker();
-		iut.checkUnitOfMeasure(simpleField);
-		assertTrue("Unexpected error.", iut.getErrorMessages().isEmpty());
+		SchemaChecker iut = SchemaChecker.getInstance();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		iut.checkUnitOfMeasure(simpleField, errHandler);
+		assertTrue("Unexpected error.", errHandler.toString().isEmpty());
 	}
 
 	@Test
@@ -60,11 +63,12 @@ public class VerifySchemaChecker {
 		Element simpleField = doc.createElementNS(KML2.NS_NAME, "SimpleField");
 		simpleField.setAttribute("uom", "msec");
 		doc.appendChild(simpleField);
-		SchemaChecker iut = new SchemaChecker();
-		iut.checkUnitOfMeasure(simpleField);
-		assertFalse("Expected an error.", iut.getErrorMessages().isEmpty());
+		SchemaChecker iut = SchemaChecker.getInstance();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		iut.checkUnitOfMeasure(simpleField, errHandler);
+		assertFalse("Expected an error.", errHandler.toString().isEmpty());
 		assertTrue("Expected error message to contain 'No definition found'",
-				iut.getErrorMessages().contains("No definition found"));
+				errHandler.toString().contains("No definition found"));
 	}
 
 	@Test
@@ -74,9 +78,10 @@ public class VerifySchemaChecker {
 				"/schemas/Schema-001.xml"));
 		Element schema = (Element) doc.getElementsByTagNameNS(KML2.NS_NAME,
 				"Schema").item(0);
-		SchemaChecker iut = new SchemaChecker();
-		iut.checkSimpleFields(schema);
-		assertTrue("Unexpected error.", iut.getErrorMessages().isEmpty());
+		SchemaChecker iut = SchemaChecker.getInstance();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		iut.checkSimpleFields(schema, errHandler);
+		assertTrue("Unexpected error.", errHandler.toString().isEmpty());
 	}
 
 	@Test
@@ -86,12 +91,13 @@ public class VerifySchemaChecker {
 				"/schemas/Schema-002.xml"));
 		Element schema = (Element) doc.getElementsByTagNameNS(KML2.NS_NAME,
 				"Schema").item(0);
-		SchemaChecker iut = new SchemaChecker();
-		iut.checkSimpleFields(schema);
-		assertFalse("Expected an error.", iut.getErrorMessages().isEmpty());
+		SchemaChecker iut = SchemaChecker.getInstance();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		iut.checkSimpleFields(schema, errHandler);
+		assertFalse("Expected an error.", errHandler.toString().isEmpty());
 		assertTrue(
 				"Expected error message to contain 'Unknown atomic type'",
-				iut.getErrorMessages().contains(
+				errHandler.toString().contains(
 						"Invalid data type: Unknown atomic type"));
 	}
 }
@@ -0,0 +1,62 @@
+package org.opengis.cite.kml2.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.cite.kml2.validation.SchemaFieldCache.SchemaFields;
+import org.w3c.dom.Document;
+
+/**
+ * Verifies the behavior of the SchemaFieldCache class.
+ */
+public class VerifySchemaFieldCache {
+
+	private static Document doc;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		doc = dbf.newDocumentBuilder().newDocument();
+	}
+
+	@Test
+	public void leastRecentlyUsedRemoteSchemaEvicted() {
+		SchemaFieldCache iut = new SchemaFieldCache(2, 60000);
+		URI schema1 = URI.create("http://example.org/a.kml#s1");
+		URI schema2 = URI.create("http://example.org/a.kml#s2");
+		URI schema3 = URI.create("http://example.org/a.kml#s3");
+		iut.put(doc, schema1, SchemaFields.NOT_FOUND);
+		iut.put(doc, schema2, SchemaFields.NOT_FOUND);
+		iut.get(doc, schema1);
+		iut.put(doc, schema3, SchemaFields.NOT_FOUND);
+		assertEquals(2, iut.getRemoteSchemaCount());
+		assertSame(SchemaFields.NOT_FOUND, iut.get(doc, schema1));
+		assertNull("Expected entry to be evicted.", iut.get(doc, schema2));
+	}
+
+	@Test
+	public void expiredRemoteSchemaRemoved() {
+		SchemaFieldCache iut = new SchemaFieldCache(2, 0);
+		URI schema = URI.create("http://example.org/a.kml#s1");
+		iut.put(doc, schema, SchemaFields.NOT_FOUND);
+		assertNull("Expected entry to expire.", iut.get(doc, schema));
+		assertEquals(0, iut.getRemoteSchemaCount());
+	}
+
+	@Test
+	public void localSchemaDoesNotCount() {
+		SchemaFieldCache iut = new SchemaFieldCache(1, 0);
+		URI schema = URI.create("#s1");
+		iut.put(doc, schema, SchemaFields.NOT_FOUND);
+		assertSame(SchemaFields.NOT_FOUND, iut.get(doc, schema));
+		assertEquals(0, iut.getRemoteSchemaCount());
+	}
+}
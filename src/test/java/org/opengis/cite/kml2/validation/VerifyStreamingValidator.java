@@ -0,0 +1,211 @@
+package org.opengis.cite.kml2.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.opengis.cite.kml2.KML2;
+import org.opengis.cite.validation.ValidationError;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+/**
+ * Verifies the behavior of the StreamingValidator class.
+ */
+public class VerifyStreamingValidator {
+
+	private static final String KML_START = "<kml xmlns='http://www.opengis.net/kml/2.2'>";
+
+	private static File getResourceFile(String path) throws Exception {
+		URL url = VerifyStreamingValidator.class.getResource(path);
+		return new File(url.toURI());
+	}
+
+	private static InputStream toStream(String kml) {
+		return new ByteArrayInputStream(kml.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void invalidLinearRing() throws Exception {
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut
+				.validate(getResourceFile("/geom/LinearRing-001.xml"));
+		assertEquals("Unexpected error count.", 1, result.getErrorCount());
+		assertTrue("Unexpected error message.", result.getErrors().get(0)
+				.getMessage()
+				.contains("LinearRing element must contain four or more"));
+	}
+
+	@Test
+	public void pointWithoutCoordinates() throws Exception {
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut
+				.validate(getResourceFile("/geom/PointNoCoordinates.xml"));
+		assertFalse("Expected invalid Point.", result.isValid());
+		assertTrue("Unexpected error message.", result.getErrors().get(0)
+				.getMessage().contains("No kml:coordinates element found"));
+	}
+
+	@Test
+	public void pointRelativeToGroundWith2DTuple() throws Exception {
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut
+				.validate(getResourceFile("/geom/PointRelativeToGround.xml"));
+		assertEquals("Unexpected error count.", 1, result.getErrorCount());
+		assertTrue("Unexpected error message.", result.getErrors().get(0)
+				.getMessage().contains("altitudeMode is not 'clampToGround'"));
+	}
+
+	@Test
+	public void altitudeModeAfterCoordinates() throws Exception {
+		String kml = KML_START
+				+ "<LineString><coordinates>1,2 3,4,5 6,x</coordinates>"
+				+ "<altitudeMode>absolute</altitudeMode></LineString></kml>";
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut.validate(toStream(kml), "urn:test");
+		assertEquals("Unexpected error count.", 2, result.getErrorCount());
+		assertTrue("Expected dimension error.", result.getErrors().get(0)
+				.getMessage().startsWith("Coordinate tuple [0]"));
+		assertTrue("Expected dimension error.", result.getErrors().get(1)
+				.getMessage().startsWith("Coordinate tuple [2]"));
+	}
+
+	@Test
+	public void coordinateErrorsMatchCoordinatesValidator() throws Exception {
+		File file = getResourceFile("/geom/CoordinateTuples.xml");
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		Document doc = factory.newDocumentBuilder().parse(file);
+		List<String> expected = new ArrayList<>();
+		for (String geometry : new String[] { "Point", "LineString",
+				"LinearRing", "LatLonQuad" }) {
+			NodeList nodes = doc.getElementsByTagNameNS(KML2.NS_NAME,
+					geometry);
+			for (int i = 0; i < nodes.getLength(); i++) {
+				ValidationResult result = CoordinatesValidator.getInstance()
+						.validate(nodes.item(i));
+				for (ValidationError error : result.getErrors()) {
+					expected.add(error.getMessage() + " @ "
+							+ error.getLocation());
+				}
+			}
+		}
+		StreamingResult result = new StreamingValidator().validate(file);
+		List<String> actual = new ArrayList<>();
+		for (ValidationError error : result.getErrors()) {
+			actual.add(error.getMessage() + " @ " + error.getLocation());
+		}
+		Collections.sort(expected);
+		Collections.sort(actual);
+		assertEquals("Unexpected number of errors.", 15, expected.size());
+		assertEquals("Streaming errors differ.", expected, actual);
+	}
+
+	@Test
+	public void invalidTimeSpan() throws Exception {
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut
+				.validate(getResourceFile("/time/TimeSpan-invalid.xml"));
+		assertEquals("Unexpected error count.", 1, result.getErrorCount());
+		assertTrue("Unexpected error message.", result.getErrors().get(0)
+				.getMessage().contains("kml:end is not after kml:begin"));
+	}
+
+	@Test
+	public void validTimeSpan() throws Exception {
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut
+				.validate(getResourceFile("/time/TimeSpan-valid.xml"));
+		assertTrue("Expected valid TimeSpan.", result.isValid());
+	}
+
+	@Test
+	public void invalidViewBoundScale() throws Exception {
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut
+				.validate(getResourceFile("/features/NetworkLink-002.xml"));
+		assertEquals("Unexpected error count.", 1, result.getErrorCount());
+		assertTrue("Unexpected error message.", result.getErrors().get(0)
+				.getMessage().contains("kml:viewBoundScale > 0"));
+	}
+
+	@Test
+	public void negativeRefreshPeriod() throws Exception {
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut
+				.validate(getResourceFile("/kml23/NetworkLinkControl-003.xml"));
+		assertEquals("Unexpected error count.", 1, result.getErrorCount());
+		assertTrue("Unexpected error message.", result.getErrors().get(0)
+				.getMessage().contains("kml:minRefreshPeriod >= 0"));
+	}
+
+	@Test
+	public void regionWithoutLatLonAltBox() throws Exception {
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut
+				.validate(getResourceFile("/kml23/Placemark-001.xml"));
+		assertEquals("Unexpected error count.", 1, result.getErrorCount());
+		assertEquals("Unexpected location.",
+				"xmlns(tns=http://www.opengis.net/kml/2.2)xpointer((//tns:Region)[1])",
+				result.getErrors().get(0).getLocation());
+	}
+
+	@Test
+	public void validRegion() throws Exception {
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut
+				.validate(getResourceFile("/extents/Region-001.xml"));
+		assertTrue("Expected valid Region.", result.isValid());
+		assertEquals("Unexpected number of checked elements.", 1,
+				result.getCheckedCount());
+	}
+
+	@Test
+	public void updateContextIsSkipped() throws Exception {
+		String kml = KML_START + "<NetworkLinkControl><Update><Change>"
+				+ "<Point targetId='p1'><coordinates>1</coordinates></Point>"
+				+ "</Change></Update></NetworkLinkControl></kml>";
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut.validate(toStream(kml), "urn:test");
+		assertTrue("Expected no errors.", result.isValid());
+	}
+
+	@Test
+	public void readDocumentInArchive() throws Exception {
+		StreamingValidator iut = new StreamingValidator();
+		StreamingResult result = iut
+				.validate(getResourceFile("/kml22/small_world.kmz"));
+		assertTrue("Expected jar URI.", result.getSubject().startsWith("jar:"));
+		assertTrue("Expected some elements.", result.getElementCount() > 0);
+	}
+
+	@Test
+	public void excessErrorsAreCounted() throws Exception {
+		StringBuilder kml = new StringBuilder(KML_START).append("<Folder>");
+		for (int i = 0; i < 10; i++) {
+			kml.append("<Point><coordinates>1,2 3,4</coordinates></Point>");
+		}
+		kml.append("</Folder></kml>");
+		StreamingValidator iut = new StreamingValidator(3);
+		StreamingResult result = iut.validate(toStream(kml.toString()),
+				"urn:test");
+		assertEquals("Unexpected error count.", 10, result.getErrorCount());
+		assertEquals("Unexpected number of retained errors.", 3, result
+				.getErrors().size());
+		assertEquals("Unexpected location of last retained error.",
+				"xmlns(tns=http://www.opengis.net/kml/2.2)xpointer((//tns:Point)[3])",
+				result.getErrors().get(2).getLocation());
+	}
+}
@@ -38,11 +38,11 @@ public class VerifyStyleChecker {
 	public void iconStyleMissingIcon() throws SAXException, IOException {
 		URL url = this.getClass().getResource("/styles/Style-001.xml");
 		Document link = docBuilder.parse(url.toString());
-		StyleChecker iut = new StyleChecker();
-		boolean isValid = iut.isValid(link.getDocumentElement());
-		assertFalse("Expected invalid Link.", isValid);
-		assertTrue("Expected 'URI is not accessible'.", iut.getErrorMessages()
-				.contains("URI is not accessible"));
+		StyleChecker iut = StyleChecker.getInstance();
+		ValidationResult result = iut.validate(link.getDocumentElement());
+		assertFalse("Expected invalid Link.", result.isValid());
+		assertTrue("Expected 'URI is not accessible'.", result
+				.getErrorMessages().contains("URI is not accessible"));
 	}
 
 	@Test
@@ -51,12 +51,12 @@ public class VerifyStyleChecker {
 		URL url = this.getClass().getResource("/features/Placemark-103.xml");
 		Node style = docBuilder.parse(url.toString())
 				.getElementsByTagNameNS(KML2.NS_NAME, "Style").item(0);
-		StyleChecker iut = new StyleChecker();
-		boolean isValid = iut.isValid(style);
-		assertFalse("Expected invalid style.", isValid);
+		StyleChecker iut = StyleChecker.getInstance();
+		ValidationResult result = iut.validate(style);
+		assertFalse("Expected invalid style.", result.isValid());
 		assertTrue(
 				"Expected message with 'ListStyle applies to NetworkLink'",
-				iut.getErrorMessages().contains(
+				result.getErrorMessages().contains(
 						"ListStyle applies to NetworkLink"));
 	}
 
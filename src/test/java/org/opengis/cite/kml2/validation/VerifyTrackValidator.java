@@ -0,0 +1,86 @@
+package org.opengis.cite.kml2.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.cite.kml2.util.CoordinateStore;
+import org.w3c.dom.Document;
+
+/**
+ * Verifies the behavior of the TrackValidator class when the track positions
+ * are held in a {@link CoordinateStore}.
+ */
+public class VerifyTrackValidator {
+
+	private static final String TRACK_START = "<Track xmlns='http://www.opengis.net/kml/2.2'>"
+			+ "<when>2010-05-28T02:02:09Z</when>"
+			+ "<when>2010-05-28T02:02:35Z</when>";
+	private static DocumentBuilder docBuilder;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		docBuilder = dbf.newDocumentBuilder();
+	}
+
+	private static Document parse(String kml) throws Exception {
+		return docBuilder.parse(new ByteArrayInputStream(kml
+				.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void validStoredTrack() throws Exception {
+		Document doc = parse(TRACK_START
+				+ "<coord>-122.207881 37.371915 156.0</coord>"
+				+ "<coord>-122.205712 37.373288 152.0</coord></Track>");
+		CoordinateStore store = CoordinateStore.register(doc, false);
+		ValidationResult result = TrackValidator.getInstance().validate(
+				doc.getDocumentElement());
+		assertTrue(result.getErrorMessages(), result.isValid());
+		assertEquals("Expected positions in store.", 2, store.getTupleCount());
+	}
+
+	@Test
+	public void storedTrackOutsideCRS() throws Exception {
+		Document doc = parse(TRACK_START
+				+ "<coord>-122.207881 37.371915 156.0</coord>"
+				+ "<coord>-222.205712 37.373288 152.0</coord></Track>");
+		CoordinateStore.register(doc, false);
+		ValidationResult result = TrackValidator.getInstance().validate(
+				doc.getDocumentElement());
+		assertFalse("Expected invalid track.", result.isValid());
+		assertEquals("Unexpected number of errors.", 1, result.getErrorCount());
+	}
+
+	@Test
+	public void storedTrackWithBlankCoord() throws Exception {
+		Document doc = parse(TRACK_START
+				+ "<coord>-122.207881 37.371915 156.0</coord>"
+				+ "<coord> </coord></Track>");
+		CoordinateStore.register(doc, false);
+		ValidationResult result = TrackValidator.getInstance().validate(
+				doc.getDocumentElement());
+		assertFalse("Expected invalid track.", result.isValid());
+	}
+
+	@Test
+	public void storedTrackWithMissingData() throws Exception {
+		Document doc = parse(TRACK_START
+				+ "<coord>-122.207881 37.371915 156.0</coord>"
+				+ "<coord/></Track>");
+		CoordinateStore.register(doc, false);
+		ValidationResult result = TrackValidator.getInstance().validate(
+				doc.getDocumentElement());
+		assertTrue(result.getErrorMessages(), result.isValid());
+	}
+}